@@ -1,5 +1,6 @@
 package com.gamehub.chatservice.config;
 
+import com.gamehub.chatservice.ws.OutboundDeliveryTracker;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.simp.config.ChannelRegistration;
@@ -12,15 +13,19 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
 
 /**
  * WebSocket + STOMP 配置（参考 game-service）。
+ * 多实例部署时开启 ws.relay.enabled，由 libs/ws-relay 经 Redis 转发 /topic、/user 消息。
  */
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketStompConfig implements WebSocketMessageBrokerConfigurer {
 
     private final WebSocketAuthChannelInterceptor authInterceptor;
+    private final OutboundDeliveryTracker deliveryTracker;
 
-    public WebSocketStompConfig(WebSocketAuthChannelInterceptor authInterceptor) {
+    public WebSocketStompConfig(WebSocketAuthChannelInterceptor authInterceptor,
+                                OutboundDeliveryTracker deliveryTracker) {
         this.authInterceptor = authInterceptor;
+        this.deliveryTracker = deliveryTracker;
     }
 
     /**
@@ -61,5 +66,13 @@ public class WebSocketStompConfig implements WebSocketMessageBrokerConfigurer {
     public void configureClientInboundChannel(ChannelRegistration registration) {
         registration.interceptors(authInterceptor);
     }
+
+    /**
+     * 出站通道：投递确认（踢人通知交给会话后再断开连接）
+     */
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.interceptors(deliveryTracker);
+    }
 }
 
@@ -8,11 +8,13 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.util.CollectionUtils;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * 会话失效事件监听器（登出/改密/禁用等），参考 game-service。
  * 收到 session-invalidated 事件后，断开该用户在 chat-service 的所有 WebSocket 连接。
+ * 断开经 {@link WebSocketDisconnectHelper#kickAll} 异步执行（先通知、确认或超时后关闭），Kafka 消费线程不等待。
  */
 @Slf4j
 @Component
@@ -58,15 +60,20 @@ public class SessionInvalidatedListener implements SessionEventListener {
         String reason = resolveReason(event);
         log.info("【chat-service】开始断开用户 {} 的 WebSocket 连接，共 {} 个", userId, chatSessions.size());
 
+        // 先从会话注册表中移除（连接随后关闭，Redis 中的记录不必等连接真正断开）
+        List<WebSocketDisconnectHelper.Target> targets = new ArrayList<>(chatSessions.size());
         for (WebSocketSessionInfo session : chatSessions) {
             try {
-                disconnectHelper.sendKickMessage(userId, session.getSessionId(), reason);
-                disconnectHelper.forceDisconnect(session.getSessionId());
                 sessionRegistry.unregisterWebSocketSession(session.getSessionId());
             } catch (Exception e) {
-                log.error("【chat-service】断开 WebSocket 失败: userId={}, sessionId={}", userId, session.getSessionId(), e);
+                log.error("【chat-service】移除 WebSocket 会话记录失败: userId={}, sessionId={}", userId, session.getSessionId(), e);
             }
+            targets.add(new WebSocketDisconnectHelper.Target(userId, session.getSessionId()));
         }
+
+        // 批量“通知后断开”：异步执行，不阻塞 Kafka 消费线程
+        disconnectHelper.kickAll(targets, reason)
+                .whenComplete((v, e) -> log.info("【chat-service】用户 {} 的 WebSocket 连接已断开: 共 {} 个", userId, targets.size()));
     }
 
     private String resolveReason(SessionInvalidatedEvent event) {
@@ -1,23 +1,39 @@
 package com.gamehub.chatservice.ws;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.messaging.simp.stomp.StompCommand;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
- * WebSocket 断连工具类。
+ * WebSocket 断连工具类（与 game-service 相同的“先通知、再断开”流程）。
  * <p>
- * 职责：
- * - 向指定用户发送踢下线通知
- * - 向入站通道发送 DISCONNECT 命令，强制关闭指定 session
+ * 流程（全程不阻塞调用线程、入站线程与出站线程）：
+ * 1. 踢人通知（/queue/system.kick）按会话定向发送，带投递票据（{@link OutboundDeliveryTracker}）；
+ * 2. 出站线程把通知交给会话后确认票据；确认或 confirm-timeout-ms 超时（以先到者为准）后，
+ *    在本类的 ws-disconnect 线程上发送 STOMP DISCONNECT 关闭会话；
+ * 3. 返回的 future 在会话关闭后完成。
  */
 @Slf4j
 @Component
@@ -26,38 +42,85 @@ public class WebSocketDisconnectHelper {
     /** 踢人消息发送的目的地 */
     private static final String KICK_DESTINATION = "/queue/system.kick";
 
-    private final org.springframework.messaging.simp.SimpMessagingTemplate messagingTemplate;
+    /** 待断开的会话 */
+    public record Target(String userId, String sessionId) {}
+
+    private final SimpMessagingTemplate messagingTemplate;
     private final MessageChannel clientInboundChannel;
+    private final OutboundDeliveryTracker deliveryTracker;
+
+    private final Counter confirmed;
+    private final Counter timedOut;
+
+    /** 通知确认的最长等待（毫秒），超时后照常断开 */
+    @Value("${ws.disconnect.confirm-timeout-ms:500}")
+    private long confirmTimeoutMs;
+
+    /** 超时与断开的执行线程 */
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "ws-disconnect");
+        t.setDaemon(true);
+        return t;
+    });
 
     public WebSocketDisconnectHelper(
-            org.springframework.messaging.simp.SimpMessagingTemplate messagingTemplate,
-            @Qualifier("clientInboundChannel") MessageChannel clientInboundChannel) {
+            SimpMessagingTemplate messagingTemplate,
+            @Qualifier("clientInboundChannel") MessageChannel clientInboundChannel,
+            OutboundDeliveryTracker deliveryTracker,
+            MeterRegistry meterRegistry) {
         this.messagingTemplate = messagingTemplate;
         this.clientInboundChannel = clientInboundChannel;
+        this.deliveryTracker = deliveryTracker;
+        this.confirmed = Counter.builder("ws.disconnect.notices").tag("outcome", "confirmed")
+                .description("断开前通知的确认结果").register(meterRegistry);
+        this.timedOut = Counter.builder("ws.disconnect.notices").tag("outcome", "timeout")
+                .description("断开前通知的确认结果").register(meterRegistry);
+        Gauge.builder("ws.disconnect.pending", deliveryTracker, OutboundDeliveryTracker::pendingCount)
+                .description("等待确认的断开前通知数").register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
     }
 
     /**
-     * 发送踢人通知到指定用户的指定 session。
+     * 通知并断开单个会话。
+     *
+     * @return 会话关闭后完成
      */
-    public void sendKickMessage(String userId, String sessionId, String reason) {
-        try {
-            SimpMessageHeaderAccessor headerAccessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
-            headerAccessor.setSessionId(sessionId);
-            headerAccessor.setLeaveMutable(true);
+    public CompletableFuture<Void> kick(String userId, String sessionId, String reason) {
+        CompletableFuture<Void> closed = new CompletableFuture<>();
+        sendTracked(userId, sessionId, Map.of("type", "WS_KICK", "reason", reason)).whenComplete((ok, e) -> {
+            try {
+                scheduler.execute(() -> {
+                    forceDisconnect(sessionId);
+                    closed.complete(null);
+                });
+            } catch (RejectedExecutionException ex) {
+                // 停机中：就地断开
+                forceDisconnect(sessionId);
+                closed.complete(null);
+            }
+        });
+        return closed;
+    }
 
-            messagingTemplate.convertAndSendToUser(
-                    userId,
-                    KICK_DESTINATION,
-                    Map.of("type", "WS_KICK", "reason", reason),
-                    headerAccessor.getMessageHeaders()
-            );
-        } catch (Exception e) {
-            log.warn("发送踢人通知失败: userId={}, sessionId={}", userId, sessionId, e);
+    /**
+     * 批量通知并断开（会话失效等）。
+     *
+     * @return 全部会话关闭后完成
+     */
+    public CompletableFuture<Void> kickAll(Collection<Target> targets, String reason) {
+        List<CompletableFuture<Void>> all = new ArrayList<>(targets.size());
+        for (Target t : targets) {
+            all.add(kick(t.userId(), t.sessionId(), reason));
         }
+        return CompletableFuture.allOf(all.toArray(CompletableFuture[]::new));
     }
 
     /**
-     * 强制断开 WebSocket 连接。
+     * 强制断开 WebSocket 连接（不发通知、不等待）。
      */
     public void forceDisconnect(String sessionId) {
         try {
@@ -69,6 +132,32 @@ public class WebSocketDisconnectHelper {
             log.warn("强制断开连接失败: sessionId={}", sessionId, e);
         }
     }
-}
 
+    // ------------------------------------------------------------------
 
+    /**
+     * 向单个会话发送带投递票据的踢人通知，返回确认结果（超时为 false）
+     */
+    private CompletableFuture<Boolean> sendTracked(String userId, String sessionId, Object payload) {
+        String ticket = deliveryTracker.newTicket();
+        CompletableFuture<Boolean> ack = deliveryTracker.confirmation(ticket);
+        try {
+            SimpMessageHeaderAccessor headerAccessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            headerAccessor.setSessionId(sessionId);
+            headerAccessor.setHeader(OutboundDeliveryTracker.TICKET_HEADER, ticket);
+            headerAccessor.setLeaveMutable(true);
+            messagingTemplate.convertAndSendToUser(userId, KICK_DESTINATION, payload, headerAccessor.getMessageHeaders());
+            scheduler.schedule(() -> {
+                if (deliveryTracker.expire(ticket)) {
+                    timedOut.increment();
+                    log.debug("踢人通知未确认，超时断开: userId={}, sessionId={}", userId, sessionId);
+                }
+            }, confirmTimeoutMs, TimeUnit.MILLISECONDS);
+            ack.thenAccept(ok -> { if (ok) confirmed.increment(); });
+        } catch (Exception e) {
+            log.warn("发送踢人通知失败: userId={}, sessionId={}", userId, sessionId, e);
+            deliveryTracker.expire(ticket);
+        }
+        return ack;
+    }
+}
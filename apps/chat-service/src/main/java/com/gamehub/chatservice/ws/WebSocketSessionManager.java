@@ -63,16 +63,10 @@ public class WebSocketSessionManager {
         log.info("WS connected: service=chat-service, user={}, loginSessionId={}, session={}, kicked={}",
                 principal.getName(), loginSessionId, sessionId, sameService.size());
 
-        // 如果存在同 service 旧连接，逐一发送踢人通知并强制断开
+        // 如果存在同 service 旧连接，逐一发送踢人通知，确认或超时后断开
         if (sameService != null && !sameService.isEmpty()) {
-            sameService.forEach(old -> {
-                try {
-                    disconnectHelper.sendKickMessage(principal.getName(), old.getSessionId(), "账号已在其他终端登录");
-                    disconnectHelper.forceDisconnect(old.getSessionId());
-                } catch (Exception e) {
-                    log.warn("force disconnect old chat ws failed: user={}, oldSession={}", principal.getName(), old.getSessionId(), e);
-                }
-            });
+            // 异步“通知后断开”，不阻塞 CONNECT 事件线程
+            sameService.forEach(old -> disconnectHelper.kick(principal.getName(), old.getSessionId(), "账号已在其他终端登录"));
         }
     }
 
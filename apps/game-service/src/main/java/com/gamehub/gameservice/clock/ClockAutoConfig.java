@@ -2,20 +2,19 @@ package com.gamehub.gameservice.clock;
 
 import com.gamehub.gameservice.clock.scheduler.CountdownScheduler;
 import com.gamehub.gameservice.clock.scheduler.CountdownSchedulerImpl;
+import com.gamehub.gameservice.clock.scheduler.HashedWheelTimer;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.core.RedisTemplate;
 
-import java.util.concurrent.ScheduledThreadPoolExecutor;
-
 /**
  * ClockAutoConfig
  * ---------------------------------------
  * 倒计时相关 Bean 的自动装配：将调度线程池与 Redis 注入到通用调度引擎中。
  *
  * 说明：
- *  - 线程池由 {@link com.gamehub.gameservice.clock.ClockSchedulerConfig} 提供。
+ *  - 时间轮与其工作线程池由 {@link com.gamehub.gameservice.clock.ClockSchedulerConfig} 提供。
  *  - 这里不关心任何业务细节，只负责把基础设施拼起来。
  */
 @Configuration
@@ -23,14 +22,14 @@ public class ClockAutoConfig {
 
     /**
      * 注册通用倒计时调度器。
-     * @param redisTemplate       Redis 客户端（用于状态/锁）
-     * @param turnClockScheduler  调度线程池（守护线程，每秒触发）
+     * @param redisTemplate   Redis 客户端（用于状态/锁）
+     * @param turnClockWheel  哈希时间轮（单 tick 线程，到期任务交给工作线程池）
      * @return CountdownScheduler 实例
      */
     @Bean
     public CountdownScheduler countdownScheduler(RedisTemplate<String, Object> redisTemplate,
-                                                 @Qualifier("turnClockScheduler")ScheduledThreadPoolExecutor turnClockScheduler) {
-        return new CountdownSchedulerImpl(redisTemplate, turnClockScheduler); // 纯引擎，无业务逻辑
+                                                 @Qualifier("turnClockWheel") HashedWheelTimer turnClockWheel) {
+        return new CountdownSchedulerImpl(redisTemplate, turnClockWheel); // 纯引擎，无业务逻辑
     }
 }
 
@@ -1,5 +1,6 @@
 package com.gamehub.gameservice.clock;
 
+import com.gamehub.gameservice.clock.scheduler.HashedWheelTimer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -19,7 +20,9 @@ import java.util.concurrent.atomic.AtomicInteger;
  * 4. 使用 DiscardPolicy 拒绝策略，任务满时直接丢弃；
  * 5. 启用 setRemoveOnCancelPolicy(true)，清理已取消任务。
  *
- * 主要用于回合倒计时等定时任务。
+ * 主要用于回合倒计时等定时任务：
+ * - turnClockScheduler：时间轮到期任务的工作线程池，以及到期认领等周期任务；
+ * - turnClockWheel：回合倒计时的哈希时间轮（单 tick 线程，持有全部房间的 TICK/截止定时器）。
  */
 
 @Configuration
@@ -28,6 +31,18 @@ public class ClockSchedulerConfig {
     @Value("${scheduler.clock.corePoolSize:2}")
     private int corePoolSize;
 
+    /** 时间轮每格时长（毫秒），即倒计时触发精度 */
+    @Value("${scheduler.clock.wheel.tick-ms:100}")
+    private long wheelTickMs;
+
+    /** 时间轮槽数（2 的幂） */
+    @Value("${scheduler.clock.wheel.size:512}")
+    private int wheelSize;
+
+    /** 同一 tick 到期的定时器每批提交给工作线程池的数量 */
+    @Value("${scheduler.clock.wheel.batch-size:64}")
+    private int wheelBatchSize;
+
     @Bean(name = "turnClockScheduler")
     public ScheduledThreadPoolExecutor turnClockScheduler() {
         ThreadFactory tf = new ThreadFactory() {
@@ -46,6 +61,14 @@ public class ClockSchedulerConfig {
         executor.setRemoveOnCancelPolicy(true);
         return executor;
     }
+
+    /**
+     * 回合倒计时时间轮：到期任务按批提交到 turnClockScheduler 执行。
+     */
+    @Bean(name = "turnClockWheel", destroyMethod = "stop")
+    public HashedWheelTimer turnClockWheel() {
+        return new HashedWheelTimer("countdown-wheel", wheelTickMs, wheelSize, turnClockScheduler(), wheelBatchSize);
+    }
 }
 
 
@@ -1,5 +1,8 @@
 package com.gamehub.gameservice.clock.scheduler;
 
+import java.util.List;
+import java.util.function.Predicate;
+
 /**
  * CountdownScheduler
  * ---------------------------------------
@@ -7,7 +10,7 @@ package com.gamehub.gameservice.clock.scheduler;
  *
  * 设计目标：
  *  - 提供统一的倒计时能力（启动/恢复/停止/全量恢复）。
- *  - 暴露“每秒 tick 回调”和“到期 timeout 回调”。
+ *  - 暴露“每秒 tick 回调”（可选）和“到期 timeout 回调”。
  *  - 不关心消息广播、游戏规则等业务细节，由上层协调器负责。
  */
 public interface CountdownScheduler {
@@ -16,6 +19,7 @@ public interface CountdownScheduler {
      * TickListener
      * ---------------------------------------
      * 每秒触发一次，用于向上层报告：当前 key 的 owner、绝对截止时间、剩余秒数。
+     * 可选：未设置监听器时实现只在截止时间触发一次，不做每秒唤醒。
      */
     interface TickListener {
         /**
@@ -44,7 +48,7 @@ public interface CountdownScheduler {
     }
 
     /**
-     * 设置每秒 TICK 的监听器。
+     * 设置每秒 TICK 的监听器（null 表示不需要每秒 TICK）。
      * @param listener 回调实现
      */
     void setTickListener(TickListener listener);
@@ -66,12 +70,46 @@ public interface CountdownScheduler {
      */
     void stop(String key);
 
+    /**
+     * 仅取消本节点的调度任务，保留持久化状态（交由其他节点接管时使用）。
+     * @param key 业务键
+     */
+    void detach(String key);
+
+    /**
+     * 按持久化状态在本节点续上指定 key 的倒计时（已在本节点运行则忽略；已到期则尝试触发一次超时）。
+     * @param key       业务键
+     * @param onTimeout 到期回调
+     * @return true 表示存在持久化状态并已接管
+     */
+    boolean resume(String key, TimeoutHandler onTimeout);
+
     /**
      * 从持久化介质恢复所有“仍未到期”的倒计时。
      * @param onTimeout 到期回调（用于恢复后直接可能触发的到期处理）
      * @return 恢复的任务数
      */
-    int restoreAllActive(TimeoutHandler onTimeout);
+    default int restoreAllActive(TimeoutHandler onTimeout) {
+        return restoreAllActive(key -> true, onTimeout);
+    }
+
+    /**
+     * 只恢复 accept 判定为“归本节点负责”的倒计时（多节点按归属分片时使用）。
+     * @param accept    业务键过滤器
+     * @param onTimeout 到期回调
+     * @return 恢复的任务数
+     */
+    int restoreAllActive(Predicate<String> accept, TimeoutHandler onTimeout);
+
+    /**
+     * 原子认领一批已过截止时间 graceMs 仍未被处理的倒计时（任意节点可调用，持有节点宕机时由其他节点兜底）。
+     * 被认领的条目在 claimTtlMs 内不会被其他节点再次认领；认领方未能完成超时处理时，到期后可被重新认领。
+     * @param graceMs    宽限毫秒（正常情况下由持有节点的定时器先处理）
+     * @param limit      本批最多认领数
+     * @param claimTtlMs 认领有效期（毫秒）
+     * @return 认领到的业务键（按截止时间升序）
+     */
+    List<String> claimOverdue(long graceMs, int limit, long claimTtlMs);
 }
 
 
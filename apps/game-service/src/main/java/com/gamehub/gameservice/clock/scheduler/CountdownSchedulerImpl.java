@@ -3,12 +3,24 @@ package com.gamehub.gameservice.clock.scheduler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
 
 import java.io.Serializable;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
-import java.util.concurrent.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
 
 /**
  * CountdownSchedulerImpl
@@ -16,9 +28,16 @@ import java.util.concurrent.*;
  * 通用倒计时调度引擎的默认实现。
  *
  * 职责：
- *  - 使用 ScheduledThreadPoolExecutor 每秒调度任务。
+ *  - 使用 {@link HashedWheelTimer} 调度：每个活跃倒计时在时间轮上只有一个定时器（下一次 TICK 或截止时间，取较早者），
+ *    启动/停止/改期均为 O(1)；tick 线程只处理到期槽，到期任务按批交给工作线程池。
+ *    未设置 TickListener 时只挂截止时间一个定时器，整个回合期间不再唤醒。
+ *  - 倒计时状态在内存中持有，TICK 不再每秒读 Redis；只在到期时读一次 Redis 状态确认（被其他节点停止/改期则以 Redis 为准）。
  *  - 将倒计时状态（key/owner/version/deadline）持久化到 Redis，支持重启恢复。
+ *  - 活跃倒计时额外登记在 ZSET 索引（countdown:index，score=deadline）中，与状态同一事务写入；
+ *    重启恢复只读索引，不再 KEYS 扫描整个键空间；任意节点可用 Lua（ZRANGEBYSCORE + 移出到期窗口）原子认领一批到期条目。
  *  - 采用 Redis SETNX 实现的 holder 锁，确保分布式下只有一个节点做超时处理。
+ *    （按房间归属分片后，同一 key 正常只在归属节点调度，holder 锁只在归属切换的瞬间兜底。）
+ *  - 支持 detach/resume：归属切换时由旧节点放手、新节点按持久化状态接管。
  *  - 暴露 tick/timeout 回调给上层业务协调器。
  *
  * 不做的事：
@@ -30,30 +49,47 @@ public class CountdownSchedulerImpl implements CountdownScheduler {
 
     // Redis 客户端，用于状态持久化与分布式锁
     private final RedisTemplate<String, Object> redis;
-    // 调度器：每秒触发一次
-    private final ScheduledThreadPoolExecutor scheduler;
+    // 时间轮：所有倒计时的 TICK 与到期定时器
+    private final HashedWheelTimer wheel;
 
     // 本节点标识，用于 holder 锁
     @Value("${instance.id:${spring.application.name}-${random.value}}")
     private String nodeId;
 
-    // 每秒 TICK 的上层监听器（可为空）
+    // 每秒 TICK 的上层监听器（可为空：为空时只在截止时间触发）
     private volatile TickListener tickListener;
 
-    // key -> 任务句柄
-    private final ConcurrentMap<String, ScheduledFuture<?>> activeTasks = new ConcurrentHashMap<>();
+    // 活跃倒计时索引（ZSET：member=业务键，score=deadlineEpochMs）
+    private static final String INDEX_KEY = "countdown:index";
+    // 状态持久化 TTL
+    private static final Duration STATE_TTL = Duration.ofSeconds(24 * 60 * 60);
+
+    // 批量认领到期条目
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> CLAIM_EXPIRED = new DefaultRedisScript<>();
+
+    static {
+        CLAIM_EXPIRED.setLocation(new ClassPathResource("scripts/countdown/claim_expired.lua"));
+        CLAIM_EXPIRED.setResultType(List.class);
+    }
+
+    // TICK 间隔（毫秒）
+    private static final long TICK_INTERVAL_MS = 1000;
+
+    // key -> 本节点运行中的倒计时
+    private final ConcurrentMap<String, Active> activeTasks = new ConcurrentHashMap<>();
 
     /**
-     * 构造函数：注入 Redis 与调度线程池。
+     * 构造函数：注入 Redis 与时间轮。
      * @param redis RedisTemplate 用于持久化状态与分布式锁
-     * @param scheduler 每秒调度执行倒计时任务
+     * @param wheel 时间轮（TICK 与到期定时）
      */
     public CountdownSchedulerImpl(RedisTemplate<String, Object> redis,
-                                  ScheduledThreadPoolExecutor scheduler) {
+                                  HashedWheelTimer wheel) {
         // 注入 Redis
         this.redis = redis;
-        // 注入调度线程池
-        this.scheduler = scheduler;
+        // 注入时间轮
+        this.wheel = wheel;
     }
 
     /**
@@ -96,14 +132,8 @@ public class CountdownSchedulerImpl implements CountdownScheduler {
         }
         // 立即首帧 TICK，提升前端体验
         fireTick(state);
-        // 调度任务主体（首次延迟 1 秒，周期 1 秒）
-        ScheduledFuture<?> fut = scheduler.scheduleAtFixedRate(
-                () -> tickTask(state, onTimeout),
-                1,
-                1,
-                TimeUnit.SECONDS);
-        // 记录任务句柄
-        activeTasks.put(key, fut);
+        // 挂上时间轮（下一次 TICK 或截止时间）
+        arm(state, onTimeout);
     }
 
     /**
@@ -112,95 +142,190 @@ public class CountdownSchedulerImpl implements CountdownScheduler {
      */
     @Override
     public void stop(String key) {
-        // 从表中移除
-        ScheduledFuture<?> f = activeTasks.remove(key);
-        // 取消调度，但不打断正在运行
-        if (f != null) f.cancel(false);
-        // 同步清理 Redis 中的状态与 holder 锁，避免重启时被误恢复
+        // 从表中移除并取消定时器（O(1)）
+        cancel(activeTasks.remove(key));
+        // 同步清理 Redis 中的状态、holder 锁与索引，避免重启时被误恢复
         try {
-            redis.delete(stateKey(key));
-            redis.delete(holderKey(key));
+            redis.delete(List.of(stateKey(key), holderKey(key)));
+            redis.opsForZSet().remove(INDEX_KEY, key);
         } catch (Exception ignore) {}
     }
 
     /**
-     * 恢复所有活跃倒计时：扫描 Redis 状态，过期则清理并尝试超时，未过期则重新调度。
+     * 仅取消本节点的调度任务，保留 Redis 中的状态与索引，便于新归属节点接管。
+     * @param key 业务键
+     */
+    @Override
+    public void detach(String key) {
+        cancel(activeTasks.remove(key));
+    }
+
+    /**
+     * 按持久化状态在本节点续上倒计时：已在本节点运行则忽略；已到期则清理并尝试触发一次超时。
+     * @param key 业务键
+     * @param onTimeout 超时回调
+     * @return true 表示存在持久化状态并已接管
+     */
+    @Override
+    public boolean resume(String key, TimeoutHandler onTimeout) {
+        if (activeTasks.containsKey(key)) return true;
+        CountdownState st = loadState(key);
+        if (st == null) {
+            // 状态已不存在（已处理/已停止）：顺带清理残留索引
+            redis.opsForZSet().remove(INDEX_KEY, key);
+            return false;
+        }
+        schedule(st, onTimeout);
+        return true;
+    }
+
+    /**
+     * 恢复归本节点负责的活跃倒计时：读取 ZSET 索引逐个加载状态，过期则清理并尝试超时，未过期则重新调度。
+     * 索引为空时（例如升级前遗留的状态）以 SCAN 游标兜底一次。
+     * @param accept 业务键过滤器（多节点下只接管本节点持有的房间）
      * @param onTimeout 超时回调
      * @return 成功恢复的数量
      */
     @Override
-    public int restoreAllActive(TimeoutHandler onTimeout) {
-        // 扫描所有持久化倒计时
-        Set<String> keys = redis.keys(stateKey("*"));
+    public int restoreAllActive(Predicate<String> accept, TimeoutHandler onTimeout) {
+        // 读取活跃索引；为空则 SCAN 兜底
+        List<String> keys = indexedStateKeys();
+        if (keys.isEmpty()) keys = scanStateKeys();
         // 无可恢复任务
-        if (keys == null || keys.isEmpty()) return 0;
+        if (keys.isEmpty()) return 0;
         // 计数器
         int restored = 0;
-        int expiredCleaned = 0;                                          // 被清理的已过期数量
-        int expiredHandled = 0;                                          // 触发了超时处理的数量
+        int skipped = 0;                                                 // 归属其他节点而跳过的数量
+        int expiredHandled = 0;                                          // 已过期、已尝试超时处理的数量
         // 遍历每个持久化键
         for (String redisKey : keys) {
             // 加载状态
             CountdownState st = loadStateByRedisKey(redisKey);
-            // 容错：被并发删除
-            if (st == null) continue;
-            // 剩余毫秒
-            long remainMs = st.deadlineEpochMs - System.currentTimeMillis();
-            // 已过期：清理并尝试超时
-            if (remainMs <= 0) {
-                // 清理陈旧状态
-                redis.delete(redisKey);
-                expiredCleaned++;
-                // holder 才执行超时
-                if (tryAcquireHolder(st.key)) { safeTimeout(onTimeout, st); expiredHandled++; }
-                // 不再恢复调度
+            // 容错：被并发删除或已过期，顺带清理索引
+            if (st == null) {
+                redis.opsForZSet().remove(INDEX_KEY, redisKey.substring(stateKey("").length()));
                 continue;
             }
-            // 恢复后立即推一帧 TICK
-            fireTick(st);
-            // 启动周期调度
-            ScheduledFuture<?> fut = scheduler.scheduleAtFixedRate(
-                    () -> tickTask(st, onTimeout), 1, 1, java.util.concurrent.TimeUnit.SECONDS);
-            // 记录任务
-            activeTasks.put(st.key, fut);
-            restored++;
+            // 已在本节点运行
+            if (activeTasks.containsKey(st.key)) continue;
+            // 不归本节点负责
+            if (!accept.test(st.key)) { skipped++; continue; }
+            // 过滤器内可能已经触发接管（如获取归属时的回调）
+            if (activeTasks.containsKey(st.key)) { restored++; continue; }
+            if (schedule(st, onTimeout)) restored++; else expiredHandled++;
         }
-        // 记录启动恢复的总体结果日志（与旧实现的统计信息等价）
-        log.info("Countdown restoreAllActive done: restored={}, expiredCleaned={}, expiredHandled={}",
-                restored, expiredCleaned, expiredHandled);
+        // 记录启动恢复的总体结果日志
+        log.info("Countdown restoreAllActive done: restored={}, skipped={}, expiredHandled={}",
+                restored, skipped, expiredHandled);
         // 返回恢复数量
         return restored;
     }
 
     /**
-     * 周期任务：读取最新状态，判定到期则尝试 holder 并触发超时，否则发出一帧 TICK。
+     * 认领截止时间早于 now-graceMs 的索引成员（Lua：ZRANGEBYSCORE LIMIT + 改 score 为认领有效期，一次往返、原子）。
+     * 参数按字符串传入脚本；成员按模板的值序列化器还原（与写入索引时一致）。
+     * @param graceMs    宽限毫秒
+     * @param limit      本批最多认领数
+     * @param claimTtlMs 认领有效期（毫秒）
+     * @return 业务键列表
+     */
+    @Override
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public List<String> claimOverdue(long graceMs, int limit, long claimTtlMs) {
+        long now = System.currentTimeMillis();
+        List members = redis.execute(CLAIM_EXPIRED, RedisSerializer.string(), (RedisSerializer) redis.getValueSerializer(),
+                List.of(INDEX_KEY),
+                String.valueOf(now - graceMs), String.valueOf(limit), String.valueOf(now + claimTtlMs));
+        List<String> out = new ArrayList<>();
+        if (members != null) {
+            for (Object m : members) out.add(String.valueOf(m));
+        }
+        return out;
+    }
+
+    /**
+     * 在本节点调度一个已持久化的倒计时。
+     * @return true 表示已调度；false 表示已到期（已清理并尝试超时）
+     */
+    private boolean schedule(CountdownState st, TimeoutHandler onTimeout) {
+        // 剩余毫秒
+        long remainMs = st.deadlineEpochMs - System.currentTimeMillis();
+        // 已过期：清理并尝试超时
+        if (remainMs <= 0) {
+            // 清理陈旧状态
+            redis.delete(stateKey(st.key));
+            redis.opsForZSet().remove(INDEX_KEY, st.key);
+            // holder 才执行超时
+            if (tryAcquireHolder(st.key)) safeTimeout(onTimeout, st);
+            // 不再恢复调度
+            return false;
+        }
+        // 恢复后立即推一帧 TICK
+        fireTick(st);
+        // 挂上时间轮
+        arm(st, onTimeout);
+        return true;
+    }
+
+    /**
+     * 在时间轮上挂下一次触发：下一次 TICK（距今 1 秒）与截止时间取较早者；无 TICK 监听器时直接挂截止时间。
      */
-    private void tickTask(CountdownState state, TimeoutHandler onTimeout) {
-        // 以 Redis 为准，获取最新状态
+    private void arm(CountdownState state, TimeoutHandler onTimeout) {
+        Active a = new Active(state, onTimeout);
+        cancel(activeTasks.put(state.key, a));
+        rearm(a);
+    }
+
+    /**
+     * 时间轮触发（工作线程）：未到截止时间则发一帧 TICK 并挂下一次；到期则以 Redis 状态确认后尝试 holder 并触发超时。
+     */
+    private void onFire(Active a) {
+        CountdownState state = a.state;
+        // 已被停止/改期（新的倒计时替换了本条目）
+        if (activeTasks.get(state.key) != a) return;
+        // 未到期：内存状态发 TICK，挂下一次
+        if (state.deadlineEpochMs > System.currentTimeMillis()) {
+            fireTick(state);
+            rearm(a);
+            return;
+        }
+        // 到期：以 Redis 为准确认一次（只在到期时读）
         CountdownState latest = loadState(state.key);
         // 状态不存在 → 被停/删
         if (latest == null) {
-            // 取消调度
-            stop(state.key);
-            // 结束本次执行
+            activeTasks.remove(state.key, a);
             return;
         }
-        // 剩余毫秒
-        long remainMs = latest.deadlineEpochMs - System.currentTimeMillis();
-        // 到期判断
-        if (remainMs <= 0) {
-            // 抢占 holder（避免多节点重复）
-            if (tryAcquireHolder(state.key)) {
-                // 取消调度
-                stop(state.key);
-                // 执行超时回调
-                safeTimeout(onTimeout, latest);
-            }
-            // 结束本次执行
+        // 被改期（例如其他节点续上了更晚的截止时间）：按最新状态重新挂
+        if (latest.deadlineEpochMs > System.currentTimeMillis()) {
+            if (activeTasks.get(state.key) == a) arm(latest, a.onTimeout);
             return;
         }
-        // 正常 TICK 回调
-        fireTick(latest);
+        // 抢占 holder（避免多节点重复）
+        if (tryAcquireHolder(state.key)) {
+            // 取消调度并清理状态
+            if (activeTasks.get(state.key) == a) stop(state.key);
+            // 执行超时回调
+            safeTimeout(a.onTimeout, latest);
+        } else {
+            activeTasks.remove(state.key, a);
+        }
+    }
+
+    /** 取消条目当前的定时器（条目可为空） */
+    private static void cancel(Active a) {
+        HashedWheelTimer.Timeout t = a == null ? null : a.timer;
+        if (t != null) t.cancel();
+    }
+
+    /** 同一条目挂下一次（TICK 或截止时间） */
+    private void rearm(Active a) {
+        long fireAt = tickListener == null
+                ? a.state.deadlineEpochMs
+                : Math.min(a.state.deadlineEpochMs, System.currentTimeMillis() + TICK_INTERVAL_MS);
+        a.timer = wheel.newTimeout(() -> onFire(a), fireAt);
+        // 期间被停止：撤销刚挂的定时器
+        if (activeTasks.get(a.state.key) != a) a.timer.cancel();
     }
 
     /**
@@ -239,11 +364,46 @@ public class CountdownSchedulerImpl implements CountdownScheduler {
     }
 
     /**
-     * 将状态持久化到 Redis（默认过期24小时）。
+     * 将状态持久化到 Redis（默认过期24小时），并在同一事务中登记索引。
      */
+    @SuppressWarnings("unchecked")
     private void saveState(CountdownState st) {
-        // 保存 24h 过期（可调）
-        redis.opsForValue().set(stateKey(st.key), st, Duration.ofSeconds(24 * 60 * 60));
+        redis.execute(new SessionCallback<Object>() {
+            @Override
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                operations.multi();
+                // 保存 24h 过期（可调）
+                operations.opsForValue().set((K) stateKey(st.key), (V) st, STATE_TTL);
+                operations.opsForZSet().add((K) INDEX_KEY, (V) st.key, st.deadlineEpochMs);
+                return operations.exec();
+            }
+        });
+    }
+
+    /**
+     * 从索引取出全部活跃倒计时对应的状态键。
+     */
+    private List<String> indexedStateKeys() {
+        Set<Object> members = redis.opsForZSet().range(INDEX_KEY, 0, -1);
+        List<String> out = new ArrayList<>();
+        if (members != null) {
+            for (Object m : members) out.add(stateKey(String.valueOf(m)));
+        }
+        return out;
+    }
+
+    /**
+     * SCAN 兜底：遍历 countdown:* 状态键（跳过 holder 锁与索引本身）。
+     */
+    private List<String> scanStateKeys() {
+        List<String> out = new ArrayList<>();
+        ScanOptions options = ScanOptions.scanOptions().match(stateKey("*")).count(500).build();
+        try (Cursor<String> cursor = redis.scan(options)) {
+            cursor.forEachRemaining(k -> {
+                if (!k.equals(INDEX_KEY) && !k.startsWith(holderKey(""))) out.add(k);
+            });
+        }
+        return out;
     }
 
     /**
@@ -259,7 +419,8 @@ public class CountdownSchedulerImpl implements CountdownScheduler {
      */
     private CountdownState loadStateByRedisKey(String redisKey) {
         // 用已知完整 redisKey 读取
-        return (CountdownState) redis.opsForValue().get(redisKey);
+        Object v = redis.opsForValue().get(redisKey);
+        return v instanceof CountdownState st ? st : null;
     }
 
     // 状态键空间
@@ -273,6 +434,20 @@ public class CountdownSchedulerImpl implements CountdownScheduler {
      */
     private String holderKey(String key) { return "countdown:holder:" + key; }
 
+    /**
+     * 本节点运行中的倒计时：状态 + 超时回调 + 当前时间轮定时器
+     */
+    private static final class Active {
+        final CountdownState state;
+        final TimeoutHandler onTimeout;
+        volatile HashedWheelTimer.Timeout timer;
+
+        Active(CountdownState state, TimeoutHandler onTimeout) {
+            this.state = state;
+            this.onTimeout = onTimeout;
+        }
+    }
+
     /**
      * 倒计时状态静态内部类
      */
@@ -0,0 +1,263 @@
+package com.gamehub.gameservice.clock.scheduler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * HashedWheelTimer
+ * ---------------------------------------
+ * 哈希时间轮：一个 tick 线程持有全部定时器，到期的定时器按批交给工作线程池执行。
+ *
+ * 模型：
+ *  - 轮子 wheelSize 个槽（2 的幂），每 tickMs 前进一格；定时器按到期 tick 放入槽（tick & mask），
+ *    超出一圈的记录剩余圈数 rounds，每次轮到该槽时减一；
+ *  - 新建/取消只进无锁队列，由 tick 线程在下一次 tick 时挂入/摘除槽内双向链表：启动、停止、改期（取消 + 新建）均为 O(1)；
+ *  - 每个 tick 只遍历当前槽，到期的定时器收集起来，按 batchSize 分批提交给工作线程池（一批一个任务）；
+ *  - 精度为 tickMs：定时器在到期时间后的第一个 tick 触发；已过期的定时器在下一个 tick 触发。
+ *
+ * 不做的事：
+ *  - 不持久化、不做分布式协调；由 {@link CountdownSchedulerImpl} 负责。
+ */
+public class HashedWheelTimer {
+
+    private static final Logger log = LoggerFactory.getLogger(HashedWheelTimer.class);
+
+    /** 每个 tick 最多从新建队列挂入的定时器数（防止单个 tick 过长） */
+    private static final int MAX_TRANSFER_PER_TICK = 100_000;
+
+    /**
+     * 定时器句柄
+     */
+    public interface Timeout {
+        /**
+         * 取消定时器（O(1)，已触发或已取消时无效果）
+         * @return true 表示本次调用取消成功
+         */
+        boolean cancel();
+
+        /** 是否已取消 */
+        boolean isCancelled();
+    }
+
+    private final long tickMs;
+    private final int mask;
+    private final Bucket[] wheel;
+    private final Executor workers;
+    private final int batchSize;
+
+    private final Queue<Node> pendingAdds = new ConcurrentLinkedQueue<>();
+    private final Queue<Node> pendingCancels = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private final Thread worker;
+    private final long startMs;
+    private volatile boolean running = true;
+
+    /** 已处理到的 tick（仅 tick 线程读写） */
+    private long tick;
+
+    /**
+     * @param name      tick 线程名
+     * @param tickMs    每格时长（毫秒）
+     * @param wheelSize 槽数（向上取 2 的幂）
+     * @param workers   到期任务的执行线程池
+     * @param batchSize 每批任务数（一批占一个工作线程任务）
+     */
+    public HashedWheelTimer(String name, long tickMs, int wheelSize, Executor workers, int batchSize) {
+        if (tickMs <= 0) throw new IllegalArgumentException("tickMs must be positive: " + tickMs);
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.tickMs = tickMs;
+        this.mask = size - 1;
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) wheel[i] = new Bucket();
+        this.workers = workers;
+        this.batchSize = Math.max(1, batchSize);
+        this.startMs = System.currentTimeMillis();
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * 新建定时器：到 deadlineEpochMs 后执行 task（在工作线程池上执行）
+     * @param task            到期任务
+     * @param deadlineEpochMs 到期时间（毫秒时间戳）
+     * @return 句柄
+     */
+    public Timeout newTimeout(Runnable task, long deadlineEpochMs) {
+        if (!running) throw new IllegalStateException("timer stopped");
+        Node n = new Node(task, deadlineEpochMs);
+        pending.incrementAndGet();
+        pendingAdds.add(n);
+        return n;
+    }
+
+    /** 未触发、未取消的定时器数（监控用） */
+    public int pendingTimeouts() {
+        return pending.get();
+    }
+
+    /** 停止 tick 线程（未触发的定时器全部丢弃） */
+    public void stop() {
+        running = false;
+        worker.interrupt();
+    }
+
+    // ------------------------------------------------------------------
+
+    private void run() {
+        while (running) {
+            long target = startMs + (tick + 1) * tickMs;
+            long sleep = target - System.currentTimeMillis();
+            if (sleep > 0) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(sleep));
+                if (!running) break;
+                if (System.currentTimeMillis() < target) continue; // 提前唤醒
+            }
+            try {
+                processCancels();
+                transferAdds();
+                List<Node> due = expire(wheel[(int) (tick & mask)]);
+                dispatch(due);
+            } catch (Throwable t) {
+                log.warn("时间轮 tick 异常: {}", t.toString());
+            }
+            tick++;
+        }
+    }
+
+    private void processCancels() {
+        Node n;
+        while ((n = pendingCancels.poll()) != null) {
+            if (n.bucket != null) n.bucket.remove(n);
+        }
+    }
+
+    private void transferAdds() {
+        for (int i = 0; i < MAX_TRANSFER_PER_TICK; i++) {
+            Node n = pendingAdds.poll();
+            if (n == null) return;
+            if (n.state.get() != Node.ST_INIT) continue; // 挂入前已取消
+            long dueTick = Math.max(tick, ceilDiv(n.deadlineEpochMs - startMs, tickMs) - 1);
+            n.rounds = (dueTick - tick) / wheel.length;
+            wheel[(int) (dueTick & mask)].add(n);
+        }
+    }
+
+    /** 遍历当前槽：rounds 为 0 的摘下并收集，其余减一圈 */
+    private List<Node> expire(Bucket bucket) {
+        List<Node> due = null;
+        Node n = bucket.head;
+        while (n != null) {
+            Node next = n.next;
+            if (n.rounds <= 0) {
+                bucket.remove(n);
+                if (n.state.compareAndSet(Node.ST_INIT, Node.ST_EXPIRED)) {
+                    pending.decrementAndGet();
+                    if (due == null) due = new ArrayList<>();
+                    due.add(n);
+                }
+            } else {
+                n.rounds--;
+            }
+            n = next;
+        }
+        return due;
+    }
+
+    /** 按 batchSize 分批交给工作线程池 */
+    private void dispatch(List<Node> due) {
+        if (due == null) return;
+        for (int i = 0; i < due.size(); i += batchSize) {
+            List<Node> batch = due.subList(i, Math.min(due.size(), i + batchSize));
+            Runnable job = () -> {
+                for (Node n : batch) {
+                    try {
+                        n.task.run();
+                    } catch (Throwable t) {
+                        log.warn("时间轮任务异常: {}", t.toString());
+                    }
+                }
+            };
+            try {
+                workers.execute(job);
+            } catch (RejectedExecutionException e) {
+                log.warn("时间轮任务被拒绝（线程池已关闭？），丢弃 {} 个到期任务", batch.size());
+            }
+        }
+    }
+
+    private static long ceilDiv(long a, long b) {
+        return -Math.floorDiv(-a, b);
+    }
+
+    /** 槽：双向链表（仅 tick 线程读写） */
+    private static final class Bucket {
+        Node head;
+        Node tail;
+
+        void add(Node n) {
+            n.bucket = this;
+            if (head == null) {
+                head = tail = n;
+            } else {
+                tail.next = n;
+                n.prev = tail;
+                tail = n;
+            }
+        }
+
+        void remove(Node n) {
+            if (n.bucket != this) return;
+            if (n.prev != null) n.prev.next = n.next; else head = n.next;
+            if (n.next != null) n.next.prev = n.prev; else tail = n.prev;
+            n.prev = n.next = null;
+            n.bucket = null;
+        }
+    }
+
+    /** 定时器节点 */
+    private final class Node implements Timeout {
+        static final int ST_INIT = 0;
+        static final int ST_CANCELLED = 1;
+        static final int ST_EXPIRED = 2;
+
+        final Runnable task;
+        final long deadlineEpochMs;
+        final AtomicInteger state = new AtomicInteger(ST_INIT);
+
+        // 以下字段只在 tick 线程读写
+        long rounds;
+        Bucket bucket;
+        Node prev;
+        Node next;
+
+        Node(Runnable task, long deadlineEpochMs) {
+            this.task = task;
+            this.deadlineEpochMs = deadlineEpochMs;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!state.compareAndSet(ST_INIT, ST_CANCELLED)) return false;
+            pending.decrementAndGet();
+            pendingCancels.add(this);
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state.get() == ST_CANCELLED;
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.gamehub.gameservice.games.gomoku.application;
+
+import com.gamehub.gameservice.games.gomoku.domain.dto.RoomListEntry;
+import com.gamehub.gameservice.games.gomoku.domain.dto.StateDelta;
+import com.gamehub.gameservice.games.gomoku.domain.repository.RoomRepository;
+import com.gamehub.gameservice.games.gomoku.interfaces.http.dto.RoomSummary;
+import com.gamehub.gameservice.games.gomoku.interfaces.ws.dto.GomokuMessages.BroadcastEvent;
+import com.gamehub.gameservice.games.gomoku.interfaces.ws.dto.LobbyMessages.LobbyEvent;
+import com.gamehub.gameservice.games.gomoku.interfaces.ws.dto.LobbyMessages.LobbySnapshot;
+import com.gamehub.gameservice.games.gomoku.interfaces.ws.dto.LobbyMessages.LobbyUpdate;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * LobbyFeed
+ * -------------------------------------------------------
+ * 大厅实时房间列表：订阅 /topic/lobby 即可收到房间增量，不再轮询 RoomListController。
+ *
+ * 模型：
+ *  - 房间变化驱动：{@link RoomBroadcaster#publish} 的 SNAPSHOT/STATE（以及终局 DELTA）、建房与销毁房间时标记该房间“脏”；
+ *    普通落子 DELTA、CLOCK/TICK 不影响大厅展示，直接忽略；
+ *  - 节流合并：定时线程每 interval-ms 取出脏房间，逐个读取大厅摘要（RoomRepository#getListing，一次 HGET），
+ *    与本节点上次推送的结果比较，只推送有变化的房间，全部变化合成一帧 LobbyUpdate；
+ *    同一房间一个周期内无论变化多少次，只推送一次最终状态；
+ *  - 事件：CREATED（新出现在列表）、UPDATED（摘要变化）、FILLED（满员，移出列表）、CLOSED（房间已解散）；PVE 房间不参与；
+ *  - 首帧：客户端经 /app/gomoku.lobby 取 {@link #snapshot()}（当前可加入的房间，最多 snapshot-limit 个）；
+ *  - 本节点无大厅订阅者且未开启 ws.relay 时不读房间、不推送（开启中继时大厅订阅者可能在其他实例）；
+ *  - 指标：gomoku.lobby.subscribers.local（本节点大厅订阅数）、gomoku.lobby.frames（大厅主题发出的帧）。
+ */
+@Slf4j
+@Component
+public class LobbyFeed {
+
+    /** 大厅主题 */
+    public static final String LOBBY_TOPIC = "/topic/lobby";
+
+    private final SimpMessagingTemplate messaging;
+    private final RoomRepository roomRepo;
+
+    private final Counter frames;
+
+    /** 节流周期（毫秒） */
+    @Value("${gomoku.lobby.interval-ms:500}")
+    private long intervalMs;
+
+    /** 首帧最多返回的房间数 */
+    @Value("${gomoku.lobby.snapshot-limit:50}")
+    private int snapshotLimit;
+
+    /** 是否开启跨实例中继（开启时不按本节点订阅过滤） */
+    @Value("${ws.relay.enabled:false}")
+    private boolean relayEnabled;
+
+    /** 待重新计算的房间 */
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+
+    /** roomId -> 本节点上次推送的状态（只在定时线程读写） */
+    private final Map<String, Listing> emitted = new HashMap<>();
+
+    /** sessionId -> 大厅订阅ID */
+    private final ConcurrentMap<String, Set<String>> subscriptions = new ConcurrentHashMap<>();
+
+    private final AtomicInteger localSubscribers = new AtomicInteger();
+
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "lobby-feed");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public LobbyFeed(SimpMessagingTemplate messaging,
+                     RoomRepository roomRepo,
+                     MeterRegistry meterRegistry) {
+        this.messaging = messaging;
+        this.roomRepo = roomRepo;
+        this.frames = Counter.builder("gomoku.lobby.frames")
+                .description("大厅主题实际发出的帧数").register(meterRegistry);
+        Gauge.builder("gomoku.lobby.subscribers.local", localSubscribers, AtomicInteger::get)
+                .description("本节点大厅订阅数").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        timer.scheduleWithFixedDelay(this::flush, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        log.info("大厅实时列表已启动: intervalMs={}, snapshotLimit={}", intervalMs, snapshotLimit);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    /**
+     * 房间事件进入大厅（只有可能改变大厅展示的事件才标记房间）
+     */
+    public void offer(String roomId, Object event) {
+        if (!(event instanceof BroadcastEvent evt)) {
+            return;
+        }
+        String type = evt.getType();
+        if ("SNAPSHOT".equals(type) || "STATE".equals(type)
+                || ("DELTA".equals(type) && evt.getPayload() instanceof StateDelta d && d.isOver())) {
+            touch(roomId);
+        }
+    }
+
+    /**
+     * 标记房间有变化（建房、销毁等不经房间广播的变化由调用方直接标记）
+     */
+    public void touch(String roomId) {
+        if (roomId != null) {
+            dirty.add(roomId);
+        }
+    }
+
+    /**
+     * 首帧：当前可加入的房间（按创建时间倒序，最多 snapshot-limit 个；一次范围查询 + 一次批量读取摘要）
+     */
+    public LobbySnapshot snapshot() {
+        long at = System.currentTimeMillis();
+        List<RoomSummary> rooms = roomRepo.listJoinable(null, null, snapshotLimit).stream()
+                .map(RoomSummary::from)
+                .toList();
+        return new LobbySnapshot(rooms, at);
+    }
+
+    /** 本节点大厅订阅数 */
+    public int localSubscribers() {
+        return localSubscribers.get();
+    }
+
+    // ------------------------------------------------------------------
+    // 订阅跟踪
+    // ------------------------------------------------------------------
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String sessionId = accessor.getSessionId();
+        String subId = accessor.getSubscriptionId();
+        if (!LOBBY_TOPIC.equals(accessor.getDestination()) || sessionId == null || subId == null) {
+            return;
+        }
+        if (subscriptions.computeIfAbsent(sessionId, k -> ConcurrentHashMap.newKeySet()).add(subId)) {
+            localSubscribers.incrementAndGet();
+        }
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String sessionId = accessor.getSessionId();
+        String subId = accessor.getSubscriptionId();
+        if (sessionId == null || subId == null) {
+            return;
+        }
+        Set<String> subs = subscriptions.get(sessionId);
+        if (subs != null && subs.remove(subId)) {
+            localSubscribers.decrementAndGet();
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        Set<String> subs = subscriptions.remove(event.getSessionId());
+        if (subs != null) {
+            localSubscribers.addAndGet(-subs.size());
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // 节流推送
+    // ------------------------------------------------------------------
+
+    /** 定时：重新计算脏房间，有变化的合成一帧推送 */
+    private void flush() {
+        try {
+            if (dirty.isEmpty()) {
+                return;
+            }
+            if (!relayEnabled && localSubscribers.get() <= 0) {
+                // 无人订阅：丢弃变化；下一个订阅者从首帧开始，上次推送记录也不再有意义
+                dirty.clear();
+                emitted.clear();
+                return;
+            }
+            long at = System.currentTimeMillis();
+            List<LobbyEvent> events = new ArrayList<>();
+            for (Iterator<String> it = dirty.iterator(); it.hasNext(); ) {
+                String roomId = it.next();
+                it.remove();
+                try {
+                    LobbyEvent e = diff(roomId, at);
+                    if (e != null) {
+                        events.add(e);
+                    }
+                } catch (Exception ex) {
+                    log.warn("大厅房间状态读取失败: roomId={}, err={}", roomId, ex.getMessage());
+                }
+            }
+            if (!events.isEmpty()) {
+                messaging.convertAndSend(LOBBY_TOPIC, new LobbyUpdate(events, at));
+                frames.increment();
+            }
+        } catch (Exception e) {
+            log.warn("大厅推送异常: {}", e.getMessage());
+        }
+    }
+
+    /** 当前状态与上次推送比较，得出本周期的事件（无变化返回 null） */
+    private LobbyEvent diff(String roomId, long at) {
+        Listing now = current(roomId);
+        if (now == null) {
+            return null; // PVE
+        }
+        Listing prev = emitted.get(roomId);
+        if (now.equals(prev)) {
+            return null;
+        }
+        String type;
+        if (!now.exists()) {
+            type = "CLOSED";
+            emitted.remove(roomId);
+        } else {
+            if (now.room() == null) {
+                type = "FILLED";
+            } else {
+                type = (prev == null || prev.room() == null) ? "CREATED" : "UPDATED";
+            }
+            emitted.put(roomId, now);
+        }
+        return new LobbyEvent(type, roomId, now.room(), at);
+    }
+
+    /**
+     * 房间在大厅中的当前状态；PVE 房间返回 null
+     */
+    private Listing current(String roomId) {
+        RoomListEntry entry = roomRepo.getListing(roomId).orElse(null);
+        if (entry != null) {
+            return new Listing(true, entry.isJoinable() ? RoomSummary.from(entry) : null);
+        }
+        // 无摘要：房间已解散，或是不进大厅的 PVE 房间
+        return roomRepo.getRoomMeta(roomId).isPresent() ? null : Listing.CLOSED;
+    }
+
+    /**
+     * 房间在大厅中的状态
+     * @param exists 房间是否存在
+     * @param room   可加入时为摘要，满员时为 null
+     */
+    private record Listing(boolean exists, RoomSummary room) {
+        static final Listing CLOSED = new Listing(false, null);
+    }
+}
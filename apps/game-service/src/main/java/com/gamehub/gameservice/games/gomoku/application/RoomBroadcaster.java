@@ -0,0 +1,250 @@
+package com.gamehub.gameservice.games.gomoku.application;
+
+import com.gamehub.gameservice.games.gomoku.interfaces.ws.dto.GomokuMessages.BroadcastEvent;
+import com.gamehub.gameservice.infrastructure.redis.RedisOps;
+import com.gamehub.gameservice.infrastructure.scheduler.RoomCommandExecutor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RoomBroadcaster
+ * -------------------------------------------------------
+ * 房间主题（/topic/room.{roomId}）的出站合帧：同一房间短时间内产生的事件合并成一帧发送。
+ *
+ * 模型：
+ *  - 每房间一个出站缓冲，事件按 {@link #publish} 顺序追加；
+ *  - 房间邮箱内的指令产生的事件先压住，指令结束后再等待 window-ms，窗口内其他指令/TICK 的事件一并合入；
+ *    指令外（TICK、断线、REST）的事件从首个事件起等待 window-ms；
+ *  - 缓冲只有一个事件时原样发送；多个事件包成一帧 BATCH（payload 为按顺序排列的事件数组），
+ *    每个事件保留自己的 type/seq，前端逐个展开处理；
+ *  - 同一房间任意时刻至多一个发送者，发送期间到达的事件在其后发送，房间主题内顺序不变；
+ *  - 发布前先写出房间指令上下文中的脏写（{@link RedisOps#flushCommandContext}），
+ *    客户端/大厅/观战收到事件后回读 Redis 不会读到旧值（与合帧装饰器的安装顺序无关）；
+ *  - 点对点消息（/user/queue/...）不经过这里；
+ *  - 同一事件另交给 {@link SpectatorFanout}，由它延迟后推到观战主题（/topic/room.{roomId}.watch）；
+ *    并交给 {@link LobbyFeed}，影响大厅展示的事件会在其节流周期内合并推到 /topic/lobby；
+ *  - 开关 gomoku.broadcast.batch.enabled=false 时直接逐条发送；
+ *  - 指标：gomoku.broadcast.frames（实际发出的帧）、gomoku.broadcast.events（进入缓冲的事件）。
+ */
+@Slf4j
+@Component
+public class RoomBroadcaster {
+
+    private final SimpMessagingTemplate messaging;
+    private final RoomCommandExecutor roomExecutor;
+    private final SpectatorFanout spectators;
+    private final LobbyFeed lobby;
+    private final RedisOps ops;
+
+    private final Counter frames;
+    private final Counter events;
+
+    @Value("${gomoku.broadcast.batch.enabled:true}")
+    private boolean enabled;
+
+    /** 合帧窗口（毫秒） */
+    @Value("${gomoku.broadcast.batch.window-ms:5}")
+    private long windowMs;
+
+    /** roomId -> 出站缓冲（仅在有待发事件或正在发送时存在；只在 compute 内读写） */
+    private final ConcurrentMap<String, Outbox> outboxes = new ConcurrentHashMap<>();
+
+    /** 当前房间指令内已压住的房间（指令结束时统一放行） */
+    private static final ThreadLocal<Set<String>> HELD = new ThreadLocal<>();
+
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "room-broadcast");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** 发送用的虚拟线程：序列化与 Broker 分发不占定时线程 */
+    private final ExecutorService senders =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("room-broadcast-", 0).factory());
+
+    public RoomBroadcaster(SimpMessagingTemplate messaging,
+                           RoomCommandExecutor roomExecutor,
+                           SpectatorFanout spectators,
+                           LobbyFeed lobby,
+                           RedisOps ops,
+                           MeterRegistry meterRegistry) {
+        this.messaging = messaging;
+        this.roomExecutor = roomExecutor;
+        this.spectators = spectators;
+        this.lobby = lobby;
+        this.ops = ops;
+        this.frames = Counter.builder("gomoku.broadcast.frames")
+                .description("房间主题实际发出的帧数").register(meterRegistry);
+        this.events = Counter.builder("gomoku.broadcast.events")
+                .description("房间主题广播的事件数").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void install() {
+        if (!enabled) {
+            log.info("房间广播合帧未启用，逐条发送");
+            return;
+        }
+        roomExecutor.addTaskDecorator(task -> () -> {
+            if (HELD.get() != null) {
+                task.run();
+                return;
+            }
+            Set<String> held = new LinkedHashSet<>(2);
+            HELD.set(held);
+            try {
+                task.run();
+            } finally {
+                HELD.remove();
+                held.forEach(this::release);
+            }
+        });
+        log.info("房间广播合帧已启用: windowMs={}", windowMs);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+        senders.shutdown();
+    }
+
+    /**
+     * 向房间主题广播一个事件（可能与相邻事件合成一帧）
+     * @param roomId 房间ID
+     * @param event  事件（通常为 BroadcastEvent）
+     */
+    public void publish(String roomId, Object event) {
+        // 事件描述的状态先落到 Redis（无上下文或无脏写时不访问 Redis）
+        ops.flushCommandContext();
+        events.increment();
+        spectators.offer(roomId, event);
+        lobby.offer(roomId, event);
+        if (!enabled) {
+            send(roomId, event);
+            return;
+        }
+        Set<String> held = HELD.get();
+        boolean hold = held != null && held.add(roomId);
+        final boolean[] arm = {false};
+        outboxes.compute(roomId, (k, box) -> {
+            if (box == null) box = new Outbox();
+            box.pending.add(event);
+            if (hold) box.holds++;
+            if (held == null && box.holds == 0 && !box.scheduled) {
+                box.scheduled = true;
+                arm[0] = true;
+            }
+            return box;
+        });
+        if (arm[0]) arm(roomId);
+    }
+
+    // ------------------------------------------------------------------
+
+    /** 指令结束：解除压住，有待发事件则开始计时 */
+    private void release(String roomId) {
+        final boolean[] arm = {false};
+        outboxes.computeIfPresent(roomId, (k, box) -> {
+            box.holds--;
+            if (box.holds == 0 && !box.scheduled && !box.pending.isEmpty()) {
+                box.scheduled = true;
+                arm[0] = true;
+            }
+            return box;
+        });
+        if (arm[0]) arm(roomId);
+    }
+
+    private void arm(String roomId) {
+        try {
+            timer.schedule(() -> senders.execute(() -> flush(roomId)), windowMs, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            // 停机中：就地发送，不丢事件
+            flush(roomId);
+        }
+    }
+
+    /**
+     * 取出并发送缓冲；已有发送者时交给它（发送者发完会继续取），被指令压住时等指令结束再计时
+     */
+    private void flush(String roomId) {
+        List<Object> batch = take(roomId, false);
+        while (batch != null) {
+            send(roomId, batch.size() == 1 ? batch.get(0) : batchFrame(roomId, batch));
+            batch = take(roomId, true);
+        }
+    }
+
+    /**
+     * 原子地取出待发事件
+     * @param sending 调用方是否为当前发送者
+     * @return 待发事件；无事件可发或不该由调用方发送时返回 null
+     */
+    private List<Object> take(String roomId, boolean sending) {
+        final List<Object> out = new ArrayList<>();
+        outboxes.computeIfPresent(roomId, (k, box) -> {
+            if (!sending) {
+                box.scheduled = false;
+                if (box.sending) return box;
+            }
+            if (box.holds > 0 || box.pending.isEmpty()) {
+                box.sending = false;
+                return box.idle() ? null : box;
+            }
+            out.addAll(box.pending);
+            box.pending.clear();
+            box.sending = true;
+            return box;
+        });
+        return out.isEmpty() ? null : out;
+    }
+
+    private BroadcastEvent batchFrame(String roomId, List<Object> batch) {
+        BroadcastEvent frame = new BroadcastEvent();
+        frame.setRoomId(roomId);
+        frame.setType("BATCH");
+        frame.setPayload(batch);
+        return frame;
+    }
+
+    private void send(String roomId, Object payload) {
+        try {
+            messaging.convertAndSend("/topic/room." + roomId, payload);
+            frames.increment();
+        } catch (Exception e) {
+            log.warn("房间广播发送失败: roomId={}, err={}", roomId, e.getMessage());
+        }
+    }
+
+    /** 单房间出站缓冲（字段只在 outboxes.compute 内读写） */
+    private static final class Outbox {
+        final List<Object> pending = new ArrayList<>();
+        /** 正在执行、且已向本房间发布事件的指令数 */
+        int holds;
+        /** 是否已有计时中的发送 */
+        boolean scheduled;
+        /** 是否有发送者正在发送 */
+        boolean sending;
+
+        boolean idle() {
+            return pending.isEmpty() && holds == 0 && !scheduled && !sending;
+        }
+    }
+}
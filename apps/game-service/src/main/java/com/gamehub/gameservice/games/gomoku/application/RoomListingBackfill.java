@@ -0,0 +1,61 @@
+package com.gamehub.gameservice.games.gomoku.application;
+
+import com.gamehub.gameservice.games.gomoku.domain.repository.RoomRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * RoomListingBackfill
+ * -------------------------------------------------------
+ * 大厅摘要补建：摘要与可加入索引随 meta/seats 写入维护，上线前已存在的房间没有摘要，
+ * 启动时发现摘要 Hash 不存在就按在线房间索引逐个补建一次。
+ *
+ * 说明：
+ *  - 补建只在摘要不存在时写入，不覆盖房间指令刚写入的摘要，多个实例同时启动也不冲突；
+ *  - 摘要 Hash 存在后不再执行（有非 PVE 房间就会存在）；
+ *  - 在虚拟线程上执行，不阻塞启动。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RoomListingBackfill {
+
+    /** 每次读取在线房间索引的条数 */
+    private static final int PAGE_SIZE = 200;
+
+    private final RoomRepository roomRepo;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if (roomRepo.hasListings()) {
+            return;
+        }
+        Thread.ofVirtual().name("room-listing-backfill").start(this::backfill);
+    }
+
+    void backfill() {
+        int scanned = 0;
+        int failed = 0;
+        for (long offset = 0; ; offset += PAGE_SIZE) {
+            List<String> ids = roomRepo.roomIndexPage(offset, PAGE_SIZE);
+            for (String roomId : ids) {
+                scanned++;
+                try {
+                    roomRepo.backfillListing(roomId);
+                } catch (Exception e) {
+                    failed++;
+                    log.warn("补建大厅摘要失败: roomId={}, err={}", roomId, e.getMessage());
+                }
+            }
+            if (ids.size() < PAGE_SIZE) {
+                break;
+            }
+        }
+        log.info("大厅摘要补建完成: scanned={}, failed={}", scanned, failed);
+    }
+}
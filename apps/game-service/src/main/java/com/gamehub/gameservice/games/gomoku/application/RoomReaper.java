@@ -0,0 +1,136 @@
+package com.gamehub.gameservice.games.gomoku.application;
+
+import com.gamehub.gameservice.games.gomoku.domain.repository.RoomRepository;
+import com.gamehub.gameservice.games.gomoku.service.GomokuService;
+import com.gamehub.gameservice.platform.cluster.RoomCommandRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RoomReaper
+ * -------------------------------------------------------
+ * 房间生命周期回收：定期找出长时间无活动的房间，按房间逐个回收。
+ *
+ * 模型：
+ *  - 活跃度索引 gomoku:rooms:activity（ZSET，score=最近活动时间），由房间指令节流刷新；
+ *    全局索引 gomoku:rooms:index 不再整体设置过期，避免一个活跃房间续命所有僵尸房间；
+ *  - 每轮先抢占回收锁 gomoku:rooms:reaper:lock（有效期略短于扫描周期，到期自动释放），同一轮只有一个实例扫描；
+ *  - 每轮最多取 batch-size 个空闲房间，通过 {@link RoomCommandRouter} 投递到房间归属节点的邮箱执行，
+ *    与玩家指令串行：执行时再次确认空闲，期间有新活动则放弃本次回收；
+ *  - 回收失败的房间把活跃度推到 failure-backoff 之后才再次达到空闲线，不会反复占满批次饿死其他房间；
+ *  - 回收内容：房间 Hash、座位锁、座位密钥、对局记录、AI 待落子标记、倒计时状态与索引项（见 destroyRoom）；
+ *  - 指标：gomoku.rooms.reaped{reason=idle|expired}、gomoku.rooms.reaper.failures。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RoomReaper {
+
+    static final String REAP_COMMAND = "gomoku.reap";
+
+    private final RoomRepository roomRepo;
+    private final GomokuService gomokuService;
+    private final RoomCommandRouter router;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${gomoku.room.reaper.enabled:true}")
+    private boolean enabled;
+
+    /** 无活动超过该时长的房间被回收 */
+    @Value("${gomoku.room.reaper.idle-timeout:48h}")
+    private Duration idleTimeout;
+
+    /** 扫描周期（毫秒） */
+    @Value("${gomoku.room.reaper.interval-ms:60000}")
+    private long intervalMs;
+
+    /** 每轮最多回收的房间数 */
+    @Value("${gomoku.room.reaper.batch-size:100}")
+    private int batchSize;
+
+    /** 回收失败的房间推迟多久再试 */
+    @Value("${gomoku.room.reaper.failure-backoff:10m}")
+    private Duration failureBackoff;
+
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "room-reaper");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @PostConstruct
+    public void start() {
+        router.register(REAP_COMMAND, Long.class,
+                (roomId, userId, idleBefore) -> gomokuService.reapRoom(roomId, idleBefore));
+        if (!enabled) {
+            log.info("房间回收未启用");
+            return;
+        }
+        sweeper.scheduleWithFixedDelay(this::sweep, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        log.info("房间回收启动: idleTimeout={}, intervalMs={}, batchSize={}", idleTimeout, intervalMs, batchSize);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    /**
+     * 一轮回收：取一批空闲房间，逐个投递到归属节点回收
+     */
+    void sweep() {
+        try {
+            if (!roomRepo.tryClaimReaperRound(Duration.ofMillis(Math.max(1_000L, intervalMs - intervalMs / 10)))) {
+                log.debug("本轮房间回收由其他实例执行");
+                return;
+            }
+            long idleBefore = System.currentTimeMillis() - idleTimeout.toMillis();
+            List<String> idle = roomRepo.findIdleRooms(idleBefore, batchSize);
+            if (idle.isEmpty()) return;
+            int reaped = 0;
+            for (String roomId : idle) {
+                try {
+                    String reason = router.call(roomId, REAP_COMMAND, null, idleBefore, String.class);
+                    if (reason != null) {
+                        reaped++;
+                        Counter.builder("gomoku.rooms.reaped")
+                                .tag("reason", reason)
+                                .register(meterRegistry)
+                                .increment();
+                    }
+                } catch (Exception e) {
+                    meterRegistry.counter("gomoku.rooms.reaper.failures").increment();
+                    log.warn("回收房间失败，{} 后再试: roomId={}", failureBackoff, roomId, e);
+                    backOff(roomId, idleBefore);
+                }
+            }
+            log.info("房间回收完成: candidates={}, reaped={}", idle.size(), reaped);
+        } catch (Exception e) {
+            meterRegistry.counter("gomoku.rooms.reaper.failures").increment();
+            log.warn("房间回收扫描失败", e);
+        }
+    }
+
+    /**
+     * 把失败房间的活跃度设为 idleBefore + failureBackoff：failureBackoff 之后才再次成为候选
+     */
+    private void backOff(String roomId, long idleBefore) {
+        try {
+            roomRepo.touchRoom(roomId, idleBefore + failureBackoff.toMillis());
+        } catch (Exception e) {
+            log.warn("推迟回收失败: roomId={}", roomId, e);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.gamehub.gameservice.games.gomoku.application;
+
+import com.gamehub.gameservice.games.gomoku.domain.repository.RoomRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * SeatIndexBackfill
+ * -------------------------------------------------------
+ * 座位反向索引补建：gomoku:users:room 随座位写入维护，上线前已占座的用户没有条目，
+ * 启动时按在线房间索引逐个读取座位补建一次（不受 SeatIndexChecker 每轮修正上限的限制）。
+ *
+ * 说明：
+ *  - 只为尚无条目的用户写入（HSETNX），不覆盖房间指令刚维护的条目；
+ *  - 多个实例同时启动时靠补建锁只由一个执行；全部房间成功后写入已补建标记，之后启动不再执行，
+ *    有失败的房间时不写标记，下次启动重试；
+ *  - 读座位与写条目之间用户离座造成的残留条目，由 SeatIndexChecker 在归属节点复核后删除；
+ *  - 在虚拟线程上执行，不阻塞启动。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SeatIndexBackfill {
+
+    /** 每次读取在线房间索引的条数 */
+    private static final int PAGE_SIZE = 200;
+
+    /** 补建锁有效期（补建实例宕机时，其他实例下次启动可重新补建） */
+    private static final Duration LOCK_TTL = Duration.ofMinutes(10);
+
+    private final RoomRepository roomRepo;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if (roomRepo.seatIndexBackfilled()) {
+            return;
+        }
+        Thread.ofVirtual().name("seat-index-backfill").start(this::backfill);
+    }
+
+    void backfill() {
+        if (!roomRepo.tryClaimSeatIndexBackfill(LOCK_TTL)) {
+            log.info("座位反向索引补建已由其他实例执行，跳过");
+            return;
+        }
+        int scanned = 0;
+        int added = 0;
+        int failed = 0;
+        for (long offset = 0; ; offset += PAGE_SIZE) {
+            List<String> ids = roomRepo.roomIndexPage(offset, PAGE_SIZE);
+            for (String roomId : ids) {
+                scanned++;
+                try {
+                    added += roomRepo.backfillSeatIndex(roomId);
+                } catch (Exception e) {
+                    failed++;
+                    log.warn("补建座位反向索引失败: roomId={}, err={}", roomId, e.getMessage());
+                }
+            }
+            if (ids.size() < PAGE_SIZE) {
+                break;
+            }
+        }
+        if (failed == 0) {
+            roomRepo.markSeatIndexBackfilled();
+        }
+        log.info("座位反向索引补建完成: scanned={}, added={}, failed={}", scanned, added, failed);
+    }
+}
@@ -0,0 +1,167 @@
+package com.gamehub.gameservice.games.gomoku.application;
+
+import com.gamehub.gameservice.games.gomoku.domain.dto.SeatsBinding;
+import com.gamehub.gameservice.games.gomoku.domain.repository.RoomRepository;
+import com.gamehub.gameservice.platform.cluster.RoomCommandRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SeatIndexChecker
+ * -------------------------------------------------------
+ * 座位反向索引（gomoku:users:room，userId -> roomId）与各房间座位的一致性检查。
+ *
+ * 模型：
+ *  - 反向索引随座位写入维护（见 RedisRoomRepository#saveSeats），但房间 Hash 过期、节点宕机等情况下会漂移；
+ *  - 每个周期只有一个实例执行检查（Redis 锁，有效期略短于周期，不主动释放），其余实例跳过本轮；
+ *    上线前已有的座位由 {@link SeatIndexBackfill} 启动时一次性补建，不靠本检查逐轮补齐；
+ *  - 每轮读取整个反向索引，并按在线房间索引逐个读取座位，找出两类差异：
+ *    stale（条目指向的房间里该用户并未占座）、missing（用户占座却没有条目）；
+ *  - 差异只是候选：每条通过 {@link RoomCommandRouter} 投递到房间归属节点的邮箱，
+ *    与座位写入串行，复核后再修正（{@link RoomRepository#reconcileSeatIndex}），每轮最多 max-repairs 条；
+ *  - 指标：gomoku.seat-index.repairs{kind=stale|missing}、gomoku.seat-index.check.failures。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SeatIndexChecker {
+
+    static final String REPAIR_COMMAND = "gomoku.seatIndex.repair";
+
+    /** 每次读取在线房间索引的条数 */
+    private static final int PAGE_SIZE = 200;
+
+    private final RoomRepository roomRepo;
+    private final RoomCommandRouter router;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${gomoku.room.seat-index.check-enabled:true}")
+    private boolean enabled;
+
+    /** 检查周期（毫秒） */
+    @Value("${gomoku.room.seat-index.check-interval-ms:300000}")
+    private long intervalMs;
+
+    /** 每轮最多修正的条目数 */
+    @Value("${gomoku.room.seat-index.max-repairs:200}")
+    private int maxRepairs;
+
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "seat-index-check");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @PostConstruct
+    public void start() {
+        router.register(REPAIR_COMMAND, String.class,
+                (roomId, userId, ignored) -> roomRepo.reconcileSeatIndex(roomId, userId));
+        if (!enabled) {
+            log.info("座位反向索引一致性检查未启用");
+            return;
+        }
+        sweeper.scheduleWithFixedDelay(this::check, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        log.info("座位反向索引一致性检查启动: intervalMs={}, maxRepairs={}", intervalMs, maxRepairs);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    /**
+     * 一轮检查：对比反向索引与座位，差异逐条投递到归属节点复核修正
+     */
+    void check() {
+        try {
+            if (!roomRepo.tryClaimSeatIndexCheck(Duration.ofMillis(Math.max(1_000L, intervalMs - intervalMs / 10)))) {
+                log.debug("本周期座位反向索引检查由其他实例执行");
+                return;
+            }
+            Map<String, String> indexed = roomRepo.userRoomIndex();
+
+            // userId -> 占座的房间
+            Map<String, Set<String>> seated = new HashMap<>();
+            for (long offset = 0; ; offset += PAGE_SIZE) {
+                List<String> ids = roomRepo.roomIndexPage(offset, PAGE_SIZE);
+                for (String roomId : ids) {
+                    SeatsBinding seats = roomRepo.getSeats(roomId).orElse(null);
+                    if (seats == null) continue;
+                    for (String userId : seats.occupants()) {
+                        seated.computeIfAbsent(userId, k -> new LinkedHashSet<>()).add(roomId);
+                    }
+                }
+                if (ids.size() < PAGE_SIZE) break;
+            }
+
+            List<String[]> stale = new ArrayList<>();
+            indexed.forEach((userId, roomId) -> {
+                if (!seated.getOrDefault(userId, Set.of()).contains(roomId)) {
+                    stale.add(new String[]{roomId, userId});
+                }
+            });
+            List<String[]> missing = new ArrayList<>();
+            seated.forEach((userId, roomIds) -> {
+                if (!indexed.containsKey(userId)) {
+                    missing.add(new String[]{roomIds.iterator().next(), userId});
+                }
+            });
+            if (stale.isEmpty() && missing.isEmpty()) {
+                log.debug("座位反向索引一致: entries={}, seated={}", indexed.size(), seated.size());
+                return;
+            }
+
+            int budget = maxRepairs;
+            int fixedStale = repair(stale, "stale", budget);
+            int fixedMissing = repair(missing, "missing", Math.max(0, budget - stale.size()));
+            log.info("座位反向索引检查完成: entries={}, seated={}, stale={}/{}, missing={}/{}",
+                    indexed.size(), seated.size(), fixedStale, stale.size(), fixedMissing, missing.size());
+        } catch (Exception e) {
+            meterRegistry.counter("gomoku.seat-index.check.failures").increment();
+            log.warn("座位反向索引检查失败", e);
+        }
+    }
+
+    /**
+     * 逐条投递到房间归属节点复核修正
+     * @return 实际修正的条数
+     */
+    private int repair(List<String[]> candidates, String kind, int budget) {
+        int fixed = 0;
+        for (int i = 0; i < candidates.size() && i < budget; i++) {
+            String roomId = candidates.get(i)[0];
+            String userId = candidates.get(i)[1];
+            try {
+                Boolean ok = router.call(roomId, REPAIR_COMMAND, userId, null, Boolean.class);
+                if (Boolean.TRUE.equals(ok)) {
+                    fixed++;
+                    Counter.builder("gomoku.seat-index.repairs")
+                            .tag("kind", kind)
+                            .register(meterRegistry)
+                            .increment();
+                }
+            } catch (Exception e) {
+                meterRegistry.counter("gomoku.seat-index.check.failures").increment();
+                log.warn("修正座位反向索引失败: roomId={}, userId={}", roomId, userId, e);
+            }
+        }
+        return fixed;
+    }
+}
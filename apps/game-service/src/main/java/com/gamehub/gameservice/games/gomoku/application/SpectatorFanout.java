@@ -0,0 +1,375 @@
+package com.gamehub.gameservice.games.gomoku.application;
+
+import com.gamehub.gameservice.games.gomoku.domain.repository.RoomRepository;
+import com.gamehub.gameservice.games.gomoku.interfaces.ws.dto.GomokuMessages.BroadcastEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.security.Principal;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SpectatorFanout
+ * -------------------------------------------------------
+ * 观战分层推送：观战者订阅 /topic/room.{roomId}.watch，与玩家的 /topic/room.{roomId} 分开。
+ *
+ * 模型：
+ *  - {@link RoomBroadcaster#publish} 发出的事件同时交给这里；只收 DELTA 与 SNAPSHOT（TICK/STATE 等不推给观战者），
+ *    且只在本节点有观战订阅的房间才入队；开启 ws.relay 时观战者可能连在其他实例，本节点无订阅的房间
+ *    再看全集群观战人数（Redis 登记，短时缓存），无人观战的房间不入队、不经中继发布；
+ *  - 每个事件延迟 delay-ms 后才可发送（防止观战端给玩家“报点”）；
+ *  - 定时线程每 interval-ms 扫描一次，把到期事件合成一帧（单个事件原样，多个事件为 BATCH），
+ *    一批中若有 SNAPSHOT，则只保留最后一个 SNAPSHOT 及其后的事件；
+ *  - 合帧与发送在独立的 fanout 线程池上执行，不占玩家广播的线程；同一房间任意时刻至多一个发送任务，
+ *    观战主题内顺序不变。到各会话的最终投递仍走 SimpleBroker 共享的 clientOutboundChannel；
+ *  - Redis 观战登记（ZSET，score = 过期时刻）只在租约 lease-ms 内有效：本节点按用户对观战订阅计数，
+ *    每 heartbeat-ms 为仍在观战的用户续租；节点宕机或漏掉断线事件时，登记随租约自然过期；
+ *  - 同一用户在本节点的最后一个观战订阅结束时才从 Redis 移除（观战人数随下一次快照更新）；
+ *  - 指标：gomoku.spectators.local（本节点观战订阅数）、gomoku.spectate.frames（观战主题发出的帧）。
+ */
+@Slf4j
+@Component
+public class SpectatorFanout {
+
+    private static final String WATCH_PREFIX = "/topic/room.";
+    private static final String WATCH_SUFFIX = ".watch";
+
+    private final SimpMessagingTemplate messaging;
+    private final RoomRepository roomRepo;
+
+    private final Counter frames;
+
+    /** 观战事件延迟（毫秒） */
+    @Value("${gomoku.spectate.delay-ms:2000}")
+    private long delayMs;
+
+    /** 扫描间隔（毫秒） */
+    @Value("${gomoku.spectate.interval-ms:250}")
+    private long intervalMs;
+
+    /** 观战帧发送线程数 */
+    @Value("${gomoku.spectate.fanout-threads:2}")
+    private int fanoutThreads;
+
+    /** 观战登记租约（毫秒），与 GomokuServiceImpl#spectate 一致 */
+    @Value("${gomoku.spectate.lease-ms:45000}")
+    private long leaseMs;
+
+    /** 观战登记续租间隔（毫秒），需明显小于 lease-ms */
+    @Value("${gomoku.spectate.heartbeat-ms:15000}")
+    private long heartbeatMs;
+
+    /** 是否开启跨实例中继（开启时本节点无观战订阅的房间按全集群观战人数过滤） */
+    @Value("${ws.relay.enabled:false}")
+    private boolean relayEnabled;
+
+    /** roomId -> 全集群观战人数（只在开启中继时使用；短时缓存，避免每个事件都访问 Redis） */
+    private final Cache<String, Long> clusterSpectators = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofSeconds(1))
+            .maximumSize(100_000)
+            .build();
+
+    /** roomId -> 本节点观战订阅数 */
+    private final ConcurrentMap<String, AtomicInteger> watchers = new ConcurrentHashMap<>();
+
+    /** sessionId -> (subscriptionId -> 观战订阅) */
+    private final ConcurrentMap<String, Map<String, Watch>> subscriptions = new ConcurrentHashMap<>();
+
+    /** (roomId, userId) -> 本节点该用户的观战订阅数（多标签页/多会话），归零时才移除 Redis 登记 */
+    private final ConcurrentMap<Viewer, Integer> viewers = new ConcurrentHashMap<>();
+
+    private final AtomicInteger localTotal = new AtomicInteger();
+
+    /** roomId -> 观战延迟队列（只在 queues.compute 内读写） */
+    private final ConcurrentMap<String, RoomQueue> queues = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "spectator-fanout");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** 续租单独一个线程，Redis 变慢时不拖延观战帧的扫描 */
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "spectator-heartbeat");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private ExecutorService senders;
+
+    public SpectatorFanout(SimpMessagingTemplate messaging,
+                           RoomRepository roomRepo,
+                           MeterRegistry meterRegistry) {
+        this.messaging = messaging;
+        this.roomRepo = roomRepo;
+        this.frames = Counter.builder("gomoku.spectate.frames")
+                .description("观战主题实际发出的帧数").register(meterRegistry);
+        Gauge.builder("gomoku.spectators.local", localTotal, AtomicInteger::get)
+                .description("本节点观战订阅数").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger n = new AtomicInteger();
+        senders = Executors.newFixedThreadPool(Math.max(1, fanoutThreads), r -> {
+            Thread t = new Thread(r, "spectator-send-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        timer.scheduleWithFixedDelay(this::drainDue, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        heartbeat.scheduleWithFixedDelay(this::renewLeases, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+        log.info("观战分层推送已启动: delayMs={}, intervalMs={}, fanoutThreads={}, leaseMs={}, heartbeatMs={}",
+                delayMs, intervalMs, fanoutThreads, leaseMs, heartbeatMs);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+        heartbeat.shutdownNow();
+        if (senders != null) senders.shutdownNow();
+    }
+
+    /**
+     * 房间事件进入观战队列（非 DELTA/SNAPSHOT 或无人观战时直接忽略）
+     */
+    public void offer(String roomId, Object event) {
+        if (!(event instanceof BroadcastEvent evt)
+                || !("DELTA".equals(evt.getType()) || "SNAPSHOT".equals(evt.getType()))) {
+            return;
+        }
+        if (localWatchers(roomId) <= 0 && !(relayEnabled && hasClusterSpectators(roomId))) {
+            return;
+        }
+        long dueAt = System.currentTimeMillis() + delayMs;
+        queues.compute(roomId, (k, q) -> {
+            if (q == null) q = new RoomQueue();
+            q.pending.addLast(new Delayed(dueAt, evt));
+            return q;
+        });
+    }
+
+    /** 本节点指定房间的观战订阅数 */
+    public int localWatchers(String roomId) {
+        AtomicInteger w = watchers.get(roomId);
+        return w == null ? 0 : w.get();
+    }
+
+    /** 全集群是否有人观战；Redis 不可用时按有人处理（宁可多发，不丢观战帧） */
+    private boolean hasClusterSpectators(String roomId) {
+        Long n = clusterSpectators.get(roomId, k -> {
+            try {
+                return roomRepo.countSpectators(k);
+            } catch (Exception e) {
+                log.warn("读取观战人数失败: roomId={}, err={}", k, e.getMessage());
+                return 1L;
+            }
+        });
+        return n != null && n > 0;
+    }
+
+    // ------------------------------------------------------------------
+    // 订阅跟踪
+    // ------------------------------------------------------------------
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String roomId = watchRoomId(accessor.getDestination());
+        String sessionId = accessor.getSessionId();
+        String subId = accessor.getSubscriptionId();
+        if (roomId == null || sessionId == null || subId == null) {
+            return;
+        }
+        Principal user = event.getUser();
+        Watch prev = subscriptions.computeIfAbsent(sessionId, k -> new ConcurrentHashMap<>())
+                .put(subId, new Watch(roomId, user == null ? null : user.getName()));
+        if (prev == null) {
+            watchers.computeIfAbsent(roomId, k -> new AtomicInteger()).incrementAndGet();
+            localTotal.incrementAndGet();
+            if (user != null) {
+                viewers.merge(new Viewer(roomId, user.getName()), 1, Integer::sum);
+            }
+        }
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String sessionId = accessor.getSessionId();
+        String subId = accessor.getSubscriptionId();
+        if (sessionId == null || subId == null) {
+            return;
+        }
+        Map<String, Watch> subs = subscriptions.get(sessionId);
+        Watch w = subs == null ? null : subs.remove(subId);
+        if (w != null) {
+            unwatch(w);
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        Map<String, Watch> subs = subscriptions.remove(event.getSessionId());
+        if (subs != null) {
+            subs.values().forEach(this::unwatch);
+        }
+    }
+
+    private void unwatch(Watch w) {
+        localTotal.decrementAndGet();
+        watchers.computeIfPresent(w.roomId(), (k, n) -> n.decrementAndGet() <= 0 ? null : n);
+        if (w.userId() == null) {
+            return;
+        }
+        AtomicBoolean last = new AtomicBoolean();
+        viewers.computeIfPresent(new Viewer(w.roomId(), w.userId()), (k, n) -> {
+            if (n > 1) return n - 1;
+            last.set(true);
+            return null;
+        });
+        if (last.get()) {
+            try {
+                roomRepo.removeSpectator(w.roomId(), w.userId());
+            } catch (Exception e) {
+                log.warn("移除观战者失败: roomId={}, userId={}, err={}", w.roomId(), w.userId(), e.getMessage());
+            }
+        }
+    }
+
+    /** 续租：按房间分组，为本节点仍在观战的用户续期 Redis 登记 */
+    private void renewLeases() {
+        try {
+            Map<String, List<String>> byRoom = new HashMap<>();
+            for (Viewer v : viewers.keySet()) {
+                byRoom.computeIfAbsent(v.roomId(), k -> new ArrayList<>()).add(v.userId());
+            }
+            Duration lease = Duration.ofMillis(leaseMs);
+            byRoom.forEach((roomId, userIds) -> {
+                try {
+                    roomRepo.touchSpectators(roomId, userIds, lease);
+                } catch (Exception e) {
+                    log.warn("观战登记续租失败: roomId={}, err={}", roomId, e.getMessage());
+                }
+            });
+        } catch (Exception e) {
+            log.warn("观战登记续租异常: {}", e.getMessage());
+        }
+    }
+
+    /** /topic/room.{roomId}.watch -> roomId；不是观战主题返回 null */
+    private static String watchRoomId(String destination) {
+        if (destination == null || !destination.startsWith(WATCH_PREFIX) || !destination.endsWith(WATCH_SUFFIX)) {
+            return null;
+        }
+        String roomId = destination.substring(WATCH_PREFIX.length(), destination.length() - WATCH_SUFFIX.length());
+        return roomId.isEmpty() ? null : roomId;
+    }
+
+    // ------------------------------------------------------------------
+    // 延迟发送
+    // ------------------------------------------------------------------
+
+    /** 定时扫描：取出各房间到期事件，交给发送线程池 */
+    private void drainDue() {
+        try {
+            long now = System.currentTimeMillis();
+            for (String roomId : queues.keySet()) {
+                List<BroadcastEvent> due = take(roomId, now);
+                if (due != null) {
+                    senders.execute(() -> sendAndRelease(roomId, due));
+                }
+            }
+        } catch (Exception e) {
+            log.warn("观战扫描异常: {}", e.getMessage());
+        }
+    }
+
+    /** 原子地取出到期事件并标记发送中；房间已有发送任务或无到期事件时返回 null */
+    private List<BroadcastEvent> take(String roomId, long now) {
+        final List<BroadcastEvent> out = new ArrayList<>();
+        queues.computeIfPresent(roomId, (k, q) -> {
+            if (q.sending) return q;
+            while (!q.pending.isEmpty() && q.pending.peekFirst().dueAt() <= now) {
+                BroadcastEvent e = q.pending.pollFirst().event();
+                if ("SNAPSHOT".equals(e.getType())) {
+                    out.clear(); // 快照覆盖此前的事件
+                }
+                out.add(e);
+            }
+            if (out.isEmpty()) {
+                return q.pending.isEmpty() ? null : q;
+            }
+            q.sending = true;
+            return q;
+        });
+        return out.isEmpty() ? null : out;
+    }
+
+    private void sendAndRelease(String roomId, List<BroadcastEvent> due) {
+        try {
+            Object frame = due.size() == 1 ? due.get(0) : batchFrame(roomId, due);
+            messaging.convertAndSend(WATCH_PREFIX + roomId + WATCH_SUFFIX, frame);
+            frames.increment();
+        } catch (Exception e) {
+            log.warn("观战帧发送失败: roomId={}, err={}", roomId, e.getMessage());
+        } finally {
+            queues.computeIfPresent(roomId, (k, q) -> {
+                q.sending = false;
+                return q.pending.isEmpty() ? null : q;
+            });
+        }
+    }
+
+    private BroadcastEvent batchFrame(String roomId, List<BroadcastEvent> batch) {
+        BroadcastEvent frame = new BroadcastEvent();
+        frame.setRoomId(roomId);
+        frame.setType("BATCH");
+        frame.setPayload(batch);
+        return frame;
+    }
+
+    /** 一个观战订阅 */
+    private record Watch(String roomId, String userId) {}
+
+    /** 本节点上的一个观战用户 */
+    private record Viewer(String roomId, String userId) {}
+
+    /** 延迟中的事件 */
+    private record Delayed(long dueAt, BroadcastEvent event) {}
+
+    /** 单房间观战队列（字段只在 queues.compute 内读写） */
+    private static final class RoomQueue {
+        final Deque<Delayed> pending = new ArrayDeque<>();
+        /** 是否有发送任务在执行 */
+        boolean sending;
+    }
+}
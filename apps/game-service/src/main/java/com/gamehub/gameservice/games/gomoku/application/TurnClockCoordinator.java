@@ -8,19 +8,29 @@ import com.gamehub.gameservice.games.gomoku.domain.model.Board;
 import com.gamehub.gameservice.games.gomoku.domain.model.GomokuState;
 import com.gamehub.gameservice.games.gomoku.domain.model.SeriesView;
 import com.gamehub.gameservice.games.gomoku.domain.repository.GameStateRepository;
+import com.gamehub.gameservice.games.gomoku.domain.repository.RoomEventRepository;
 import com.gamehub.gameservice.games.gomoku.interfaces.ws.dto.GomokuMessages.BroadcastEvent;
 import com.gamehub.gameservice.games.gomoku.service.GomokuService;
+import com.gamehub.gameservice.infrastructure.scheduler.RoomCommandExecutor;
+import com.gamehub.gameservice.platform.cluster.RoomCommandRouter;
+import com.gamehub.gameservice.platform.cluster.RoomLeaseManager;
+import com.fasterxml.jackson.databind.util.RawValue;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.context.event.EventListener;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Component;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * TurnClockCoordinator
@@ -28,14 +38,21 @@ import java.util.Map;
  * 倒计时业务协调器（应用编排层）：将通用倒计时引擎与五子棋业务规则对接。
  *
  * 职责与边界：
- * 1) 在应用启动时（ApplicationReady）注册调度引擎的 tick 监听，并调用引擎进行全量恢复；
+ * 1) 在应用启动时（ApplicationReady）注册调度引擎的 tick 监听（gomoku.turn.tick-enabled=true 时），并调用引擎进行全量恢复；
  *    - tick 回调：转译为房间内的 TICK 事件（left/side/deadlineEpochMs）并通过 WebSocket 广播；
+ *    - 默认不发每秒 TICK：计时状态变化（启动/换手/停止）时广播一次 CLOCK 事件
+ *      （side/deadlineEpochMs/turnMs/serverEpochMs），前端按绝对截止时间 + 校时偏移自行渲染倒计时；
  *    - restore：恢复所有未过期的倒计时；对已过期的锚点，引擎内部会先清理并通过 holder 锁回调一次超时；
  * 2) 每次对局状态变更后，由控制器调用 syncFromState 决定“本回合是否启动/续上/停止计时”：
  *    - 终局：停止计时；
  *    - PVE 且 aiTimed=false 且轮到 AI：停止计时；
  *    - 其他：计算 key/owner/version/deadline 并调用引擎 startOrResume；
- * 3) 当引擎回调 timeout 时，执行权威判负（gomokuService.resign），并广播 TIMEOUT/STATE/SNAPSHOT；
+ * 3) 当引擎回调 timeout 时，投递到房间邮箱（与玩家指令串行）执行权威判负（gomokuService.resign），
+ *    并广播 TIMEOUT/STATE/SNAPSHOT；
+ * 4) 多节点：倒计时只在房间归属节点运行——启动时只恢复能拿到归属的房间；获得归属时按持久化状态接管，
+ *    失去归属时放手（detach，保留状态）；
+ * 5) 到期兜底：每个节点定期从 countdown:index 原子认领一批超期未处理的条目（Lua，一次往返，不按房间轮询），
+ *    经房间指令路由送到归属节点（归属节点宕机、租约过期时由本节点接管）的房间邮箱内执行一次超时；
  *
  * 重要说明：
  * - 本类不管理线程池与 Redis，不参与通用超时判定（由 CountdownScheduler/Impl 负责）；
@@ -54,10 +71,45 @@ public class TurnClockCoordinator {
     private final CountdownScheduler scheduler;
     // 五子棋业务服务（判负/局面/座位等）
     private final @Lazy GomokuService gomokuService;
-    // WebSocket 消息模板（推送到房间）
-    private final SimpMessagingTemplate messaging;
+    // 房间广播（推送到房间，与相邻事件合帧）
+    private final RoomBroadcaster broadcaster;
     // 游戏状态仓储（用于保存状态到Redis）
     private final GameStateRepository gameStateRepository;
+    // 房间级单写者执行器（超时判负与玩家指令串行）
+    private final RoomCommandExecutor roomExecutor;
+    // 房间归属租约（倒计时只在归属节点运行）
+    private final RoomLeaseManager leases;
+    // 倒计时线程池（复用来跑到期认领）
+    private final ScheduledThreadPoolExecutor turnClockScheduler;
+    // 房间指令路由（认领到的到期条目送到归属节点执行）
+    private final RoomCommandRouter router;
+    // 房间事件序号（STATE/SNAPSHOT 与玩家指令的广播共用一个序列）
+    private final RoomEventRepository roomEvents;
+
+    // 统一的到期回调
+    private final CountdownScheduler.TimeoutHandler timeoutHandler = (k, o, v) -> handleTimeout(k, o);
+
+    // roomId -> 最近一次广播的计时状态（只在状态变化时广播 CLOCK）
+    private final ConcurrentMap<String, ClockView> clocks = new ConcurrentHashMap<>();
+
+    // 到期认领指令类型（在归属节点的房间邮箱内执行）
+    private static final String CMD_EXPIRE = "gomoku.clock.expire";
+
+    @Value("${gomoku.cluster.expiry-claim.interval-ms:1000}")
+    // 到期认领周期（毫秒）
+    private long claimIntervalMs;
+
+    @Value("${gomoku.cluster.expiry-claim.grace-ms:1000}")
+    // 超过截止时间多久仍在索引中才认领（毫秒；正常情况下归属节点的时间轮先处理）
+    private long claimGraceMs;
+
+    @Value("${gomoku.cluster.expiry-claim.batch-size:100}")
+    // 每批最多认领数（一批不满即停止本轮）
+    private int claimBatchSize;
+
+    @Value("${gomoku.cluster.expiry-claim.claim-ttl-ms:10000}")
+    // 认领有效期（毫秒）：期间其他节点不再认领；未处理完的条目到期后可被重新认领
+    private long claimTtlMs;
 
     @Value("${gomoku.turn.seconds:30}")
     // 单回合时长（秒）
@@ -67,16 +119,19 @@ public class TurnClockCoordinator {
     // 是否给 AI 计时（PVE 时）
     private boolean aiTimed;
 
+    @Value("${gomoku.turn.tick-enabled:false}")
+    // 是否每秒广播 TICK（兼容旧客户端；关闭时只在计时状态变化时广播 CLOCK）
+    private boolean tickEnabled;
+
     /**
-     * 应用启动后调用，注册倒计时引擎的 TICK 监听逻辑，并恢复所有未过期倒计时任务。
+     * 应用启动后调用，注册倒计时引擎的 TICK 监听逻辑（开启时），并恢复所有未过期倒计时任务。
      */
     @EventListener(ApplicationReadyEvent.class)
     public void onReady() {
         // 启动日志：开始注册 TICK 监听并准备恢复
-        log.info("协调器启动：注册倒计时 TICK 监听并恢复活跃任务");
-        // 注册每秒 TICK 的转发：把引擎回调转成房间内的 TICK 消息
-        scheduler.setTickListener((key, owner, deadlineMs, left) -> {
-            log.info("TICK 监听执行");
+        log.info("协调器启动：每秒 TICK={}，恢复活跃任务", tickEnabled);
+        // 注册每秒 TICK 的转发：把引擎回调转成房间内的 TICK 消息（关闭时引擎只在截止时间唤醒）
+        scheduler.setTickListener(!tickEnabled ? null : (key, owner, deadlineMs, left) -> {
             // 从通用 key 中还原 roomId
             String roomId = extractRoomId(key);
             // 组装 WS 事件：TICK
@@ -92,15 +147,58 @@ public class TurnClockCoordinator {
                     "deadlineEpochMs", deadlineMs
             ));
             // 广播到 /topic/room.{roomId}
-            messaging.convertAndSend(topic(roomId), tick);
+            broadcaster.publish(roomId, tick);
         });
 
-        // 启动后恢复未过期的倒计时（已过期的尝试触发一次超时）
-        int restored = scheduler.restoreAllActive((key, owner, version) -> handleTimeout(key, owner));
+        // 归属变化：获得归属时接管持久化的倒计时，失去归属时只放手本地任务
+        leases.addListener(new RoomLeaseManager.LeaseListener() {
+            @Override
+            public void onAcquired(String roomId) {
+                scheduler.resume(key(roomId), timeoutHandler);
+                scheduler.resume(legacyKey(roomId), timeoutHandler);
+            }
+
+            @Override
+            public void onLost(String roomId) {
+                scheduler.detach(key(roomId));
+                scheduler.detach(legacyKey(roomId));
+            }
+        });
+
+        // 认领到的到期条目：在归属节点的房间邮箱内按持久化状态接管（已到期的走一次超时；本节点已在计时则由时间轮处理）
+        router.register(CMD_EXPIRE, String.class, (roomId, userId, key) -> scheduler.resume(key, timeoutHandler));
+
+        // 启动后只恢复归本节点的倒计时（能拿到房间归属的；已过期的尝试触发一次超时）
+        int restored = scheduler.restoreAllActive(key -> leases.acquire(extractRoomId(key)), timeoutHandler);
+        // 定期认领超期未处理的倒计时（持有节点宕机时兜底）
+        turnClockScheduler.scheduleWithFixedDelay(this::claimExpired, claimIntervalMs, claimIntervalMs, TimeUnit.MILLISECONDS);
         // 结束日志：恢复数量
         log.info("协调器启动完成：已恢复活跃倒计时任务 {} 个", restored);
     }
 
+    /**
+     * 到期认领：截止时间已过 grace-ms 仍在索引中的倒计时，说明持有节点没能处理（宕机/卡顿）；
+     * 按批原子认领（多个节点同时认领互不重复），逐个路由到归属节点执行一次超时。
+     * 投递失败的条目保持认领状态，claim-ttl-ms 后由任意节点重新认领。
+     */
+    private void claimExpired() {
+        try {
+            List<String> keys;
+            do {
+                keys = scheduler.claimOverdue(claimGraceMs, claimBatchSize, claimTtlMs);
+                for (String key : keys) {
+                    try {
+                        router.dispatch(extractRoomId(key), CMD_EXPIRE, null, key);
+                    } catch (Exception e) {
+                        log.warn("到期倒计时投递失败: key={}, err={}", key, e.getMessage());
+                    }
+                }
+            } while (keys.size() >= claimBatchSize);
+        } catch (Exception e) {
+            log.warn("到期倒计时认领失败: {}", e.getMessage());
+        }
+    }
+
     /**
      * 根据最新对局状态驱动倒计时：终局停止；PVE 且不计 AI 则停；否则为当前应走方启动/续上本回合计时。
      * @param roomId 房间ID
@@ -136,12 +234,46 @@ public class TurnClockCoordinator {
         // 本回合截止时间
         long deadline = System.currentTimeMillis() + turnSeconds * 1000L;
         // 启动/恢复倒计时；到期回调：转去判负/广播
-        scheduler.startOrResume(key, owner, deadline, version,
-                (k, o, v) -> handleTimeout(k, o));
+        scheduler.startOrResume(key, owner, deadline, version, timeoutHandler);
+        // 计时状态变化：广播 CLOCK
+        publishClock(roomId, new ClockView(owner, deadline));
     }
 
     // 对外暴露停止
-    public void stop(String roomId) { scheduler.stop(key(roomId)); }
+    public void stop(String roomId) {
+        scheduler.stop(key(roomId));
+        scheduler.stop(legacyKey(roomId)); // 旧格式 key 的存量倒计时（重启恢复而来）
+        // 之前在计时：广播停止
+        if (clocks.remove(roomId) != null) {
+            broadcaster.publish(roomId, clockEvent(roomId, null, 0L));
+        }
+    }
+
+    /**
+     * 计时状态与上次广播不同时广播 CLOCK（同一方、同一截止时间不重复广播）。
+     */
+    private void publishClock(String roomId, ClockView clock) {
+        if (clock.equals(clocks.put(roomId, clock))) {
+            return;
+        }
+        broadcaster.publish(roomId, clockEvent(roomId, clock.side(), clock.deadlineEpochMs()));
+    }
+
+    /**
+     * CLOCK 事件：side 为空、deadlineEpochMs 为 0 表示计时停止；serverEpochMs 供前端粗校时（精确校时走 /app/gomoku.time）。
+     */
+    private BroadcastEvent clockEvent(String roomId, String side, long deadlineEpochMs) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("side", side);
+        payload.put("deadlineEpochMs", deadlineEpochMs);
+        payload.put("turnMs", turnSeconds * 1000L);
+        payload.put("serverEpochMs", System.currentTimeMillis());
+        BroadcastEvent evt = new BroadcastEvent();
+        evt.setRoomId(roomId);
+        evt.setType("CLOCK");
+        evt.setPayload(payload);
+        return evt;
+    }
 
     /**
      * 处理回合超时：将超时方判负并广播 TIMEOUT、随后广播最新 STATE 与 SNAPSHOT。
@@ -149,9 +281,15 @@ public class TurnClockCoordinator {
      * @param owner 超时方（"X"/"O"）
      */
     private void handleTimeout(String key, String owner) {
-        log.info("回合超时处理");
         // key → roomId
         String roomId = extractRoomId(key);
+        roomExecutor.execute(roomId, () -> doHandleTimeout(roomId, owner));
+    }
+
+    private void doHandleTimeout(String roomId, String owner) {
+        log.info("回合超时处理");
+        // 计时已由引擎停止；TIMEOUT 本身即计时状态变化，不再单独广播 CLOCK
+        clocks.remove(roomId);
         // 所属棋色
         char side = (owner == null || owner.isEmpty()) ? 0 : owner.charAt(0);
         
@@ -164,8 +302,8 @@ public class TurnClockCoordinator {
         // 权威判负
         GomokuState after = gomokuService.resign(roomId, side);
         
-        // 保存超时后的状态到Redis
-        GameStateRecord rec = buildRecord(after, roomId, gameId, expectedStep + 1);
+        // 保存超时后的状态到Redis（超时判负不落子，步数不变）
+        GameStateRecord rec = buildRecord(after, roomId, gameId, expectedStep);
         try {
             gameStateRepository.updateAtomically(roomId, gameId, expectedStep, expectedTurn, rec, 0L);
         } catch (Exception e) {
@@ -177,7 +315,7 @@ public class TurnClockCoordinator {
         timeout.setRoomId(roomId);
         timeout.setType("TIMEOUT");
         timeout.setPayload(java.util.Map.of("side", owner));
-        messaging.convertAndSend(topic(roomId), timeout);
+        broadcaster.publish(roomId, timeout);
 
         // 取系列视图
         var sv = gomokuService.getSeries(roomId);
@@ -185,16 +323,18 @@ public class TurnClockCoordinator {
         BroadcastEvent stateEvt = new BroadcastEvent();
         stateEvt.setRoomId(roomId);
         stateEvt.setType("STATE");
+        stateEvt.setSeq(roomEvents.nextSeq(roomId));
         stateEvt.setPayload(new StatePayload(after, sv));
-        messaging.convertAndSend(topic(roomId), stateEvt);
+        broadcaster.publish(roomId, stateEvt);
 
         // 广播 SNAPSHOT
-        Object snap = gomokuService.snapshot(roomId);
+        Object snap = new RawValue(gomokuService.snapshotJson(roomId));
         BroadcastEvent snapEvt = new BroadcastEvent();
         snapEvt.setRoomId(roomId);
         snapEvt.setType("SNAPSHOT");
+        snapEvt.setSeq(roomEvents.nextSeq(roomId));
         snapEvt.setPayload(snap);
-        messaging.convertAndSend(topic(roomId), snapEvt);
+        broadcaster.publish(roomId, snapEvt);
     }
     
     /**
@@ -240,14 +380,24 @@ public class TurnClockCoordinator {
         return rec;
     }
 
-    // key 生成：通用前缀 + roomId
-    private String key(String roomId) { return "gomoku:" + roomId; }
-    // 反向解析 roomId
+    // key 生成：通用前缀 + {roomId}（与房间键同一 hash tag）
+    private String key(String roomId) { return "gomoku:{" + roomId + "}"; }
+    // 旧格式 key（无 hash tag）
+    private String legacyKey(String roomId) { return "gomoku:" + roomId; }
+    // 反向解析 roomId（兼容旧格式 "gomoku:roomId" 的存量倒计时）
     private String extractRoomId(String key) {
-        return key.startsWith("gomoku:") ? key.substring("gomoku:".length()) : key;
+        String id = key.startsWith("gomoku:") ? key.substring("gomoku:".length()) : key;
+        if (id.length() >= 2 && id.charAt(0) == '{' && id.charAt(id.length() - 1) == '}') {
+            id = id.substring(1, id.length() - 1);
+        }
+        return id;
     }
     // WS 主题
-    private String topic(String roomId) { return "/topic/room." + roomId; }
+
+    /**
+     * 最近一次广播的计时状态
+     */
+    private record ClockView(String side, long deadlineEpochMs) {}
 
     /**
      * WS 载荷：封装当前盘状态与多盘视图，用于 STATE 事件推送。
@@ -92,6 +92,14 @@ public final class GameMessages {
     
     /** 目标玩家不在房间内 */
     public static final String TARGET_NOT_IN_ROOM = "目标玩家不在房间内";
+
+    // ========== 观战相关 ==========
+
+    /** 房间内玩家无需观战 */
+    public static final String PLAYER_CANNOT_SPECTATE = "您是房间内的玩家，请直接进入房间";
+
+    /** 观战人数已满 */
+    public static final String SPECTATORS_FULL = "观战人数已满，请稍后再试";
     
     // ========== 系统消息 ==========
     
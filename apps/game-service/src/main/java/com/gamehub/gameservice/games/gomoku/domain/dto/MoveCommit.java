@@ -0,0 +1,15 @@
+package com.gamehub.gameservice.games.gomoku.domain.dto;
+
+import com.gamehub.gameservice.games.gomoku.domain.model.Move;
+
+/**
+ * 一次待提交的落子（写后持久化队列元素 / 批量提交入参）。
+ *
+ * @param gameId         棋局ID
+ * @param expectedStep   落子前的步数（即走子日志长度）
+ * @param move           本步棋
+ * @param after          落子后的完整记录
+ * @param deadlineMillis 下一回合截止时间（毫秒，终局为 0）
+ */
+public record MoveCommit(String gameId, int expectedStep, Move move, GameStateRecord after, long deadlineMillis) {
+}
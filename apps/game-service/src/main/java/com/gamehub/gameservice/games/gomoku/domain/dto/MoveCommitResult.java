@@ -0,0 +1,26 @@
+package com.gamehub.gameservice.games.gomoku.domain.dto;
+
+/**
+ * 单步落子原子提交的结果（紧凑状态）。
+ * - ok=false 时 reason 为拒绝原因（NOT_PLAYING / STALE_STEP / NOT_YOUR_TURN / OCCUPIED 等）；
+ * - ok=true 时返回提交后的步数、回合序列号、下一回合执子方与截止时间；
+ *   写后持久化（write-behind）模式下为“已受理”，turnSeq 待真正落盘后才确定，记为 0。
+ *
+ * @param ok              是否提交成功
+ * @param reason          拒绝原因（成功时为 null）
+ * @param step            提交后的步数（即走子日志长度）
+ * @param turnSeq         提交后的回合序列号
+ * @param side            下一回合执子方（"X"/"O"，终局为 null）
+ * @param deadlineEpochMs 下一回合截止时间（毫秒，终局为 0）
+ */
+public record MoveCommitResult(boolean ok, String reason, int step, long turnSeq, String side, long deadlineEpochMs) {
+
+    public static MoveCommitResult rejected(String reason) {
+        return new MoveCommitResult(false, reason, 0, 0L, null, 0L);
+    }
+
+    /** 写后持久化：本地已受理、尚未落盘 */
+    public static MoveCommitResult accepted(int step, String side, long deadlineEpochMs) {
+        return new MoveCommitResult(true, null, step, 0L, side, deadlineEpochMs);
+    }
+}
@@ -0,0 +1,31 @@
+package com.gamehub.gameservice.games.gomoku.domain.dto;
+
+import com.gamehub.gameservice.application.user.UserProfileView;
+import lombok.Data;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * RoomBundle
+ * -------------------------------------------------------
+ * 一次批量读取得到的房间原始数据（快照组装用）。
+ * - 由 RoomBundleReader 通过单次管道往返从 Redis 取回；
+ * - game 已完成“快照 + 走子日志”回放；不存在时为 null；
+ * - profiles 为房间内玩家资料缓存（userId -> 资料）。
+ */
+@Data
+public class RoomBundle {
+    /** 房间元信息 */
+    private RoomMeta meta;
+    /** 座位绑定 */
+    private SeatsBinding seats;
+    /** 当前盘状态（回放后） */
+    private GameStateRecord game;
+    /** 回合锚点 */
+    private TurnAnchor turnAnchor;
+    /** 玩家资料缓存 */
+    private Map<String, UserProfileView> profiles = Collections.emptyMap();
+    /** 观战人数 */
+    private int spectatorCount;
+}
@@ -0,0 +1,64 @@
+package com.gamehub.gameservice.games.gomoku.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * RoomListEntry
+ * -------------------------------------------------------
+ * 大厅列表用的房间摘要（可持久化）。
+ * - 由 RoomMeta + SeatsBinding 派生，meta/seats 写入时随之维护，列表查询不再逐个读取房间；
+ * - 只保留大厅展示需要的字段，不含棋盘、座位会话等大字段；
+ * - PVE 房间不进大厅，不生成摘要。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoomListEntry {
+    private String roomId;
+    private String ownerUserId;
+    private String ownerName;
+    /** 对战模式：PVP */
+    private String mode;
+    /** 规则：STANDARD / RENJU */
+    private String rule;
+    /** 房间状态：WAITING / PLAYING / ENDED */
+    private String phase;
+    /** 房间创建时间（epoch millis），列表按它倒序分页 */
+    private long createdAt;
+    /** 是否可加入（两个座位不同时有人） */
+    private boolean joinable;
+
+    /**
+     * 由房间元信息与座位绑定派生摘要
+     * @param meta  房间元信息
+     * @param seats 座位绑定（可为 null）
+     */
+    public static RoomListEntry of(RoomMeta meta, SeatsBinding seats) {
+        return new RoomListEntry(
+                meta.getRoomId(),
+                meta.getOwnerUserId(),
+                meta.getOwnerName(),
+                meta.getMode(),
+                meta.getRule(),
+                meta.getPhase(),
+                meta.getCreatedAt(),
+                joinable(meta, seats)
+        );
+    }
+
+    /**
+     * 是否出现在大厅列表：非 PVE、未满员（两个座位不同时有人）
+     * @param meta  房间元信息
+     * @param seats 座位绑定（可为 null）
+     */
+    public static boolean joinable(RoomMeta meta, SeatsBinding seats) {
+        if ("PVE".equalsIgnoreCase(meta.getMode())) {
+            return false;
+        }
+        return seats == null
+                || seats.getSeatXSessionId() == null || seats.getSeatXSessionId().isBlank()
+                || seats.getSeatOSessionId() == null || seats.getSeatOSessionId().isBlank();
+    }
+}
@@ -3,7 +3,9 @@ package com.gamehub.gameservice.games.gomoku.domain.dto;
 import lombok.Data;
 
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * SeatsBinding
@@ -28,4 +30,14 @@ public class SeatsBinding {
     
     /** userId -> ready状态（true=已准备，false=未准备） */
     private Map<String, Boolean> readyByUserId = new HashMap<>();
+
+    /**
+     * 当前占座的用户（X、O 两个座位上非空的 userId）
+     */
+    public Set<String> occupants() {
+        Set<String> out = new LinkedHashSet<>(2);
+        if (seatXSessionId != null && !seatXSessionId.isBlank()) out.add(seatXSessionId);
+        if (seatOSessionId != null && !seatOSessionId.isBlank()) out.add(seatOSessionId);
+        return out;
+    }
 }
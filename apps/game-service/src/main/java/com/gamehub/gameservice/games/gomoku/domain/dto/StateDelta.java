@@ -0,0 +1,34 @@
+package com.gamehub.gameservice.games.gomoku.domain.dto;
+
+import lombok.Data;
+
+/**
+ * StateDelta
+ * -------------------------------------------------------
+ * 单步落子的增量事件（DELTA）：只描述“这一步改变了什么”，不携带整盘棋盘。
+ * - seq：房间事件序号（每房间单调递增，由 RoomEventRepository 分配），前端据此检测丢包/乱序；
+ * - 前端在本地棋盘上应用 x/y/side，再以 sideToMove/deadlineEpochMs/over/winner 更新回合与终局。
+ * -------------------------------------------------------
+ */
+@Data
+public class StateDelta {
+    /** 房间事件序号（分配后回填） */
+    private long seq;
+    /** 棋局ID */
+    private String gameId;
+    /** 落子后的步数（走子日志长度） */
+    private int step;
+    /** 落点坐标 */
+    private int x;
+    private int y;
+    /** 本步执子方："X"/"O" */
+    private String side;
+    /** 下一手执子方："X"/"O"；终局为 null */
+    private String sideToMove;
+    /** 下一回合截止时间（毫秒时间戳）；终局或不计时为 0 */
+    private long deadlineEpochMs;
+    /** 是否终局 */
+    private boolean over;
+    /** 胜者："X"/"O"/"DRAW"/null（未结束） */
+    private String winner;
+}
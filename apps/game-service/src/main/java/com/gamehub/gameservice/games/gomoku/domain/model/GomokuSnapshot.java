@@ -41,6 +41,8 @@ public final class GomokuSnapshot {
     public final int scoreO;
     public final String outcome;
     public final Map<String, Boolean> readyStatus;
+    /** 观战人数 */
+    public final int spectatorCount;
 
     public GomokuSnapshot(String roomId,
                           boolean seatXOccupied,
@@ -66,7 +68,8 @@ public final class GomokuSnapshot {
                           Map<String, Boolean> readyStatus,
                           boolean seatXConnected,
                           boolean seatOConnected,
-                          String ownerUserId) {
+                          String ownerUserId,
+                          int spectatorCount) {
         this.roomId = roomId;
         this.seatXOccupied = seatXOccupied;
         this.seatOOccupied = seatOOccupied;
@@ -94,5 +97,6 @@ public final class GomokuSnapshot {
                 : Collections.unmodifiableMap(new HashMap<>(readyStatus));
         this.seatXConnected = seatXConnected;
         this.seatOConnected = seatOConnected;
+        this.spectatorCount = spectatorCount;
     }
 }
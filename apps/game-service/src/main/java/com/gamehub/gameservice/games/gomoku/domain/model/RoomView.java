@@ -1,5 +1,6 @@
 package com.gamehub.gameservice.games.gomoku.domain.model;
 
+import com.gamehub.gameservice.application.user.UserProfileView;
 import com.gamehub.gameservice.games.gomoku.domain.dto.GameStateRecord;
 import com.gamehub.gameservice.games.gomoku.domain.dto.RoomMeta;
 import com.gamehub.gameservice.games.gomoku.domain.dto.SeatsBinding;
@@ -7,6 +8,8 @@ import com.gamehub.gameservice.games.gomoku.domain.dto.TurnAnchor;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
+import java.util.Map;
+
 /**
  * 聚合后的五子棋房间视图（服务内部用，只读）。
  *
@@ -48,4 +51,10 @@ public class RoomView {
      * <p>来自 {@link TurnAnchor#getDeadlineEpochMs()}。</p>
      */
     private final Long deadlineEpochMs;
+
+    /** 房间内玩家资料缓存（userId -> 资料），与其他字段同一批次读取 */
+    private final Map<String, UserProfileView> profiles;
+
+    /** 观战人数（与其他字段同一批次读取） */
+    private final int spectatorCount;
 }
\ No newline at end of file
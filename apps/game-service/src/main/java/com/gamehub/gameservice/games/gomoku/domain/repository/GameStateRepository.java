@@ -1,8 +1,13 @@
 package com.gamehub.gameservice.games.gomoku.domain.repository;
 
 import com.gamehub.gameservice.games.gomoku.domain.dto.GameStateRecord;
+import com.gamehub.gameservice.games.gomoku.domain.dto.MoveCommit;
+import com.gamehub.gameservice.games.gomoku.domain.dto.MoveCommitResult;
+import com.gamehub.gameservice.games.gomoku.domain.model.Move;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -10,6 +15,7 @@ import java.util.Optional;
  * ----------------------------------------
  * 单盘棋局状态仓储接口（Game-level Repository）
  * - 管理单盘的权威棋局状态；
+ * - 权威状态 = 压缩快照 + 快照之后的走子日志（append-only）；
  * - 支持保存、查询与删除；
  * - 当前实现基于 Redis，未来可扩展为数据库。
  * ----------------------------------------
@@ -25,7 +31,7 @@ public interface GameStateRepository {
      */
     void save(String roomId, String gameId, GameStateRecord state, Duration ttl);
     /**
-     * 获取棋局状态
+     * 获取棋局状态（快照 + 日志回放后的最新盘面）
      * @param roomId 房间ID
      * @param gameId 棋局ID
      * @return 可选的 GameStateRecord（不存在则 empty）
@@ -46,6 +52,57 @@ public interface GameStateRepository {
     void deleteAll(String roomId);
 
 
+    /**
+     * 单步落子原子提交（一次往返）：校验 phase/盘ID/终局/步数/轮到方/落点占用，
+     * 追加走子日志、自增 turnSeq、更新回合锚点与截止时间；按需写入压缩快照。
+     * @param roomId            房间ID
+     * @param gameId            棋局ID
+     * @param expectedStep      落子前的步数（即走子日志长度）
+     * @param move              本步棋（坐标 + 棋色，棋色即为期望轮到方）
+     * @param after             落子后的完整记录（终局或到达压缩间隔时写为快照）
+     * @param newDeadlineMillis 下一回合的绝对截止时间（毫秒），终局时为 0
+     * @return 提交结果（成功时携带新的步数/turnSeq/执子方/截止时间）
+     */
+    MoveCommitResult commitMove(String roomId, String gameId, int expectedStep, Move move,
+                                GameStateRecord after, long newDeadlineMillis);
+
+    /**
+     * 按顺序批量提交同一房间的多步落子（各步语义同 {@link #commitMove}）。
+     * 某步被拒绝后，其后各步通常也会因步数不符被拒绝。
+     * @return 与入参一一对应的提交结果
+     */
+    default List<MoveCommitResult> commitMoves(String roomId, List<MoveCommit> batch) {
+        List<MoveCommitResult> out = new ArrayList<>(batch.size());
+        for (MoveCommit c : batch) {
+            out.add(commitMove(roomId, c.gameId(), c.expectedStep(), c.move(), c.after(), c.deadlineMillis()));
+        }
+        return out;
+    }
+
+    /**
+     * 持久化屏障：保证此前已受理的落子全部写入存储后再返回（同步写入的实现无需处理）。
+     * 在改写 phase/gameId 等会影响落子校验的房间元数据之前调用。
+     * @param roomId 房间ID
+     */
+    default void flush(String roomId) {}
+
+    /**
+     * 已受理但尚未落盘的最新一步（同步写入的实现恒为 empty）。
+     * 用于在房间快照里叠加尚未持久化的盘面。
+     * @param roomId 房间ID
+     */
+    default Optional<MoveCommit> latestUnflushed(String roomId) {
+        return Optional.empty();
+    }
+
+    /**
+     * 读取单盘完整走子历史（用于复盘/审计）
+     * @param roomId 房间ID
+     * @param gameId 棋局ID
+     * @return 按落子顺序排列的走子列表
+     */
+    List<Move> getMoves(String roomId, String gameId);
+
     // === 新增：基于 WATCH/MULTI 的原子更新 ===
     boolean updateAtomically(
             String roomId,
@@ -0,0 +1,24 @@
+package com.gamehub.gameservice.games.gomoku.domain.repository;
+
+import com.gamehub.gameservice.games.gomoku.domain.dto.RoomBundle;
+
+import java.util.Optional;
+
+/**
+ * RoomBundleReader
+ * ----------------------------------------
+ * 房间聚合读取接口（快照专用）
+ * - 把 meta / seats / 当前盘状态 / 回合锚点 / 玩家资料 一次性批量读出；
+ * - 替代快照组装时逐项阻塞读取的多次往返。
+ * ----------------------------------------
+ */
+public interface RoomBundleReader {
+
+    /**
+     * 批量读取房间数据
+     * @param roomId     房间ID
+     * @param gameIdHint 预期的当前盘ID（一般取本节点内存值；与 meta 不一致时实现方需自行补读）
+     * @return 房间数据（房间不存在则 empty）
+     */
+    Optional<RoomBundle> load(String roomId, String gameIdHint);
+}
@@ -0,0 +1,58 @@
+package com.gamehub.gameservice.games.gomoku.domain.repository;
+
+import com.gamehub.gameservice.games.gomoku.domain.dto.StateDelta;
+
+import java.util.List;
+
+/**
+ * RoomEventRepository
+ * ----------------------------------------
+ * 房间事件序号与增量日志仓储
+ * - 每条进入房间主题的 STATE/DELTA/SNAPSHOT 广播分配一个房间内单调递增的序号；
+ * - 最近若干条 DELTA 保留在有界日志中，供前端发现序号缺口时补齐；
+ * - 序号保存在 Redis，房间换归属节点后继续递增。
+ * ----------------------------------------
+ */
+public interface RoomEventRepository {
+    /**
+     * 分配下一个序号（不记录增量，用于 STATE/SNAPSHOT 等全量事件）
+     * @param roomId 房间ID
+     * @return 新序号
+     */
+    long nextSeq(String roomId);
+
+    /**
+     * 分配序号并把增量追加到日志（序号回填到 delta.seq）
+     * @param roomId 房间ID
+     * @param delta  增量事件
+     * @return 新序号
+     */
+    long appendDelta(String roomId, StateDelta delta);
+
+    /**
+     * 当前序号（尚未产生事件时为 0）
+     * @param roomId 房间ID
+     */
+    long currentSeq(String roomId);
+
+    /**
+     * 取 sinceSeq 之后的全部增量
+     * @param roomId   房间ID
+     * @param sinceSeq 客户端已应用的最后序号
+     * @return 按序号升序的增量；区间内含非增量事件或已被日志淘汰时返回 null（调用方改发全量快照）
+     */
+    List<StateDelta> deltasSince(String roomId, long sinceSeq);
+
+    /**
+     * 房间视图版本：当前序号与观战人数（一次往返读取，REST 条件请求的 ETag 来源）
+     * @param roomId 房间ID
+     */
+    ViewVersion viewVersion(String roomId);
+
+    /**
+     * 房间视图版本
+     * @param seq        当前事件序号（房间状态的每次变化都伴随一次 STATE/DELTA/SNAPSHOT 广播）
+     * @param spectators 观战人数（进出观战不广播，单独计入）
+     */
+    record ViewVersion(long seq, long spectators) {}
+}
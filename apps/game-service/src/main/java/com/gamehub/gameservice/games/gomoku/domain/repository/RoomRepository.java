@@ -1,13 +1,17 @@
 package com.gamehub.gameservice.games.gomoku.domain.repository;
 
 import com.gamehub.gameservice.application.user.UserProfileView;
+import com.gamehub.gameservice.games.gomoku.domain.dto.RoomListEntry;
 import com.gamehub.gameservice.games.gomoku.domain.dto.RoomMeta;
 import com.gamehub.gameservice.games.gomoku.domain.dto.SeatsBinding;
 import com.gamehub.gameservice.games.gomoku.domain.model.SeriesView;
 
 import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
 
 /**
  * RoomRepository
@@ -161,20 +165,178 @@ public interface RoomRepository {
      */
     void deleteSeatLocks(String roomId);
 
-    // ===== 房间列表索引（按创建时间排序）=====
+    // ===== 房间列表索引（按创建时间排序）与活跃度索引 =====
 
     /**
-     * 将房间加入“在线房间索引”ZSET，用于列表按创建时间排序。
+     * 将房间加入“在线房间索引”ZSET（按创建时间排序），并以创建时间作为首次活跃时间。
+     * 索引本身不设 TTL，失效房间由回收器逐条移除。
      * @param roomId    房间ID
      * @param createdAt 创建时间（epoch millis）
-     * @param ttl       TTL，与房间本身保持一致
      */
-    void addRoomIndex(String roomId, long createdAt, Duration ttl);
+    void addRoomIndex(String roomId, long createdAt);
 
     /**
-     * 从“在线房间索引”中移除房间（销毁房间时调用）。
+     * 从“在线房间索引”与活跃度索引中移除房间（销毁/回收房间时调用）。
      * @param roomId 房间ID
      */
     void removeRoomIndex(String roomId);
 
+    /**
+     * 记录房间最近一次活动时间
+     * @param roomId 房间ID
+     * @param at     活动时间（epoch millis）
+     */
+    void touchRoom(String roomId, long at);
+
+    /**
+     * 最近一次活动时间；未记录（早于活跃度索引创建的房间）时为 empty
+     * @param roomId 房间ID
+     */
+    OptionalLong lastActivity(String roomId);
+
+    /**
+     * 查找空闲房间（有界）：最近活动早于 idleBefore 的房间，
+     * 以及创建早于 idleBefore 且从未记录活动的房间。
+     * @param idleBefore 空闲判定时间点（epoch millis）
+     * @param limit      最多返回条数
+     */
+    List<String> findIdleRooms(long idleBefore, int limit);
+
+    /**
+     * 抢占本轮房间回收（锁到期自动释放，不主动删除）
+     * @param ttl 锁的有效期
+     * @return true 表示本实例执行本轮回收
+     */
+    boolean tryClaimReaperRound(Duration ttl);
+
+    /**
+     * 分页读取在线房间索引（按创建时间倒序）
+     * @param offset 起始下标
+     * @param count  条数
+     */
+    List<String> roomIndexPage(long offset, int count);
+
+    // ===== 大厅列表（摘要 + 可加入索引，随 meta/seats 写入维护） =====
+
+    /**
+     * 房间列表版本（大厅摘要或可加入索引变化时变化）
+     * @return 版本令牌；从未写入过时返回 null
+     */
+    String roomListVersion();
+
+    /**
+     * 可加入房间一页（按创建时间倒序）：一次范围查询 + 一次批量读取摘要
+     * @param rule   规则（STANDARD / RENJU），为 null 时不限规则
+     * @param before 只取创建时间早于该值的房间（游标），为 null 时从最新开始
+     * @param limit  最多返回条数
+     * @return 摘要列表；索引中已无摘要的条目顺带移除，不计入结果
+     */
+    List<RoomListEntry> listJoinable(String rule, Long before, int limit);
+
+    /**
+     * 读取单个房间的大厅摘要
+     * @param roomId 房间ID
+     * @return 摘要；房间已解散或为 PVE 房间时为空
+     */
+    Optional<RoomListEntry> getListing(String roomId);
+
+    /**
+     * 补建房间的大厅摘要与索引（摘要已存在时不覆盖），用于摘要上线前创建的房间
+     * @param roomId 房间ID
+     */
+    void backfillListing(String roomId);
+
+    /**
+     * 大厅摘要是否已建立过（摘要 Hash 存在）
+     */
+    boolean hasListings();
+
+    // ===== 座位反向索引（userId -> roomId，随 saveSeats / deleteSeats / deleteRoom 维护） =====
+
+    /**
+     * 查询用户占座的房间（一次 HGET）
+     * @param userId 用户ID
+     * @return 房间ID；未占座时为空
+     */
+    Optional<String> findRoomOfUser(String userId);
+
+    /**
+     * 读取整个座位反向索引（一致性检查用，HSCAN 分批读取）
+     * @return userId -> roomId
+     */
+    Map<String, String> userRoomIndex();
+
+    /**
+     * 按房间当前座位补建反向索引：只为尚无条目的占座用户写入（HSETNX），不覆盖座位写入刚维护的条目
+     * @param roomId 房间ID
+     * @return 补上的条目数
+     */
+    int backfillSeatIndex(String roomId);
+
+    /**
+     * 座位反向索引是否已补建过
+     */
+    boolean seatIndexBackfilled();
+
+    /**
+     * 记录座位反向索引已补建
+     */
+    void markSeatIndexBackfilled();
+
+    /**
+     * 抢占座位反向索引补建（锁到期自动释放，不主动删除）
+     * @param ttl 锁的有效期
+     * @return true 表示本实例执行补建
+     */
+    boolean tryClaimSeatIndexBackfill(Duration ttl);
+
+    /**
+     * 抢占本周期的座位反向索引一致性检查（锁到期自动释放，不主动删除）
+     * @param ttl 锁的有效期
+     * @return true 表示本实例执行本周期的检查
+     */
+    boolean tryClaimSeatIndexCheck(Duration ttl);
+
+    /**
+     * 按房间当前座位修正单个用户的反向索引条目：占座却无条目则补上，条目指向该房间却未占座则删除
+     * （应在房间邮箱内调用，与座位写入串行）
+     * @param roomId 房间ID
+     * @param userId 用户ID
+     * @return true 表示做了修正
+     */
+    boolean reconcileSeatIndex(String roomId, String userId);
+
+    // ===== 观战者 =====
+
+    /**
+     * 登记观战者（有人数上限）：登记只在租约期内有效，由订阅观战主题的节点按心跳续期
+     * @param roomId 房间ID
+     * @param userId 观战用户ID
+     * @param max    人数上限
+     * @param lease  登记租约
+     * @return 登记后的观战人数；已达上限返回 -1（已在观战的用户不受上限影响）
+     */
+    long addSpectator(String roomId, String userId, int max, Duration lease);
+
+    /**
+     * 全集群观战人数（只数租约未过期的登记）
+     * @param roomId 房间ID
+     */
+    long countSpectators(String roomId);
+
+    /**
+     * 观战者心跳：为仍在观战的用户续租（只续已登记的），并清理已过期的登记
+     * @param roomId  房间ID
+     * @param userIds 本节点仍订阅观战主题的用户ID
+     * @param lease   登记租约
+     */
+    void touchSpectators(String roomId, Collection<String> userIds, Duration lease);
+
+    /**
+     * 移除观战者
+     * @param roomId 房间ID
+     * @param userId 观战用户ID
+     */
+    void removeSpectator(String roomId, String userId);
+
 }
@@ -3,6 +3,13 @@ package com.gamehub.gameservice.games.gomoku.infrastructure.redis;
 /**
  * 统一集中管理 Redis Key 的前缀与拼接，避免字符串散落。
  * 未来切换产品/游戏前缀、加租户维度，只改这里。
+ *
+ * 键布局（v2）：
+ * - 同一房间的所有键都带 {roomId} hash tag，Redis Cluster 下落在同一 slot，多键脚本合法；
+ * - 房间元信息 / 座位 / 回合锚点 / 系列比分 / seatKey 合并进一个 Hash（gomoku:{roomId}:room），
+ *   一个 TTL 管住整个房间；
+ * - 棋局快照/走子日志、座位锁、玩家资料仍为独立键（各自的生命周期不同）。
+ * 旧布局（gomoku:room:{roomId}:...）的键名保留在 legacy* 方法中，仅供读时迁移使用。
  */
 public final class RedisKeys {
 
@@ -10,63 +17,89 @@ public final class RedisKeys {
 
     private RedisKeys() {}
 
-    // ---- 房间元信息 ----
-    public static String room(String roomId) {
-        return PFX + "room:" + roomId;
+    // ---- 房间 Hash 字段 ----
+    /** 房间元信息（RoomMeta JSON） */
+    public static final String F_META = "meta";
+    /** 座位绑定（SeatsBinding JSON） */
+    public static final String F_SEATS = "seats";
+    /** 回合计时锚点（TurnAnchor JSON） */
+    public static final String F_TURN = "turn";
+    /** 系列比分字段前缀：series:round / series:blackWins / series:whiteWins / series:draws */
+    public static final String F_SERIES_PREFIX = "series:";
+    /** seatKey 字段前缀：seatKey:{seatKey} -> "X"/"O" */
+    public static final String F_SEAT_KEY_PREFIX = "seatKey:";
+
+    /** {roomId} hash tag */
+    private static String tag(String roomId) {
+        return PFX + "{" + roomId + "}";
     }
 
-    // ---- 房间座位/会话绑定 ----
-    public static String roomSeats(String roomId) {
-        return PFX + "room:" + roomId + ":seats";
+    // ---- 房间 Hash（meta / seats / turn / series / seatKey） ----
+    public static String room(String roomId) {
+        return tag(roomId) + ":room";
     }
 
-    public static String roomSeatKey(String roomId, String seatKey) {
-        return PFX + "room:" + roomId + ":seatKey:" + seatKey;
+    public static String seatKeyField(String seatKey) {
+        return F_SEAT_KEY_PREFIX + seatKey;
     }
 
-    public static String roomSeatKeyPrefix(String roomId) {
-        return PFX + "room:" + roomId + ":seatKey:";
+    public static String seriesField(String name) {
+        return F_SERIES_PREFIX + name;
     }
 
     /** 房间座位占用锁：X / O，用于并发占座互斥 */
     public static String roomSeatLock(String roomId, char seat) {
-        return PFX + "room:" + roomId + ":seatLock:" + Character.toUpperCase(seat);
+        return tag(roomId) + ":seatLock:" + Character.toUpperCase(seat);
     }
 
     // ---- 单盘对局状态 ----
     public static String gameState(String roomId, String gameId) {
-        return PFX + "room:" + roomId + ":game:" + gameId + ":state";
+        return tag(roomId) + ":game:" + gameId + ":state";
     }
 
-    // ---- 回合计时锚点 ----
-    public static String turnAnchor(String roomId) {
-        return PFX + "room:" + roomId + ":turn";
+    /** 单盘走子日志（List，append-only，元素形如 "x,y,P"） */
+    public static String gameMoves(String roomId, String gameId) {
+        return tag(roomId) + ":game:" + gameId + ":moves";
+    }
+
+    /** 房间内全部盘的 gameId 集合（SET），用于按房间清理，替代 KEYS 模式匹配 */
+    public static String roomGames(String roomId) {
+        return tag(roomId) + ":games";
     }
 
     // ---- AI 意图（可选） ----
     public static String aiPending(String roomId) {
-        return PFX + "room:" + roomId + ":ai:pending";
+        return tag(roomId) + ":ai:pending";
     }
 
     // 哪个节点持有该房间的计时器（多实例只允许一个节点跑tick/判负）
     public static String turnHolder(String roomId) {
-        return PFX + "room:" + roomId + ":turn:holder";
+        return tag(roomId) + ":turn:holder";
+    }
+
+    /** 房间归属租约（String：持有节点 nodeId，PX 过期），见 RoomLeaseManager */
+    public static String roomOwner(String roomId) {
+        return tag(roomId) + ":owner";
     }
 
-    public static String gameStatePrefix(String roomId) {
-        return PFX + "room:" + roomId + ":game:";
+    /** 房间事件序号（String，INCR），见 RoomEventRepository */
+    public static String roomEventSeq(String roomId) {
+        return tag(roomId) + ":events:seq";
     }
-    public static String gameStateSuffix() {
-        return ":state";
+
+    /** 房间最近增量事件（ZSET，score = 事件序号，member = StateDelta JSON），有界保留 */
+    public static String roomEvents(String roomId) {
+        return tag(roomId) + ":events";
     }
 
-    public static String roomSeries(String roomId) {
-        return "gomoku:room:" + roomId + ":series";
+    /** 房间观战者（ZSET：userId -> 登记过期时刻 epoch ms），见 RoomRepository#addSpectator */
+    public static String roomSpectators(String roomId) {
+        return tag(roomId) + ":spectators";
     }
 
     /** 房间内玩家资料缓存（Hash：userId -> UserProfileView 序列化） */
     public static String roomUserProfiles(String roomId) {
-        return PFX + "room:" + roomId + ":users";
+        return tag(roomId) + ":users";
     }
 
     /** 在线房间索引（ZSET），score 使用 createdAt（epoch millis） */
@@ -74,11 +107,109 @@ public final class RedisKeys {
         return PFX + "rooms:index";
     }
 
+    /** 房间活跃度索引（ZSET），score 为最近一次活动时间（epoch millis），供回收器按空闲时长清理 */
+    public static String roomActivityKey() {
+        return PFX + "rooms:activity";
+    }
+
+    /**
+     * 房间列表版本（Hash，字段 {@link #F_LIST_VERSION}）：大厅摘要或可加入索引有变化时换新值，
+     * 作为大厅房间列表的 ETag 来源（用 Hash 字段是为了随房间指令上下文的写回一起管道写出）
+     */
+    public static String roomListVersion() {
+        return PFX + "rooms:version";
+    }
+
+    /** 房间列表版本字段 */
+    public static final String F_LIST_VERSION = "v";
+
+    // ---- 大厅列表：摘要 + 可加入索引（共用 {lobby} hash tag，脚本内原子更新） ----
+
+    /** 大厅房间摘要（Hash：roomId -> RoomListEntry JSON），非 PVE 房间，含已满员的 */
+    public static String roomListings() {
+        return PFX + "{lobby}:listings";
+    }
+
+    /** 可加入房间索引（ZSET：roomId，score = createdAt），只含非 PVE、未满员的房间 */
+    public static String joinableRooms() {
+        return PFX + "{lobby}:joinable";
+    }
+
+    /** 按规则的可加入房间索引（ZSET：roomId，score = createdAt） */
+    public static String joinableRooms(String rule) {
+        return PFX + "{lobby}:joinable:" + rule;
+    }
+
+    // ---- 用户维度：所在房间（座位反向索引） ----
+
+    /** 用户所在房间（Hash：userId -> roomId），随座位绑定维护，见 RoomRepository#findRoomOfUser */
+    public static String userRooms() {
+        return PFX + "users:room";
+    }
+
+    /** 座位反向索引已补建标记（String），见 SeatIndexBackfill */
+    public static String userRoomsBackfilled() {
+        return PFX + "users:room:backfilled";
+    }
+
+    /** 座位反向索引补建锁（String，带过期），多个实例同时启动时只有一个执行补建 */
+    public static String userRoomsBackfillLock() {
+        return PFX + "users:room:backfill:lock";
+    }
+
+    /** 房间回收锁（String，带过期），每轮只有一个实例执行回收 */
+    public static String roomReaperLock() {
+        return PFX + "rooms:reaper:lock";
+    }
+
+    /** 座位反向索引一致性检查锁（String，带过期），每个周期只有一个实例执行检查 */
+    public static String userRoomsCheckLock() {
+        return PFX + "users:room:check:lock";
+    }
+
     // ---- 用户维度：正在进行中的房间 ----
     public static String userOngoing(String userId) {
         return PFX + "user:" + userId + ":ongoing";
     }
 
+    // ---- 旧布局（仅读时迁移使用） ----
+    public static String legacyRoom(String roomId) {
+        return PFX + "room:" + roomId;
+    }
+
+    public static String legacyRoomSeats(String roomId) {
+        return PFX + "room:" + roomId + ":seats";
+    }
+
+    public static String legacyRoomSeatKeyPrefix(String roomId) {
+        return PFX + "room:" + roomId + ":seatKey:";
+    }
 
+    public static String legacyRoomSeatLock(String roomId, char seat) {
+        return PFX + "room:" + roomId + ":seatLock:" + Character.toUpperCase(seat);
+    }
 
+    public static String legacyGameState(String roomId, String gameId) {
+        return PFX + "room:" + roomId + ":game:" + gameId + ":state";
+    }
+
+    public static String legacyGameMoves(String roomId, String gameId) {
+        return PFX + "room:" + roomId + ":game:" + gameId + ":moves";
+    }
+
+    public static String legacyTurnAnchor(String roomId) {
+        return PFX + "room:" + roomId + ":turn";
+    }
+
+    public static String legacyRoomSeries(String roomId) {
+        return PFX + "room:" + roomId + ":series";
+    }
+
+    public static String legacyRoomUserProfiles(String roomId) {
+        return PFX + "room:" + roomId + ":users";
+    }
+
+    public static String legacyAiPending(String roomId) {
+        return PFX + "room:" + roomId + ":ai:pending";
+    }
 }
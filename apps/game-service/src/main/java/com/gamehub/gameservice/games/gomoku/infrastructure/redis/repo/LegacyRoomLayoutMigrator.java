@@ -0,0 +1,136 @@
+package com.gamehub.gameservice.games.gomoku.infrastructure.redis.repo;
+
+import com.gamehub.gameservice.games.gomoku.domain.dto.GameStateRecord;
+import com.gamehub.gameservice.games.gomoku.domain.dto.RoomMeta;
+import com.gamehub.gameservice.games.gomoku.domain.dto.SeatsBinding;
+import com.gamehub.gameservice.games.gomoku.domain.dto.TurnAnchor;
+import com.gamehub.gameservice.games.gomoku.infrastructure.redis.RedisKeys;
+import com.gamehub.gameservice.infrastructure.redis.RedisOps;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * LegacyRoomLayoutMigrator
+ * -------------------------------------------------------
+ * 旧键布局（gomoku:room:{roomId}:...）到新布局（gomoku:{roomId}:...）的读时迁移。
+ * - 各仓储在新布局读不到数据时调用 {@link #migrateIfPresent}；
+ * - 旧布局存在则整间房迁移：meta/seats/turn/series/seatKey 合并进房间 Hash，
+ *   当前盘快照与走子日志、玩家资料复制到带 hash tag 的新键，随后删除全部旧键；
+ * - 旧键不再被写入，待存量房间自然迁移/过期后即可关闭（gomoku.redis.legacy-migration.enabled=false）。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LegacyRoomLayoutMigrator {
+
+    /** 与房间 TTL 对齐 */
+    private static final Duration ROOM_TTL = Duration.ofHours(48);
+    /** 玩家资料缓存 TTL（与 GomokuServiceImpl 保持一致） */
+    private static final Duration USER_PROFILE_CACHE_TTL = Duration.ofMinutes(30);
+
+    private final RedisOps ops;
+
+    @Value("${gomoku.redis.legacy-migration.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 若新布局缺失而旧布局存在，则迁移整个房间并删除旧键。
+     * @param roomId 房间ID
+     * @return true 表示本次发生了迁移（调用方应重读新布局）
+     */
+    public boolean migrateIfPresent(String roomId) {
+        if (!enabled || roomId == null || roomId.isBlank()) {
+            return false;
+        }
+        RoomMeta meta = ops.get(RedisKeys.legacyRoom(roomId), RoomMeta.class);
+        if (meta == null) {
+            return false;
+        }
+        String roomKey = RedisKeys.room(roomId);
+        // 以 meta 字段占位，防止多节点重复迁移
+        if (!ops.hSetNx(roomKey, RedisKeys.F_META, meta)) {
+            return true;
+        }
+
+        Map<String, Object> fields = new HashMap<>();
+        SeatsBinding seats = ops.get(RedisKeys.legacyRoomSeats(roomId), SeatsBinding.class);
+        if (seats != null) fields.put(RedisKeys.F_SEATS, seats);
+        TurnAnchor turn = ops.get(RedisKeys.legacyTurnAnchor(roomId), TurnAnchor.class);
+        if (turn != null) fields.put(RedisKeys.F_TURN, turn);
+        ops.hGetAll(RedisKeys.legacyRoomSeries(roomId))
+                .forEach((k, v) -> fields.put(RedisKeys.seriesField(k), v));
+
+        List<String> legacyKeys = new ArrayList<>(List.of(
+                RedisKeys.legacyRoom(roomId),
+                RedisKeys.legacyRoomSeats(roomId),
+                RedisKeys.legacyTurnAnchor(roomId),
+                RedisKeys.legacyRoomSeries(roomId),
+                RedisKeys.legacyRoomUserProfiles(roomId),
+                RedisKeys.legacyAiPending(roomId),
+                RedisKeys.legacyRoomSeatLock(roomId, 'X'),
+                RedisKeys.legacyRoomSeatLock(roomId, 'O')));
+
+        String seatKeyPrefix = RedisKeys.legacyRoomSeatKeyPrefix(roomId);
+        for (String k : ops.scanKeys(seatKeyPrefix + "*", 100)) {
+            String seat = ops.getString(k);
+            if (seat != null) fields.put(RedisKeys.seatKeyField(k.substring(seatKeyPrefix.length())), seat);
+            legacyKeys.add(k);
+        }
+
+        if (!fields.isEmpty()) {
+            ops.hSetAll(roomKey, fields);
+        }
+        ops.expire(roomKey, ROOM_TTL);
+
+        // 当前盘：快照 + 走子日志
+        String gameId = meta.getGameId();
+        if (gameId != null) {
+            GameStateRecord snap = ops.get(RedisKeys.legacyGameState(roomId, gameId), GameStateRecord.class);
+            if (snap != null) {
+                ops.setEx(RedisKeys.gameState(roomId, gameId), snap, ROOM_TTL);
+                ops.sAdd(RedisKeys.roomGames(roomId), gameId);
+                ops.expire(RedisKeys.roomGames(roomId), ROOM_TTL);
+                String movesKey = RedisKeys.gameMoves(roomId, gameId);
+                ops.rPushAll(movesKey, ops.lRange(RedisKeys.legacyGameMoves(roomId, gameId), 0, -1));
+                ops.expire(movesKey, ROOM_TTL);
+            }
+        }
+        // 历史盘不再迁移，随旧键一并删除
+        legacyKeys.addAll(ops.scanKeys(RedisKeys.legacyRoom(roomId) + ":game:*", 100));
+
+        // 玩家资料
+        Map<String, Object> profiles = ops.hGetAll(RedisKeys.legacyRoomUserProfiles(roomId));
+        if (!profiles.isEmpty()) {
+            String usersKey = RedisKeys.roomUserProfiles(roomId);
+            ops.hSetAll(usersKey, profiles);
+            ops.expire(usersKey, USER_PROFILE_CACHE_TTL);
+        }
+
+        ops.del(legacyKeys.toArray(new String[0]));
+        log.info("房间键布局已迁移: roomId={}, legacyKeys={}", roomId, legacyKeys.size());
+        return true;
+    }
+
+    /**
+     * 房间销毁时兜底清理可能残留的旧布局键（未迁移过的房间）。
+     * @param roomId 房间ID
+     */
+    public void purgeLegacy(String roomId) {
+        if (!enabled || roomId == null || roomId.isBlank()) {
+            return;
+        }
+        Set<String> keys = ops.scanKeys(RedisKeys.legacyRoom(roomId) + "*", 100);
+        if (!keys.isEmpty()) {
+            ops.del(keys.toArray(new String[0]));
+        }
+    }
+}
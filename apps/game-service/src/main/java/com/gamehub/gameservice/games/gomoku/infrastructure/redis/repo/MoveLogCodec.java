@@ -0,0 +1,67 @@
+package com.gamehub.gameservice.games.gomoku.infrastructure.redis.repo;
+
+import com.gamehub.gameservice.games.gomoku.domain.dto.GameStateRecord;
+import com.gamehub.gameservice.games.gomoku.domain.model.Board;
+import com.gamehub.gameservice.games.gomoku.domain.model.Move;
+
+import java.util.List;
+
+/**
+ * MoveLogCodec
+ * -------------------------------------------------------
+ * 走子日志的编解码与回放工具。
+ * - 日志元素格式："x,y,P"（如 "7,7,X"），单步仅数个字节；
+ * - 回放：在压缩快照（GameStateRecord）基础上依次应用日志中 step 之后的走子，
+ *   得到最新盘面；终局信息（winner/over）只由快照携带，不从日志推导。
+ */
+public final class MoveLogCodec {
+
+    private MoveLogCodec() {}
+
+    /** 编码一步棋 */
+    public static String encode(Move m) {
+        return m.x() + "," + m.y() + "," + m.piece();
+    }
+
+    /** 解码一步棋；格式非法返回 null */
+    public static Move decode(String s) {
+        if (s == null) return null;
+        String[] p = s.split(",");
+        if (p.length != 3 || p[2].isEmpty()) return null;
+        try {
+            return new Move(Integer.parseInt(p[0].trim()), Integer.parseInt(p[1].trim()), p[2].trim().charAt(0));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 在快照上回放日志尾部（原地修改快照）。
+     * @param snap 压缩快照（board/current/lastMove/step）
+     * @param tail 快照 step 之后的日志元素
+     * @return 回放后的记录（即入参 snap）
+     */
+    public static GameStateRecord replay(GameStateRecord snap, List<String> tail) {
+        if (tail == null || tail.isEmpty()) return snap;
+        String boardStr = snap.getBoard();
+        char[] cells = (boardStr != null && boardStr.length() == Board.SIZE * Board.SIZE)
+                ? boardStr.toCharArray()
+                : String.valueOf(Board.EMPTY).repeat(Board.SIZE * Board.SIZE).toCharArray();
+        int step = snap.getStep() == null ? 0 : snap.getStep();
+        Move last = null;
+        for (String raw : tail) {
+            Move m = decode(raw);
+            if (m == null) continue;
+            cells[m.x() * Board.SIZE + m.y()] = m.piece();
+            last = m;
+            step++;
+        }
+        snap.setBoard(new String(cells));
+        snap.setStep(step);
+        if (last != null) {
+            snap.setLastMove(last.x() + "," + last.y());
+            snap.setCurrent(String.valueOf(last.piece() == Board.BLACK ? Board.WHITE : Board.BLACK));
+        }
+        return snap;
+    }
+}
@@ -1,18 +1,31 @@
 package com.gamehub.gameservice.games.gomoku.infrastructure.redis.repo;
 
+import com.gamehub.gameservice.games.gomoku.domain.dto.MoveCommit;
+import com.gamehub.gameservice.games.gomoku.domain.dto.MoveCommitResult;
 import com.gamehub.gameservice.games.gomoku.domain.dto.TurnAnchor;
+import com.gamehub.gameservice.games.gomoku.domain.model.Move;
 import com.gamehub.gameservice.games.gomoku.domain.repository.GameStateRepository;
 import com.gamehub.gameservice.games.gomoku.infrastructure.redis.RedisKeys;
 import com.gamehub.gameservice.games.gomoku.domain.dto.GameStateRecord;
 import com.gamehub.gameservice.infrastructure.redis.RedisOps;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Repository;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -20,23 +33,59 @@ import java.util.Set;
  * RedisGameStateRepository
  * -------------------------------------------------------
  * 单盘棋局状态的 Redis 仓储实现。
- * - 存取对象：GameStateRecord；
+ * - 快照：GameStateRecord（JSON），仅在开局、终局、每 N 步时重写；
+ * - 日志：走子 List（"x,y,P"），每步只 RPUSH 几个字节；
+ * - 落子：单个 Lua 脚本原子提交（校验 + 追加日志 + 回合锚点），一次往返；
+ *   批量提交（写后持久化）时多步走同一管道，仍是一次往返；
+ * - 读取：快照 + LRANGE(step, -1) 回放，得到最新盘面；
  * - 建议使用合适 TTL（例如房间活跃期 + 24h）。
  */
 @Repository
 @RequiredArgsConstructor
 public class RedisGameStateRepository implements GameStateRepository {
 
+    /** 日志/快照 TTL：与房间 TTL 对齐 */
+    private static final Duration LOG_TTL = Duration.ofHours(48);
+
     private final RedisOps ops;
 
     private final RedisTemplate<String, Object> redisTemplate; // 新增：注入用于原生事务
 
+    /** 走子日志为纯字符串元素，事务统一在字符串模板上执行 */
+    private final StringRedisTemplate strRedisTemplate;
+
+    /** 单步落子提交脚本（静态加载，SHA1 只计算一次） */
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> COMMIT_MOVE = new DefaultRedisScript<>();
+
+    static {
+        COMMIT_MOVE.setLocation(new ClassPathResource("scripts/gomoku/commit_move.lua"));
+        COMMIT_MOVE.setResultType(List.class);
+    }
+
+    /** 快照压缩间隔：每落 N 步重写一次快照（终局总会重写） */
+    @Value("${gomoku.state.snapshot-interval:16}")
+    private int snapshotInterval;
+
     /**
-     * 保存棋局状态（JSON 存储，带 TTL）
+     * 保存棋局状态（JSON 存储，带 TTL），并在同一事务中把 gameId 登记到房间的盘索引
      */
     @Override
+    @SuppressWarnings("unchecked")
     public void save(String roomId, String gameId, GameStateRecord state, Duration ttl) {
-        ops.setEx(RedisKeys.gameState(roomId, gameId), state, ttl);
+        final String stateKey = RedisKeys.gameState(roomId, gameId);
+        final String gamesKey = RedisKeys.roomGames(roomId);
+        ops.invalidate(stateKey, gamesKey);
+        redisTemplate.execute(new SessionCallback<Object>() {
+            @Override
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                operations.multi();
+                operations.opsForValue().set((K) stateKey, (V) state, ttl);
+                operations.opsForSet().add((K) gamesKey, (V) gameId);
+                operations.expire((K) gamesKey, ttl);
+                return operations.exec();
+            }
+        });
     }
 
     /**
@@ -45,31 +94,107 @@ public class RedisGameStateRepository implements GameStateRepository {
     @Override
     public Optional<GameStateRecord> get(String roomId, String gameId) {
         GameStateRecord r = ops.get(RedisKeys.gameState(roomId, gameId), GameStateRecord.class);
-        return Optional.ofNullable(r);
+        if (r == null) return Optional.empty();
+        int base = r.getStep() == null ? 0 : r.getStep();
+        List<String> tail = ops.lRange(RedisKeys.gameMoves(roomId, gameId), base, -1);
+        return Optional.of(MoveLogCodec.replay(r, tail));
     }
 
     /**
-     * 删除棋局状态
+     * 删除棋局状态（快照 + 走子日志）
      */
     @Override
     public void delete(String roomId, String gameId) {
-        ops.del(RedisKeys.gameState(roomId, gameId));
+        ops.del(RedisKeys.gameState(roomId, gameId), RedisKeys.gameMoves(roomId, gameId));
+        redisTemplate.opsForSet().remove(RedisKeys.roomGames(roomId), gameId);
     }
 
+    /**
+     * 删除房间内全部盘：按盘索引（gomoku:{roomId}:games）逐个删除快照与日志，不做 KEYS 模式匹配
+     */
     @Override
     public void deleteAll(String roomId) {
-        String pattern = RedisKeys.gameStatePrefix(roomId) + "*" + RedisKeys.gameStateSuffix();
-        Set<String> keys = redisTemplate.keys(pattern);
-        if (keys != null && !keys.isEmpty()) {
-            redisTemplate.delete(keys);
+        final String gamesKey = RedisKeys.roomGames(roomId);
+        ops.invalidate(gamesKey);
+        Set<Object> gameIds = redisTemplate.opsForSet().members(gamesKey);
+        List<String> keys = new ArrayList<>();
+        if (gameIds != null) {
+            for (Object gid : gameIds) {
+                keys.add(RedisKeys.gameState(roomId, String.valueOf(gid)));
+                keys.add(RedisKeys.gameMoves(roomId, String.valueOf(gid)));
+            }
         }
+        keys.add(gamesKey);
+        redisTemplate.delete(keys);
+    }
+
+    /**
+     * 单步落子原子提交：一次 EVALSHA 完成全部校验与写入，无 WATCH 乐观重试。
+     * 详见 scripts/gomoku/commit_move.lua。
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public MoveCommitResult commitMove(String roomId, String gameId, int expectedStep, Move move,
+                                       GameStateRecord after, long newDeadlineMillis) {
+        List<Object> res = ops.evalScript(COMMIT_MOVE, commitKeys(roomId, gameId),
+                commitArgs(roomId, new MoveCommit(gameId, expectedStep, move, after, newDeadlineMillis)));
+        return toResult(res);
+    }
+
+    /**
+     * 批量落子提交：同一脚本按顺序在一条管道内执行，N 步只占一次往返。
+     * 管道内使用 EVAL（脚本原文），避免 EVALSHA 遇到 NOSCRIPT 时整条管道失败。
+     */
+    @Override
+    public List<MoveCommitResult> commitMoves(String roomId, List<MoveCommit> batch) {
+        if (batch.isEmpty()) return List.of();
+        // 管道内的脚本会读 meta、改写 turn：先写出指令上下文的脏写，结束后丢弃房间副本
+        ops.invalidate(RedisKeys.room(roomId));
+        final byte[] script = COMMIT_MOVE.getScriptAsString().getBytes(StandardCharsets.UTF_8);
+        List<Object> raw = strRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (MoveCommit c : batch) {
+                List<String> keys = commitKeys(roomId, c.gameId());
+                String[] args = commitArgs(roomId, c);
+                byte[][] keysAndArgs = new byte[keys.size() + args.length][];
+                int i = 0;
+                for (String k : keys) keysAndArgs[i++] = k.getBytes(StandardCharsets.UTF_8);
+                for (String a : args) keysAndArgs[i++] = a.getBytes(StandardCharsets.UTF_8);
+                connection.scriptingCommands().eval(script, ReturnType.MULTI, keys.size(), keysAndArgs);
+            }
+            return null;
+        });
+        ops.invalidate(RedisKeys.room(roomId));
+        List<MoveCommitResult> out = new ArrayList<>(batch.size());
+        for (Object r : raw) {
+            out.add(r instanceof List<?> l ? toResult(l) : MoveCommitResult.rejected("NO_RESULT"));
+        }
+        return out;
+    }
+
+    /**
+     * 已持久化步数（走子日志长度）：写后持久化的持久化游标，故障后据此判断哪些落子已落盘
+     */
+    public long persistedStep(String roomId, String gameId) {
+        return ops.lLen(RedisKeys.gameMoves(roomId, gameId));
+    }
+
+    @Override
+    public List<Move> getMoves(String roomId, String gameId) {
+        List<String> raw = ops.lRange(RedisKeys.gameMoves(roomId, gameId), 0, -1);
+        List<Move> out = new ArrayList<>(raw.size());
+        for (String s : raw) {
+            Move m = MoveLogCodec.decode(s);
+            if (m != null) out.add(m);
+        }
+        return out;
     }
 
     /**
      * 原子更新当前盘面状态 + 回合锚点（CAS 语义）。
      * <p>
-     * 实现：对棋局状态键执行 WATCH，校验期望步数与期望轮到方一致后，
-     * 在事务（MULTI/EXEC）中同时写入新的 GameStateRecord 以及 TurnAnchor（下一回合方与截止时间）。
+     * 用于不产生新落子的终局变化（认输/超时）：此时直接写入完整快照。
+     * 实现：对快照键、走子日志键与房间 Hash（turn 字段所在）执行 WATCH，回放得到当前盘面，校验期望步数与期望轮到方一致后，
+     * 在事务（MULTI/EXEC）中同时写入新的快照以及 TurnAnchor（下一回合方与截止时间）。
      * 若在提交前键被其他请求修改，EXEC 返回 null，视为更新失败。
      *
      * @param roomId             房间ID
@@ -90,17 +215,22 @@ public class RedisGameStateRepository implements GameStateRepository {
             long newDeadlineMillis) {
 
         final String stateKey = RedisKeys.gameState(roomId, gameId);
-        final String turnKey  = RedisKeys.turnAnchor(roomId);
+        final String movesKey = RedisKeys.gameMoves(roomId, gameId);
+        final String roomKey  = RedisKeys.room(roomId);
+        // 快照的 step 必须等于日志长度，回放才能从正确位置继续
+        final String snapJson = ops.toJson(withStep(newState, expectedStep));
+        // WATCH 之前写出指令上下文的脏写；事务改写 turn 后丢弃房间副本
+        ops.invalidate(stateKey, movesKey, roomKey);
 
-        Boolean ok = redisTemplate.execute(new SessionCallback<Boolean>() {
+        Boolean ok = strRedisTemplate.execute(new SessionCallback<Boolean>() {
             @SuppressWarnings("unchecked")
             @Override
             public <K, V> Boolean execute(RedisOperations<K, V> operations) throws DataAccessException {
-                // 1) 监视 stateKey
-                operations.watch((K) stateKey);
+                // 1) 监视快照、日志与房间 Hash
+                operations.watch((Collection<K>) List.of(stateKey, movesKey, roomKey));
 
-                // 2) 读取并校验当前状态
-                GameStateRecord cur = (GameStateRecord) operations.opsForValue().get((K) stateKey);
+                // 2) 读取（快照 + 回放）并校验当前状态
+                GameStateRecord cur = get(roomId, gameId).orElse(null);
                 if (cur == null) {
                     operations.unwatch();
                     return false;
@@ -116,23 +246,16 @@ public class RedisGameStateRepository implements GameStateRepository {
                     return false;
                 }
 
-                // 3) 开启事务、写入新状态 + 回合锚点
-                operations.multi();
-
-                operations.opsForValue().set((K) stateKey, (V) newState);
+                // 回合序列号沿用并自增，保证与落子脚本的 turnSeq 单调一致
+                TurnAnchor anchor = buildAnchor(roomId, gameId, newState, newDeadlineMillis);
+                TurnAnchor prev = ops.hGet(roomKey, RedisKeys.F_TURN, TurnAnchor.class);
+                anchor.setTurnSeq((prev == null ? 0L : prev.getTurnSeq()) + 1);
+                String anchorJson = ops.toJson(anchor);
 
-                // 下个回合方（终局则 null），只做展示/倒计时锚点
-                String nextSideStr = newState.isOver()
-                        ? null
-                        : (newState.getCurrent() == null ? null : String.valueOf(newState.getCurrent().charAt(0)));
-
-                TurnAnchor anchor = new TurnAnchor();          // 无参构造
-                anchor.setRoomId(roomId);                      // 你类里有这两个字段
-                anchor.setGameId(gameId);
-                anchor.setSide(nextSideStr);                   // "X"/"O" 或 null
-                anchor.setDeadlineEpochMs(newDeadlineMillis);  // 截止时间（毫秒）
-                // 如需自增 turnSeq，可在这里计算后设置：anchor.setTurnSeq( Optional.ofNullable(anchor.getTurnSeq()).orElse(0L) + 1 );
-                operations.opsForValue().set((K) turnKey, (V) anchor);
+                // 3) 开启事务、写入新快照 + 回合锚点
+                operations.multi();
+                operations.opsForValue().set((K) stateKey, (V) snapJson, LOG_TTL);
+                operations.opsForHash().put((K) roomKey, RedisKeys.F_TURN, anchorJson);
 
                 // 4) 提交事务：exec 返回 null 代表被改动冲突
                 var res = operations.exec();
@@ -140,8 +263,67 @@ public class RedisGameStateRepository implements GameStateRepository {
             }
         });
 
+        ops.invalidate(roomKey);
         return Boolean.TRUE.equals(ok);
     }
 
+    private static List<String> commitKeys(String roomId, String gameId) {
+        return List.of(RedisKeys.room(roomId),
+                RedisKeys.gameState(roomId, gameId),
+                RedisKeys.gameMoves(roomId, gameId));
+    }
+
+    /** 落子脚本参数，顺序见 commit_move.lua 头部说明 */
+    private String[] commitArgs(String roomId, MoveCommit c) {
+        final GameStateRecord after = c.after();
+        final int newStep = c.expectedStep() + 1;
+        final boolean compact = after.isOver() || (snapshotInterval > 0 && newStep % snapshotInterval == 0);
+        final String nextSide = after.isOver() || after.getCurrent() == null ? "" : after.getCurrent().substring(0, 1);
+        return new String[] {
+                String.valueOf(c.move().x()),
+                String.valueOf(c.move().y()),
+                String.valueOf(c.move().piece()),
+                String.valueOf(c.expectedStep()),
+                String.valueOf(c.deadlineMillis()),
+                nextSide,
+                roomId,
+                c.gameId(),
+                TurnAnchor.class.getName(),
+                compact ? ops.toJson(withStep(after, newStep)) : "",
+                String.valueOf(LOG_TTL.toMillis())
+        };
+    }
+
+    private static MoveCommitResult toResult(List<?> res) {
+        if (res == null || res.isEmpty()) {
+            return MoveCommitResult.rejected("NO_RESULT");
+        }
+        if (!"OK".equals(String.valueOf(res.get(0)))) {
+            return MoveCommitResult.rejected(res.size() > 1 ? String.valueOf(res.get(1)) : "UNKNOWN");
+        }
+        String side = String.valueOf(res.get(3));
+        return new MoveCommitResult(true, null,
+                Integer.parseInt(String.valueOf(res.get(1))),
+                Long.parseLong(String.valueOf(res.get(2))),
+                side.isEmpty() ? null : side,
+                Long.parseLong(String.valueOf(res.get(4))));
+    }
 
+    /** 下一回合锚点：终局时 side 为 null，只做展示/倒计时锚点 */
+    private TurnAnchor buildAnchor(String roomId, String gameId, GameStateRecord after, long deadlineMillis) {
+        String nextSideStr = after.isOver()
+                ? null
+                : (after.getCurrent() == null ? null : String.valueOf(after.getCurrent().charAt(0)));
+        TurnAnchor anchor = new TurnAnchor();
+        anchor.setRoomId(roomId);
+        anchor.setGameId(gameId);
+        anchor.setSide(nextSideStr);
+        anchor.setDeadlineEpochMs(deadlineMillis);
+        return anchor;
+    }
+
+    private GameStateRecord withStep(GameStateRecord rec, int step) {
+        rec.setStep(step);
+        return rec;
+    }
 }
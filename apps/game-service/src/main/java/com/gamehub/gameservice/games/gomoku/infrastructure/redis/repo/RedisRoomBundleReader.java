@@ -0,0 +1,122 @@
+package com.gamehub.gameservice.games.gomoku.infrastructure.redis.repo;
+
+import com.gamehub.gameservice.application.user.UserProfileView;
+import com.gamehub.gameservice.games.gomoku.domain.dto.GameStateRecord;
+import com.gamehub.gameservice.games.gomoku.domain.dto.RoomBundle;
+import com.gamehub.gameservice.games.gomoku.domain.dto.RoomMeta;
+import com.gamehub.gameservice.games.gomoku.domain.dto.SeatsBinding;
+import com.gamehub.gameservice.games.gomoku.domain.dto.TurnAnchor;
+import com.gamehub.gameservice.games.gomoku.domain.repository.GameStateRepository;
+import com.gamehub.gameservice.games.gomoku.domain.repository.RoomBundleReader;
+import com.gamehub.gameservice.games.gomoku.infrastructure.redis.RedisKeys;
+import com.gamehub.gameservice.infrastructure.redis.RedisOps;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * RedisRoomBundleReader
+ * -------------------------------------------------------
+ * 房间聚合读取的 Redis 实现：单次管道往返取回
+ * 房间 Hash（HMGET meta/seats/turn）/ users / game:state / game:moves / 观战人数（SCARD）共 5 条命令。
+ * - 管道统一以字符串取回，再按通用模板的 JSON 序列化器反序列化，兼容现有存储格式；
+ * - 当前盘 gameId 取调用方提示值；若与 meta 不一致（其他节点已换盘），补读一次当前盘；
+ * - 新布局无 meta 时尝试旧布局迁移，迁移成功则重读一次。
+ */
+@Repository
+@RequiredArgsConstructor
+public class RedisRoomBundleReader implements RoomBundleReader {
+
+    private final StringRedisTemplate strRedisTemplate;
+    private final RedisOps ops;
+    private final GameStateRepository gameRepo;
+    private final LegacyRoomLayoutMigrator legacyMigrator;
+
+    private static final List<String> ROOM_FIELDS = List.of(RedisKeys.F_META, RedisKeys.F_SEATS, RedisKeys.F_TURN);
+
+    @Override
+    public Optional<RoomBundle> load(String roomId, String gameIdHint) {
+        Optional<RoomBundle> b = loadOnce(roomId, gameIdHint);
+        if (b.isEmpty() && legacyMigrator.migrateIfPresent(roomId)) {
+            b = loadOnce(roomId, gameIdHint);
+        }
+        return b;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Optional<RoomBundle> loadOnce(String roomId, String gameIdHint) {
+        final String hint = gameIdHint == null ? "" : gameIdHint;
+        final long now = System.currentTimeMillis();
+        // 指令上下文：管道前先写出本指令的脏写，保证读到最新
+        ops.invalidate();
+        List<Object> res = strRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                operations.<String, Object>opsForHash().multiGet((K) RedisKeys.room(roomId), ROOM_FIELDS);
+                operations.opsForHash().entries((K) RedisKeys.roomUserProfiles(roomId));
+                operations.opsForValue().get((K) RedisKeys.gameState(roomId, hint));
+                operations.opsForList().range((K) RedisKeys.gameMoves(roomId, hint), 0, -1);
+                operations.opsForZSet().count((K) RedisKeys.roomSpectators(roomId), now, Double.POSITIVE_INFINITY);
+                return null;
+            }
+        });
+
+        List<Object> room = res.get(0) == null ? Collections.emptyList() : (List<Object>) res.get(0);
+        RoomMeta meta = ops.fromJson(field(room, 0), RoomMeta.class);
+        if (meta == null) {
+            return Optional.empty();
+        }
+
+        // 取回的房间字段顺带预热指令上下文，本指令后续的 meta/seats/turn 读取不再访问 Redis
+        for (int i = 0; i < ROOM_FIELDS.size(); i++) {
+            ops.prime(RedisKeys.room(roomId), ROOM_FIELDS.get(i), field(room, i));
+        }
+
+        RoomBundle b = new RoomBundle();
+        b.setMeta(meta);
+        b.setSeats(ops.fromJson(field(room, 1), SeatsBinding.class));
+        b.setTurnAnchor(ops.fromJson(field(room, 2), TurnAnchor.class));
+        b.setProfiles(parseProfiles((Map<Object, Object>) res.get(1)));
+        b.setSpectatorCount(res.get(4) instanceof Number n ? n.intValue() : 0);
+
+        if (Objects.equals(meta.getGameId(), gameIdHint)) {
+            GameStateRecord snap = ops.fromJson((String) res.get(2), GameStateRecord.class);
+            if (snap != null) {
+                List<Object> moves = res.get(3) == null ? Collections.emptyList() : (List<Object>) res.get(3);
+                int base = snap.getStep() == null ? 0 : snap.getStep();
+                List<String> tail = moves.stream().skip(base).map(String::valueOf).toList();
+                b.setGame(MoveLogCodec.replay(snap, tail));
+            }
+        } else if (meta.getGameId() != null) {
+            // 提示值已过期：补读一次当前盘
+            b.setGame(gameRepo.get(roomId, meta.getGameId()).orElse(null));
+        }
+        return Optional.of(b);
+    }
+
+    private static String field(List<Object> vals, int i) {
+        Object v = i < vals.size() ? vals.get(i) : null;
+        return v == null ? null : String.valueOf(v);
+    }
+
+    private Map<String, UserProfileView> parseProfiles(Map<Object, Object> raw) {
+        if (raw == null || raw.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, UserProfileView> out = new HashMap<>();
+        raw.forEach((k, v) -> {
+            UserProfileView p = ops.fromJson(v == null ? null : String.valueOf(v), UserProfileView.class);
+            if (p != null) out.put(String.valueOf(k), p);
+        });
+        return out;
+    }
+}
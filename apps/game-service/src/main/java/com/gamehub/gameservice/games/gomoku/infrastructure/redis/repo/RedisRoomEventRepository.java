@@ -0,0 +1,134 @@
+package com.gamehub.gameservice.games.gomoku.infrastructure.redis.repo;
+
+import com.gamehub.gameservice.games.gomoku.domain.dto.StateDelta;
+import com.gamehub.gameservice.games.gomoku.domain.repository.RoomEventRepository;
+import com.gamehub.gameservice.games.gomoku.infrastructure.redis.RedisKeys;
+import com.gamehub.gameservice.infrastructure.redis.RedisOps;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * RedisRoomEventRepository
+ * -------------------------------------------------------
+ * 房间事件序号与增量日志的 Redis 实现。
+ * - 序号：gomoku:{roomId}:events:seq（INCR）；
+ * - 日志：gomoku:{roomId}:events（ZSET，score=序号），只保留最近 N 条 DELTA；
+ * - 分配序号与追加日志在同一脚本内完成，一次往返；
+ * - 补齐时一次管道同时读取当前序号与日志区间，保证两者来自同一时刻；
+ * - 视图版本（序号 + 观战人数）同样一次管道读出，供 REST 房间视图做条件请求。
+ */
+@Repository
+@RequiredArgsConstructor
+public class RedisRoomEventRepository implements RoomEventRepository {
+
+    /** 与房间 TTL 对齐 */
+    private static final Duration EVENTS_TTL = Duration.ofHours(48);
+
+    private static final DefaultRedisScript<Long> APPEND = new DefaultRedisScript<>();
+
+    static {
+        APPEND.setLocation(new ClassPathResource("scripts/gomoku/room_event_append.lua"));
+        APPEND.setResultType(Long.class);
+    }
+
+    private final RedisOps ops;
+    private final StringRedisTemplate strRedisTemplate;
+
+    /** 增量日志保留条数（超出后缺口只能靠全量快照补齐） */
+    @Value("${gomoku.events.log-size:64}")
+    private int logSize;
+
+    @Override
+    public long nextSeq(String roomId) {
+        return append(roomId, "");
+    }
+
+    @Override
+    public long appendDelta(String roomId, StateDelta delta) {
+        long seq = append(roomId, ops.toJson(delta));
+        delta.setSeq(seq);
+        return seq;
+    }
+
+    @Override
+    public long currentSeq(String roomId) {
+        String v = ops.getString(RedisKeys.roomEventSeq(roomId));
+        return v == null ? 0L : Long.parseLong(v);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<StateDelta> deltasSince(String roomId, long sinceSeq) {
+        final String seqKey = RedisKeys.roomEventSeq(roomId);
+        final String logKey = RedisKeys.roomEvents(roomId);
+        List<Object> res = strRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                operations.opsForValue().get((K) seqKey);
+                operations.opsForZSet().rangeByScoreWithScores((K) logKey, sinceSeq + 1, Double.POSITIVE_INFINITY);
+                return null;
+            }
+        });
+        long current = res.get(0) == null ? 0L : Long.parseLong(String.valueOf(res.get(0)));
+        if (current <= sinceSeq) {
+            return List.of();
+        }
+        Set<TypedTuple<String>> tuples = (Set<TypedTuple<String>>) res.get(1);
+        if (tuples == null || tuples.size() != current - sinceSeq) {
+            // 区间内有全量事件（不入日志）或已被淘汰：无法只靠增量补齐
+            return null;
+        }
+        List<StateDelta> out = new ArrayList<>(tuples.size());
+        long expected = sinceSeq + 1;
+        for (TypedTuple<String> t : tuples) {
+            long seq = t.getScore() == null ? -1L : t.getScore().longValue();
+            StateDelta d = ops.fromJson(t.getValue(), StateDelta.class);
+            if (seq != expected || d == null) {
+                return null;
+            }
+            d.setSeq(seq);
+            out.add(d);
+            expected++;
+        }
+        return out;
+    }
+
+    @Override
+    public ViewVersion viewVersion(String roomId) {
+        final String seqKey = RedisKeys.roomEventSeq(roomId);
+        final String spectatorsKey = RedisKeys.roomSpectators(roomId);
+        final long now = System.currentTimeMillis();
+        List<Object> res = strRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                operations.opsForValue().get((K) seqKey);
+                // 观战者按登记过期时刻计分，只数未过期的
+                operations.opsForZSet().count((K) spectatorsKey, now, Double.POSITIVE_INFINITY);
+                return null;
+            }
+        });
+        long seq = res.get(0) == null ? 0L : Long.parseLong(String.valueOf(res.get(0)));
+        long spectators = res.get(1) == null ? 0L : ((Number) res.get(1)).longValue();
+        return new ViewVersion(seq, spectators);
+    }
+
+    private long append(String roomId, String deltaJson) {
+        Long seq = ops.evalScript(APPEND,
+                List.of(RedisKeys.roomEventSeq(roomId), RedisKeys.roomEvents(roomId)),
+                deltaJson, String.valueOf(logSize), String.valueOf(EVENTS_TTL.toMillis()));
+        return seq == null ? 0L : seq;
+    }
+}
@@ -4,18 +4,32 @@ import com.gamehub.gameservice.application.user.UserProfileView;
 import com.gamehub.gameservice.games.gomoku.domain.model.SeriesView;
 import com.gamehub.gameservice.games.gomoku.domain.repository.RoomRepository;
 import com.gamehub.gameservice.games.gomoku.infrastructure.redis.RedisKeys;
+import com.gamehub.gameservice.games.gomoku.domain.dto.RoomListEntry;
 import com.gamehub.gameservice.games.gomoku.domain.dto.RoomMeta;
 import com.gamehub.gameservice.games.gomoku.domain.dto.SeatsBinding;
+import com.gamehub.gameservice.games.gomoku.domain.enums.Rule;
 import com.gamehub.gameservice.infrastructure.redis.RedisOps;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.Cursor;
 import org.springframework.data.redis.core.HashOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Repository;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 /**
  * RedisRoomRepository
  * -------------------------------------------------------
@@ -23,6 +37,12 @@ import java.util.Set;
  * - 仅做数据映射与 TTL 管理，不承载业务规则；
  * - 键名通过 RedisKeys 统一生成，避免字符串散落；
  * - 使用 RedisOps 封装的原语，便于切换底层实现。
+ * - meta / seats / seatKey / series 均为房间 Hash（RedisKeys.room）的字段，整个房间共用一个 TTL；
+ *   新布局读不到时交给 LegacyRoomLayoutMigrator 从旧键迁移后重读。
+ * - meta / seats 写入时顺带维护大厅摘要与可加入索引（RedisKeys.roomListings / joinableRooms）：
+ *   派生出的摘要与已有的相同时不访问 Redis，不同时用脚本一次原子更新摘要与索引。
+ * - 座位写入/删除时顺带维护座位反向索引（RedisKeys.userRooms）：新占座的用户 HSET（与座位一起写回），
+ *   离座的用户只在条目仍指向本房间时删除（脚本）。
  */
 @Repository
 @RequiredArgsConstructor
@@ -33,13 +53,43 @@ public class RedisRoomRepository implements RoomRepository {
     // 新增：直接用 Spring Data Redis 的 HashOperations，避免封装名差异导致的红线
     private final RedisTemplate<String, Object> redisTemplate;
 
+    /** 旧键布局读时迁移 */
+    private final LegacyRoomLayoutMigrator legacyMigrator;
+
+    private static final DefaultRedisScript<Long> SPECTATOR_JOIN = new DefaultRedisScript<>();
+
+    private static final DefaultRedisScript<Long> SPECTATOR_TOUCH = new DefaultRedisScript<>();
+
+    private static final DefaultRedisScript<Long> ROOM_LISTING = new DefaultRedisScript<>();
+
+    private static final DefaultRedisScript<Long> USER_ROOM_RELEASE = new DefaultRedisScript<>();
+
+    static {
+        SPECTATOR_JOIN.setLocation(new ClassPathResource("scripts/gomoku/spectator_join.lua"));
+        SPECTATOR_JOIN.setResultType(Long.class);
+        SPECTATOR_TOUCH.setLocation(new ClassPathResource("scripts/gomoku/spectator_touch.lua"));
+        SPECTATOR_TOUCH.setResultType(Long.class);
+        ROOM_LISTING.setLocation(new ClassPathResource("scripts/gomoku/room_listing.lua"));
+        ROOM_LISTING.setResultType(Long.class);
+        USER_ROOM_RELEASE.setLocation(new ClassPathResource("scripts/gomoku/user_room_release.lua"));
+        USER_ROOM_RELEASE.setResultType(Long.class);
+    }
+
+    private static final List<String> SERIES_FIELDS = List.of(
+            RedisKeys.seriesField("round"),
+            RedisKeys.seriesField("blackWins"),
+            RedisKeys.seriesField("whiteWins"),
+            RedisKeys.seriesField("draws"));
+
     /**
      * 保存房间元信息（JSON 存储，带 TTL）
      */
     @Override
     public void saveRoomMeta(String roomId, RoomMeta meta, Duration ttl) {
         String key = RedisKeys.room(roomId);
-        ops.setEx(key, meta, ttl);
+        ops.hSet(key, RedisKeys.F_META, meta);
+        ops.expire(key, ttl);
+        syncListing(roomId, meta, getSeats(roomId).orElse(null), false);
     }
 
     /**
@@ -48,15 +98,25 @@ public class RedisRoomRepository implements RoomRepository {
     @Override
     public Optional<RoomMeta> getRoomMeta(String roomId) {
         String key = RedisKeys.room(roomId);
-        RoomMeta meta = ops.get(key, RoomMeta.class);
+        RoomMeta meta = ops.hGet(key, RedisKeys.F_META, RoomMeta.class);
+        if (meta == null && legacyMigrator.migrateIfPresent(roomId)) {
+            meta = ops.hGet(key, RedisKeys.F_META, RoomMeta.class);
+        }
         return Optional.ofNullable(meta);
     }
     /**
-     * 删除房间元信息
+     * 删除房间（整个房间 Hash：meta / seats / turn / series / seatKey 一并删除，连同 AI 意图、计时 holder、事件序号/增量日志与观战者）
      */
     @Override
     public void deleteRoom(String roomId) {
-        ops.del(RedisKeys.room(roomId));
+        SeatsBinding prev = ops.hGet(RedisKeys.room(roomId), RedisKeys.F_SEATS, SeatsBinding.class);
+        ops.del(RedisKeys.room(roomId), RedisKeys.aiPending(roomId), RedisKeys.turnHolder(roomId),
+                RedisKeys.roomEventSeq(roomId), RedisKeys.roomEvents(roomId), RedisKeys.roomSpectators(roomId));
+        legacyMigrator.purgeLegacy(roomId);
+        removeListing(roomId);
+        if (prev != null) {
+            releaseSeatIndex(roomId, prev.occupants());
+        }
     }
 
     /**
@@ -64,8 +124,12 @@ public class RedisRoomRepository implements RoomRepository {
      */
     @Override
     public void saveSeats(String roomId, SeatsBinding seats, Duration ttl) {
-        String key = RedisKeys.roomSeats(roomId);
-        ops.setEx(key, seats, ttl);
+        String key = RedisKeys.room(roomId);
+        SeatsBinding prev = ops.hGet(key, RedisKeys.F_SEATS, SeatsBinding.class);
+        ops.hSet(key, RedisKeys.F_SEATS, seats);
+        ops.expire(key, ttl);
+        syncSeatIndex(roomId, prev, seats);
+        getRoomMeta(roomId).ifPresent(meta -> syncListing(roomId, meta, seats, false));
     }
 
     /**
@@ -73,8 +137,11 @@ public class RedisRoomRepository implements RoomRepository {
      */
     @Override
     public Optional<SeatsBinding> getSeats(String roomId) {
-        String key = RedisKeys.roomSeats(roomId);
-        SeatsBinding s = ops.get(key, SeatsBinding.class);
+        String key = RedisKeys.room(roomId);
+        SeatsBinding s = ops.hGet(key, RedisKeys.F_SEATS, SeatsBinding.class);
+        if (s == null && legacyMigrator.migrateIfPresent(roomId)) {
+            s = ops.hGet(key, RedisKeys.F_SEATS, SeatsBinding.class);
+        }
         return Optional.ofNullable(s);
     }
 
@@ -83,7 +150,13 @@ public class RedisRoomRepository implements RoomRepository {
      */
     @Override
     public void deleteSeats(String roomId) {
-        ops.del(RedisKeys.roomSeats(roomId));
+        SeatsBinding prev = ops.hGet(RedisKeys.room(roomId), RedisKeys.F_SEATS, SeatsBinding.class);
+        ops.hDel(RedisKeys.room(roomId), RedisKeys.F_SEATS);
+        if (prev != null) {
+            releaseSeatIndex(roomId, prev.occupants());
+        }
+        // 房间已删除时摘要由 deleteRoom 移除；房间还在则座位清空后重新可加入
+        getRoomMeta(roomId).ifPresent(meta -> syncListing(roomId, meta, null, false));
     }
 
     /**
@@ -91,20 +164,28 @@ public class RedisRoomRepository implements RoomRepository {
      */
     @Override
     public void deleteSeatKeys(String roomId) {
-        Set<String> keys = redisTemplate.keys(RedisKeys.roomSeatKeyPrefix(roomId) + "*");
-        if (keys != null && !keys.isEmpty()) {
-            redisTemplate.delete(keys);
+        // 房间 Hash 字段很少，HKEYS 过滤 seatKey:* 后一次 HDEL
+        String key = RedisKeys.room(roomId);
+        String[] fields = ops.hKeys(key).stream()
+                .filter(f -> f.startsWith(RedisKeys.F_SEAT_KEY_PREFIX))
+                .toArray(String[]::new);
+        if (fields.length > 0) {
+            ops.hDel(key, fields);
         }
     }
 
     /**
-     * 设置一次性 seatKey（SETNX 语义），并设置 TTL。
+     * 设置一次性 seatKey（HSETNX 语义），TTL 随房间 Hash。
      * 返回 true 表示本次占用成功；false 表示 seatKey 已存在。
      */
     @Override
     public boolean setSeatKey(String roomId, String seatKey, String seatChar, Duration ttl) {
-        String key = RedisKeys.roomSeatKey(roomId, seatKey);
-        return ops.setNx(key, seatChar, ttl); // 占坑（一次性），避免重复绑定
+        String key = RedisKeys.room(roomId);
+        boolean ok = ops.hSetNx(key, RedisKeys.seatKeyField(seatKey), seatChar); // 占坑（一次性），避免重复绑定
+        if (ok) {
+            ops.expire(key, ttl);
+        }
+        return ok;
     }
 
 
@@ -113,7 +194,7 @@ public class RedisRoomRepository implements RoomRepository {
      */
     @Override
     public Character getSeatKey(String roomId, String seatKey) {
-        String raw = ops.getString(RedisKeys.roomSeatKey(roomId, seatKey));
+        String raw = ops.hGet(RedisKeys.room(roomId), RedisKeys.seatKeyField(seatKey), String.class);
         if (raw == null) return null;
         String s = raw.trim();
         if (s.isEmpty() || "null".equalsIgnoreCase(s)) return null;
@@ -135,7 +216,7 @@ public class RedisRoomRepository implements RoomRepository {
      */
     @Override
     public void deleteSeatKey(String roomId, String seatKey) {
-        ops.del(RedisKeys.roomSeatKey(roomId, seatKey));
+        ops.hDel(RedisKeys.room(roomId), RedisKeys.seatKeyField(seatKey));
     }
 
     /**
@@ -241,43 +322,56 @@ public class RedisRoomRepository implements RoomRepository {
     // ===== 终局累计：round / blackWins / whiteWins / draws =====
     @Override
     public void incrSeriesOnFinish(String roomId, Character winner) {
-        final String key = RedisKeys.roomSeries(roomId);
+        final String key = RedisKeys.room(roomId);
+        // 直接 HINCRBY：先写出指令上下文的脏写，结束后丢弃房间副本（series:* 已变）
+        ops.invalidate(key);
         HashOperations<String, Object, Object> h = redisTemplate.opsForHash();
 
-        // HINCRBY 原子自增
+        // HINCRBY 原子自增（房间 Hash 的 series:* 字段）
         if (winner == null) {
-            h.increment(key, "draws", 1L);
+            h.increment(key, RedisKeys.seriesField("draws"), 1L);
         } else if (winner == 'X') {
-            h.increment(key, "blackWins", 1L);
+            h.increment(key, RedisKeys.seriesField("blackWins"), 1L);
         } else if (winner == 'O') {
-            h.increment(key, "whiteWins", 1L);
+            h.increment(key, RedisKeys.seriesField("whiteWins"), 1L);
         } else {
             // 无效的winner值，记录为和棋
-            h.increment(key, "draws", 1L);
+            h.increment(key, RedisKeys.seriesField("draws"), 1L);
         }
-        h.increment(key, "round", 1L);
+        h.increment(key, RedisKeys.seriesField("round"), 1L);
 
         // 维持与房间一致的 TTL（48h）
         redisTemplate.expire(key, Duration.ofHours(48));
+        ops.invalidate(key);
     }
 
     // ===== 读取系列哈希（不存在就初始化 1/0/0/0）=====
     @Override
     public Map<Object, Object> readSeriesHash(String roomId) {
-        final String key = RedisKeys.roomSeries(roomId);
-        HashOperations<String, Object, Object> h = redisTemplate.opsForHash();
-        Map<Object, Object> map = h.entries(key);
+        final String key = RedisKeys.room(roomId);
+        // 仅 HMGET series:* 字段，不拉取 meta/seats 等大字段
+        List<Object> vals = ops.hMGet(key, SERIES_FIELDS);
+        if (vals.stream().allMatch(v -> v == null) && legacyMigrator.migrateIfPresent(roomId)) {
+            vals = ops.hMGet(key, SERIES_FIELDS);
+        }
 
-        if (map == null || map.isEmpty()) {
-            Map<Object, Object> init = new java.util.HashMap<>();
+        if (vals.stream().allMatch(v -> v == null)) {
+            Map<Object, Object> init = new HashMap<>();
             init.put("round", 1L);        // 使用Long类型，不是字符串
             init.put("blackWins", 0L);    // 使用Long类型，不是字符串
             init.put("whiteWins", 0L);    // 使用Long类型，不是字符串
             init.put("draws", 0L);        // 使用Long类型，不是字符串
-            h.putAll(key, init);
+            Map<String, Object> fields = new HashMap<>();
+            init.forEach((k, v) -> fields.put(RedisKeys.seriesField(k.toString()), v));
+            ops.hSetAll(key, fields);
             redisTemplate.expire(key, Duration.ofHours(48));
             return init;
         }
+        Map<Object, Object> map = new HashMap<>();
+        map.put("round", vals.get(0));
+        map.put("blackWins", vals.get(1));
+        map.put("whiteWins", vals.get(2));
+        map.put("draws", vals.get(3));
         return map;
     }
 
@@ -305,23 +399,332 @@ public class RedisRoomRepository implements RoomRepository {
      */
     @Override
     public void deleteSeries(String roomId) {
-        ops.del(RedisKeys.roomSeries(roomId));
+        ops.hDel(RedisKeys.room(roomId), SERIES_FIELDS.toArray(new String[0]));
     }
 
     // ===== 在线房间索引（ZSET，按创建时间排序） =====
 
     @Override
-    public void addRoomIndex(String roomId, long createdAt, Duration ttl) {
-        String key = RedisKeys.roomIndexKey();
-        redisTemplate.opsForZSet().add(key, roomId, createdAt);
-        // 维持与房间一致的 TTL，避免僵尸索引
-        redisTemplate.expire(key, ttl);
+    public void addRoomIndex(String roomId, long createdAt) {
+        // 不再对整个索引 EXPIRE：那会让每个新房间续命所有僵尸条目；失效条目由回收器逐条移除
+        redisTemplate.opsForZSet().add(RedisKeys.roomIndexKey(), roomId, createdAt);
+        redisTemplate.opsForZSet().add(RedisKeys.roomActivityKey(), roomId, createdAt);
     }
 
     @Override
     public void removeRoomIndex(String roomId) {
-        String key = RedisKeys.roomIndexKey();
-        redisTemplate.opsForZSet().remove(key, roomId);
+        redisTemplate.opsForZSet().remove(RedisKeys.roomIndexKey(), roomId);
+        redisTemplate.opsForZSet().remove(RedisKeys.roomActivityKey(), roomId);
+    }
+
+    @Override
+    public List<String> roomIndexPage(long offset, int count) {
+        Set<Object> ids = redisTemplate.opsForZSet()
+                .reverseRange(RedisKeys.roomIndexKey(), offset, offset + count - 1);
+        if (ids == null || ids.isEmpty()) {
+            return List.of();
+        }
+        List<String> out = new ArrayList<>(ids.size());
+        ids.forEach(id -> out.add(String.valueOf(id)));
+        return out;
+    }
+
+    // ===== 大厅列表：摘要 Hash + 可加入索引 ZSET =====
+
+    @Override
+    public String roomListVersion() {
+        return ops.hGet(RedisKeys.roomListVersion(), RedisKeys.F_LIST_VERSION, String.class);
+    }
+
+    /**
+     * 一次 ZREVRANGEBYSCORE + 一次 HMGET；索引里有、摘要里没有的条目（中途被删除）顺带移出索引
+     */
+    @Override
+    public List<RoomListEntry> listJoinable(String rule, Long before, int limit) {
+        String index = rule == null ? RedisKeys.joinableRooms() : RedisKeys.joinableRooms(rule);
+        double max = before == null ? Double.POSITIVE_INFINITY : before - 1;
+        Set<Object> ids = redisTemplate.opsForZSet()
+                .reverseRangeByScore(index, Double.NEGATIVE_INFINITY, max, 0, limit);
+        if (ids == null || ids.isEmpty()) {
+            return List.of();
+        }
+        List<Object> fields = new ArrayList<>(ids);
+        List<Object> vals = redisTemplate.opsForHash().multiGet(RedisKeys.roomListings(), fields);
+        List<RoomListEntry> out = new ArrayList<>(fields.size());
+        for (int i = 0; i < fields.size(); i++) {
+            Object v = vals == null || i >= vals.size() ? null : vals.get(i);
+            if (v instanceof RoomListEntry e && e.isJoinable()) {
+                out.add(e);
+            } else if (v == null) {
+                redisTemplate.opsForZSet().remove(index, fields.get(i));
+            }
+        }
+        return out;
+    }
+
+    @Override
+    public Optional<RoomListEntry> getListing(String roomId) {
+        return Optional.ofNullable(ops.hGet(RedisKeys.roomListings(), roomId, RoomListEntry.class));
+    }
+
+    @Override
+    public void backfillListing(String roomId) {
+        getRoomMeta(roomId).ifPresent(meta -> syncListing(roomId, meta, getSeats(roomId).orElse(null), true));
+    }
+
+    @Override
+    public boolean hasListings() {
+        return Boolean.TRUE.equals(redisTemplate.hasKey(RedisKeys.roomListings()));
+    }
+
+    /**
+     * 按 meta/seats 重新派生大厅摘要：与已有摘要相同（房间指令上下文内为副本读取）时直接返回，
+     * 不同时脚本原子更新摘要与可加入索引；PVE 房间不进大厅
+     * @param onlyIfAbsent true 时摘要已存在则不覆盖（补建用）
+     */
+    private void syncListing(String roomId, RoomMeta meta, SeatsBinding seats, boolean onlyIfAbsent) {
+        if ("PVE".equalsIgnoreCase(meta.getMode())) {
+            return;
+        }
+        RoomListEntry entry = RoomListEntry.of(meta, seats);
+        String key = RedisKeys.roomListings();
+        if (!onlyIfAbsent && entry.equals(ops.hGet(key, roomId, RoomListEntry.class))) {
+            return;
+        }
+        List<String> keys = new ArrayList<>(3);
+        keys.add(key);
+        keys.add(RedisKeys.joinableRooms());
+        if (meta.getRule() != null) {
+            keys.add(RedisKeys.joinableRooms(meta.getRule()));
+        }
+        String json = ops.toJson(entry);
+        Long changed = ops.evalScript(ROOM_LISTING, keys, "upsert", roomId, json,
+                entry.isJoinable() ? "1" : "0", String.valueOf(meta.getCreatedAt()), onlyIfAbsent ? "1" : "0");
+        if (changed != null && changed > 0) {
+            // 脚本执行后副本已丢弃：写入的就是当前摘要，预热回去，同一指令内再次写 meta/seats 时仍可免读比较
+            ops.prime(key, roomId, json);
+            bumpListVersion();
+        }
+    }
+
+    /**
+     * 移除房间的大厅摘要与全部可加入索引项
+     */
+    private void removeListing(String roomId) {
+        List<String> keys = new ArrayList<>(2 + Rule.values().length);
+        keys.add(RedisKeys.roomListings());
+        keys.add(RedisKeys.joinableRooms());
+        for (Rule r : Rule.values()) {
+            keys.add(RedisKeys.joinableRooms(r.name()));
+        }
+        Long changed = ops.evalScript(ROOM_LISTING, keys, "remove", roomId);
+        if (changed != null && changed > 0) {
+            bumpListVersion();
+        }
+    }
+
+    /**
+     * 房间列表版本换新值：不用 INCR，写一个随机令牌即可（HSET 在房间指令上下文中与本次写入一起管道写出，
+     * 不额外打断写回批次）
+     */
+    private void bumpListVersion() {
+        ops.hSet(RedisKeys.roomListVersion(), RedisKeys.F_LIST_VERSION,
+                Long.toHexString(ThreadLocalRandom.current().nextLong()));
+    }
+
+    @Override
+    public void touchRoom(String roomId, long at) {
+        redisTemplate.opsForZSet().add(RedisKeys.roomActivityKey(), roomId, at);
+    }
+
+    @Override
+    public OptionalLong lastActivity(String roomId) {
+        Double score = redisTemplate.opsForZSet().score(RedisKeys.roomActivityKey(), roomId);
+        return score == null ? OptionalLong.empty() : OptionalLong.of(score.longValue());
+    }
+
+    /**
+     * 两段有界查询：活跃度索引中空闲的房间 + 在线索引中创建已久、却从未记录活动的存量房间（ZMSCORE 一次判断）
+     */
+    @Override
+    public List<String> findIdleRooms(long idleBefore, int limit) {
+        Set<String> out = new LinkedHashSet<>();
+        Set<Object> idle = redisTemplate.opsForZSet()
+                .rangeByScore(RedisKeys.roomActivityKey(), Double.NEGATIVE_INFINITY, idleBefore, 0, limit);
+        if (idle != null) idle.forEach(id -> out.add(String.valueOf(id)));
+        if (out.size() >= limit) {
+            return new ArrayList<>(out);
+        }
+
+        Set<Object> old = redisTemplate.opsForZSet()
+                .rangeByScore(RedisKeys.roomIndexKey(), Double.NEGATIVE_INFINITY, idleBefore, 0, limit);
+        if (old != null && !old.isEmpty()) {
+            List<Object> ids = new ArrayList<>(old);
+            List<Double> scores = redisTemplate.opsForZSet().score(RedisKeys.roomActivityKey(), ids.toArray());
+            for (int i = 0; i < ids.size() && out.size() < limit; i++) {
+                if (scores == null || scores.get(i) == null) {
+                    out.add(String.valueOf(ids.get(i)));
+                }
+            }
+        }
+        return new ArrayList<>(out);
+    }
+
+    @Override
+    public boolean tryClaimReaperRound(Duration ttl) {
+        return ops.setStringNx(RedisKeys.roomReaperLock(), UUID.randomUUID().toString(), ttl);
+    }
+
+    // ===== 座位反向索引（Hash：userId -> roomId） =====
+
+    @Override
+    public Optional<String> findRoomOfUser(String userId) {
+        if (userId == null || userId.isBlank()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(ops.hGet(RedisKeys.userRooms(), userId, String.class));
+    }
+
+    @Override
+    public int backfillSeatIndex(String roomId) {
+        SeatsBinding seats = getSeats(roomId).orElse(null);
+        if (seats == null) {
+            return 0;
+        }
+        int added = 0;
+        for (String userId : seats.occupants()) {
+            if (ops.hSetNx(RedisKeys.userRooms(), userId, roomId)) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    @Override
+    public boolean seatIndexBackfilled() {
+        return Boolean.TRUE.equals(ops.exists(RedisKeys.userRoomsBackfilled()));
+    }
+
+    @Override
+    public void markSeatIndexBackfilled() {
+        ops.set(RedisKeys.userRoomsBackfilled(), System.currentTimeMillis());
+    }
+
+    @Override
+    public boolean tryClaimSeatIndexBackfill(Duration ttl) {
+        return ops.setStringNx(RedisKeys.userRoomsBackfillLock(), UUID.randomUUID().toString(), ttl);
+    }
+
+    @Override
+    public boolean tryClaimSeatIndexCheck(Duration ttl) {
+        return ops.setStringNx(RedisKeys.userRoomsCheckLock(), UUID.randomUUID().toString(), ttl);
+    }
+
+    @Override
+    public Map<String, String> userRoomIndex() {
+        Map<String, String> out = new HashMap<>();
+        try (Cursor<Map.Entry<Object, Object>> cursor = redisTemplate.opsForHash()
+                .scan(RedisKeys.userRooms(), ScanOptions.scanOptions().count(500).build())) {
+            cursor.forEachRemaining(e -> out.put(String.valueOf(e.getKey()), String.valueOf(e.getValue())));
+        }
+        return out;
+    }
+
+    @Override
+    public boolean reconcileSeatIndex(String roomId, String userId) {
+        SeatsBinding seats = ops.hGet(RedisKeys.room(roomId), RedisKeys.F_SEATS, SeatsBinding.class);
+        boolean seated = seats != null && seats.occupants().contains(userId);
+        String indexed = ops.hGet(RedisKeys.userRooms(), userId, String.class);
+        if (seated && indexed == null) {
+            ops.hSet(RedisKeys.userRooms(), userId, roomId);
+            return true;
+        }
+        if (!seated && roomId.equals(indexed)) {
+            releaseSeatIndex(roomId, Set.of(userId));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 座位变化同步到反向索引：新占座的用户指向本房间，离座的用户释放
+     */
+    private void syncSeatIndex(String roomId, SeatsBinding prev, SeatsBinding now) {
+        Set<String> before = prev == null ? Set.of() : prev.occupants();
+        Set<String> after = now == null ? Set.of() : now.occupants();
+        for (String userId : after) {
+            if (!before.contains(userId)) {
+                ops.hSet(RedisKeys.userRooms(), userId, roomId);
+            }
+        }
+        List<String> gone = new ArrayList<>(2);
+        for (String userId : before) {
+            if (!after.contains(userId)) {
+                gone.add(userId);
+            }
+        }
+        releaseSeatIndex(roomId, gone);
+    }
+
+    /**
+     * 删除仍指向本房间的反向索引条目（用户已换到其他房间的不动）
+     */
+    private void releaseSeatIndex(String roomId, Collection<String> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        String[] args = new String[userIds.size() + 1];
+        args[0] = ops.toJson(roomId);
+        int i = 1;
+        for (String userId : userIds) {
+            args[i++] = userId;
+        }
+        ops.evalScript(USER_ROOM_RELEASE, List.of(RedisKeys.userRooms()), args);
+    }
+
+    /**
+     * 登记观战者：脚本内完成过期清理、上限判断与 ZADD（score = 登记过期时刻）
+     */
+    @Override
+    public long addSpectator(String roomId, String userId, int max, Duration lease) {
+        Long n = ops.evalScript(SPECTATOR_JOIN, List.of(RedisKeys.roomSpectators(roomId)),
+                userId, String.valueOf(max), String.valueOf(lease.toMillis()),
+                String.valueOf(System.currentTimeMillis()));
+        return n == null ? -1L : n;
+    }
+
+    @Override
+    public long countSpectators(String roomId) {
+        return ops.zCount(RedisKeys.roomSpectators(roomId), System.currentTimeMillis(), Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * 观战者心跳：脚本内清理过期登记并为传入用户中已登记的续租
+     */
+    @Override
+    public void touchSpectators(String roomId, Collection<String> userIds, Duration lease) {
+        if (userIds == null || userIds.isEmpty()) {
+            return;
+        }
+        String[] args = new String[userIds.size() + 2];
+        args[0] = String.valueOf(System.currentTimeMillis());
+        args[1] = String.valueOf(lease.toMillis());
+        int i = 2;
+        for (String userId : userIds) {
+            args[i++] = userId;
+        }
+        ops.evalScript(SPECTATOR_TOUCH, List.of(RedisKeys.roomSpectators(roomId)), args);
+    }
+
+    /**
+     * 移除观战者
+     */
+    @Override
+    public void removeSpectator(String roomId, String userId) {
+        if (userId == null || userId.isBlank()) {
+            return;
+        }
+        ops.zRemString(RedisKeys.roomSpectators(roomId), userId);
     }
 
     // ===== 私有工具：安全解析 int =====
@@ -24,11 +24,15 @@ public class RedisTurnRepository implements TurnRepository {
     private final RedisOps ops;
 
     /**
-     * 保存回合计时锚点（JSON 存储，带 TTL）
+     * 保存回合计时锚点（房间 Hash 的 turn 字段，TTL 随房间 Hash）
      */
     @Override
     public void save(String roomId, TurnAnchor anchor, Duration ttl) {
-        ops.setEx(RedisKeys.turnAnchor(roomId), anchor, ttl);
+        String key = RedisKeys.room(roomId);
+        ops.hSet(key, RedisKeys.F_TURN, anchor);
+        if (ttl != null) {
+            ops.expire(key, ttl);
+        }
     }
 
     /**
@@ -36,7 +40,7 @@ public class RedisTurnRepository implements TurnRepository {
      */
     @Override
     public Optional<TurnAnchor> get(String roomId) {
-        TurnAnchor a = ops.get(RedisKeys.turnAnchor(roomId), TurnAnchor.class);
+        TurnAnchor a = ops.hGet(RedisKeys.room(roomId), RedisKeys.F_TURN, TurnAnchor.class);
         return Optional.ofNullable(a);
     }
 
@@ -45,6 +49,6 @@ public class RedisTurnRepository implements TurnRepository {
      */
     @Override
     public void delete(String roomId) {
-        ops.del(RedisKeys.turnAnchor(roomId));
+        ops.hDel(RedisKeys.room(roomId), RedisKeys.F_TURN);
     }
 }
@@ -0,0 +1,335 @@
+package com.gamehub.gameservice.games.gomoku.infrastructure.redis.repo;
+
+import com.gamehub.gameservice.games.gomoku.domain.dto.GameStateRecord;
+import com.gamehub.gameservice.games.gomoku.domain.dto.MoveCommit;
+import com.gamehub.gameservice.games.gomoku.domain.dto.MoveCommitResult;
+import com.gamehub.gameservice.games.gomoku.domain.model.Move;
+import com.gamehub.gameservice.games.gomoku.domain.repository.GameStateRepository;
+import com.gamehub.gameservice.games.gomoku.service.GomokuService;
+import com.gamehub.gameservice.platform.cluster.RoomLeaseManager;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * WriteBehindGameStateRepository
+ * -------------------------------------------------------
+ * 写后持久化（write-behind）的棋局状态仓储：归属节点以内存为权威，落子异步批量写入 Redis。
+ * 仅在 gomoku.state.write-behind.enabled=true 时启用，覆盖默认的同步实现。
+ *
+ * 模型：
+ *  - commitMove 只做入队（每房间一条有序队列）并立即返回“已受理”，落子时延只取决于内存；
+ *  - 后台线程每 flush-interval 把各房间队列按顺序整批提交（同一管道，N 步一次往返）；
+ *  - 持久化游标：Redis 走子日志长度即已落盘步数；提交异常（结果未知）时按游标剔除已落盘的步，剩余的下次重试；
+ *  - 有界滞后：单房间未落盘步数达到 max-lag 时，落子线程同步刷盘；仍失败则拒绝本步并丢弃未落盘部分，
+ *    内存副本随之被丢弃、从 Redis 重建，保证内存与持久化状态一致；
+ *  - 屏障：本仓储的其他读写（快照/CAS 更新/读取/删除）以及 {@link #flush} 都会先刷完该房间队列，保证顺序；
+ *  - 失去归属/优雅停机时尽力刷盘；节点宕机时最多丢失 max-lag 步，接管节点按“快照 + 走子日志”从最后落盘的一步继续。
+ */
+@Slf4j
+@Primary
+@Repository
+@ConditionalOnProperty(name = "gomoku.state.write-behind.enabled", havingValue = "true")
+public class WriteBehindGameStateRepository implements GameStateRepository {
+
+    /** 这些拒绝原因说明该盘已被终局/重开/解散取代，未落盘的步直接作废，无需丢弃内存副本 */
+    private static final Set<String> SUPERSEDED = Set.of("NOT_PLAYING", "STALE_GAME", "GAME_OVER", "ROOM_NOT_FOUND");
+
+    private final RedisGameStateRepository delegate;
+    private final RoomLeaseManager leases;
+    private final GomokuService gomokuService;
+    private final MeterRegistry meterRegistry;
+
+    /** 单房间最大未落盘步数，超过即同步刷盘 */
+    private final int maxLag;
+    /** 后台刷盘周期（毫秒） */
+    private final long flushIntervalMs;
+
+    /** roomId -> 待落盘队列 */
+    private final Map<String, RoomQueue> queues = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "move-write-behind");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * 单房间队列：生产者（房间邮箱）只追加队尾，刷盘方持锁从队头移除已处理的步
+     */
+    private static final class RoomQueue {
+        final Deque<MoveCommit> pending = new ArrayDeque<>();
+        final ReentrantLock flushLock = new ReentrantLock();
+
+        synchronized int add(MoveCommit c) {
+            pending.addLast(c);
+            return pending.size();
+        }
+
+        synchronized List<MoveCommit> snapshot() {
+            return new ArrayList<>(pending);
+        }
+
+        synchronized void removeFirst(int n) {
+            for (int i = 0; i < n && !pending.isEmpty(); i++) pending.pollFirst();
+        }
+
+        synchronized MoveCommit last() {
+            return pending.peekLast();
+        }
+
+        synchronized int size() {
+            return pending.size();
+        }
+
+        synchronized void clear() {
+            pending.clear();
+        }
+    }
+
+    public WriteBehindGameStateRepository(RedisGameStateRepository delegate,
+                                          RoomLeaseManager leases,
+                                          @Lazy GomokuService gomokuService,
+                                          MeterRegistry meterRegistry,
+                                          @Value("${gomoku.state.write-behind.max-lag:8}") int maxLag,
+                                          @Value("${gomoku.state.write-behind.flush-interval-ms:50}") long flushIntervalMs) {
+        this.delegate = delegate;
+        this.leases = leases;
+        this.gomokuService = gomokuService;
+        this.meterRegistry = meterRegistry;
+        this.maxLag = Math.max(1, maxLag);
+        this.flushIntervalMs = Math.max(1L, flushIntervalMs);
+    }
+
+    @PostConstruct
+    public void start() {
+        flusher.scheduleWithFixedDelay(this::flushAll, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        // 失去归属：尽力把已受理的步写完（脚本按步数校验，新归属节点已写过的会被拒绝），其余作废
+        leases.addListener(new RoomLeaseManager.LeaseListener() {
+            @Override
+            public void onLost(String roomId) {
+                flushQuietly(roomId);
+                discard(roomId);
+            }
+        });
+        Gauge.builder("gomoku.state.write-behind.pending", queues,
+                        q -> q.values().stream().mapToInt(RoomQueue::size).sum())
+                .description("已受理但尚未落盘的落子数")
+                .register(meterRegistry);
+        log.info("落子写后持久化已启用: maxLag={}, flushIntervalMs={}", maxLag, flushIntervalMs);
+    }
+
+    /**
+     * 优雅停机：停止后台刷盘并同步写完全部队列（本 Bean 依赖租约管理器，先于其释放租约执行）
+     */
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdownNow();
+        for (String roomId : List.copyOf(queues.keySet())) {
+            flushQuietly(roomId);
+        }
+    }
+
+    // ------------------------------------------------------------------ 落子
+
+    /**
+     * 入队并立即返回“已受理”；达到滞后上限时同步刷盘，刷盘失败则拒绝本步
+     */
+    @Override
+    public MoveCommitResult commitMove(String roomId, String gameId, int expectedStep, Move move,
+                                       GameStateRecord after, long newDeadlineMillis) {
+        MoveCommit c = new MoveCommit(gameId, expectedStep, move, after, newDeadlineMillis);
+        int[] lag = {0};
+        // 入队与“空队列回收”都在 map 的同一槽位锁内完成，不会把步加进已被回收的队列
+        queues.compute(roomId, (k, q) -> {
+            RoomQueue cur = q == null ? new RoomQueue() : q;
+            lag[0] = cur.add(c);
+            return cur;
+        });
+        if (lag[0] >= maxLag && !flushRoom(roomId)) {
+            discard(roomId);
+            return MoveCommitResult.rejected("WRITE_BEHIND_LAG");
+        }
+        String side = after.isOver() || after.getCurrent() == null ? null : after.getCurrent().substring(0, 1);
+        return MoveCommitResult.accepted(expectedStep + 1, side, newDeadlineMillis);
+    }
+
+    @Override
+    public List<MoveCommitResult> commitMoves(String roomId, List<MoveCommit> batch) {
+        flush(roomId);
+        return delegate.commitMoves(roomId, batch);
+    }
+
+    /**
+     * 屏障：同步写完该房间已受理的落子；写不完则抛出，调用方不得继续写入依赖这些步的状态
+     */
+    @Override
+    public void flush(String roomId) {
+        if (!flushRoom(roomId)) {
+            throw new IllegalStateException("落子尚未持久化，请稍后再试");
+        }
+    }
+
+    @Override
+    public Optional<MoveCommit> latestUnflushed(String roomId) {
+        RoomQueue q = queues.get(roomId);
+        return q == null ? Optional.empty() : Optional.ofNullable(q.last());
+    }
+
+    // ------------------------------------------------------------------ 其他读写：先过屏障再委托
+
+    @Override
+    public void save(String roomId, String gameId, GameStateRecord state, Duration ttl) {
+        flush(roomId);
+        delegate.save(roomId, gameId, state, ttl);
+    }
+
+    @Override
+    public Optional<GameStateRecord> get(String roomId, String gameId) {
+        flush(roomId);
+        return delegate.get(roomId, gameId);
+    }
+
+    @Override
+    public void delete(String roomId, String gameId) {
+        discard(roomId);
+        delegate.delete(roomId, gameId);
+    }
+
+    @Override
+    public void deleteAll(String roomId) {
+        discard(roomId);
+        delegate.deleteAll(roomId);
+    }
+
+    @Override
+    public List<Move> getMoves(String roomId, String gameId) {
+        flush(roomId);
+        return delegate.getMoves(roomId, gameId);
+    }
+
+    @Override
+    public boolean updateAtomically(String roomId, String gameId, int expectedStep, char expectedTurn,
+                                    GameStateRecord newState, long newDeadlineMillis) {
+        flush(roomId);
+        return delegate.updateAtomically(roomId, gameId, expectedStep, expectedTurn, newState, newDeadlineMillis);
+    }
+
+    // ------------------------------------------------------------------ 刷盘
+
+    private void flushAll() {
+        for (String roomId : List.copyOf(queues.keySet())) {
+            flushQuietly(roomId);
+        }
+    }
+
+    private void flushQuietly(String roomId) {
+        try {
+            flushRoom(roomId);
+        } catch (Exception e) {
+            log.warn("落子刷盘失败: roomId={}, err={}", roomId, e.getMessage());
+        }
+    }
+
+    /**
+     * 按顺序整批提交该房间队列
+     * @return true 表示队列已清空
+     */
+    private boolean flushRoom(String roomId) {
+        RoomQueue q = queues.get(roomId);
+        if (q == null) return true;
+        q.flushLock.lock();
+        try {
+            List<MoveCommit> batch = q.snapshot();
+            if (batch.isEmpty()) {
+                retireIfEmpty(roomId);
+                return true;
+            }
+            List<MoveCommitResult> results;
+            try {
+                results = delegate.commitMoves(roomId, batch);
+            } catch (Exception e) {
+                // 结果未知：按持久化游标剔除已落盘的步，剩余的留待重试
+                log.warn("落子批量提交异常: roomId={}, size={}, err={}", roomId, batch.size(), e.getMessage());
+                q.removeFirst(countPersisted(roomId, batch));
+                return false;
+            }
+            int done = 0;
+            for (MoveCommitResult r : results) {
+                if (!r.ok()) break;
+                done++;
+            }
+            q.removeFirst(done);
+            if (done < batch.size()) {
+                String reason = results.size() > done ? results.get(done).reason() : "NO_RESULT";
+                onRejected(roomId, batch.get(done), reason);
+                return true;
+            }
+            retireIfEmpty(roomId);
+            return true;
+        } finally {
+            q.flushLock.unlock();
+        }
+    }
+
+    /**
+     * 批量提交被拒：该盘已被取代则作废其余步；否则说明内存与 Redis 已分叉，丢弃内存副本从 Redis 重建
+     */
+    private void onRejected(String roomId, MoveCommit first, String reason) {
+        discard(roomId);
+        if (SUPERSEDED.contains(reason)) {
+            log.debug("未落盘落子作废: roomId={}, gameId={}, step={}, reason={}",
+                    roomId, first.gameId(), first.expectedStep(), reason);
+            return;
+        }
+        log.warn("写后持久化被拒绝，丢弃内存副本: roomId={}, gameId={}, step={}, reason={}",
+                roomId, first.gameId(), first.expectedStep(), reason);
+        gomokuService.evictLocal(roomId);
+    }
+
+    /** 批次中已落盘的前缀长度（按持久化游标判断）；游标读不到时视为 0 */
+    private int countPersisted(String roomId, List<MoveCommit> batch) {
+        try {
+            String gameId = batch.get(0).gameId();
+            long cursor = delegate.persistedStep(roomId, gameId);
+            int n = 0;
+            for (MoveCommit c : batch) {
+                if (!gameId.equals(c.gameId()) || c.expectedStep() >= cursor) break;
+                n++;
+            }
+            return n;
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    private void retireIfEmpty(String roomId) {
+        queues.computeIfPresent(roomId, (k, q) -> q.size() == 0 ? null : q);
+    }
+
+    private void discard(String roomId) {
+        RoomQueue q = queues.remove(roomId);
+        if (q != null) q.clear();
+    }
+}
@@ -0,0 +1,31 @@
+package com.gamehub.gameservice.games.gomoku.interfaces.http;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.ServletWebRequest;
+
+/**
+ * 条件 GET（ETag / If-None-Match）
+ * ----------------------------------------
+ * - 响应带 Cache-Control: no-cache：客户端可缓存，但每次使用前带 If-None-Match 回源校验；
+ * - ETag 由调用方在组装响应之前用一次廉价的版本读取算出，命中时直接 304，不再组装。
+ */
+final class ConditionalGet {
+
+    private ConditionalGet() {}
+
+    /**
+     * 写入缓存头并校验 If-None-Match
+     * @param request 当前请求
+     * @param etag    强 ETag（不含引号）；为 null 时不做条件判断
+     * @return true 表示客户端副本仍有效（响应已置为 304，调用方直接返回 null）
+     */
+    static boolean notModified(ServletWebRequest request, String etag) {
+        HttpServletResponse response = request.getResponse();
+        if (response != null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue());
+        }
+        return etag != null && request.checkNotModified(etag);
+    }
+}
@@ -2,21 +2,28 @@ package com.gamehub.gameservice.games.gomoku.interfaces.http;
 
 import com.gamehub.gameservice.application.user.UserDirectoryService;
 import com.gamehub.gameservice.application.user.UserProfileView;
+import com.gamehub.gameservice.games.gomoku.application.RoomBroadcaster;
 import com.gamehub.gameservice.games.gomoku.domain.enums.Mode;
 import com.gamehub.gameservice.games.gomoku.domain.enums.Rule;
 import com.gamehub.gameservice.games.gomoku.domain.model.GomokuSnapshot;
+import com.gamehub.gameservice.games.gomoku.domain.repository.RoomEventRepository;
 import com.gamehub.gameservice.games.gomoku.interfaces.ws.dto.GomokuMessages;
+import com.gamehub.gameservice.games.gomoku.interfaces.ws.dto.ResumeMessages.TimeSync;
 import com.gamehub.gameservice.games.gomoku.service.GomokuService;
+import com.gamehub.gameservice.platform.cluster.RoomCommandRouter;
 import com.gamehub.gameservice.platform.ongoing.OngoingGameInfo;
 import com.gamehub.gameservice.platform.ongoing.OngoingGameTracker;
 import com.gamehub.web.common.ApiResponse;
 import com.gamehub.web.common.CurrentUserHelper;
+import com.fasterxml.jackson.databind.util.RawValue;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
 /**
  * 五子棋游戏http接口请求控制器
@@ -30,16 +37,37 @@ public class GomokuRestController {
     private final OngoingGameTracker ongoingGameTracker;
     private final UserDirectoryService userDirectoryService;
     /** 用于从 HTTP 层主动广播房间 SNAPSHOT（例如加入/退出房间） */
-    private final SimpMessagingTemplate messagingTemplate;
+    private final RoomBroadcaster broadcaster;
+    /** 房间指令路由：加入/退出转发到房间归属节点，与 WS 指令在同一房间邮箱中串行 */
+    private final RoomCommandRouter router;
+    /** 房间事件序号：HTTP 触发的 SNAPSHOT 与 WS 广播共用同一序列 */
+    private final RoomEventRepository roomEvents;
+
+    /** 观战延迟（返回给前端展示用，与 SpectatorFanout 一致） */
+    @Value("${gomoku.spectate.delay-ms:2000}")
+    private long spectateDelayMs;
 
     public GomokuRestController(GomokuService svc,
                                  OngoingGameTracker ongoingGameTracker,
                                  UserDirectoryService userDirectoryService,
-                                 SimpMessagingTemplate messagingTemplate) {
+                                 RoomBroadcaster broadcaster,
+                                 RoomCommandRouter router,
+                                 RoomEventRepository roomEvents) {
         this.svc = svc;
         this.ongoingGameTracker = ongoingGameTracker;
         this.userDirectoryService = userDirectoryService;
-        this.messagingTemplate = messagingTemplate;
+        this.broadcaster = broadcaster;
+        this.router = router;
+        this.roomEvents = roomEvents;
+    }
+
+    /**
+     * 注册房间指令：加入/退出在房间归属节点执行，结果经路由带回入口节点
+     */
+    @PostConstruct
+    void registerCommands() {
+        router.register("gomoku.join", Void.class, (roomId, userId, ignored) -> doJoinRoom(roomId, userId));
+        router.register("gomoku.leave", Void.class, (roomId, userId, ignored) -> doLeaveRoom(roomId, userId));
     }
 
     /**
@@ -91,16 +119,36 @@ public class GomokuRestController {
      *     页面首屏渲染：进入房间后的一次性全量拉取；
      *     调试排查：后端/运维查看当前房间的整体状态。
      * 说明：
-     * - 返回值为 {@link GomokuSnapshot}，由服务层统一从 Redis 聚合生成；
-     * - 不依赖内存 Room 对象，支持将来水平扩展/多节点部署。
+     * - 返回值为 {@link GomokuSnapshot} 的 JSON，由服务层统一从 Redis 聚合生成，同一快照版本只编码一次；
+     * - 不依赖内存 Room 对象，支持将来水平扩展/多节点部署；
+     * - 条件请求：ETag 取自房间事件序号与观战人数（一次管道读取），If-None-Match 命中时直接 304，不组装快照；
+     *   房间尚未产生事件（序号为 0）时不带 ETag。
      */
     @GetMapping("/rooms/{roomId}/view")
-    public ResponseEntity<ApiResponse<GomokuSnapshot>> viewRoom(@PathVariable String roomId) {
-        GomokuSnapshot snapshot = svc.snapshot(roomId);
+    public ResponseEntity<ApiResponse<RawValue>> viewRoom(@PathVariable String roomId, ServletWebRequest request) {
+        RoomEventRepository.ViewVersion version = roomEvents.viewVersion(roomId);
+        String etag = version.seq() > 0 ? "v" + version.seq() + "." + version.spectators() : null;
+        if (ConditionalGet.notModified(request, etag)) {
+            return null;
+        }
+        // 快照 JSON 按版本缓存，原样嵌入响应（结构与 GomokuSnapshot 一致）
+        RawValue snapshot = new RawValue(svc.snapshotJson(roomId));
         return ResponseEntity.ok(ApiResponse.success(snapshot));
     }
 
 
+    /**
+     * 校时：返回服务端当前时间（WebSocket 未连接时的兜底，连接后优先用 /app/gomoku.time）
+     * ----------------------------------------------------
+     * 前端用 rtt 修正后的偏移渲染倒计时：offset = serverTime + rtt / 2 - now。
+     *
+     * @param clientTime 客户端发送时的本地时间（毫秒，原样带回）
+     */
+    @GetMapping("/time")
+    public ResponseEntity<ApiResponse<TimeSync>> time(@RequestParam(defaultValue = "0") long clientTime) {
+        return ResponseEntity.ok(ApiResponse.success(new TimeSync(clientTime, System.currentTimeMillis())));
+    }
+
     /**
      * 加入房间：玩家加入其他玩家创建的房间
      * ----------------------------------------------------
@@ -118,11 +166,17 @@ public class GomokuRestController {
     public ResponseEntity<ApiResponse<JoinRoomResponse>> joinRoom(@PathVariable String roomId,
                                                                    @AuthenticationPrincipal Jwt jwt) {
         String userId = CurrentUserHelper.getUserId(jwt);
-        
+        JoinOutcome outcome = router.call(roomId, "gomoku.join", userId, null, JoinOutcome.class);
+        if (outcome.side() == null) {
+            return ResponseEntity.status(409).body(ApiResponse.conflict(outcome.message()));
+        }
+        return ResponseEntity.ok(ApiResponse.success(new JoinRoomResponse(outcome.side())));
+    }
+
+    private JoinOutcome doJoinRoom(String roomId, String userId) {
         // 0. 判断是否已经在房间内（已绑定座位）
         if (svc.isUserInRoom(roomId, userId)) {
-            return ResponseEntity.status(409)
-                    .body(ApiResponse.conflict("您已经在该房间，请直接进入"));
+            return JoinOutcome.conflict("您已经在该房间，请直接进入");
         }
 
         // 0.1 检查玩家是否已有正在进行的其他游戏房间
@@ -131,8 +185,7 @@ public class GomokuRestController {
             var ongoing = ongoingOpt.get();
             // 如果正在进行的房间不是当前要加入的房间，则拒绝
             if (!roomId.equals(ongoing.getRoomId())) {
-                return ResponseEntity.status(409)
-                        .body(ApiResponse.conflict("您已有正在进行的游戏房间，请先完成或退出当前房间后再加入其他房间"));
+                return JoinOutcome.conflict("您已有正在进行的游戏房间，请先完成或退出当前房间后再加入其他房间");
             }
             // 如果正在进行的房间就是当前房间，说明可能是状态不同步，允许继续
         }
@@ -151,7 +204,7 @@ public class GomokuRestController {
         //    - 准备状态/房间状态等如有变更一并更新
         broadcastSnapshot(roomId);
 
-        return ResponseEntity.ok(ApiResponse.success(new JoinRoomResponse(side)));
+        return new JoinOutcome(side, null);
     }
     
     /**
@@ -161,31 +214,76 @@ public class GomokuRestController {
     public ResponseEntity<ApiResponse<GomokuService.LeaveResult>> leaveRoom(@PathVariable String roomId,
                                                                             @AuthenticationPrincipal Jwt jwt) {
         String userId = CurrentUserHelper.getUserId(jwt);
+        var result = router.call(roomId, "gomoku.leave", userId, null, GomokuService.LeaveResult.class);
+        return ResponseEntity.ok(ApiResponse.success(result));
+    }
+
+    private GomokuService.LeaveResult doLeaveRoom(String roomId, String userId) {
         var result = svc.leaveRoom(roomId, userId);
         // 如果房间未被销毁，广播一次 SNAPSHOT 更新剩余玩家
         if (!result.roomDestroyed()) {
             broadcastSnapshot(roomId);
         }
-        return ResponseEntity.ok(ApiResponse.success(result));
+        return result;
     }
     
+    /**
+     * 观战：登记为房间观战者
+     * ----------------------------------------------------
+     * 语义：
+     * - 不占座位、不影响对局；房间内玩家请直接进入房间（409）；
+     * - 观战人数达到 gomoku.spectate.max-per-room 时返回 409；
+     * - 成功后前端订阅返回的 watchTopic（延迟 delayMs 的 DELTA/SNAPSHOT 流），
+     *   并以 VIEWER 身份发送一次 /app/gomoku.resume 获取全量基线；
+     * - 不广播 SNAPSHOT（避免热门房间进场风暴），观战人数随下一次快照更新。
+     */
+    @PostMapping("/rooms/{roomId}/spectate")
+    public ResponseEntity<ApiResponse<SpectateResponse>> spectate(@PathVariable String roomId,
+                                                                 @AuthenticationPrincipal Jwt jwt) {
+        String userId = CurrentUserHelper.getUserId(jwt);
+        long count = svc.spectate(roomId, userId);
+        return ResponseEntity.ok(ApiResponse.success(
+                new SpectateResponse(count, "/topic/room." + roomId + ".watch", spectateDelayMs)));
+    }
+
+    /**
+     * 结束观战（关闭观战连接时服务端也会自动移除）
+     */
+    @PostMapping("/rooms/{roomId}/spectate/leave")
+    public ResponseEntity<ApiResponse<Void>> leaveSpectate(@PathVariable String roomId,
+                                                           @AuthenticationPrincipal Jwt jwt) {
+        svc.leaveSpectate(roomId, CurrentUserHelper.getUserId(jwt));
+        return ResponseEntity.ok(ApiResponse.success());
+    }
+
     // -------- DTO --------
     public record JoinRoomResponse(char side) {}
 
+    /** 观战登记结果：当前观战人数、观战主题与观战延迟 */
+    public record SpectateResponse(long spectatorCount, String watchTopic, long delayMs) {}
+
+    /** 加入房间的执行结果（可跨节点传输）：side 为空表示被拒绝，message 为原因 */
+    public record JoinOutcome(Character side, String message) {
+        static JoinOutcome conflict(String message) {
+            return new JoinOutcome(null, message);
+        }
+    }
+
     /**
      * HTTP 控制器内部使用的工具方法：
      * 读取最新房间快照并以 SNAPSHOT 事件广播到对应的 WS 主题。
      *
      * 注意：
-     * - 这里仅负责封装事件结构并调用 {@link SimpMessagingTemplate}；
-     * - 具体快照内容全部由 {@link GomokuService#snapshot(String)} 提供。
+     * - 这里仅负责封装事件结构并交给 {@link RoomBroadcaster}（与相邻事件合帧）；
+     * - 具体快照内容全部由 {@link GomokuService#snapshotJson(String)} 提供（同一版本只编码一次）。
      */
     private void broadcastSnapshot(String roomId) {
-        GomokuSnapshot snap = svc.snapshot(roomId);
+        RawValue snap = new RawValue(svc.snapshotJson(roomId));
         GomokuMessages.BroadcastEvent evt = new GomokuMessages.BroadcastEvent();
         evt.setRoomId(roomId);
         evt.setType("SNAPSHOT");
+        evt.setSeq(roomEvents.nextSeq(roomId));
         evt.setPayload(snap);
-        messagingTemplate.convertAndSend("/topic/room." + roomId, evt);
+        broadcaster.publish(roomId, evt);
     }
 }
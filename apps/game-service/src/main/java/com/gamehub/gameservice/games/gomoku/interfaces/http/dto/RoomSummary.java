@@ -1,6 +1,7 @@
 package com.gamehub.gameservice.games.gomoku.interfaces.http.dto;
 
 import com.gamehub.gameservice.games.gomoku.domain.dto.RoomMeta;
+import com.gamehub.gameservice.games.gomoku.domain.dto.RoomListEntry;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
@@ -33,6 +34,19 @@ public class RoomSummary {
         );
     }
 
+    public static RoomSummary from(RoomListEntry entry) {
+        return new RoomSummary(
+                entry.getRoomId(),
+                entry.getOwnerUserId(),
+                entry.getOwnerName(),
+                entry.getMode(),
+                entry.getRule(),
+                entry.getPhase(),
+                entry.getCreatedAt(),
+                false
+        );
+    }
+
     public static RoomSummary tombstone(String roomId) {
         return new RoomSummary(roomId, null, null, null, null, null, 0L, true);
     }
@@ -1,10 +1,18 @@
 package com.gamehub.gameservice.games.gomoku.interfaces.ws;
 
+import com.gamehub.gameservice.games.gomoku.domain.dto.StateDelta;
 import com.gamehub.gameservice.games.gomoku.domain.model.GomokuSnapshot;
+import com.gamehub.gameservice.games.gomoku.domain.repository.RoomEventRepository;
 import com.gamehub.gameservice.games.gomoku.interfaces.ws.dto.ResumeMessages;
 import com.gamehub.gameservice.games.gomoku.interfaces.ws.dto.ResumeMessages.FullSync;
 import com.gamehub.gameservice.games.gomoku.interfaces.ws.dto.ResumeMessages.ResumeCmd;
+import com.gamehub.gameservice.games.gomoku.interfaces.ws.dto.ResumeMessages.SyncCmd;
+import com.gamehub.gameservice.games.gomoku.interfaces.ws.dto.ResumeMessages.SyncReply;
+import com.gamehub.gameservice.games.gomoku.interfaces.ws.dto.ResumeMessages.TimeSync;
+import com.gamehub.gameservice.games.gomoku.interfaces.ws.dto.ResumeMessages.TimeSyncCmd;
 import com.gamehub.gameservice.games.gomoku.service.GomokuService;
+import com.gamehub.gameservice.platform.cluster.RoomCommandRouter;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 
 import org.springframework.messaging.handler.annotation.Header;
@@ -13,10 +21,13 @@ import org.springframework.messaging.simp.annotation.SendToUser;
 import org.springframework.stereotype.Controller;
 
 import java.time.Clock;
+import java.util.List;
 
 /**
  * 五子棋 WebSocket 恢复控制器：
- * 客户端刷新 / 重连时，通过该端点重新绑定座位并返回当前房间完整快照。
+ * 客户端刷新 / 重连时，通过该端点重新绑定座位并返回当前房间完整快照；
+ * 广播事件出现序号缺口时，通过 /app/gomoku.sync 补齐；
+ * 倒计时按绝对截止时间渲染，前端通过 /app/gomoku.time 校时。
  */
 @Controller
 @RequiredArgsConstructor
@@ -24,9 +35,19 @@ public class GomokuResumeController {
 
     /** 五子棋领域服务（负责房间/棋局状态） */
     private final GomokuService gomoku;
+    /** 房间指令路由：座位绑定在房间归属节点执行，与其他房间指令串行 */
+    private final RoomCommandRouter router;
+    /** 房间事件序号与增量日志（补齐用） */
+    private final RoomEventRepository roomEvents;
     /** 用于生成服务器时间戳，方便前端校时 */
     private final Clock clock = Clock.systemUTC();
 
+    @PostConstruct
+    void registerCommands() {
+        router.register("gomoku.bindSeatKey", String.class,
+                (roomId, userId, seatKey) -> gomoku.bindBySeatKey(roomId, seatKey, userId));
+    }
+
     /**
      * 客户端发送 ResumeCmd 到 /app/gomoku.resume 时触发。
      * 根据 seatKey 恢复玩家座位，并把房间快照以点对点方式推送到 /user/queue/gomoku.full。
@@ -43,21 +64,57 @@ public class GomokuResumeController {
         Character mySide = null;
         String myRole = "VIEWER";
         if (cmd.getSeatKey() != null && !cmd.getSeatKey().isBlank()) {
-            Character bound = gomoku.bindBySeatKey(roomId, cmd.getSeatKey(), userId);
+            Character bound = router.call(roomId, "gomoku.bindSeatKey", userId, cmd.getSeatKey(), Character.class);
             if (bound != null) {
                 mySide = bound;
                 myRole = "PLAYER";
             }
         }
 
-        // 2) 读取房间快照（一次性全量同步）
-        GomokuSnapshot s = gomoku.snapshot(roomId);
+        // 2) 读取房间快照（一次性全量同步）并映射为 FullSync 返回给当前会话（/user/queue）
+        return fullSync(roomId, myRole, mySide);
+    }
 
-        // 3) 映射为 FullSync 返回给当前会话（/user/queue）
+    /**
+     * 客户端发现广播事件序号缺口时发送 SyncCmd 到 /app/gomoku.sync。
+     * 缺失区间仍在增量日志中时只回增量，否则回完整快照；结果点对点推送到 /user/queue/gomoku.sync。
+     */
+    @MessageMapping("/gomoku.sync")
+    @SendToUser("/queue/gomoku.sync")
+    public SyncReply onSync(SyncCmd cmd) {
+        final String roomId = cmd.getRoomId();
+        List<StateDelta> deltas = roomEvents.deltasSince(roomId, cmd.getSinceSeq());
+        if (deltas != null) {
+            long seq = deltas.isEmpty() ? cmd.getSinceSeq() : deltas.get(deltas.size() - 1).getSeq();
+            return SyncReply.builder().roomId(roomId).seq(seq).deltas(deltas).build();
+        }
+        // 补齐只读不改房间，不绑定座位：角色/执子方沿用客户端已有的
+        FullSync full = fullSync(roomId, null, null);
+        return SyncReply.builder().roomId(roomId).seq(full.getEventSeq()).full(full).build();
+    }
+
+    /**
+     * 客户端发送 TimeSyncCmd 到 /app/gomoku.time 时触发（连接后发几次，取 rtt 最小的一次）。
+     * 不读 Redis、不进房间邮箱，原样带回客户端时间并附上服务端时间，点对点推送到 /user/queue/gomoku.time。
+     */
+    @MessageMapping("/gomoku.time")
+    @SendToUser("/queue/gomoku.time")
+    public TimeSync onTimeSync(TimeSyncCmd cmd) {
+        return new TimeSync(cmd.getClientTime(), clock.millis());
+    }
+
+    /**
+     * 读取房间快照并映射为 FullSync。
+     * 事件序号基线在快照之前读取：基线之后的事件即使已反映在快照里，前端重复应用也不会出错；
+     * 反过来则可能漏掉快照之后、基线之前的事件。
+     */
+    private FullSync fullSync(String roomId, String myRole, Character mySide) {
+        long eventSeq = roomEvents.currentSeq(roomId);
+        GomokuSnapshot s = gomoku.snapshot(roomId);
         char[][] cellsCopy = deepCopy(s.cells);
         return FullSync.builder()
                 .roomId(s.roomId)
-                .seats(new FullSync.Seats(s.seatXOccupied, s.seatOOccupied, 0))
+                .seats(new FullSync.Seats(s.seatXOccupied, s.seatOOccupied, s.spectatorCount))
                 .myRole(myRole)
                 .mySide(mySide)
                 .seatXUserId(s.seatXUserId)
@@ -73,6 +130,7 @@ public class GomokuResumeController {
                 .board(new FullSync.BoardView(s.boardSize, cellsCopy))
                 .sideToMove(s.sideToMove)
                 .turnSeq(s.turnSeq)
+                .eventSeq(eventSeq)
                 .deadlineEpochMs(s.deadlineEpochMs)
                 .serverEpochMsWhenSent(clock.millis())
                 .outcome(s.outcome)
@@ -1,15 +1,23 @@
 package com.gamehub.gameservice.games.gomoku.interfaces.ws;
 import com.gamehub.gameservice.games.gomoku.domain.dto.GameStateRecord;
+import com.gamehub.gameservice.games.gomoku.domain.dto.MoveCommitResult;
+import com.gamehub.gameservice.games.gomoku.domain.dto.StateDelta;
 import com.gamehub.gameservice.games.gomoku.domain.enums.Mode;
-import com.gamehub.gameservice.games.gomoku.domain.model.GomokuSnapshot;
 import com.gamehub.gameservice.games.gomoku.domain.model.GomokuState;
 import com.gamehub.gameservice.games.gomoku.domain.model.Move;
 import com.gamehub.gameservice.games.gomoku.domain.model.SeriesView;
 import com.gamehub.gameservice.games.gomoku.domain.repository.GameStateRepository;
+import com.gamehub.gameservice.games.gomoku.domain.repository.RoomEventRepository;
 import com.gamehub.gameservice.games.gomoku.interfaces.ws.dto.GomokuMessages.*;
 import com.gamehub.gameservice.games.gomoku.domain.constants.GameMessages;
 import com.gamehub.gameservice.games.gomoku.service.GomokuService;
+import com.gamehub.gameservice.games.gomoku.service.impl.RoomCache;
 import com.gamehub.gameservice.games.gomoku.domain.model.Board;
+import com.gamehub.gameservice.infrastructure.scheduler.RoomCommandExecutor;
+import com.gamehub.gameservice.platform.cluster.RoomCommandRouter;
+import com.gamehub.gameservice.platform.ws.WebSocketDisconnectHelper;
+import com.fasterxml.jackson.databind.util.RawValue;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
@@ -19,9 +27,11 @@ import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Controller;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.*;
 import java.util.Map;
+import com.gamehub.gameservice.games.gomoku.application.RoomBroadcaster;
 import com.gamehub.gameservice.games.gomoku.application.TurnClockCoordinator;
 import org.apache.commons.lang3.StringUtils;
 
@@ -29,11 +39,19 @@ import org.apache.commons.lang3.StringUtils;
  * Gomoku WebSocket 控制器
  * ----------------------------------------
  * 负责接收前端通过 STOMP 发送的指令（如 /app/gomoku.place），
- * 并通过 SimpMessagingTemplate 将对局状态或错误消息广播给所有订阅者。
+ * 并通过 RoomBroadcaster 将对局状态或错误消息广播给所有订阅者（同一指令产生的事件合成一帧）。
  *
  * 当前控制器实现了：
- *   1. 玩家落子 → 立刻推送“玩家局面”
- *   2. 若房间为 PVE 且轮到 AI → 延迟 2 秒推送“AI 局面”
+ *   1. 玩家落子 → 立刻推送本步增量（DELTA）
+ *   2. 若房间为 PVE 且轮到 AI → 延迟 2 秒推送 AI 这一步的增量
+ *
+ * 事件序号：STATE/DELTA/SNAPSHOT 都带房间内单调递增的 seq（RoomEventRepository 分配），
+ * 前端发现缺口时经 /app/gomoku.sync 补齐（见 GomokuResumeController）。
+ *
+ * 并发模型：所有改变房间的指令（包括延迟后的 AI 落子）都投递到 RoomCommandExecutor 的房间邮箱，
+ * 同一房间按到达顺序由单个虚拟线程串行执行；STOMP 入站线程只做身份提取与投递。
+ * 多节点：玩家指令经 RoomCommandRouter 送到房间归属节点执行（本节点持有则直接进本地邮箱）；
+ * AI 落子只会在归属节点上被调度，直接进本地邮箱。
  */
 @Controller
 @RequiredArgsConstructor
@@ -41,7 +59,7 @@ import org.apache.commons.lang3.StringUtils;
 public class GomokuWsController {
     /** 游戏逻辑服务层（包含房间、棋盘状态、AI） */
     private final GomokuService gomokuService;
-    /** Spring 的消息模板，用于广播到 /topic/... */
+    /** Spring 的消息模板，用于点对点推送（/user/queue/...） */
     private final SimpMessagingTemplate messaging;
 
     /** 单据游戏状态 */
@@ -65,23 +83,58 @@ public class GomokuWsController {
      */
     private final TurnClockCoordinator coordinator;
 
+    /** 房间级单写者执行器 */
+    private final RoomCommandExecutor roomExecutor;
+
+    /** 房间指令路由（转发到房间归属节点） */
+    private final RoomCommandRouter router;
+
+    /** 内存房间缓存：AI 待落子期间钉住房间，避免被淘汰后重建 */
+    private final RoomCache roomCache;
+
+    /** 房间事件序号与增量日志 */
+    private final RoomEventRepository roomEvents;
+
+    /** 房间主题广播（合帧） */
+    private final RoomBroadcaster broadcaster;
+
+    /** 踢人：通知后异步断开被踢玩家 */
+    private final WebSocketDisconnectHelper disconnectHelper;
+
+    /**
+     * 注册房间指令：处理器只在房间归属节点的房间邮箱内执行
+     */
+    @PostConstruct
+    void registerCommands() {
+        router.register("gomoku.place", PlaceCmd.class, (roomId, userId, cmd) -> { doPlace(cmd, userId); return null; });
+        router.register("gomoku.resign", SimpleCmd.class, (roomId, userId, cmd) -> { doResign(cmd, userId); return null; });
+        router.register("gomoku.ready", SimpleCmd.class, (roomId, userId, cmd) -> { doReady(cmd, userId); return null; });
+        router.register("gomoku.start", SimpleCmd.class, (roomId, userId, cmd) -> { doStartGame(cmd, userId); return null; });
+        router.register("gomoku.restart", SimpleCmd.class, (roomId, userId, cmd) -> { doRestart(cmd, userId); return null; });
+        router.register("gomoku.kick", KickCmd.class, (roomId, userId, cmd) -> { doKickPlayer(cmd, userId); return null; });
+    }
+
     /**
      * 处理客户端的“落子指令”。
      * ----------------------------------------
      * 路径：/app/gomoku.place
      * 流程：
      *   1. 调用 GomokuService.place() 落子
-     *   2. 推送当前棋盘状态
+     *   2. 推送本步增量（DELTA）
      *   3. 若房间是 PVE 且轮到 AI → 延迟 2 秒再调用 AI 并推送
      */
     @MessageMapping("/gomoku.place")
     public void place(PlaceCmd cmd, SimpMessageHeaderAccessor sha) {
+        // 获取认证用户（通过网关/OIDC），以 userId 作为稳定身份
+        final String userId = Objects.requireNonNull(sha.getUser(), "user is null").getName();
+        dispatch(cmd.getRoomId(), "gomoku.place", userId, cmd);
+    }
+
+    private void doPlace(PlaceCmd cmd, String userId) {
         // 获取房间ID，用于标识游戏房间
         final String roomId = cmd.getRoomId();
         // 获取当前游戏ID，用于防止AI跨盘操作（如果游戏重新开始，AI任务会被取消）
         final String gameIdAtSchedule = gomokuService.getGameId(roomId); // 防AI跨盘
-        // 获取认证用户（通过网关/OIDC），以 userId 作为稳定身份
-        final String userId = Objects.requireNonNull(sha.getUser(), "user is null").getName();
 
         try {
             // PVE模式权限检查：只有房主可以走棋
@@ -101,22 +154,19 @@ public class GomokuWsController {
 
             // 落子前状态与 CAS 期望
             GomokuState before = gomokuService.getState(roomId);
-            // 计算当前棋盘上的棋子数量，作为CAS操作的期望值
+            // 计算当前棋盘上的棋子数量，作为CAS操作的期望值（即走子日志长度）
             int expectedStep = computeExpectedStep(before.board());
-            // 获取当前应该轮到谁下棋（'X' 或 'O'）
-            char expectedTurn = before.current();
 
             // 玩家落子
             GomokuState state = gomokuService.place(roomId, cmd.getX(), cmd.getY(), caller);
 
-            // 构造棋盘快照并落库（原子 CAS）
+            // 单脚本原子提交（校验 + 追加走子日志 + 回合锚点；终局/到达压缩间隔时顺带重写快照）
             long nextDeadlineMillis = state.over() ? 0L : System.currentTimeMillis() + turnSeconds * 1000L;
             GameStateRecord rec = buildRecord(state, roomId, gameIdAtSchedule, expectedStep + 1);
-            //
-            persistStateAtomically(roomId, gameIdAtSchedule, expectedStep, expectedTurn, rec, nextDeadlineMillis);
+            commitMove(roomId, gameIdAtSchedule, expectedStep, state.lastMove(), rec, nextDeadlineMillis);
 
-            // 广播当前局面
-            sendState(roomId, state);
+            // 广播本步增量
+            sendDelta(roomId, gameIdAtSchedule, state, expectedStep + 1, nextDeadlineMillis);
 
             // PVE AI 处理（延迟 1~1.5s）
             maybeScheduleAi(roomId, state, gameIdAtSchedule);
@@ -131,8 +181,12 @@ public class GomokuWsController {
     @MessageMapping("/gomoku.resign")
     public void resign(SimpleCmd cmd,
                        SimpMessageHeaderAccessor sha) {
-        final String roomId = cmd.getRoomId();
         final String userId = Objects.requireNonNull(sha.getUser(), "user is null").getName();
+        dispatch(cmd.getRoomId(), "gomoku.resign", userId, cmd);
+    }
+
+    private void doResign(SimpleCmd cmd, String userId) {
+        final String roomId = cmd.getRoomId();
         try {
             // PVE模式权限检查：只有房主可以认输
             Mode mode = gomokuService.getMode(roomId);
@@ -159,8 +213,8 @@ public class GomokuWsController {
             GomokuState s = gomokuService.resign(roomId, side);
             cancelAi(roomId);
             
-            // 保存认输后的状态到Redis
-            GameStateRecord rec = buildRecord(s, roomId, gameId, expectedStep + 1);
+            // 保存认输后的状态到Redis（认输不落子，步数不变）
+            GameStateRecord rec = buildRecord(s, roomId, gameId, expectedStep);
             persistStateAtomically(roomId, gameId, expectedStep, expectedTurn, rec, 0L);
             
             sendState(roomId, s); // sendState 会再发 SNAPSHOT
@@ -175,8 +229,12 @@ public class GomokuWsController {
     // 准备/取消准备
     @MessageMapping("/gomoku.ready")
     public void ready(SimpleCmd cmd, SimpMessageHeaderAccessor sha) {
-        final String roomId = cmd.getRoomId();
         final String userId = Objects.requireNonNull(sha.getUser(), "user is null").getName();
+        dispatch(cmd.getRoomId(), "gomoku.ready", userId, cmd);
+    }
+
+    private void doReady(SimpleCmd cmd, String userId) {
+        final String roomId = cmd.getRoomId();
         try {
             if (cmd.getSeatKey() != null && !cmd.getSeatKey().isBlank()) {
                 gomokuService.bindBySeatKey(roomId, cmd.getSeatKey(), userId);
@@ -195,8 +253,12 @@ public class GomokuWsController {
     // 开始游戏（只有房主可以调用）
     @MessageMapping("/gomoku.start")
     public void startGame(SimpleCmd cmd, SimpMessageHeaderAccessor sha) {
-        final String roomId = cmd.getRoomId();
         final String userId = Objects.requireNonNull(sha.getUser(), "user is null").getName();
+        dispatch(cmd.getRoomId(), "gomoku.start", userId, cmd);
+    }
+
+    private void doStartGame(SimpleCmd cmd, String userId) {
+        final String roomId = cmd.getRoomId();
         try {
             if (cmd.getSeatKey() != null && !cmd.getSeatKey().isBlank()) {
                 gomokuService.bindBySeatKey(roomId, cmd.getSeatKey(), userId);
@@ -219,8 +281,12 @@ public class GomokuWsController {
     // 再来一局（需要是房间内的玩家）
     @MessageMapping("/gomoku.restart")
     public void restart(SimpleCmd cmd,SimpMessageHeaderAccessor sha) {
-        final String roomId = cmd.getRoomId();
         final String userId = Objects.requireNonNull(sha.getUser(), "user is null").getName();
+        dispatch(cmd.getRoomId(), "gomoku.restart", userId, cmd);
+    }
+
+    private void doRestart(SimpleCmd cmd, String userId) {
+        final String roomId = cmd.getRoomId();
 
         try {
             // PVE模式权限检查：只有房主可以重开
@@ -255,38 +321,36 @@ public class GomokuWsController {
      */
     @MessageMapping("/gomoku.kick")
     public void kickPlayer(KickCmd cmd, SimpMessageHeaderAccessor sha) {
-        final String roomId = cmd.getRoomId();
         final String userId = Objects.requireNonNull(sha.getUser(), "user is null").getName();
+        dispatch(cmd.getRoomId(), "gomoku.kick", userId, cmd);
+    }
+
+    private void doKickPlayer(KickCmd cmd, String userId) {
+        final String roomId = cmd.getRoomId();
         final String targetUserId = cmd.getTargetUserId();
 
         try {
             // 身份绑定
             bindSeatIfProvided(roomId, cmd.getSeatKey(), userId);
 
-            // 先向被踢玩家发送踢人事件（在断开连接之前发送，确保能收到）
+            // 先在房间邮箱内完成踢人（被踢玩家此后的指令都会被拒绝）
+            GomokuService.KickResult result = gomokuService.kickPlayer(roomId, userId, targetUserId);
+            if (!result.success()) {
+                sendError(roomId, result.reason());
+                return;
+            }
+
+            // 广播SNAPSHOT给房间内剩余玩家（不等被踢玩家断开）
+            broadcastSnapshot(roomId);
+
+            // 通知被踢玩家（KICKED 事件 + 系统踢人消息），确认送达或超时后断开其连接；异步执行，不挂起房间邮箱
             BroadcastEvent kickEvent = new BroadcastEvent();
             kickEvent.setRoomId(roomId);
             kickEvent.setGameId(gomokuService.getGameId(roomId));
             kickEvent.setType("KICKED");
             kickEvent.setPayload(Map.of("reason", GameMessages.KICKED_OUT_REASON));
-            messaging.convertAndSendToUser(targetUserId, "/queue/gomoku.kicked", kickEvent);
-            
-            // 等待一小段时间，确保消息发送完成
-            try {
-                Thread.sleep(100);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-
-            // 调用Service踢人（会断开连接）
-            GomokuService.KickResult result = gomokuService.kickPlayer(roomId, userId, targetUserId);
-
-            if (result.success()) {
-                // 广播SNAPSHOT给房间内剩余玩家
-                broadcastSnapshot(roomId);
-            } else {
-                sendError(roomId, result.reason());
-            }
+            disconnectHelper.kickUser(targetUserId, GameMessages.KICKED_OUT_REASON,
+                    List.of(new WebSocketDisconnectHelper.Notice("/queue/gomoku.kicked", kickEvent)));
         } catch (IllegalStateException e) {
             sendError(roomId, e.getMessage());
         } catch (Exception e) {
@@ -296,9 +360,35 @@ public class GomokuWsController {
     }
 
 
+    /**
+     * 经路由投递到房间归属节点；积压超限时直接向房间回错误
+     */
+    private void dispatch(String roomId, String type, String userId, Object cmd) {
+        try {
+            router.dispatch(roomId, type, userId, cmd);
+        } catch (RejectedExecutionException e) {
+            sendError(roomId, "操作过于频繁，请稍后再试");
+        } catch (IllegalStateException e) {
+            // 归属节点失联且未能接管
+            sendError(roomId, e.getMessage());
+        }
+    }
+
+    /**
+     * 投递到本地房间邮箱（仅用于本节点内部产生的指令，如 AI 落子）
+     */
+    private void dispatchLocal(String roomId, Runnable cmd) {
+        try {
+            roomExecutor.execute(roomId, cmd);
+        } catch (RejectedExecutionException e) {
+            sendError(roomId, "操作过于频繁，请稍后再试");
+        }
+    }
+
     private void cancelAi(String roomId) {
         ScheduledFuture<?> old = pendingAi.remove(roomId);
         if (old != null) old.cancel(false);
+        roomCache.unpin(roomId, RoomCache.PIN_AI);
     }
 
     /**
@@ -368,6 +458,24 @@ public class GomokuWsController {
         return rec;
     }
 
+    /**
+     * 单步落子原子提交：被 Redis 权威状态拒绝时，丢弃本地副本并抛出异常（由调用方推送错误）
+     */
+    private void commitMove(String roomId,
+                            String gameId,
+                            int expectedStep,
+                            Move move,
+                            GameStateRecord rec,
+                            long nextDeadlineMillis) {
+        if (move == null) return;
+        MoveCommitResult res = gameStateRepository.commitMove(roomId, gameId, expectedStep, move, rec, nextDeadlineMillis);
+        if (!res.ok()) {
+            log.warn("落子提交被拒绝: roomId={}, gameId={}, step={}, reason={}", roomId, gameId, expectedStep, res.reason());
+            gomokuService.evictLocal(roomId);
+            throw new IllegalStateException("落子提交失败：" + res.reason());
+        }
+    }
+
     /**
      * 使用CAS：预期步骤/预期转向必须匹配
      */
@@ -396,7 +504,12 @@ public class GomokuWsController {
         final char ai = gomokuService.getAiPiece(roomId);
         // 设置AI延迟时间：1-1.5秒随机延迟，模拟人类思考时间
         long delay = 1000 + ThreadLocalRandom.current().nextLong(501);
-        ScheduledFuture<?> fut = aiScheduler.schedule(() -> runAiTurn(roomId, gameIdAtSchedule, ai), delay, TimeUnit.MILLISECONDS);
+        // AI 待落子期间钉住内存房间
+        roomCache.pin(roomId, RoomCache.PIN_AI);
+        // 延迟到点后再投递到房间邮箱，与玩家指令串行
+        ScheduledFuture<?> fut = aiScheduler.schedule(
+                () -> dispatchLocal(roomId, () -> runAiTurn(roomId, gameIdAtSchedule, ai)),
+                delay, TimeUnit.MILLISECONDS);
         // 将新的AI任务保存到待执行队列
         pendingAi.put(roomId, fut);
     }
@@ -417,26 +530,28 @@ public class GomokuWsController {
             if (mv == null) return;
 
             GomokuState after;
+            // 计算AI落子前的步数
+            int expStep2 = computeExpectedStep(now.board());
+            long nextDeadlineMs2;
             try {
-                // 计算AI落子前的步数
-                int expStep2 = computeExpectedStep(now.board());
                 // 执行AI落子
                 after = gomokuService.place(roomId, mv.x(), mv.y(), mv.piece());
                 // 创建AI落子后的游戏状态记录
                 GameStateRecord rec2 = buildRecord(after, roomId, gameIdAtSchedule, expStep2 + 1);
                 // 计算AI落子后的下一回合截止时间
-                long nextDeadlineMs2 = after.over() ? 0L : System.currentTimeMillis() + turnSeconds * 1000L;
-                // 原子性地保存AI落子后的状态到Redis
-                gameStateRepository.updateAtomically(roomId, gameIdAtSchedule, expStep2, Board.WHITE, rec2, after.over() ? 0L : nextDeadlineMs2);
+                nextDeadlineMs2 = after.over() ? 0L : System.currentTimeMillis() + turnSeconds * 1000L;
+                // 原子性地提交AI落子
+                commitMove(roomId, gameIdAtSchedule, expStep2, after.lastMove(), rec2, nextDeadlineMs2);
             } catch (Exception ignore2) { return; }
-            // 广播AI落子后的游戏状态
-            sendState(roomId, after);
+            // 广播AI这一步的增量
+            sendDelta(roomId, gameIdAtSchedule, after, expStep2 + 1, nextDeadlineMs2);
         } catch (Exception ex) {
             // 如果AI落子过程中出现异常，发送错误消息给客户端
             sendError(roomId, ex.getMessage());
         } finally {
             // 无论成功失败，都要清理AI任务记录
             pendingAi.remove(roomId);
+            roomCache.unpin(roomId, RoomCache.PIN_AI);
         }
     }
 
@@ -444,12 +559,14 @@ public class GomokuWsController {
      * 统一广播最新局面 + 触发/停止回合计时
      * ----------------------------------------------------
      * 用途：
-     *  - 落子、认输、重开等会改变棋盘状态的操作调用此方法；
+     *  - 认输、重开、开局等会整体改变局面的操作调用此方法（普通落子走 sendDelta）；
      *  - 同时发送 STATE（增量棋盘状态）和 SNAPSHOT（房间全貌），前端可选择性使用。
      * 
      * 说明：
      *  - STATE 事件：包含当前盘状态 + 系列比分，用于增量更新棋盘；
      *  - SNAPSHOT 事件：包含房间全貌（座位、准备状态、phase、创建时间等），用于全量同步。
+     *  - 一对 STATE/SNAPSHOT 只产生一批 Redis 读取：STATE 的系列视图取自内存房间，
+     *    SNAPSHOT 由一次管道批量读取组装。
      */
     private void sendState(String roomId, GomokuState state) {
         // —— STATE 事件（增量更新棋盘）——
@@ -457,8 +574,9 @@ public class GomokuWsController {
         BroadcastEvent evt = new BroadcastEvent();
         evt.setRoomId(roomId);
         evt.setType("STATE");
+        evt.setSeq(roomEvents.nextSeq(roomId));
         evt.setPayload(new StatePayload(state, sv));
-        messaging.convertAndSend(topic(roomId), evt);
+        broadcaster.publish(roomId, evt);
 
         // —— SNAPSHOT 事件（房间全貌，统一复用 broadcastSnapshot）——
         broadcastSnapshot(roomId);
@@ -467,12 +585,53 @@ public class GomokuWsController {
         coordinator.syncFromState(roomId, state);
     }
 
+    /**
+     * 落子后只广播本步增量（DELTA）+ 触发/停止回合计时
+     * ----------------------------------------------------
+     * 用途：
+     *  - 玩家落子、AI 落子调用此方法，取代整盘 STATE + SNAPSHOT；
+     *  - 增量只含落点、执子方、下一手、截止时间与终局结果，并写入有界增量日志供补齐。
+     *
+     * 说明：
+     *  - 终局时比分/系列视图会变化，额外补发一次 SNAPSHOT；
+     *  - 序号与广播都在房间邮箱内完成，同一房间的 seq 与推送顺序一致。
+     */
+    private void sendDelta(String roomId, String gameId, GomokuState state, int step, long deadlineMillis) {
+        Move mv = state.lastMove();
+        StateDelta delta = new StateDelta();
+        delta.setGameId(gameId);
+        delta.setStep(step);
+        delta.setX(mv.x());
+        delta.setY(mv.y());
+        delta.setSide(String.valueOf(mv.piece()));
+        delta.setSideToMove(state.over() ? null : String.valueOf(state.current()));
+        delta.setDeadlineEpochMs(deadlineMillis);
+        delta.setOver(state.over());
+        if (state.over()) {
+            delta.setWinner(state.winner() == null ? "DRAW" : String.valueOf(state.winner()));
+        }
+        long seq = roomEvents.appendDelta(roomId, delta);
+
+        BroadcastEvent evt = new BroadcastEvent();
+        evt.setRoomId(roomId);
+        evt.setGameId(gameId);
+        evt.setType("DELTA");
+        evt.setSeq(seq);
+        evt.setPayload(delta);
+        broadcaster.publish(roomId, evt);
+
+        if (state.over()) {
+            broadcastSnapshot(roomId);
+        }
+        coordinator.syncFromState(roomId, state);
+    }
+
     private void sendError(String roomId, String msg) {
         BroadcastEvent err = new BroadcastEvent();
         err.setRoomId(roomId);
         err.setType("ERROR");
         err.setPayload(msg);
-        messaging.convertAndSend(topic(roomId), err);
+        broadcaster.publish(roomId, err);
     }
 
     /**
@@ -483,16 +642,18 @@ public class GomokuWsController {
      *  - 前端收到 SNAPSHOT 后，用这份完整快照覆盖本地状态，确保所有客户端看到一致的房间全貌。
      * 
      * 说明：
-     *  - 此方法会调用 gomokuService.snapshot(roomId) 从 Redis 聚合最新状态；
+     *  - 此方法会调用 gomokuService.snapshotJson(roomId) 从 Redis 聚合最新状态；
+     *    快照版本未变时复用已编码的 JSON（RawValue 原样嵌入事件，不再重复序列化）；
      *  - 不依赖内存 Room 对象，支持多节点部署。
      */
     private void broadcastSnapshot(String roomId) {
-        GomokuSnapshot snap = gomokuService.snapshot(roomId);
+        RawValue snap = new RawValue(gomokuService.snapshotJson(roomId));
         BroadcastEvent evt = new BroadcastEvent();
         evt.setRoomId(roomId);
         evt.setType("SNAPSHOT");
+        evt.setSeq(roomEvents.nextSeq(roomId));
         evt.setPayload(snap);
-        messaging.convertAndSend(topic(roomId), evt);
+        broadcaster.publish(roomId, evt);
     }
 
     /**
@@ -519,10 +680,6 @@ public class GomokuWsController {
         broadcastSnapshot(roomId);
     }
 
-    /** 拼接广播路径（示例：/topic/room.1234） */
-    private String topic(String roomId) {
-        return "/topic/room." + roomId;
-    }
 
 
 
@@ -0,0 +1,31 @@
+package com.gamehub.gameservice.games.gomoku.interfaces.ws;
+
+import com.gamehub.gameservice.games.gomoku.application.LobbyFeed;
+import com.gamehub.gameservice.games.gomoku.interfaces.ws.dto.LobbyMessages.LobbySnapshot;
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.stereotype.Controller;
+
+/**
+ * 五子棋大厅 WebSocket 控制器：
+ * 客户端订阅 /topic/lobby 接收房间增量，进入大厅时通过 /app/gomoku.lobby 取首帧。
+ */
+@Controller
+@RequiredArgsConstructor
+public class LobbyWsController {
+
+    /** 大厅实时列表 */
+    private final LobbyFeed lobby;
+
+    /**
+     * 大厅首帧：当前可加入的房间，点对点推送到 /user/queue/gomoku.lobby。
+     * 客户端应先订阅 /topic/lobby 再请求首帧，首帧之后到达的增量按 roomId 覆盖即可。
+     */
+    @MessageMapping("/gomoku.lobby")
+    @SendToUser("/queue/gomoku.lobby")
+    public LobbySnapshot onLobby() {
+        return lobby.snapshot();
+    }
+}
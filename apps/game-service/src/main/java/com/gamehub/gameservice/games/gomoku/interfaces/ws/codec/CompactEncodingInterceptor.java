@@ -0,0 +1,153 @@
+package com.gamehub.gameservice.games.gomoku.interfaces.ws.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * CompactEncodingInterceptor
+ * -------------------------------------------------------
+ * 房间事件的编码协商：客户端在 STOMP CONNECT 帧带 x-gomoku-codec 头选择编码，默认仍是 JSON。
+ *
+ * 取值：
+ *  - bin：紧凑二进制（content-type: application/octet-stream，原生 WebSocket 下以二进制帧发送）；
+ *  - b64：同一紧凑编码的 Base64 文本（content-type: text/x-gomoku-b64），用于 SockJS 等只能传文本的通道；
+ *  - 其他/缺省：JSON，不做任何处理。
+ *
+ * 实现：
+ *  - 同时挂在入站（记录/清理会话的编码）与出站通道（改写发往 /topic/room.* 的 MESSAGE）；
+ *  - SimpleBroker 给每个订阅者发的是同一个 payload 数组，按数组身份缓存编码结果，一次广播只转码一次；
+ *  - 转码失败时原样发送 JSON，客户端按 content-type 判断如何解码；
+ *  - 指标：gomoku.ws.codec.bytes{encoding=json|compact}（被转码事件的原始/紧凑字节数）。
+ */
+@Slf4j
+@Component
+public class CompactEncodingInterceptor implements ChannelInterceptor {
+
+    /** CONNECT 帧中的编码协商头 */
+    public static final String CODEC_HEADER = "x-gomoku-codec";
+
+    private static final String ROOM_TOPIC_PREFIX = "/topic/room.";
+    private static final MimeType B64_TYPE = new MimeType("text", "x-gomoku-b64", StandardCharsets.UTF_8);
+
+    enum Codec { BIN, B64 }
+
+    /** 单次广播的编码结果：二进制与其 Base64 文本 */
+    private record Encoded(byte[] bin, byte[] b64) {}
+
+    /** 空结果：不可转码的帧（按身份缓存，避免每个订阅者都重试） */
+    private static final Encoded NONE = new Encoded(null, null);
+
+    private final GomokuCompactCodec codec;
+
+    /** sessionId -> 选择的紧凑编码（JSON 会话不登记） */
+    private final ConcurrentMap<String, Codec> sessions = new ConcurrentHashMap<>();
+
+    /** payload 数组（按身份）-> 编码结果 */
+    private final Cache<byte[], Encoded> encoded = Caffeine.newBuilder()
+            .weakKeys()
+            .maximumSize(4096)
+            .build();
+
+    private final Counter jsonBytes;
+    private final Counter compactBytes;
+
+    @Value("${gomoku.ws.codec.enabled:true}")
+    private boolean enabled;
+
+    public CompactEncodingInterceptor(ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.codec = new GomokuCompactCodec(objectMapper);
+        this.jsonBytes = Counter.builder("gomoku.ws.codec.bytes").tag("encoding", "json")
+                .description("被转码房间事件的 JSON 字节数").register(meterRegistry);
+        this.compactBytes = Counter.builder("gomoku.ws.codec.bytes").tag("encoding", "compact")
+                .description("房间事件紧凑编码后的字节数").register(meterRegistry);
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(message.getHeaders());
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (type == null || sessionId == null) {
+            return message;
+        }
+        switch (type) {
+            case CONNECT -> onConnect(message, sessionId);
+            case DISCONNECT -> sessions.remove(sessionId);
+            case MESSAGE -> {
+                Codec c = sessions.get(sessionId);
+                if (c != null) {
+                    return transcode(message, c);
+                }
+            }
+            default -> { }
+        }
+        return message;
+    }
+
+    /** 当前选择紧凑编码的会话数（监控用） */
+    public int compactSessions() {
+        return sessions.size();
+    }
+
+    // ------------------------------------------------------------------
+
+    private void onConnect(Message<?> message, String sessionId) {
+        if (!enabled) return;
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+        List<String> vals = accessor.getNativeHeader(CODEC_HEADER);
+        String v = (vals == null || vals.isEmpty()) ? null : vals.get(0);
+        if ("bin".equalsIgnoreCase(v)) {
+            sessions.put(sessionId, Codec.BIN);
+        } else if ("b64".equalsIgnoreCase(v)) {
+            sessions.put(sessionId, Codec.B64);
+        }
+    }
+
+    private Message<?> transcode(Message<?> message, Codec c) {
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        if (destination == null || !destination.startsWith(ROOM_TOPIC_PREFIX)
+                || !(message.getPayload() instanceof byte[] json)) {
+            return message;
+        }
+        Encoded e = encoded.get(json, this::encode);
+        if (e == null || e == NONE) {
+            return message;
+        }
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        accessor.setContentType(c == Codec.BIN ? MimeTypeUtils.APPLICATION_OCTET_STREAM : B64_TYPE);
+        return MessageBuilder.createMessage(c == Codec.BIN ? e.bin() : e.b64(), accessor.getMessageHeaders());
+    }
+
+    private Encoded encode(byte[] json) {
+        try {
+            byte[] bin = codec.encode(json);
+            if (bin == null) return NONE;
+            jsonBytes.increment(json.length);
+            compactBytes.increment(bin.length);
+            return new Encoded(bin, Base64.getEncoder().encode(bin));
+        } catch (Exception ex) {
+            log.warn("房间事件紧凑编码失败，按 JSON 发送: {}", ex.getMessage());
+            return NONE;
+        }
+    }
+}
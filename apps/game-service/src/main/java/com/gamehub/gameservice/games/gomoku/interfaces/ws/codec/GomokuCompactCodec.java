@@ -0,0 +1,209 @@
+package com.gamehub.gameservice.games.gomoku.interfaces.ws.codec;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * GomokuCompactCodec
+ * -------------------------------------------------------
+ * 房间事件（BroadcastEvent JSON）的紧凑二进制编码，前端解码器见 static/js/codec.js。
+ *
+ * 帧格式（v1）：
+ *  - 首字节版本号 1，其后是一个事件；
+ *  - 事件 = 类型码(u8) + seq(varint，seq+1，0 表示无) + gameId(字符串) + 按类型的载荷；
+ *  - 字符串 = varint(字节长度+1) + UTF-8（0 表示 null）；整数均为无符号 LEB128 varint；
+ *  - 执子方码：0=无，1=X，2=O，3=DRAW。
+ *
+ * 载荷：
+ *  - DELTA：step、x、y、side、sideToMove、deadlineEpochMs、over(u8)、winner；
+ *  - TICK：left、side、deadlineEpochMs；TIMEOUT：side；ERROR：消息字符串；
+ *  - CLOCK：side、deadlineEpochMs、turnMs、serverEpochMs；
+ *  - SNAPSHOT：打包棋盘（boardSize + 每格 2 位，0=空 1=X 2=O，行优先、低位在前）+ 去掉 cells 后的其余字段 JSON；
+ *  - BATCH：事件数 + 逐个事件（无版本号）；
+ *  - 其他类型（STATE 等）：type 字符串 + payload JSON，保证任意事件都能编码。
+ *
+ * roomId 不编码（订阅的主题已确定房间），由客户端回填。
+ */
+public final class GomokuCompactCodec {
+
+    static final int VERSION = 1;
+
+    static final int T_OTHER = 0;
+    static final int T_DELTA = 1;
+    static final int T_SNAPSHOT = 3;
+    static final int T_TICK = 4;
+    static final int T_TIMEOUT = 5;
+    static final int T_ERROR = 6;
+    static final int T_BATCH = 7;
+    static final int T_CLOCK = 8;
+
+    private final ObjectMapper mapper;
+
+    public GomokuCompactCodec(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    /**
+     * 把一帧事件 JSON 转成紧凑编码
+     * @param json BroadcastEvent 序列化结果
+     * @return 紧凑编码；不是房间事件（无 type）时返回 null，调用方原样发送 JSON
+     */
+    public byte[] encode(byte[] json) throws IOException {
+        JsonNode root = mapper.readTree(json);
+        if (root == null || !root.isObject() || !root.path("type").isTextual()) {
+            return null;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, json.length / 4));
+        out.write(VERSION);
+        writeEvent(out, root);
+        return out.toByteArray();
+    }
+
+    // ------------------------------------------------------------------
+
+    private void writeEvent(ByteArrayOutputStream out, JsonNode evt) throws IOException {
+        String type = evt.path("type").asText();
+        JsonNode p = evt.path("payload");
+        switch (type) {
+            case "DELTA" -> {
+                if (!p.isObject()) { writeOther(out, evt, type, p); return; }
+                writeHead(out, T_DELTA, evt);
+                writeVarint(out, p.path("step").asLong());
+                writeVarint(out, p.path("x").asLong());
+                writeVarint(out, p.path("y").asLong());
+                out.write(sideCode(p.path("side")));
+                out.write(sideCode(p.path("sideToMove")));
+                writeVarint(out, p.path("deadlineEpochMs").asLong());
+                out.write(p.path("over").asBoolean() ? 1 : 0);
+                out.write(sideCode(p.path("winner")));
+            }
+            case "TICK" -> {
+                if (!p.isObject()) { writeOther(out, evt, type, p); return; }
+                writeHead(out, T_TICK, evt);
+                writeVarint(out, Math.max(0L, p.path("left").asLong()));
+                out.write(sideCode(p.path("side")));
+                writeVarint(out, p.path("deadlineEpochMs").asLong());
+            }
+            case "CLOCK" -> {
+                if (!p.isObject()) { writeOther(out, evt, type, p); return; }
+                writeHead(out, T_CLOCK, evt);
+                out.write(sideCode(p.path("side")));
+                writeVarint(out, p.path("deadlineEpochMs").asLong());
+                writeVarint(out, p.path("turnMs").asLong());
+                writeVarint(out, p.path("serverEpochMs").asLong());
+            }
+            case "TIMEOUT" -> {
+                if (!p.isObject()) { writeOther(out, evt, type, p); return; }
+                writeHead(out, T_TIMEOUT, evt);
+                out.write(sideCode(p.path("side")));
+            }
+            case "ERROR" -> {
+                if (!p.isTextual()) { writeOther(out, evt, type, p); return; }
+                writeHead(out, T_ERROR, evt);
+                writeString(out, p.asText());
+            }
+            case "SNAPSHOT" -> {
+                if (!p.isObject()) { writeOther(out, evt, type, p); return; }
+                writeHead(out, T_SNAPSHOT, evt);
+                writeBoard(out, p.path("cells"));
+                ObjectNode rest = ((ObjectNode) p).deepCopy();
+                rest.remove("cells");
+                writeBytes(out, mapper.writeValueAsBytes(rest));
+            }
+            case "BATCH" -> {
+                if (!p.isArray()) { writeOther(out, evt, type, p); return; }
+                writeHead(out, T_BATCH, evt);
+                writeVarint(out, p.size());
+                for (JsonNode e : p) {
+                    writeEvent(out, e);
+                }
+            }
+            default -> writeOther(out, evt, type, p);
+        }
+    }
+
+    private void writeOther(ByteArrayOutputStream out, JsonNode evt, String type, JsonNode p) throws IOException {
+        writeHead(out, T_OTHER, evt);
+        writeString(out, type);
+        writeBytes(out, p.isMissingNode() ? null : mapper.writeValueAsBytes(p));
+    }
+
+    private void writeHead(ByteArrayOutputStream out, int code, JsonNode evt) {
+        out.write(code);
+        JsonNode seq = evt.path("seq");
+        writeVarint(out, seq.isNumber() ? seq.asLong() + 1 : 0L);
+        JsonNode gameId = evt.path("gameId");
+        writeString(out, gameId.isTextual() ? gameId.asText() : null);
+    }
+
+    /** 棋盘：boardSize + 每格 2 位；cells 为 char[][]（Jackson 输出为字符串数组）或二维字符数组 */
+    private void writeBoard(ByteArrayOutputStream out, JsonNode cells) {
+        int n = cells.isArray() ? cells.size() : 0;
+        writeVarint(out, n);
+        int acc = 0;
+        int bits = 0;
+        for (int x = 0; x < n; x++) {
+            JsonNode row = cells.get(x);
+            for (int y = 0; y < n; y++) {
+                char c = cellAt(row, y);
+                int code = c == 'X' ? 1 : c == 'O' ? 2 : 0;
+                acc |= code << bits;
+                bits += 2;
+                if (bits == 8) {
+                    out.write(acc);
+                    acc = 0;
+                    bits = 0;
+                }
+            }
+        }
+        if (bits > 0) {
+            out.write(acc);
+        }
+    }
+
+    private static char cellAt(JsonNode row, int y) {
+        if (row == null) return '.';
+        if (row.isTextual()) {
+            String s = row.asText();
+            return y < s.length() ? s.charAt(y) : '.';
+        }
+        JsonNode c = row.get(y);
+        return c == null || c.asText().isEmpty() ? '.' : c.asText().charAt(0);
+    }
+
+    private static int sideCode(JsonNode v) {
+        if (!v.isTextual()) return 0;
+        return switch (v.asText()) {
+            case "X" -> 1;
+            case "O" -> 2;
+            case "DRAW" -> 3;
+            default -> 0;
+        };
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String s) {
+        writeBytes(out, s == null ? null : s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeBytes(ByteArrayOutputStream out, byte[] b) {
+        if (b == null) {
+            writeVarint(out, 0L);
+            return;
+        }
+        writeVarint(out, b.length + 1L);
+        out.write(b, 0, b.length);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long v) {
+        while ((v & ~0x7FL) != 0) {
+            out.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.write((int) v);
+    }
+}
@@ -43,15 +43,17 @@ public class GomokuMessages {
      * 字段：
      *   - roomId ：所属房间；
      *   - gameId ：当前棋局；
-     *   - type   ：事件类型（如 "STATE"、"ERROR"、"TIMEOUT"、"TICK" 等）；
-     *   - payload：事件内容（棋盘状态或错误信息）。
+     *   - type   ：事件类型（如 "STATE"、"DELTA"、"SNAPSHOT"、"ERROR"、"TIMEOUT"、"CLOCK"、"TICK" 等）；
+     *   - seq    ：房间事件序号（STATE/DELTA/SNAPSHOT 携带，房间内单调递增；CLOCK/TICK/ERROR 等瞬时事件为 null）；
+     *   - payload：事件内容（棋盘状态、增量或错误信息）。
      */
     @Data
     public static class BroadcastEvent {
         private String roomId;
         private String gameId;
-        private String type;        // "STATE" / "ERROR"
-        private Object payload;     // 这里会放 GomokuState 或 错误信息
+        private String type;        // "STATE" / "DELTA" / "SNAPSHOT" / "ERROR"
+        private Long seq;           // 房间事件序号；前端发现缺口时发 ResumeMessages.SyncCmd 补齐
+        private Object payload;     // 这里会放 GomokuState / StateDelta / 快照 或 错误信息
     }
 
     /**
@@ -0,0 +1,47 @@
+package com.gamehub.gameservice.games.gomoku.interfaces.ws.dto;
+
+import com.gamehub.gameservice.games.gomoku.interfaces.http.dto.RoomSummary;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 大厅实时房间列表 DTO
+ * 协议约定：
+ *  - 客户端先订阅 /topic/lobby（增量）与 /user/queue/gomoku.lobby（首帧），再向 /app/gomoku.lobby 发任意消息，
+ *    服务端点对点回 LobbySnapshot（当前可加入的房间）；
+ *  - 之后 /topic/lobby 按节流周期推送 LobbyUpdate，每个房间一个周期内至多一条事件（合并为最终状态）；
+ *  - 事件类型：CREATED / UPDATED（房间可加入，room 为最新摘要）、FILLED（已满员）、CLOSED（已解散），
+ *    均为幂等的“按 roomId 覆盖/移除”，客户端可据 at 丢弃早于首帧的事件。
+ */
+public interface LobbyMessages {
+
+    /** 首帧：当前可加入的房间（按创建时间倒序） */
+    @Data @NoArgsConstructor @AllArgsConstructor
+    class LobbySnapshot {
+        private List<RoomSummary> rooms;
+        /** 服务端生成时间（毫秒） */
+        private long at;
+    }
+
+    /** 单个房间的变化 */
+    @Data @NoArgsConstructor @AllArgsConstructor
+    class LobbyEvent {
+        /** CREATED / UPDATED / FILLED / CLOSED */
+        private String type;
+        private String roomId;
+        /** CREATED / UPDATED 时为房间摘要，其余为 null */
+        private RoomSummary room;
+        /** 服务端读取该房间状态的时间（毫秒） */
+        private long at;
+    }
+
+    /** 一个节流周期内的全部房间变化（同一房间只保留最终状态） */
+    @Data @NoArgsConstructor @AllArgsConstructor
+    class LobbyUpdate {
+        private List<LobbyEvent> events;
+        private long at;
+    }
+}
@@ -1,13 +1,17 @@
 package com.gamehub.gameservice.games.gomoku.interfaces.ws.dto;
 
 import com.gamehub.gameservice.application.user.UserProfileView;
+import com.gamehub.gameservice.games.gomoku.domain.dto.StateDelta;
 import lombok.*;
 
 /**
  * V5.2 刷新后重回棋局 —— 恢复握手与全量同步 DTO
  * 协议约定：
  *  - 客户端在刷新/重连后，向 /app/gomoku.resume 发送 ResumeCmd（带 roomId，seatKey 可空）。
- *  - 服务端点对点（/user/queue/gomoku.full）回 FullSync；之后继续靠原来的广播事件（STATE/TICK/TIMEOUT）。
+ *  - 服务端点对点（/user/queue/gomoku.full）回 FullSync；之后继续靠原来的广播事件（STATE/DELTA/TICK/TIMEOUT）。
+ *  - 广播事件带房间序号；客户端发现缺口时发 SyncCmd 到 /app/gomoku.sync，服务端回 SyncReply。
+ *  - 校时：客户端发 TimeSyncCmd 到 /app/gomoku.time，服务端回 TimeSync（/user/queue/gomoku.time），
+ *    前端据此修正本地时钟偏移，再按 CLOCK/DELTA 中的绝对截止时间渲染倒计时。
  *
  * 迁移友好：
  *  - seatKey 现在是“房间内的座位令牌”，未来可被用户登录态的 roomTicket 替换；本 DTO 不变。
@@ -77,6 +81,8 @@ public interface ResumeMessages {
         private Character sideToMove;        // 当前执子；已结束可为 null
         /** 回合序号（与倒计时 / 超时判定对应） */
         private long      turnSeq;           // 回合序号（与倒计时对应）
+        /** 房间事件序号基线：之后的广播事件 seq 应从 eventSeq+1 起连续 */
+        private long      eventSeq;
         /** 本回合截止时间（毫秒时间戳），未启用计时则为 null */
         private Long      deadlineEpochMs;   // 截止时间（非计时可为 null）
         /** 服务器发送本快照时的时间戳，前端可用于校时 */
@@ -96,4 +102,49 @@ public interface ResumeMessages {
         @Data @AllArgsConstructor
         public static class BoardView { public int size; public char[][] cells; }
     }
+
+    @Data @NoArgsConstructor @AllArgsConstructor
+    class SyncCmd {
+        /** 房间ID（必填） */
+        private String roomId;
+        /** 客户端已应用的最后一个事件序号 */
+        private long sinceSeq;
+    }
+
+    /**
+     * 序号缺口补齐结果（通过 /user/queue/gomoku.sync 推送给前端）。
+     * deltas 与 full 二选一：
+     *  - deltas：sinceSeq 之后的全部增量仍在日志中，按序应用即可；
+     *  - full  ：区间内含全量事件或增量已被淘汰，用完整快照覆盖本地状态，并以 full.eventSeq 作为新基线。
+     */
+    @Data
+    @Builder
+    class SyncReply {
+        /** 房间ID */
+        private String roomId;
+        /** 补齐后的最新序号 */
+        private long seq;
+        /** 缺失的增量（升序）；为 null 时看 full */
+        private java.util.List<StateDelta> deltas;
+        /** 完整快照（无法只靠增量补齐时） */
+        private FullSync full;
+    }
+
+    @Data @NoArgsConstructor @AllArgsConstructor
+    class TimeSyncCmd {
+        /** 客户端发送时的本地时间（毫秒），原样带回 */
+        private long clientTime;
+    }
+
+    /**
+     * 校时结果（/user/queue/gomoku.time 或 GET /api/gomoku/time）。
+     * 前端计算：rtt = now - clientTime；offset = serverTime + rtt / 2 - now（取多次中 rtt 最小的一次）。
+     */
+    @Data @NoArgsConstructor @AllArgsConstructor
+    class TimeSync {
+        /** 请求中的客户端时间 */
+        private long clientTime;
+        /** 服务端处理时的时间（毫秒） */
+        private long serverTime;
+    }
 }
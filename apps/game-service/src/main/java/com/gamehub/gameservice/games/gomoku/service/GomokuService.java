@@ -114,6 +114,45 @@ public interface GomokuService {
      */
     GomokuSnapshot snapshot(String roomId);
 
+    /**
+     * 房间快照的 JSON 文本（与 {@link #snapshot} 同源；同一快照版本只编码一次，
+     * 供 SNAPSHOT 广播与 REST 房间视图直接复用，避免每次重新序列化）。
+     */
+    String snapshotJson(String roomId);
+
+    /**
+     * 丢弃本节点内存中的房间副本，下次访问时从 Redis 重建。
+     * 用于落子提交被 Redis 权威状态拒绝后的纠偏。
+     * @param roomId 房间ID
+     */
+    void evictLocal(String roomId);
+
+    /**
+     * 回收空闲/已过期房间（由回收器经房间指令路由投递，在归属节点的房间邮箱内执行）。
+     * 执行前复核：期间又有活动则放弃。
+     * @param roomId     房间ID
+     * @param idleBefore 空闲判定时间点（epoch millis），最近活动早于它才回收
+     * @return 回收原因（"idle" 空闲超时 / "expired" 房间 Hash 已过期，仅剩残留键）；未回收为 null
+     */
+    String reapRoom(String roomId, long idleBefore);
+
+    /**
+     * 观战：登记为房间观战者（观战人数计入快照 spectatorCount）
+     * @param roomId 房间ID
+     * @param userId 观战用户ID
+     * @return 登记后的观战人数
+     * @throws IllegalArgumentException 房间不存在
+     * @throws IllegalStateException 用户是房间内的玩家，或观战人数已满
+     */
+    long spectate(String roomId, String userId);
+
+    /**
+     * 结束观战（主动离开或观战连接断开）
+     * @param roomId 房间ID
+     * @param userId 观战用户ID
+     */
+    void leaveSpectate(String roomId, String userId);
+
     /** 缓存房间内指定用户的资料（从用户域获取后写入房间缓存） */
     void cacheUserProfile(String roomId, String userId);
 
@@ -189,7 +228,7 @@ public interface GomokuService {
     boolean isUserInRoom(String roomId, String userId);
 
     /**
-     * 房主踢出玩家
+     * 房主踢出玩家（只改房间状态，不断开被踢玩家的连接）
      * @param roomId 房间ID
      * @param ownerUserId 房主用户ID（调用者）
      * @param targetUserId 被踢玩家用户ID
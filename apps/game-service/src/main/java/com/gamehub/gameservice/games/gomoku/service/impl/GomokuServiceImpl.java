@@ -11,20 +11,22 @@ import com.gamehub.gameservice.games.gomoku.domain.enums.Rule;
 import com.gamehub.gameservice.games.gomoku.domain.enums.RoomPhase;
 import com.gamehub.gameservice.games.gomoku.domain.model.*;
 import com.gamehub.gameservice.games.gomoku.domain.repository.GameStateRepository;
+import com.gamehub.gameservice.games.gomoku.domain.repository.RoomBundleReader;
 import com.gamehub.gameservice.games.gomoku.domain.repository.RoomRepository;
 import com.gamehub.gameservice.games.gomoku.domain.repository.TurnRepository;
 import com.gamehub.gameservice.games.gomoku.domain.rule.GomokuJudge;
 import com.gamehub.gameservice.games.gomoku.domain.rule.GomokuJudgeRenju;
 import com.gamehub.gameservice.games.gomoku.domain.rule.Outcome;
 import com.gamehub.gameservice.games.gomoku.service.GomokuService;
+import com.gamehub.gameservice.games.gomoku.application.LobbyFeed;
 import com.gamehub.gameservice.games.gomoku.application.TurnClockCoordinator;
+import com.gamehub.gameservice.platform.cluster.RoomLeaseManager;
 import com.gamehub.gameservice.platform.ongoing.OngoingGameInfo;
 import com.gamehub.gameservice.platform.ongoing.OngoingGameTracker;
 import com.gamehub.session.SessionRegistry;
-import com.gamehub.session.model.WebSocketSessionInfo;
-import com.gamehub.gameservice.platform.ws.WebSocketDisconnectHelper;
 import com.gamehub.gameservice.games.gomoku.domain.constants.GameMessages;
 import io.micrometer.common.util.StringUtils;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.ObjectProvider;
@@ -50,8 +52,8 @@ public class GomokuServiceImpl implements GomokuService {
     private static final Duration USER_PROFILE_CACHE_TTL = Duration.ofMinutes(30);
 
 
-    // ====== 内存房间表 ======
-    private final Map<String, Room> rooms = new ConcurrentHashMap<>();
+    // ====== 内存房间表（有界缓存，见 RoomCache） ======
+    private final RoomCache rooms;
 
     // --- 强随机 & Base64URL（seatKey）
     private final SecureRandom seatKeyRnd = new SecureRandom();
@@ -61,9 +63,9 @@ public class GomokuServiceImpl implements GomokuService {
     private final RoomRepository roomRepo;
     private final GameStateRepository gameRepo;
     private final TurnRepository turnRepo;
+    private final RoomBundleReader roomBundleReader;
     private final UserDirectoryService userDirectoryService;
     private final SessionRegistry sessionRegistry;
-    private final WebSocketDisconnectHelper disconnectHelper;
     private ObjectProvider<TurnClockCoordinator> coordinatorProvider;
 
     @Autowired
@@ -75,8 +77,50 @@ public class GomokuServiceImpl implements GomokuService {
     @Value("${gomoku.turn.seconds:30}")
     private int turnSeconds;
 
+    /** 单房间观战人数上限 */
+    @Value("${gomoku.spectate.max-per-room:5000}")
+    private int maxSpectators;
+
+    /** 观战登记租约（毫秒），由订阅观战主题的节点按心跳续期 */
+    @Value("${gomoku.spectate.lease-ms:45000}")
+    private long spectatorLeaseMs;
+
     private final OngoingGameTracker ongoingGameTracker;
 
+    /** 房间归属租约：本节点只在持有期内把房间留在内存 */
+    private final RoomLeaseManager leases;
+
+    /** 房间快照按版本记忆化（快照对象 + 编码后的 JSON） */
+    private final SnapshotCache snapshots;
+
+    /** 大厅实时列表：建房/销毁不经房间广播，直接标记 */
+    private final LobbyFeed lobby;
+
+    /** 同一房间两次写活跃度索引的最小间隔（毫秒） */
+    private static final long ACTIVITY_TOUCH_INTERVAL_MS = 60_000L;
+
+    /** roomId -> 本节点最近一次写活跃度索引的时间 */
+    private final Map<String, Long> lastTouched = new ConcurrentHashMap<>();
+
+    /**
+     * 归属变化时丢弃内存房间：获得归属时可能残留上一持有期的旧副本，失去归属后副本不再被维护。
+     */
+    @PostConstruct
+    void registerLeaseListener() {
+        leases.addListener(new RoomLeaseManager.LeaseListener() {
+            @Override
+            public void onAcquired(String roomId) {
+                rooms.invalidate(roomId);
+            }
+
+            @Override
+            public void onLost(String roomId) {
+                rooms.forget(roomId);
+                lastTouched.remove(roomId);
+            }
+        });
+    }
+
 
     /**
      * 创建新房间
@@ -109,7 +153,8 @@ public class GomokuServiceImpl implements GomokuService {
         meta.setCreatedAt(now); // 房间创建时间（统一在 Redis 中排序）
         roomRepo.saveRoomMeta(roomId, meta, ROOM_TTL);
         // 在线房间索引：用于大厅列表按创建时间倒序分页
-        roomRepo.addRoomIndex(roomId, now, ROOM_TTL);
+        roomRepo.addRoomIndex(roomId, now);
+        lobby.touch(roomId);
 
         // 3.1 记录用户正在进行中的房间，供前端“继续游戏”入口使用
         ongoingGameTracker.save(ownerUserId, OngoingGameInfo.gomoku(roomId));
@@ -137,23 +182,45 @@ public class GomokuServiceImpl implements GomokuService {
         // 7) 缓存房主用户资料，供后续 snapshot 直接读取（避免 WS 场景调用 Feign）
         cacheUserProfile(roomId, ownerUserId);
 
-        // 6) 内存快照：为现有控制器保留
+        // 6) 内存快照：创建节点即房间归属节点，房间常驻本节点内存
+        leases.acquire(roomId);
         rooms.put(roomId, new Room(
                 roomId, m, ru, (m == Mode.PVE ? ai : 0),
                 new GomokuAI(3, ru == Rule.RENJU),gameId
         ));
+        // 房主已占座：钉在内存（获得归属时会清空钉住状态，因此放在写入内存之后）
+        rooms.pin(roomId, RoomCache.PIN_SEATED);
 
         return roomId;
     }
 
     /**
-     * 获取房间（内存优先，未命中则从 Redis 加载）
+     * 获取房间（内存优先，未命中则从 Redis 单飞加载）
      */
     private Room room(String roomId) {
-        // 1) 内存命中
-        Room cached = rooms.get(roomId);
-        if (cached != null) return cached;
+        touch(roomId);
+        return rooms.get(roomId, this::loadRoom);
+    }
+
+    /**
+     * 记录房间活跃（活跃度索引，供回收器判断空闲）；本节点对同一房间每 ACTIVITY_TOUCH_INTERVAL_MS 至多写一次
+     */
+    private void touch(String roomId) {
+        long now = System.currentTimeMillis();
+        Long last = lastTouched.get(roomId);
+        if (last != null && now - last < ACTIVITY_TOUCH_INTERVAL_MS) return;
+        lastTouched.put(roomId, now);
+        try {
+            roomRepo.touchRoom(roomId, now);
+        } catch (Exception e) {
+            log.debug("记录房间活跃失败: roomId={}, err={}", roomId, e.getMessage());
+        }
+    }
 
+    /**
+     * 从 Redis 重建房间（仅由 RoomCache 在未命中时调用，不得回写缓存）
+     */
+    private Room loadRoom(String roomId) {
         // 2) 取房间元信息（模式/规则/AI方/当前盘 gameId、比分、index）
         RoomMeta meta = roomRepo.getRoomMeta(roomId)
                 .orElseThrow(() -> new IllegalArgumentException("ROOM_NOT_FOUND: " + roomId));
@@ -170,8 +237,11 @@ public class GomokuServiceImpl implements GomokuService {
         // 3) 用已有转换器还原 Room（其中 series.current 已用 meta 构造）
         Room r = RoomMetaConverter.toRoom(meta);
 
-        // 4) 回灌座位绑定（用于刷新重入）
+        // 4) 回灌座位绑定（用于刷新重入）；有人占座的房间钉在内存（条目写入缓存时生效）
         roomRepo.getSeats(roomId).ifPresent(seats -> {
+            if (!seats.occupants().isEmpty()) {
+                rooms.markPinned(roomId, RoomCache.PIN_SEATED);
+            }
             // seatBySession: Map<String,String> -> Map<String,Character>
             if (seats.getSeatBySession() != null && !seats.getSeatBySession().isEmpty()) {
                 for (Map.Entry<String, String> e : seats.getSeatBySession().entrySet()) {
@@ -260,8 +330,10 @@ public class GomokuServiceImpl implements GomokuService {
 
         // 6)（可选）TurnAnchor 仅供计时展示，交由 TurnClockManager 使用时再读，不强灌入 Room
 
-        // 7) 放入缓存返回
-        rooms.put(roomId, r);
+        // 7) 对局进行中的房间钉在内存（条目写入缓存时生效）
+        if (RoomPhase.PLAYING.name().equals(meta.getPhase())) {
+            rooms.markPinned(roomId, RoomCache.PIN_PLAYING);
+        }
         return r;
     }
 
@@ -345,6 +417,8 @@ public class GomokuServiceImpl implements GomokuService {
     @Override
     public GomokuState restart(String roomId) {
         Room r = room(roomId);
+        // 写后持久化：改写 gameId 前先写完已受理的落子
+        gameRepo.flush(roomId);
         String gameId = UUID.randomUUID().toString();
         
         // 更新内存中的Room
@@ -374,7 +448,7 @@ public class GomokuServiceImpl implements GomokuService {
         
         // TurnAnchor的创建交给TurnClockManager处理
         
-        return rooms.get(r.getId()).getSeries().getCurrent().getState();
+        return room(r.getId()).getSeries().getCurrent().getState();
     }
 
     /**
@@ -495,7 +569,7 @@ public class GomokuServiceImpl implements GomokuService {
                 seats.setSeatOSessionId(userId);
             }
             seats.getSeatBySession().put(userId, String.valueOf(side));
-            roomRepo.saveSeats(roomId, seats, ROOM_TTL);
+            saveSeats(roomId, seats);
         } finally {
             // 占座完成后即释放锁，避免短期重复进入被误判
             roomRepo.releaseSeatLock(roomId, side, userId);
@@ -522,7 +596,6 @@ public class GomokuServiceImpl implements GomokuService {
      */
     @Override
     public SeriesView getSeries(String roomId) {
-        roomRepo.getSeries(roomId);
         Room r = room(roomId);
         Game g = r.getSeries().getCurrent();
         GomokuState s = g.getState();
@@ -540,6 +613,8 @@ public class GomokuServiceImpl implements GomokuService {
     @Override
     public GomokuState newGame(String roomId) {
         Room r = room(roomId);
+        // 写后持久化：改写 gameId 前先写完已受理的落子
+        gameRepo.flush(roomId);
         // 1) 取消旧盘 AI 任务
         var old = r.getSeries().getCurrent()!= null ? r.getSeries().getCurrent().getPendingAi() : null;
         if (old != null) old.cancel(false);
@@ -674,7 +749,7 @@ public class GomokuServiceImpl implements GomokuService {
             seats.setSeatOSessionId(userId);
         }
         // TTL 视你的策略，目前与你现有实现一致：48 小时
-        roomRepo.saveSeats(roomId, seats, ROOM_TTL);
+        saveSeats(roomId, seats);
 
         // 3) 同步到内存快照（幂等）
         Room r = room(roomId);
@@ -686,33 +761,77 @@ public class GomokuServiceImpl implements GomokuService {
         return seat;
     }
 
+    /**
+     * 快照版本：构建快照所需的全部输入（turnSeq 在回合锚点内，座位/准备状态在 SeatsBinding 内），
+     * 相等即可复用上次构建的快照与 JSON
+     */
+    private record SnapshotVersion(RoomMeta meta,
+                                   SeatsBinding seats,
+                                   GameStateRecord game,
+                                   TurnAnchor anchor,
+                                   Character sideToMove,
+                                   Long deadline,
+                                   Map<String, UserProfileView> profiles,
+                                   SeriesView series,
+                                   boolean seatXConnected,
+                                   boolean seatOConnected,
+                                   int spectatorCount) {}
+
     /**
      * 生成只读快照（FullSync 数据源）
+     * 说明：一次管道读取房间数据后按版本查本节点快照缓存，版本未变时直接复用，不再重建。
      * @param roomId
      * @return
      */
     @Override
     public GomokuSnapshot snapshot(String roomId) {
         RoomView view = assembleRoomView(roomId);
+        SeatsBinding seats = view.getSeats();
+        String seatXUserId = seats.getSeatXSessionId();
+        String seatOUserId = seats.getSeatOSessionId();
+
+        // 两侧玩家的WebSocket连接状态（一次批量查询）
+        List<String> seatedUsers = new ArrayList<>(2);
+        if (seatXUserId != null && !seatXUserId.isBlank()) seatedUsers.add(seatXUserId);
+        if (seatOUserId != null && !seatOUserId.isBlank()) seatedUsers.add(seatOUserId);
+        Map<String, Boolean> online = sessionRegistry.hasWebSocketSessions(seatedUsers);
+        boolean seatXConnected = seatXUserId != null && online.getOrDefault(seatXUserId, false);
+        boolean seatOConnected = seatOUserId != null && online.getOrDefault(seatOUserId, false);
+
+        SeriesView sv = getSeries(roomId);
+        SnapshotVersion version = new SnapshotVersion(view.getMeta(), seats, view.getGame(), view.getTurnAnchor(),
+                view.getSideToMove(), view.getDeadlineEpochMs(), view.getProfiles(), sv, seatXConnected, seatOConnected,
+                view.getSpectatorCount());
+        return snapshots.get(roomId, version,
+                () -> buildSnapshot(roomId, view, sv, seatXConnected, seatOConnected));
+    }
+
+    /**
+     * 快照的 JSON 文本（同一版本只编码一次，广播与 REST 视图共用）
+     */
+    @Override
+    public String snapshotJson(String roomId) {
+        return snapshots.json(roomId, snapshot(roomId));
+    }
+
+    /**
+     * 由房间视图构建快照（仅在快照版本变化时调用）
+     */
+    private GomokuSnapshot buildSnapshot(String roomId, RoomView view, SeriesView sv,
+                                         boolean seatXConnected, boolean seatOConnected) {
         RoomMeta meta = view.getMeta();
         SeatsBinding seats = view.getSeats();
         GameStateRecord rec = view.getGame();
-        com.gamehub.gameservice.games.gomoku.domain.dto.TurnAnchor anchor = view.getTurnAnchor();
+        TurnAnchor anchor = view.getTurnAnchor();
 
         boolean seatXOccupied = view.isSeatXOccupied();
         boolean seatOOccupied = view.isSeatOOccupied();
         String seatXUserId = seats.getSeatXSessionId();
         String seatOUserId = seats.getSeatOSessionId();
 
-        // 查询两侧玩家的详细信息（优先读缓存，避免 WS 场景调用 Feign）
-        UserProfileView seatXUserInfo = roomRepo.getUserProfile(roomId, seatXUserId).orElse(null);
-        UserProfileView seatOUserInfo = roomRepo.getUserProfile(roomId, seatOUserId).orElse(null);
-
-        // 查询两侧玩家的WebSocket连接状态
-        boolean seatXConnected = seatXUserId != null && !seatXUserId.isBlank() 
-                && !sessionRegistry.getWebSocketSessions(seatXUserId).isEmpty();
-        boolean seatOConnected = seatOUserId != null && !seatOUserId.isBlank() 
-                && !sessionRegistry.getWebSocketSessions(seatOUserId).isEmpty();
+        // 两侧玩家的详细信息（与房间数据同一批次读取的缓存，避免 WS 场景调用 Feign）
+        UserProfileView seatXUserInfo = seatXUserId == null ? null : view.getProfiles().get(seatXUserId);
+        UserProfileView seatOUserInfo = seatOUserId == null ? null : view.getProfiles().get(seatOUserId);
 
         Character sideToMove = view.getSideToMove();
         Long turnSeq = anchor != null ? anchor.getTurnSeq() : 0L;
@@ -751,7 +870,6 @@ public class GomokuServiceImpl implements GomokuService {
             aiSide = meta.getAiPiece().charAt(0);
         }
 
-        SeriesView sv = getSeries(roomId);
         int round = sv.getIndex();
         int scoreX = sv.getBlackWins();
         int scoreO = sv.getWhiteWins();
@@ -788,10 +906,34 @@ public class GomokuServiceImpl implements GomokuService {
                 readyStatus,
                 seatXConnected,
                 seatOConnected,
-                meta.getOwnerUserId()
+                meta.getOwnerUserId(),
+                view.getSpectatorCount()
         );
     }
 
+    /**
+     * 观战：登记观战者（不占座位、不进房间邮箱；人数上限在脚本内原子判断）
+     */
+    @Override
+    public long spectate(String roomId, String userId) {
+        Objects.requireNonNull(userId, "userId must not be null");
+        roomRepo.getRoomMeta(roomId)
+                .orElseThrow(() -> new IllegalArgumentException(GameMessages.ROOM_NOT_FOUND + ": " + roomId));
+        if (isUserInRoom(roomId, userId)) {
+            throw new IllegalStateException(GameMessages.PLAYER_CANNOT_SPECTATE);
+        }
+        long n = roomRepo.addSpectator(roomId, userId, maxSpectators, Duration.ofMillis(spectatorLeaseMs));
+        if (n < 0) {
+            throw new IllegalStateException(GameMessages.SPECTATORS_FULL);
+        }
+        return n;
+    }
+
+    @Override
+    public void leaveSpectate(String roomId, String userId) {
+        roomRepo.removeSpectator(roomId, userId);
+    }
+
     /**
      * 缓存用户信息到 Redis
      */
@@ -815,17 +957,22 @@ public class GomokuServiceImpl implements GomokuService {
 
     /**
      * 组装房间视图（用于 snapshot）
+     * 说明：meta / seats / 当前盘 / 回合锚点 / 玩家资料 由 RoomBundleReader 单次管道读取，
+     * 当前盘 gameId 优先取本节点内存值作为提示。
      */
     private RoomView assembleRoomView(String roomId) {
-        RoomMeta meta = roomRepo.getRoomMeta(roomId)
+        Room local = rooms.getIfPresent(roomId);
+        String gameIdHint = local == null ? null : local.getSeries().getCurrent().getGameId();
+        RoomBundle bundle = roomBundleReader.load(roomId, gameIdHint)
                 .orElseThrow(() -> new IllegalArgumentException("ROOM_NOT_FOUND: " + roomId));
+        RoomMeta meta = bundle.getMeta();
 
-        SeatsBinding seats = roomRepo.getSeats(roomId).orElseGet(SeatsBinding::new);
+        SeatsBinding seats = bundle.getSeats() == null ? new SeatsBinding() : bundle.getSeats();
         boolean seatXOccupied = seats.getSeatXSessionId() != null && !seats.getSeatXSessionId().isBlank();
         boolean seatOOccupied = seats.getSeatOSessionId() != null && !seats.getSeatOSessionId().isBlank();
 
         String gameId = meta.getGameId();
-        GameStateRecord rec = gameRepo.get(roomId, gameId)
+        GameStateRecord rec = Optional.ofNullable(bundle.getGame())
                 .orElseGet(() -> {
                     GameStateRecord r0 = new GameStateRecord();
                     r0.setRoomId(roomId);
@@ -839,10 +986,24 @@ public class GomokuServiceImpl implements GomokuService {
                     return r0;
                 });
 
-        TurnAnchor anchor = turnRepo.get(roomId).orElse(null);
+        TurnAnchor anchor = bundle.getTurnAnchor();
         Long deadline = null;
         Character sideToMove = null;
-        if (anchor != null) {
+        // 写后持久化：Redis 可能落后于内存，叠加已受理但未落盘的最新一步
+        MoveCommit unflushed = gameRepo.latestUnflushed(roomId)
+                .filter(c -> c.gameId().equals(gameId))
+                .orElse(null);
+        if (unflushed != null) {
+            GameStateRecord after = unflushed.after();
+            rec.setBoard(after.getBoard());
+            rec.setCurrent(after.getCurrent());
+            rec.setLastMove(after.getLastMove());
+            rec.setOver(after.isOver());
+            rec.setWinner(after.getWinner());
+            rec.setStep(after.getStep());
+            deadline = rec.isOver() ? null : unflushed.deadlineMillis();
+            sideToMove = rec.isOver() || rec.getCurrent() == null ? null : rec.getCurrent().charAt(0);
+        } else if (anchor != null) {
             deadline = anchor.getDeadlineEpochMs();
             sideToMove = (anchor.getSide() == null || anchor.getSide().isBlank()) ? null : anchor.getSide().charAt(0);
         } else if (!rec.isOver() && rec.getCurrent() != null && !rec.getCurrent().isBlank()) {
@@ -857,7 +1018,9 @@ public class GomokuServiceImpl implements GomokuService {
                 seatXOccupied,
                 seatOOccupied,
                 sideToMove,
-                deadline
+                deadline,
+                bundle.getProfiles(),
+                bundle.getSpectatorCount()
         );
     }
     /**
@@ -909,11 +1072,11 @@ public class GomokuServiceImpl implements GomokuService {
             seats.getSeatBySession().remove(userId);
         }
         // 回写座位绑定并释放座位锁
-        roomRepo.saveSeats(roomId, seats, ROOM_TTL);
+        saveSeats(roomId, seats);
         roomRepo.releaseSeatLock(roomId, freedSeat, userId);
 
         // 释放座位（内存）
-        Room local = rooms.get(roomId);
+        Room local = rooms.getIfPresent(roomId);
         if (local != null) {
             local.getSeatBySession().remove(userId);
             if (isX) {
@@ -1005,11 +1168,16 @@ public class GomokuServiceImpl implements GomokuService {
         return r;
     }
 
+    @Override
+    public void evictLocal(String roomId) {
+        rooms.invalidate(roomId);
+    }
+
     /**
      * 销毁房间（清理所有相关数据）
      */
     private void destroyRoom(String roomId) {
-        rooms.remove(roomId);
+        rooms.forget(roomId);
         roomRepo.deleteRoom(roomId);
         roomRepo.deleteSeats(roomId);
         roomRepo.deleteSeatKeys(roomId);
@@ -1019,6 +1187,49 @@ public class GomokuServiceImpl implements GomokuService {
         gameRepo.deleteAll(roomId);
         turnRepo.delete(roomId);
         stopClock(roomId);
+        roomRepo.removeRoomIndex(roomId);
+        lobby.touch(roomId);
+        lastTouched.remove(roomId);
+        snapshots.invalidate(roomId);
+        leases.release(roomId);
+    }
+
+    /**
+     * 回收空闲/已过期房间：复核空闲后清理玩家“进行中”指针，再走与解散相同的销毁流程
+     */
+    @Override
+    public String reapRoom(String roomId, long idleBefore) {
+        RoomMeta meta = roomRepo.getRoomMeta(roomId).orElse(null);
+        String reason;
+        if (meta == null) {
+            reason = "expired";
+        } else {
+            OptionalLong last = roomRepo.lastActivity(roomId);
+            long lastActive = last.isPresent() ? last.getAsLong() : meta.getCreatedAt();
+            if (lastActive > idleBefore) {
+                return null;
+            }
+            reason = "idle";
+        }
+        SeatsBinding seats = roomRepo.getSeats(roomId).orElse(null);
+        if (seats != null) {
+            clearOngoingIfHere(seats.getSeatXSessionId(), roomId);
+            clearOngoingIfHere(seats.getSeatOSessionId(), roomId);
+        }
+        if (meta != null) {
+            clearOngoingIfHere(meta.getOwnerUserId(), roomId);
+        }
+        destroyRoom(roomId);
+        log.info("回收房间: roomId={}, reason={}", roomId, reason);
+        return reason;
+    }
+
+    /** 仅当用户的“进行中”指针仍指向该房间时清除 */
+    private void clearOngoingIfHere(String userId, String roomId) {
+        if (userId == null || userId.isBlank()) return;
+        ongoingGameTracker.find(userId)
+                .filter(info -> roomId.equals(info.getRoomId()))
+                .ifPresent(info -> ongoingGameTracker.clear(userId));
     }
 
     /**
@@ -1055,6 +1266,7 @@ public class GomokuServiceImpl implements GomokuService {
 
     /**
      * 房主踢出玩家
+     * 只改房间状态；通知被踢玩家并断开其连接由调用方经 WebSocketDisconnectHelper 异步完成。
      * @param roomId 房间ID
      * @param ownerUserId 房主用户ID（调用者）
      * @param targetUserId 被踢玩家用户ID
@@ -1126,10 +1338,10 @@ public class GomokuServiceImpl implements GomokuService {
         if (seats.getSeatBySession() != null) {
             seats.getSeatBySession().remove(targetUserId);
         }
-        roomRepo.saveSeats(roomId, seats, ROOM_TTL);
+        saveSeats(roomId, seats);
 
         // 10. 释放座位（内存）
-        Room local = rooms.get(roomId);
+        Room local = rooms.getIfPresent(roomId);
         if (local != null) {
             local.getSeatBySession().remove(targetUserId);
             if (isX) {
@@ -1184,24 +1396,7 @@ public class GomokuServiceImpl implements GomokuService {
         // 17. 重置准备状态
         resetAllReady(roomId);
 
-        // 18. 强制断开被踢玩家的WebSocket连接
-        try {
-            java.util.List<WebSocketSessionInfo> sessions = sessionRegistry.getWebSocketSessions(targetUserId);
-            if (sessions != null && !sessions.isEmpty()) {
-                for (WebSocketSessionInfo session : sessions) {
-                    // 发送踢人通知
-                    disconnectHelper.sendKickMessage(targetUserId, session.getSessionId(), GameMessages.KICKED_OUT_REASON);
-                    // 强制断开连接
-                    disconnectHelper.forceDisconnect(session.getSessionId());
-                }
-                log.info("已断开被踢玩家的WebSocket连接: targetUserId={}, sessionCount={}", targetUserId, sessions.size());
-            }
-        } catch (Exception e) {
-            log.warn("断开被踢玩家WebSocket连接失败: targetUserId={}", targetUserId, e);
-            // 不影响踢人流程，继续执行
-        }
-
-        // 19. 清理被踢玩家的ongoing-game
+        // 18. 清理被踢玩家的ongoing-game
         ongoingGameTracker.clear(targetUserId);
 
         return new KickResult(true, null, freedSeat, newOwner);
@@ -1257,7 +1452,7 @@ public class GomokuServiceImpl implements GomokuService {
         boolean currentReady = seats.getReadyByUserId().getOrDefault(userId, false);
         boolean newReady = !currentReady;
         seats.getReadyByUserId().put(userId, newReady);
-        roomRepo.saveSeats(roomId, seats, ROOM_TTL);
+        saveSeats(roomId, seats);
         return newReady;
     }
 
@@ -1293,7 +1488,7 @@ public class GomokuServiceImpl implements GomokuService {
         SeatsBinding seats = roomRepo.getSeats(roomId).orElseGet(SeatsBinding::new);
         if (seats.getReadyByUserId() != null) {
             seats.getReadyByUserId().replaceAll((k, v) -> false);
-            roomRepo.saveSeats(roomId, seats, ROOM_TTL);
+            saveSeats(roomId, seats);
         }
     }
 
@@ -1378,15 +1573,31 @@ public class GomokuServiceImpl implements GomokuService {
         }
     }
 
+    /**
+     * 写入座位绑定，并按是否有人占座钉住/放开内存房间
+     */
+    private void saveSeats(String roomId, SeatsBinding seats) {
+        roomRepo.saveSeats(roomId, seats, ROOM_TTL);
+        rooms.pinIf(roomId, RoomCache.PIN_SEATED, !seats.occupants().isEmpty());
+    }
+
     /**
      * 设置房间状态
      */
     @Override
     public void setRoomPhase(String roomId, RoomPhase phase) {
+        // 写后持久化：改写 phase 前先写完已受理的落子（落子脚本按 phase 校验）
+        gameRepo.flush(roomId);
         RoomMeta meta = roomRepo.getRoomMeta(roomId)
                 .orElseThrow(() -> new IllegalArgumentException("ROOM_NOT_FOUND: " + roomId));
         meta.setPhase(phase.name());
         roomRepo.saveRoomMeta(roomId, meta, ROOM_TTL);
+        // 对局进行中钉在内存，其余阶段恢复可淘汰
+        if (phase == RoomPhase.PLAYING) {
+            rooms.pin(roomId, RoomCache.PIN_PLAYING);
+        } else {
+            rooms.unpin(roomId, RoomCache.PIN_PLAYING);
+        }
     }
 
     /**
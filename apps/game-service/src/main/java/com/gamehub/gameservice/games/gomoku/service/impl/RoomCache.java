@@ -0,0 +1,213 @@
+package com.gamehub.gameservice.games.gomoku.service.impl;
+
+import com.gamehub.gameservice.games.gomoku.domain.model.Room;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * RoomCache
+ * -------------------------------------------------------
+ * 本节点内存房间表（有界）：替代原先无上限的 ConcurrentHashMap<String, Room>。
+ *
+ * 策略：
+ *  - Caffeine（W-TinyLFU）按估算内存权重限额（gomoku.room.cache.max-weight，单位字节）；
+ *  - 空闲过期（gomoku.room.cache.idle-ttl），且不超过 Redis 房间 TTL，内存副本不会比 Redis 活得久；
+ *  - 钉住（pin）：有人占座、对局进行中、AI 待落子的房间权重记 0 且不空闲过期，不会被淘汰；
+ *    钉住状态不比内存条目活得久：丢弃/遗忘条目、加载失败时一并清除，重新加载时由 loader 按 Redis 状态重新登记；
+ *  - 未命中时单飞加载（同一 roomId 并发只触发一次 Redis 重建）；
+ *  - 命中率/大小/淘汰指标经 Micrometer 暴露（gomoku.rooms.*）。
+ */
+@Slf4j
+@Component
+public class RoomCache {
+
+    /** 钉住原因：有玩家占座 */
+    public static final String PIN_SEATED = "seated";
+    /** 钉住原因：对局进行中 */
+    public static final String PIN_PLAYING = "playing";
+    /** 钉住原因：AI 待落子 */
+    public static final String PIN_AI = "ai";
+
+    /** 单个房间的基础估算开销（字节）：Room/Series/Game/Board/AI 等对象 */
+    private static final int ROOM_BASE_BYTES = 4096;
+    /** 每条座位/seatKey 映射的估算开销（字节） */
+    private static final int SEAT_ENTRY_BYTES = 128;
+    /** Redis 房间 TTL（与 GomokuServiceImpl 保持一致） */
+    private static final Duration ROOM_TTL = Duration.ofHours(48);
+
+    /** roomId -> 钉住原因集合 */
+    private final Map<String, Set<String>> pins = new ConcurrentHashMap<>();
+
+    private final Cache<String, Room> cache;
+
+    public RoomCache(@Value("${gomoku.room.cache.max-weight:67108864}") long maxWeight,
+                     @Value("${gomoku.room.cache.idle-ttl:30m}") Duration idleTtl,
+                     MeterRegistry meterRegistry) {
+        long idleNanos = (idleTtl.compareTo(ROOM_TTL) > 0 ? ROOM_TTL : idleTtl).toNanos();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((String roomId, Room room) -> isPinned(roomId) ? 0 : weigh(room))
+                .expireAfter(new Expiry<String, Room>() {
+                    @Override
+                    public long expireAfterCreate(String roomId, Room room, long currentTime) {
+                        return idleFor(roomId);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String roomId, Room room, long currentTime, long currentDuration) {
+                        return idleFor(roomId);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String roomId, Room room, long currentTime, long currentDuration) {
+                        return idleFor(roomId);
+                    }
+
+                    private long idleFor(String roomId) {
+                        return isPinned(roomId) ? Long.MAX_VALUE : idleNanos;
+                    }
+                })
+                .removalListener((String roomId, Room room, RemovalCause cause) -> {
+                    if (cause.wasEvicted()) {
+                        log.debug("内存房间被淘汰: roomId={}, cause={}", roomId, cause);
+                    }
+                })
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "gomoku.rooms");
+        Gauge.builder("gomoku.rooms.weight", cache,
+                        c -> c.policy().eviction().map(e -> e.weightedSize().orElse(0L)).orElse(0L))
+                .description("内存房间估算占用（字节，不含钉住房间）")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("gomoku.rooms.pinned", pins, Map::size)
+                .description("被钉住的房间数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 取房间；未命中时用 loader 单飞加载（loader 内不得再访问本缓存）。
+     * loader 抛出的运行时异常原样透传，且不会缓存任何结果；加载失败时清除 loader 登记的钉住原因。
+     */
+    public Room get(String roomId, Function<String, Room> loader) {
+        Room room;
+        try {
+            room = cache.get(roomId, loader);
+        } catch (RuntimeException e) {
+            dropPinsIfAbsent(roomId);
+            throw e;
+        }
+        if (room == null) {
+            dropPinsIfAbsent(roomId);
+        }
+        return room;
+    }
+
+    /** 仅查本地，不加载 */
+    public Room getIfPresent(String roomId) {
+        return cache.getIfPresent(roomId);
+    }
+
+    public void put(String roomId, Room room) {
+        cache.put(roomId, room);
+    }
+
+    /** 丢弃内存副本与钉住状态（下次加载时由 loader 按 Redis 状态重新登记） */
+    public void invalidate(String roomId) {
+        pins.remove(roomId);
+        cache.invalidate(roomId);
+    }
+
+    /** 房间销毁/不再归本节点：丢弃内存副本与全部钉住状态 */
+    public void forget(String roomId) {
+        invalidate(roomId);
+    }
+
+    /**
+     * 钉住房间（幂等）；已在内存中的条目立即重算权重与过期时间
+     */
+    public void pin(String roomId, String reason) {
+        if (markPinned(roomId, reason)) {
+            refresh(roomId);
+        }
+    }
+
+    /**
+     * 取消某个原因的钉住；全部原因都解除后房间重新参与淘汰
+     */
+    public void unpin(String roomId, String reason) {
+        boolean[] changed = {false};
+        pins.computeIfPresent(roomId, (k, reasons) -> {
+            changed[0] = reasons.remove(reason);
+            return reasons.isEmpty() ? null : reasons;
+        });
+        if (changed[0]) {
+            refresh(roomId);
+        }
+    }
+
+    /**
+     * 只登记钉住原因、不触碰缓存条目：用于加载过程中（loader 内不能回写缓存），条目写入时自然生效
+     * @return true 表示新增了原因
+     */
+    public boolean markPinned(String roomId, String reason) {
+        return pins.computeIfAbsent(roomId, k -> ConcurrentHashMap.newKeySet()).add(reason);
+    }
+
+    public boolean isPinned(String roomId) {
+        Set<String> reasons = pins.get(roomId);
+        return reasons != null && !reasons.isEmpty();
+    }
+
+    /** 当前内存房间数（估算） */
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * 按条件钉住/取消钉住
+     */
+    public void pinIf(String roomId, String reason, boolean pinned) {
+        if (pinned) {
+            pin(roomId, reason);
+        } else {
+            unpin(roomId, reason);
+        }
+    }
+
+    // ------------------------------------------------------------------
+
+    /** 条目不在内存中时清除钉住状态（加载失败/未返回房间） */
+    private void dropPinsIfAbsent(String roomId) {
+        if (cache.getIfPresent(roomId) == null) {
+            pins.remove(roomId);
+        }
+    }
+
+    /** 原值写回一次，触发权重与过期时间重算 */
+    private void refresh(String roomId) {
+        cache.asMap().computeIfPresent(roomId, (k, v) -> v);
+    }
+
+    private static int weigh(Room room) {
+        int entries = room.getSeatBySession().size()
+                + room.getSeatKeyToSeat().size()
+                + room.getSeatToSessionId().size();
+        return ROOM_BASE_BYTES + entries * SEAT_ENTRY_BYTES;
+    }
+}
@@ -0,0 +1,114 @@
+package com.gamehub.gameservice.games.gomoku.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gamehub.gameservice.games.gomoku.domain.model.GomokuSnapshot;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * SnapshotCache
+ * -------------------------------------------------------
+ * 房间快照的按版本记忆化：同一版本的 {@link GomokuSnapshot} 只构建一次，JSON 只编码一次。
+ *
+ * 模型：
+ *  - 每房间一个条目：版本 + 快照对象 + 编码后的 JSON（首次需要时才编码）；
+ *  - 版本由调用方给出（构建快照所需的全部输入：meta、座位、当前盘、回合锚点（含 turnSeq）、资料、比分、在线状态），
+ *    与条目版本相等即命中，否则重建并替换；版本取自 Redis 最新读取，多节点下不会读到别的节点的旧快照；
+ *  - 缓存的快照被多个订阅者/请求共享，调用方只读，不得修改（cells 等数组）；
+ *  - 指标：gomoku.snapshot.requests{result=hit|build}、gomoku.snapshot.encodes。
+ */
+@Component
+public class SnapshotCache {
+
+    /** 单房间条目：版本、快照与惰性编码的 JSON */
+    private static final class Entry {
+        final Object version;
+        final GomokuSnapshot snapshot;
+        volatile String json;
+
+        Entry(Object version, GomokuSnapshot snapshot) {
+            this.version = version;
+            this.snapshot = snapshot;
+        }
+    }
+
+    private final Cache<String, Entry> cache;
+    private final ObjectMapper objectMapper;
+
+    private final Counter hits;
+    private final Counter builds;
+    private final Counter encodes;
+
+    public SnapshotCache(ObjectMapper objectMapper,
+                         MeterRegistry meterRegistry,
+                         @Value("${gomoku.snapshot.cache.max-size:10000}") long maxSize,
+                         @Value("${gomoku.snapshot.cache.idle-ttl:10m}") Duration idleTtl) {
+        this.objectMapper = objectMapper;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterAccess(idleTtl)
+                .build();
+        this.hits = Counter.builder("gomoku.snapshot.requests").tag("result", "hit")
+                .description("快照请求命中缓存次数").register(meterRegistry);
+        this.builds = Counter.builder("gomoku.snapshot.requests").tag("result", "build")
+                .description("快照重新构建次数").register(meterRegistry);
+        this.encodes = Counter.builder("gomoku.snapshot.encodes")
+                .description("快照 JSON 编码次数").register(meterRegistry);
+    }
+
+    /**
+     * 取指定版本的快照：版本未变则复用，否则用 builder 重建
+     * @param roomId  房间ID
+     * @param version 构建输入（需正确实现 equals）
+     * @param builder 快照构建器
+     */
+    public GomokuSnapshot get(String roomId, Object version, Supplier<GomokuSnapshot> builder) {
+        Entry e = cache.getIfPresent(roomId);
+        if (e != null && e.version.equals(version)) {
+            hits.increment();
+            return e.snapshot;
+        }
+        GomokuSnapshot snap = builder.get();
+        builds.increment();
+        cache.put(roomId, new Entry(version, snap));
+        return snap;
+    }
+
+    /**
+     * 快照的 JSON 文本：是当前缓存条目的快照时只编码一次，之后复用；否则（已被更新版本替换）单独编码
+     */
+    public String json(String roomId, GomokuSnapshot snap) {
+        Entry e = cache.getIfPresent(roomId);
+        if (e == null || e.snapshot != snap) {
+            return encode(snap);
+        }
+        String json = e.json;
+        if (json == null) {
+            json = encode(snap);
+            e.json = json;
+        }
+        return json;
+    }
+
+    /** 丢弃房间条目（房间销毁时） */
+    public void invalidate(String roomId) {
+        cache.invalidate(roomId);
+    }
+
+    private String encode(GomokuSnapshot snap) {
+        try {
+            encodes.increment();
+            return objectMapper.writeValueAsString(snap);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("快照序列化失败: " + ex.getMessage(), ex);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.gamehub.gameservice.infrastructure.redis;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * RedisCommandContext
+ * -------------------------------------------------------
+ * 单条房间指令范围内的 Redis 读穿/写回上下文（线程绑定）。
+ *
+ * 语义：
+ *  - 读穿：同一指令内对 Hash 字段（meta/seats/turn/series:* 等）只读一次，之后命中本地副本；
+ *    副本以 JSON 文本保存，每次读取都反序列化出新对象，调用方修改返回值不会污染副本；
+ *  - 写回：HSET / EXPIRE 先记为脏写（同字段后写覆盖先写），读自己的写；
+ *    指令结束时由 {@link RedisOps#flushCommandContext} 一次管道写出；
+ *  - 屏障：脚本、事务、管道及其他未纳入上下文的命令执行前先写出脏写，执行后丢弃受影响键的副本，
+ *    保证同一指令内的读写顺序与直连一致。
+ *
+ * 本类只保存状态，不访问 Redis；开启/写出/关闭由 {@link RedisOps} 负责。
+ */
+public final class RedisCommandContext {
+
+    private static final ThreadLocal<RedisCommandContext> CURRENT = new ThreadLocal<>();
+
+    /** 副本里表示“Redis 中不存在”的占位 */
+    static final String ABSENT = "\u0000absent";
+
+    /** key -> field -> JSON（或 ABSENT） */
+    private final Map<String, Map<String, String>> fields = new HashMap<>();
+    /** 待写出的字段：key -> field -> JSON（保持首次写入顺序） */
+    private final Map<String, Map<String, String>> dirty = new LinkedHashMap<>();
+    /** 待写出的过期时间：key -> ttl */
+    private final Map<String, Duration> expires = new LinkedHashMap<>();
+
+    private int hits;
+    private int misses;
+
+    private RedisCommandContext() {}
+
+    /** 当前线程的上下文；未开启时为 null（走直连） */
+    public static RedisCommandContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 在当前线程开启上下文
+     * @return 新开启的上下文；已处于上下文中时返回 null（嵌套指令沿用外层，由外层负责写出）
+     */
+    static RedisCommandContext open() {
+        if (CURRENT.get() != null) return null;
+        RedisCommandContext ctx = new RedisCommandContext();
+        CURRENT.set(ctx);
+        return ctx;
+    }
+
+    static void close() {
+        CURRENT.remove();
+    }
+
+    // ------------------------------------------------------------------ 读
+
+    /** @return 副本中的 JSON；ABSENT 表示已知不存在；null 表示未缓存 */
+    String cached(String key, String field) {
+        Map<String, String> m = fields.get(key);
+        String v = m == null ? null : m.get(field);
+        if (v == null) misses++; else hits++;
+        return v;
+    }
+
+    void remember(String key, String field, String json) {
+        fields.computeIfAbsent(key, k -> new HashMap<>()).put(field, json == null ? ABSENT : json);
+    }
+
+    // ------------------------------------------------------------------ 写
+
+    void write(String key, String field, String json) {
+        dirty.computeIfAbsent(key, k -> new LinkedHashMap<>()).put(field, json);
+        remember(key, field, json);
+    }
+
+    void expire(String key, Duration ttl) {
+        expires.put(key, ttl);
+    }
+
+    boolean hasPending() {
+        return !dirty.isEmpty() || !expires.isEmpty();
+    }
+
+    /** 取出并清空待写字段 */
+    Map<String, Map<String, String>> drainDirty() {
+        Map<String, Map<String, String>> out = new LinkedHashMap<>(dirty);
+        dirty.clear();
+        return out;
+    }
+
+    /** 取出并清空待写过期时间 */
+    Map<String, Duration> drainExpires() {
+        Map<String, Duration> out = new LinkedHashMap<>(expires);
+        expires.clear();
+        return out;
+    }
+
+    // ------------------------------------------------------------------ 失效
+
+    /** 丢弃整个键的副本（键被脚本/事务/删除改写后调用） */
+    void forget(Collection<String> keys) {
+        keys.forEach(fields::remove);
+    }
+
+    /** 丢弃指定字段的副本 */
+    void forget(String key, Collection<String> fieldNames) {
+        Map<String, String> m = fields.get(key);
+        if (m != null) fieldNames.forEach(m::remove);
+    }
+
+    int hits() {
+        return hits;
+    }
+
+    int misses() {
+        return misses;
+    }
+}
@@ -5,6 +5,7 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.*;
 /**
  * RedisConfig
@@ -19,7 +20,8 @@ import org.springframework.data.redis.serializer.*;
  * -------------------------------------------------------
  * 使用说明：
  *  - RedisTemplate<String, Object>：适用于存取对象（自动 JSON 序列化）；
- *  - StringRedisTemplate：适用于轻量字符串键值（如计数器、标志位等）。
+ *  - StringRedisTemplate：适用于轻量字符串键值（如计数器、标志位等）；
+ *  - RedisMessageListenerContainer：Pub/Sub 订阅容器（节点间指令转发等）。
  * -------------------------------------------------------
  * 未来迁移：
  *  - 该类可直接放入公共模块（如 infra-redis），所有服务共享。
@@ -66,4 +68,19 @@ public class RedisConfig {
     public StringRedisTemplate stringRedisTemplate(RedisConnectionFactory factory) {
         return new StringRedisTemplate(factory);
     }
+
+    /**
+     * Redis Pub/Sub 订阅容器
+     * -------------------------------------------------------
+     * 各组件按需 addMessageListener 订阅自己的频道（如节点指令通道）。
+     *
+     * @param factory Redis 连接工厂
+     * @return RedisMessageListenerContainer Bean
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory factory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(factory);
+        return container;
+    }
 }
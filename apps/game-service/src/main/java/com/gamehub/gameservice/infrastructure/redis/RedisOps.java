@@ -2,11 +2,16 @@ package com.gamehub.gameservice.infrastructure.redis;
 
 import com.gamehub.gameservice.games.gomoku.domain.dto.GameStateRecord;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.ReturnType;
 import org.springframework.data.redis.core.*;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
@@ -16,7 +21,10 @@ import java.util.concurrent.TimeUnit;
  * - 封装常用 String/Hash/Key/自增/脚本 操作
  * - 仅提供“原语级”方法；业务键名与字段名放在 Repo/Service 层组织
  * - 便于在全项目低耦合复用；将来切换到哨兵/集群/云Redis时无需改代码
+ * - 处于房间指令上下文（{@link RedisCommandContext}）时：HGET/HMGET 读穿、HSET/EXPIRE 写回，
+ *   其余命令执行前先写出脏写（屏障），改写类命令执行后丢弃受影响键/字段的副本
  */
+@Slf4j
 @Component
 @RequiredArgsConstructor
 public class RedisOps {
@@ -30,6 +38,7 @@ public class RedisOps {
      * 写入键值（无 TTL）
      */
     public boolean set(String key, Object val) {
+        barrier();
         redis.opsForValue().set(key, val);
         return true;
     }
@@ -37,6 +46,7 @@ public class RedisOps {
      * 写入键值（带 TTL）
      */
     public boolean setEx(String key, Object val, Duration ttl) {
+        barrier();
         redis.opsForValue().set(key, val, ttl);
         return true;
     }
@@ -45,6 +55,7 @@ public class RedisOps {
      * @return true 表示写入成功，false 表示键已存在
      */
     public boolean setNx(String key, Object val, Duration ttl) {
+        barrier();
         Boolean ok = redis.opsForValue().setIfAbsent(key, val, ttl);
         return Boolean.TRUE.equals(ok);
     }
@@ -53,6 +64,7 @@ public class RedisOps {
      */
     @SuppressWarnings("unchecked")
     public <T> T get(String key, Class<T> type) {
+        barrier();
         Object v = redis.opsForValue().get(key);
         return (v == null) ? null : (T) v;
     }
@@ -62,6 +74,7 @@ public class RedisOps {
      * @return 新值
      */
     public Long incrBy(String key, long delta) {
+        barrier();
         return redis.opsForValue().increment(key, delta);
     }
 
@@ -70,6 +83,11 @@ public class RedisOps {
      * 写入 Hash 字段
      */
     public boolean hSet(String key, String field, Object val) {
+        RedisCommandContext ctx = RedisCommandContext.current();
+        if (ctx != null) {
+            ctx.write(key, field, toJson(val));
+            return true;
+        }
         redis.opsForHash().put(key, field, val);
         return true;
     }
@@ -78,7 +96,9 @@ public class RedisOps {
      * 批量写入 Hash
      */
     public boolean hSetAll(String key, Map<String, ?> map) {
+        barrier();
         redis.opsForHash().putAll(key, map);
+        forgetFields(key, map.keySet());
         return true;
     }
     /**
@@ -86,7 +106,13 @@ public class RedisOps {
      */
     @SuppressWarnings("unchecked")
     public <T> T hGet(String key, String field, Class<T> type) {
+        RedisCommandContext ctx = RedisCommandContext.current();
+        if (ctx != null) {
+            String json = ctx.cached(key, field);
+            if (json != null) return (T) fromCached(json);
+        }
         Object v = redis.opsForHash().get(key, field);
+        if (ctx != null) ctx.remember(key, field, v == null ? null : toJson(v));
         return (v == null) ? null : (T) v;
     }
     /**
@@ -94,22 +120,145 @@ public class RedisOps {
      */
     @SuppressWarnings("unchecked")
     public Map<String, Object> hGetAll(String key) {
+        barrier();
         Map<Object, Object> raw = redis.opsForHash().entries(key);
         Map<String, Object> out = new HashMap<>();
         raw.forEach((k, v) -> out.put(String.valueOf(k), v));
         return out;
     }
+    /**
+     * 批量获取 Hash 字段（HMGET），返回值与 fields 顺序一致，缺失为 null
+     */
+    public List<Object> hMGet(String key, List<String> fields) {
+        RedisCommandContext ctx = RedisCommandContext.current();
+        if (ctx == null) {
+            List<Object> vals = redis.opsForHash().multiGet(key, new ArrayList<>(fields));
+            return vals == null ? Collections.nCopies(fields.size(), null) : vals;
+        }
+        // 上下文内：只取副本里没有的字段
+        List<String> missing = new ArrayList<>();
+        for (String f : fields) {
+            if (ctx.cached(key, f) == null) missing.add(f);
+        }
+        if (!missing.isEmpty()) {
+            List<Object> vals = redis.opsForHash().multiGet(key, new ArrayList<>(missing));
+            for (int i = 0; i < missing.size(); i++) {
+                Object v = vals == null || i >= vals.size() ? null : vals.get(i);
+                ctx.remember(key, missing.get(i), v == null ? null : toJson(v));
+            }
+        }
+        List<Object> out = new ArrayList<>(fields.size());
+        for (String f : fields) {
+            out.add(fromCached(ctx.cached(key, f)));
+        }
+        return out;
+    }
+    /**
+     * 仅当字段不存在时写入（HSETNX）
+     * @return true 表示写入成功，false 表示字段已存在
+     */
+    public boolean hSetNx(String key, String field, Object val) {
+        barrier();
+        Boolean ok = redis.opsForHash().putIfAbsent(key, field, val);
+        forgetFields(key, List.of(field));
+        return Boolean.TRUE.equals(ok);
+    }
+    /**
+     * 获取 Hash 的全部字段名（HKEYS，仅用于字段数很少的 Hash）
+     */
+    public Set<String> hKeys(String key) {
+        barrier();
+        Set<Object> raw = redis.opsForHash().keys(key);
+        Set<String> out = new HashSet<>();
+        raw.forEach(k -> out.add(String.valueOf(k)));
+        return out;
+    }
     /**
      * 删除指定 Hash 字段
      */
     public Long hDel(String key, String... fields) {
-        return redis.opsForHash().delete(key, (Object[]) fields);
+        barrier();
+        Long n = redis.opsForHash().delete(key, (Object[]) fields);
+        forgetFields(key, Arrays.asList(fields));
+        return n;
     }
     /**
      * Hash 字段自增（整数）
      */
     public Long hIncrBy(String key, String field, long delta) {
-        return redis.opsForHash().increment(key, field, delta);
+        barrier();
+        Long n = redis.opsForHash().increment(key, field, delta);
+        forgetFields(key, List.of(field));
+        return n;
+    }
+
+    // -------------- Set --------------
+    /**
+     * 添加集合成员（SADD）
+     */
+    public Long sAdd(String key, Object... members) {
+        barrier();
+        return redis.opsForSet().add(key, members);
+    }
+
+    /**
+     * 移除集合成员（SREM，成员按原始字符串处理，不做 JSON 包装，与脚本写入的成员一致）
+     */
+    public Long sRemString(String key, String... members) {
+        barrier();
+        return strRedis.opsForSet().remove(key, (Object[]) members);
+    }
+
+    // -------------- ZSet（字符串成员） --------------
+    /**
+     * 统计分数在 [min, max] 内的成员数（ZCOUNT）
+     */
+    public long zCount(String key, double min, double max) {
+        barrier();
+        Long n = strRedis.opsForZSet().count(key, min, max);
+        return n == null ? 0L : n;
+    }
+
+    /**
+     * 移除有序集合成员（ZREM，成员按原始字符串处理）
+     */
+    public Long zRemString(String key, String... members) {
+        barrier();
+        return strRedis.opsForZSet().remove(key, (Object[]) members);
+    }
+
+    // -------------- List（字符串元素） --------------
+    /**
+     * 追加到列表尾部（RPUSH，元素按原始字符串存储，不做 JSON 包装）
+     * @return 追加后的列表长度
+     */
+    public Long rPush(String key, String val) {
+        barrier();
+        return strRedis.opsForList().rightPush(key, val);
+    }
+    /**
+     * 批量追加到列表尾部（RPUSH 多值）
+     */
+    public Long rPushAll(String key, List<String> vals) {
+        if (vals == null || vals.isEmpty()) return lLen(key);
+        barrier();
+        return strRedis.opsForList().rightPushAll(key, vals);
+    }
+    /**
+     * 读取列表区间（LRANGE，end 为 -1 表示到末尾）
+     */
+    public List<String> lRange(String key, long start, long end) {
+        barrier();
+        List<String> list = strRedis.opsForList().range(key, start, end);
+        return list == null ? Collections.emptyList() : list;
+    }
+    /**
+     * 列表长度（LLEN）
+     */
+    public long lLen(String key) {
+        barrier();
+        Long n = strRedis.opsForList().size(key);
+        return n == null ? 0L : n;
     }
 
     // -------------- Key & TTL --------------
@@ -117,18 +266,25 @@ public class RedisOps {
      * 设置过期时间（TTL）
      */
     public Boolean expire(String key, Duration ttl) {
+        RedisCommandContext ctx = RedisCommandContext.current();
+        if (ctx != null) {
+            ctx.expire(key, ttl);
+            return true;
+        }
         return redis.expire(key, ttl);
     }
     /**
      * 获取剩余 TTL（秒）
      */
     public Long ttl(String key) {
+        barrier();
         return redis.getExpire(key, TimeUnit.SECONDS);
     }
     /**
      * 判断 Key 是否存在
      */
     public Boolean exists(String key) {
+        barrier();
         Boolean has = redis.hasKey(key);
         return Boolean.TRUE.equals(has);
     }
@@ -136,7 +292,28 @@ public class RedisOps {
      * 删除一个或多个 Key
      */
     public Long del(String... keys) {
-        return redis.delete(Arrays.asList(keys));
+        barrier();
+        Long n = redis.delete(Arrays.asList(keys));
+        forgetKeys(Arrays.asList(keys));
+        return n;
+    }
+
+    /**
+     * 基于游标的 SCAN 按模式查找 Key（非阻塞，替代 KEYS）。
+     * 仅用于低频场景：旧布局迁移、后台/运维工具、索引重建兜底。
+     *
+     * @param pattern 匹配模式
+     * @param count   每批建议扫描数量
+     * @return 匹配的 Key 集合
+     */
+    public Set<String> scanKeys(String pattern, int count) {
+        barrier();
+        Set<String> out = new HashSet<>();
+        ScanOptions options = ScanOptions.scanOptions().match(pattern).count(count).build();
+        try (Cursor<String> cursor = redis.scan(options)) {
+            cursor.forEachRemaining(out::add);
+        }
+        return out;
     }
 
     // -------------- Script --------------
@@ -161,7 +338,77 @@ public class RedisOps {
         DefaultRedisScript<T> rs = new DefaultRedisScript<>();
         rs.setResultType(resultType);
         rs.setScriptText(script);
-        return redis.execute(rs, keys, args.toArray());
+        barrier();
+        try {
+            return redis.execute(rs, keys, args.toArray());
+        } finally {
+            forgetKeys(keys);
+        }
+    }
+
+    /**
+     * 以字符串模板执行预置脚本（RedisScript 优先 EVALSHA，NOSCRIPT 时自动回退 EVAL）
+     * -------------------------------------------------------
+     * 参数与返回值均按原始字符串处理，适合在脚本内用 cjson 解析/生成 JSON 的场景。
+     *
+     * @param script 预置脚本（一般为静态常量，SHA1 只计算一次）
+     * @param keys   KEYS[...] 参数列表
+     * @param args   ARGV[...] 参数列表
+     * @param <T>    泛型返回值
+     * @return Lua 脚本执行结果
+     */
+    public <T> T evalScript(RedisScript<T> script, List<String> keys, String... args) {
+        barrier();
+        try {
+            return strRedis.execute(script, keys, (Object[]) args);
+        } finally {
+            forgetKeys(keys);
+        }
+    }
+
+    /**
+     * 同一预置脚本对多组 KEYS/ARGV 批量执行（一次管道往返）
+     * -------------------------------------------------------
+     * 管道内无法在 NOSCRIPT 时回退 EVAL，因此以 SCRIPT LOAD 打头，随后的 EVALSHA 必然命中。
+     * 仅支持整数返回值的脚本；任一条出错时整批抛出异常。
+     *
+     * @param script 预置脚本（返回整数）
+     * @param calls  每次调用的 KEYS/ARGV
+     * @return 与 calls 一一对应的结果
+     */
+    public List<Long> evalScriptBatch(RedisScript<Long> script, List<ScriptCall> calls) {
+        if (calls.isEmpty()) return List.of();
+        barrier();
+        try {
+            List<Object> raw = strRedis.executePipelined((RedisCallback<Object>) connection -> {
+                connection.scriptingCommands().scriptLoad(utf8(script.getScriptAsString()));
+                for (ScriptCall call : calls) {
+                    byte[][] keysAndArgs = new byte[call.keys().size() + call.args().size()][];
+                    int i = 0;
+                    for (String k : call.keys()) keysAndArgs[i++] = utf8(k);
+                    for (String a : call.args()) keysAndArgs[i++] = utf8(a);
+                    connection.scriptingCommands().evalSha(script.getSha1(), ReturnType.INTEGER,
+                            call.keys().size(), keysAndArgs);
+                }
+                return null;
+            });
+            List<Long> results = new ArrayList<>(calls.size());
+            for (int i = 1; i <= calls.size(); i++) {
+                Object r = i < raw.size() ? raw.get(i) : null;
+                results.add(r instanceof Number n ? n.longValue() : null);
+            }
+            return results;
+        } finally {
+            calls.forEach(call -> forgetKeys(call.keys()));
+        }
+    }
+
+    /**
+     * {@link #evalScriptBatch} 的单次调用参数
+     * @param keys KEYS[...]
+     * @param args ARGV[...]
+     */
+    public record ScriptCall(List<String> keys, List<String> args) {
     }
 
     // -------------- String 强类型便捷（可选） --------------
@@ -169,6 +416,7 @@ public class RedisOps {
      * 写入简单字符串键值（带 TTL）
      */
     public boolean setString(String key, String val, Duration ttl) {
+        barrier();
         strRedis.opsForValue().set(key, val, ttl);
         return true;
     }
@@ -177,6 +425,7 @@ public class RedisOps {
      * @return true 表示写入成功，false 表示已存在
      */
     public boolean setStringNx(String key, String val, Duration ttl) {
+        barrier();
         Boolean ok = strRedis.opsForValue().setIfAbsent(key, val, ttl);
         return Boolean.TRUE.equals(ok);
     }
@@ -184,8 +433,112 @@ public class RedisOps {
      * 获取简单字符串值
      */
     public String getString(String key) {
+        barrier();
         return strRedis.opsForValue().get(key);
     }
 
+    /**
+     * 按通用对象模板的值序列化器把对象转成 JSON 文本。
+     * 用于在 StringRedisTemplate 事务/脚本中写入对象值，保证与 {@link #get} 读取格式一致。
+     */
+    @SuppressWarnings("unchecked")
+    public String toJson(Object val) {
+        byte[] raw = ((RedisSerializer<Object>) redis.getValueSerializer()).serialize(val);
+        return raw == null ? null : new String(raw, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * {@link #toJson} 的逆操作：按通用对象模板的值序列化器反序列化 JSON 文本。
+     * 用于管道/脚本以字符串方式取回的对象值；类型不匹配返回 null。
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T fromJson(String json, Class<T> type) {
+        if (json == null) return null;
+        Object v = redis.getValueSerializer().deserialize(json.getBytes(StandardCharsets.UTF_8));
+        return type.isInstance(v) ? (T) v : null;
+    }
+
+    // -------------- 房间指令上下文（读穿/写回） --------------
 
+    /**
+     * 在房间指令上下文中执行 body，结束时把脏写一次管道写出（已在上下文中则直接执行）。
+     * body 抛出异常时已产生的脏写照常写出，与直连时“写到哪算哪”一致。
+     */
+    public void runInCommandContext(Runnable body) {
+        RedisCommandContext ctx = RedisCommandContext.open();
+        if (ctx == null) {
+            body.run();
+            return;
+        }
+        try {
+            body.run();
+        } finally {
+            try {
+                flushCommandContext();
+            } finally {
+                RedisCommandContext.close();
+                log.debug("指令上下文结束: hits={}, misses={}", ctx.hits(), ctx.misses());
+            }
+        }
+    }
+
+    /**
+     * 把当前上下文的脏写（HSET 字段 + 过期时间）用一次管道写出；无上下文或无脏写时不访问 Redis
+     */
+    public void flushCommandContext() {
+        RedisCommandContext ctx = RedisCommandContext.current();
+        if (ctx == null || !ctx.hasPending()) return;
+        Map<String, Map<String, String>> dirty = ctx.drainDirty();
+        Map<String, Duration> expires = ctx.drainExpires();
+        strRedis.executePipelined((RedisCallback<Object>) connection -> {
+            dirty.forEach((key, fields) -> {
+                Map<byte[], byte[]> raw = new LinkedHashMap<>();
+                fields.forEach((f, json) -> raw.put(utf8(f), utf8(json)));
+                connection.hashCommands().hMSet(utf8(key), raw);
+            });
+            expires.forEach((key, ttl) -> connection.keyCommands().pExpire(utf8(key), ttl.toMillis()));
+            return null;
+        });
+    }
+
+    /**
+     * 供直接使用 RedisTemplate（事务/管道/原生命令）的调用方：执行前先写出脏写，并丢弃这些键的副本。
+     * 改写类操作应在执行后再调用一次，避免同一指令内读到旧副本。
+     */
+    public void invalidate(String... keys) {
+        barrier();
+        forgetKeys(Arrays.asList(keys));
+    }
+
+    /**
+     * 用已取回的 Hash 字段 JSON 预热上下文副本（如房间聚合读取的管道结果）；无上下文时忽略
+     */
+    public void prime(String key, String field, String json) {
+        RedisCommandContext ctx = RedisCommandContext.current();
+        if (ctx != null) ctx.remember(key, field, json);
+    }
+
+    /** 未纳入上下文的命令执行前：先写出脏写，保证顺序 */
+    private void barrier() {
+        flushCommandContext();
+    }
+
+    private void forgetKeys(Collection<String> keys) {
+        RedisCommandContext ctx = RedisCommandContext.current();
+        if (ctx != null) ctx.forget(keys);
+    }
+
+    private void forgetFields(String key, Collection<String> fields) {
+        RedisCommandContext ctx = RedisCommandContext.current();
+        if (ctx != null) ctx.forget(key, fields);
+    }
+
+    private Object fromCached(String json) {
+        if (json == null || RedisCommandContext.ABSENT.equals(json)) return null;
+        return redis.getValueSerializer().deserialize(utf8(json));
+    }
+
+    private static byte[] utf8(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
 }
@@ -0,0 +1,39 @@
+package com.gamehub.gameservice.infrastructure.redis;
+
+import com.gamehub.gameservice.infrastructure.scheduler.RoomCommandExecutor;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * RoomCommandRedisContext
+ * -------------------------------------------------------
+ * 为房间邮箱里的每条指令开启 {@link RedisCommandContext}：
+ * 同一指令内 meta/seats/turn/series 等字段只读一次，HSET/EXPIRE 在指令结束时一次管道写出；
+ * 指令内广播房间事件前（RoomBroadcaster#publish）先写出已有脏写，事件不会先于它描述的状态到达客户端。
+ *
+ * 开关 gomoku.redis.command-context.enabled=false 时不安装，所有访问走原有直连路径（用于对比/回退）。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RoomCommandRedisContext {
+
+    private final RedisOps ops;
+    private final RoomCommandExecutor roomExecutor;
+
+    @Value("${gomoku.redis.command-context.enabled:true}")
+    private boolean enabled;
+
+    @PostConstruct
+    public void install() {
+        if (!enabled) {
+            log.info("房间指令 Redis 上下文未启用，使用直连访问");
+            return;
+        }
+        roomExecutor.addTaskDecorator(task -> () -> ops.runInCommandContext(task));
+        log.info("房间指令 Redis 上下文已启用");
+    }
+}
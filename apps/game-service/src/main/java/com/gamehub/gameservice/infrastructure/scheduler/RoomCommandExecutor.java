@@ -0,0 +1,221 @@
+package com.gamehub.gameservice.infrastructure.scheduler;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.stereotype.Component;
+
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * RoomCommandExecutor
+ * -------------------------------------------------------
+ * 房间级单写者执行器（per-room mailbox）。
+ *
+ * 模型：
+ *  - 每个房间一个邮箱（FIFO 队列），同一房间的命令（落子/认输/重开/准备/踢人/超时/AI）严格按提交顺序串行执行；
+ *  - 不同房间之间完全并行；邮箱有积压时才占用一个虚拟线程排空，排空后邮箱即被移除，空闲房间零开销；
+ *  - 同一节点内不再有多个线程同时写一个房间，Redis WATCH/CAS 冲突只可能来自其他节点。
+ *
+ * 使用约定：
+ *  - {@link #execute}：异步投递（STOMP/调度线程使用，不阻塞调用方）；
+ *  - {@link #call}：投递并等待结果（REST 等需要同步返回的场景），最多等待 call-timeout-ms；
+ *  - 在房间命令内部再次调用 {@link #call} 同一房间会自等待，因此命令内部只能 {@link #execute}；
+ *  - {@link #addTaskDecorator}：为每条命令包一层执行范围（如 Redis 指令上下文、广播合帧），{@link #submit} 的结果在范围结束后才完成。
+ */
+@Slf4j
+@Component
+public class RoomCommandExecutor {
+
+    /** 单个邮箱的最大积压命令数，超出直接拒绝（保护慢房间不拖垮全局） */
+    @Value("${gomoku.room.mailbox.capacity:256}")
+    private int capacity;
+
+    /** {@link #call} 等待结果的上限（毫秒），卡住的房间命令不会无限期占住 HTTP/STOMP 线程 */
+    @Value("${gomoku.room.mailbox.call-timeout-ms:5000}")
+    private long callTimeoutMs;
+
+    /** 排空邮箱用的虚拟线程：阻塞 IO（Redis/WS 推送）只挂起虚拟线程，不占平台线程 */
+    private final ExecutorService workers =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("room-cmd-", 0).factory());
+
+    /** roomId -> 邮箱（仅在有积压或正在执行时存在） */
+    private final ConcurrentMap<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
+
+    /** 每条命令的执行范围包装（默认不包装） */
+    private volatile TaskDecorator taskDecorator = task -> task;
+
+    /** 当前线程正在执行的房间（用于识别重入） */
+    private static final ThreadLocal<String> CURRENT_ROOM = new ThreadLocal<>();
+
+    /**
+     * 异步投递一条房间命令。
+     * @param roomId 房间ID
+     * @param cmd    命令体（内部异常会被记录，不会中断邮箱）
+     * @throws RejectedExecutionException 邮箱积压超过上限
+     */
+    public void execute(String roomId, Runnable cmd) {
+        enqueue(roomId, () -> {
+            try {
+                taskDecorator.decorate(cmd).run();
+            } catch (Throwable t) {
+                log.error("房间命令执行异常: roomId={}", roomId, t);
+            }
+        });
+    }
+
+    /**
+     * 投递并返回 Future。
+     * @param roomId 房间ID
+     * @param cmd    命令体
+     * @return 命令结果（异常通过 Future 传递）
+     */
+    public <T> CompletableFuture<T> submit(String roomId, Callable<T> cmd) {
+        CompletableFuture<T> f = new CompletableFuture<>();
+        enqueue(roomId, () -> {
+            AtomicReference<T> result = new AtomicReference<>();
+            try {
+                taskDecorator.decorate(() -> {
+                    try {
+                        result.set(cmd.call());
+                    } catch (RuntimeException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new CompletionException(e);
+                    }
+                }).run();
+                f.complete(result.get());
+            } catch (CompletionException e) {
+                f.completeExceptionally(e.getCause() == null ? e : e.getCause());
+            } catch (Throwable t) {
+                f.completeExceptionally(t);
+            }
+        });
+        return f;
+    }
+
+    /**
+     * 投递并同步等待结果；已在同一房间命令内调用时直接执行（避免自等待）。
+     * 运行时异常原样抛出，受检异常包装为 IllegalStateException；
+     * 超过 call-timeout-ms 未完成抛 IllegalStateException（命令仍留在邮箱中执行，结果丢弃）。
+     */
+    public <T> T call(String roomId, Callable<T> cmd) {
+        if (roomId != null && roomId.equals(CURRENT_ROOM.get())) {
+            try {
+                return cmd.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+        }
+        try {
+            return submit(roomId, cmd).get(callTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("房间命令等待超时: roomId={}, timeoutMs={}", roomId, callTimeoutMs);
+            throw new IllegalStateException("房间服务繁忙，请稍后再试", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("房间命令等待被中断", e);
+        } catch (ExecutionException | CompletionException e) {
+            Throwable cause = e.getCause() == null ? e : e.getCause();
+            if (cause instanceof RuntimeException re) throw re;
+            if (cause instanceof Error err) throw err;
+            throw new IllegalStateException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * 追加一层命令执行范围包装：后追加的包在外层，多个组件可各自安装而互不覆盖；
+     * 重入的 {@link #call}（已在房间命令内）直接执行、不再包装
+     */
+    public synchronized void addTaskDecorator(TaskDecorator decorator) {
+        if (decorator == null) return;
+        TaskDecorator inner = this.taskDecorator;
+        this.taskDecorator = task -> decorator.decorate(inner.decorate(task));
+    }
+
+    /** 当前线程是否正在执行指定房间的命令 */
+    public boolean inRoom(String roomId) {
+        return roomId != null && roomId.equals(CURRENT_ROOM.get());
+    }
+
+    /** 当前有积压/执行中的房间数（监控用） */
+    public int activeRooms() {
+        return mailboxes.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    // ------------------------------------------------------------------
+
+    private void enqueue(String roomId, Runnable task) {
+        final boolean[] startDrain = {false};
+        mailboxes.compute(roomId, (k, mb) -> {
+            if (mb == null) mb = new Mailbox();
+            if (mb.size.get() >= capacity) {
+                throw new RejectedExecutionException("房间命令积压过多: " + roomId);
+            }
+            mb.queue.offer(task);
+            mb.size.incrementAndGet();
+            if (!mb.running) {
+                mb.running = true;
+                startDrain[0] = true;
+            }
+            return mb;
+        });
+        if (startDrain[0]) {
+            workers.execute(() -> drain(roomId));
+        }
+    }
+
+    /**
+     * 排空邮箱：逐条执行；队列为空时在 compute 中原子地移除邮箱并退出，
+     * 与 enqueue 的 compute 互斥，保证同一房间任意时刻至多一个排空者。
+     */
+    private void drain(String roomId) {
+        Mailbox mb = mailboxes.get(roomId);
+        if (mb == null) return;
+        CURRENT_ROOM.set(roomId);
+        try {
+            while (true) {
+                Runnable task = mb.queue.poll();
+                if (task == null) {
+                    Mailbox left = mailboxes.computeIfPresent(roomId, (k, cur) -> cur.queue.isEmpty() ? null : cur);
+                    if (left == null) return;
+                    continue;
+                }
+                mb.size.decrementAndGet();
+                task.run();
+            }
+        } finally {
+            CURRENT_ROOM.remove();
+        }
+    }
+
+    /** 单房间邮箱 */
+    private static final class Mailbox {
+        final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+        final AtomicInteger size = new AtomicInteger();
+        /** 是否已有排空者（仅在 compute 内读写） */
+        volatile boolean running;
+    }
+}
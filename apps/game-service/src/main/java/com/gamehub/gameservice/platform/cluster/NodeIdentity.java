@@ -0,0 +1,39 @@
+package com.gamehub.gameservice.platform.cluster;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * NodeIdentity
+ * -------------------------------------------------------
+ * 当前 game-service 实例的唯一标识（进程级，启动时确定一次）。
+ * - 优先使用配置 instance.id（容器/编排注入）；
+ * - 未配置时使用 应用名 + 随机后缀，保证同机多实例不冲突；
+ * - 房间租约、跨节点指令转发的通道名都以它为准。
+ */
+@Getter
+@Component
+public class NodeIdentity {
+
+    private final String nodeId;
+
+    public NodeIdentity(@Value("${instance.id:}") String instanceId,
+                        @Value("${spring.application.name:game-service}") String appName) {
+        this.nodeId = (instanceId != null && !instanceId.isBlank())
+                ? instanceId
+                : appName + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /** 本节点指令通道（Redis Pub/Sub） */
+    public String commandChannel() {
+        return commandChannel(nodeId);
+    }
+
+    /** 指定节点的指令通道 */
+    public static String commandChannel(String nodeId) {
+        return "gomoku:node:" + nodeId + ":cmd";
+    }
+}
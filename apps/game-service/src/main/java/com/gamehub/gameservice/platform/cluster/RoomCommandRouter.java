@@ -0,0 +1,331 @@
+package com.gamehub.gameservice.platform.cluster;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gamehub.gameservice.infrastructure.scheduler.RoomCommandExecutor;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * RoomCommandRouter
+ * -------------------------------------------------------
+ * 房间指令路由：把房间指令送到该房间的归属节点执行。
+ *
+ * 流程：
+ *  - 入口节点先查/抢租约（{@link RoomLeaseManager#tryAcquire}），本节点持有则直接投递到本地房间邮箱；
+ *  - 否则经 Redis Pub/Sub 发到归属节点的指令通道（gomoku:node:{nodeId}:cmd），
+ *    归属节点复核归属后投递到自己的房间邮箱执行；
+ *  - {@link #call} 需要结果的指令携带 correlationId，归属节点执行完通过入口节点的通道回包；
+ *  - 发布返回的订阅者数为 0 说明归属节点已宕机（租约尚未过期），本节点按原持有者比较后接管
+ *    （{@link RoomLeaseManager#takeOver}）并在本地执行；接管不成则抛 IllegalStateException 交由调用方提示用户。
+ *
+ * 约定：
+ *  - 指令按类型注册（{@link #register}），载荷与返回值须可 JSON 序列化；
+ *  - 转发最多一跳：归属在途中切换时，收到方再转发一次，仍不一致则直接报错由客户端重试；
+ *  - 异步指令（无回包）在转发途中失败时，错误点对点推送给发起用户（/user/queue/gomoku.error，
+ *    与房间 ERROR 事件同构），不静默丢弃。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RoomCommandRouter {
+
+    /** 转发最大跳数 */
+    private static final int MAX_HOPS = 1;
+
+    /** 异步指令转发失败时的用户错误队列 */
+    static final String ERROR_QUEUE = "/queue/gomoku.error";
+
+    private final RoomLeaseManager leases;
+    private final NodeIdentity node;
+    private final RoomCommandExecutor roomExecutor;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer redisMessageListenerContainer;
+    private final ObjectMapper objectMapper;
+    private final SimpMessagingTemplate messaging;
+
+    /** 跨节点同步调用的等待上限（毫秒） */
+    @Value("${gomoku.cluster.forward-timeout-ms:5000}")
+    private long forwardTimeoutMs;
+
+    /** 指令类型 -> 处理器 */
+    private final Map<String, Route<?>> routes = new ConcurrentHashMap<>();
+
+    /** correlationId -> 等待中的远端结果 */
+    private final Map<String, CompletableFuture<RoomMessage>> pending = new ConcurrentHashMap<>();
+
+    /**
+     * 房间指令处理器（在归属节点的房间邮箱内执行）
+     */
+    @FunctionalInterface
+    public interface RoomCommandHandler<T> {
+        Object handle(String roomId, String userId, T payload) throws Exception;
+    }
+
+    private record Route<T>(Class<T> payloadType, RoomCommandHandler<T> handler) {}
+
+    /**
+     * 节点间消息（指令与回包共用）
+     */
+    record RoomMessage(String kind,
+                       String correlationId,
+                       String replyTo,
+                       String roomId,
+                       String type,
+                       String userId,
+                       JsonNode payload,
+                       int hops,
+                       JsonNode result,
+                       String error) {
+        static final String CMD = "CMD";
+        static final String REPLY = "REPLY";
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        redisMessageListenerContainer.addMessageListener(
+                (message, pattern) -> onMessage(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(node.commandChannel()));
+    }
+
+    /**
+     * 注册一种房间指令
+     * @param type        指令类型（全集群唯一）
+     * @param payloadType 载荷类型（跨节点时按此反序列化）
+     * @param handler     处理器
+     */
+    public <T> void register(String type, Class<T> payloadType, RoomCommandHandler<T> handler) {
+        if (routes.putIfAbsent(type, new Route<>(payloadType, handler)) != null) {
+            throw new IllegalStateException("重复注册房间指令: " + type);
+        }
+    }
+
+    /**
+     * 异步投递：本节点持有则进本地邮箱，否则转发到归属节点（不等待结果）。
+     * @throws RejectedExecutionException 本地邮箱积压超限
+     * @throws IllegalStateException      归属节点失联且未能接管
+     */
+    public void dispatch(String roomId, String type, String userId, Object payload) {
+        String owner = ownerOf(roomId);
+        if (owner != null && deliver(owner, new RoomMessage(RoomMessage.CMD, null, null, roomId, type, userId,
+                objectMapper.valueToTree(payload), 0, null, null))) {
+            return;
+        }
+        roomExecutor.execute(roomId, task(route(type), roomId, userId, payload));
+    }
+
+    /**
+     * 同步调用：本节点持有则在本地邮箱内执行并返回；否则转发并等待归属节点回包。
+     * 远端异常以 IllegalStateException（原消息）抛出。
+     */
+    public <R> R call(String roomId, String type, String userId, Object payload, Class<R> resultType) {
+        String owner = ownerOf(roomId);
+        if (owner == null) {
+            return callLocal(roomId, type, userId, payload, resultType);
+        }
+        String correlationId = UUID.randomUUID().toString();
+        CompletableFuture<RoomMessage> future = new CompletableFuture<>();
+        pending.put(correlationId, future);
+        try {
+            if (!deliver(owner, new RoomMessage(RoomMessage.CMD, correlationId, node.getNodeId(), roomId, type, userId,
+                    objectMapper.valueToTree(payload), 0, null, null))) {
+                return callLocal(roomId, type, userId, payload, resultType);
+            }
+            RoomMessage reply = future.get(forwardTimeoutMs, TimeUnit.MILLISECONDS);
+            if (reply.error() != null) {
+                throw new IllegalStateException(reply.error());
+            }
+            return reply.result() == null || reply.result().isNull()
+                    ? null
+                    : objectMapper.treeToValue(reply.result(), resultType);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("房间服务繁忙，请稍后再试", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("房间指令等待被中断", e);
+        } catch (ExecutionException | JsonProcessingException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        } finally {
+            pending.remove(correlationId);
+        }
+    }
+
+    // ------------------------------------------------------------------
+
+    /**
+     * @return null 表示本节点持有；否则为归属节点 nodeId
+     */
+    private String ownerOf(String roomId) {
+        if (leases.isLocal(roomId)) return null;
+        String owner = leases.tryAcquire(roomId);
+        return node.getNodeId().equals(owner) ? null : owner;
+    }
+
+    private <R> R callLocal(String roomId, String type, String userId, Object payload, Class<R> resultType) {
+        Route<?> route = route(type);
+        return roomExecutor.call(roomId, () -> resultType.cast(invoke(route, roomId, userId, payload)));
+    }
+
+    private Route<?> route(String type) {
+        Route<?> route = routes.get(type);
+        if (route == null) {
+            throw new IllegalArgumentException("未知房间指令: " + type);
+        }
+        return route;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Object invoke(Route<T> route, String roomId, String userId, Object payload) throws Exception {
+        return route.handler().handle(roomId, userId, (T) payload);
+    }
+
+    /** 异步投递用：受检异常包装为运行时异常，由邮箱统一记录 */
+    private static Runnable task(Route<?> route, String roomId, String userId, Object payload) {
+        return () -> {
+            try {
+                invoke(route, roomId, userId, payload);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+        };
+    }
+
+    /**
+     * 发往归属节点的指令通道；通道无订阅者（节点已宕机但租约未过期）时按原持有者比较后接管。
+     * @return true 已送达归属节点；false 本节点已接管，调用方改为本地执行
+     * @throws IllegalStateException 未送达且租约已被其他节点占有
+     */
+    private boolean deliver(String owner, RoomMessage msg) {
+        if (publish(owner, msg) != 0) {
+            return true;
+        }
+        log.warn("房间归属节点的指令通道无订阅者，尝试接管: roomId={}, owner={}, type={}",
+                msg.roomId(), owner, msg.type());
+        if (node.getNodeId().equals(leases.takeOver(msg.roomId(), owner))) {
+            return false;
+        }
+        throw new IllegalStateException("房间服务繁忙，请稍后再试");
+    }
+
+    /**
+     * @return 收到消息的订阅者数；-1 表示未知（事务/管道内发布）
+     */
+    private long publish(String targetNodeId, RoomMessage msg) {
+        try {
+            Long receivers = stringRedisTemplate.convertAndSend(NodeIdentity.commandChannel(targetNodeId),
+                    objectMapper.writeValueAsString(msg));
+            return receivers == null ? -1 : receivers;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("房间指令序列化失败: " + msg.type(), e);
+        }
+    }
+
+    private void onMessage(String json) {
+        RoomMessage msg;
+        try {
+            msg = objectMapper.readValue(json, RoomMessage.class);
+        } catch (Exception e) {
+            log.warn("无法解析节点消息: {}", json, e);
+            return;
+        }
+        if (RoomMessage.REPLY.equals(msg.kind())) {
+            CompletableFuture<RoomMessage> f = pending.get(msg.correlationId());
+            if (f != null) f.complete(msg);
+            return;
+        }
+        try {
+            handleRemote(msg);
+        } catch (Exception e) {
+            log.warn("转发指令处理失败: roomId={}, type={}", msg.roomId(), msg.type(), e);
+            fail(msg, e.getMessage() == null ? "房间指令处理失败" : e.getMessage());
+        }
+    }
+
+    /**
+     * 处理其他节点转来的指令：复核归属后投递到本地房间邮箱
+     */
+    private void handleRemote(RoomMessage msg) throws JsonProcessingException {
+        String owner = ownerOf(msg.roomId());
+        if (owner != null) {
+            if (msg.hops() >= MAX_HOPS) {
+                fail(msg, "房间归属切换中，请重试");
+                return;
+            }
+            if (deliver(owner, new RoomMessage(RoomMessage.CMD, msg.correlationId(), msg.replyTo(), msg.roomId(),
+                    msg.type(), msg.userId(), msg.payload(), msg.hops() + 1, null, null))) {
+                return;
+            }
+            // 原归属节点失联，本节点已接管：落到本地执行
+        }
+        Route<?> route = route(msg.type());
+        Object payload = msg.payload() == null || msg.payload().isNull()
+                ? null
+                : objectMapper.treeToValue(msg.payload(), route.payloadType());
+        if (msg.replyTo() == null) {
+            roomExecutor.execute(msg.roomId(), task(route, msg.roomId(), msg.userId(), payload));
+            return;
+        }
+        roomExecutor.submit(msg.roomId(), () -> invoke(route, msg.roomId(), msg.userId(), payload))
+                .whenComplete((result, err) -> {
+                    if (err == null) {
+                        reply(msg, result, null);
+                    } else {
+                        reply(msg, null, err.getMessage() == null ? "房间指令处理失败" : err.getMessage());
+                    }
+                });
+    }
+
+    /**
+     * 转发途中失败：同步指令回包给入口节点；异步指令点对点推送给发起用户（系统指令无用户，只记日志）
+     */
+    private void fail(RoomMessage req, String error) {
+        if (req.replyTo() != null) {
+            reply(req, null, error);
+            return;
+        }
+        if (req.userId() == null) {
+            log.warn("异步房间指令转发失败: roomId={}, type={}, err={}", req.roomId(), req.type(), error);
+            return;
+        }
+        try {
+            Map<String, Object> event = new LinkedHashMap<>();
+            event.put("roomId", req.roomId());
+            event.put("type", "ERROR");
+            event.put("payload", error);
+            messaging.convertAndSendToUser(req.userId(), ERROR_QUEUE, event);
+        } catch (Exception e) {
+            log.warn("推送指令失败通知失败: roomId={}, userId={}", req.roomId(), req.userId(), e);
+        }
+    }
+
+    private void reply(RoomMessage req, Object result, String error) {
+        if (req.replyTo() == null) return;
+        try {
+            publish(req.replyTo(), new RoomMessage(RoomMessage.REPLY, req.correlationId(), null, req.roomId(),
+                    req.type(), null, null, 0, result == null ? null : objectMapper.valueToTree(result), error));
+        } catch (Exception e) {
+            log.warn("回包失败: roomId={}, type={}", req.roomId(), req.type(), e);
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.gamehub.gameservice.platform.cluster;
+
+import com.gamehub.gameservice.games.gomoku.infrastructure.redis.RedisKeys;
+import com.gamehub.gameservice.infrastructure.redis.RedisOps;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RoomLeaseManager
+ * -------------------------------------------------------
+ * 房间归属租约：任意时刻每个房间只归一个 game-service 节点所有。
+ *
+ * 模型：
+ *  - 租约键 gomoku:{roomId}:owner = nodeId（PX 过期），谁先处理该房间的指令谁获得租约；
+ *  - 持有节点每 ttl/3 批量续期：每 RENEW_BATCH 个房间的续期脚本合成一个管道，一次往返；
+ *    续期失败（被抢占/已过期）即视为失去归属；
+ *    房间 Hash 已不存在时续期脚本顺带删除租约；
+ *  - 节点宕机后租约自然过期，下一条指令/孤儿扫描所在节点接管；优雅停机时主动释放；
+ *    租约未过期但原持有者的指令通道已无订阅者时，转发方可经 {@link #takeOver} 提前接管；
+ *  - 归属变化通过 {@link LeaseListener} 通知上层（清理/预热内存房间、接管/放手倒计时）。
+ *
+ * 本地判定 {@link #isLocal} 使用保守的本地有效期（获取/续期发起时刻 + ttl），
+ * Redis 不可达期间不会误以为自己仍持有已过期的租约。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RoomLeaseManager {
+
+    private static final DefaultRedisScript<String> ACQUIRE = new DefaultRedisScript<>();
+    private static final DefaultRedisScript<Long> RENEW = new DefaultRedisScript<>();
+    private static final DefaultRedisScript<Long> RELEASE = new DefaultRedisScript<>();
+    private static final DefaultRedisScript<String> TAKEOVER = new DefaultRedisScript<>();
+
+    static {
+        ACQUIRE.setLocation(new ClassPathResource("scripts/cluster/room_lease_acquire.lua"));
+        ACQUIRE.setResultType(String.class);
+        RENEW.setLocation(new ClassPathResource("scripts/cluster/room_lease_renew.lua"));
+        RENEW.setResultType(Long.class);
+        RELEASE.setLocation(new ClassPathResource("scripts/cluster/room_lease_release.lua"));
+        RELEASE.setResultType(Long.class);
+        TAKEOVER.setLocation(new ClassPathResource("scripts/cluster/room_lease_takeover.lua"));
+        TAKEOVER.setResultType(String.class);
+    }
+
+    /**
+     * 归属变化回调（在获取/续期线程上同步调用，实现应尽量轻量）
+     */
+    public interface LeaseListener {
+        /** 本节点获得房间归属 */
+        default void onAcquired(String roomId) {}
+        /** 本节点失去房间归属（被其他节点接管或租约过期） */
+        default void onLost(String roomId) {}
+    }
+
+    /** 每个续期管道包含的房间数 */
+    private static final int RENEW_BATCH = 256;
+
+    private final RedisOps ops;
+    private final NodeIdentity node;
+
+    /** 租约时长（毫秒） */
+    @Value("${gomoku.cluster.lease-ttl-ms:15000}")
+    private long leaseTtlMs;
+
+    /** 本节点持有的房间 -> 本地有效期（epoch ms） */
+    private final Map<String, Long> owned = new ConcurrentHashMap<>();
+
+    private final List<LeaseListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final ScheduledExecutorService renewer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "room-lease-renew");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @PostConstruct
+    public void start() {
+        long period = Math.max(1000L, leaseTtlMs / 3);
+        renewer.scheduleWithFixedDelay(this::renewAll, period, period, TimeUnit.MILLISECONDS);
+        log.info("房间租约管理启动: nodeId={}, ttlMs={}, renewEveryMs={}", node.getNodeId(), leaseTtlMs, period);
+    }
+
+    /**
+     * 优雅停机：主动释放全部租约，其他节点无需等待过期即可接管
+     */
+    @PreDestroy
+    public void shutdown() {
+        renewer.shutdownNow();
+        for (String roomId : List.copyOf(owned.keySet())) {
+            try {
+                release(roomId);
+            } catch (Exception e) {
+                log.warn("停机释放房间租约失败: roomId={}", roomId, e);
+            }
+        }
+    }
+
+    public void addListener(LeaseListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 本节点是否持有该房间（仅看本地视图，不访问 Redis）
+     */
+    public boolean isLocal(String roomId) {
+        Long validUntil = owned.get(roomId);
+        return validUntil != null && validUntil > System.currentTimeMillis();
+    }
+
+    /**
+     * 获取归属：无人持有则由本节点占有；已持有则顺带续期。
+     * @param roomId 房间ID
+     * @return 当前持有者 nodeId（等于本节点 nodeId 表示本节点持有）
+     */
+    public String tryAcquire(String roomId) {
+        long startedAt = System.currentTimeMillis();
+        String owner = ops.evalScript(ACQUIRE, List.of(RedisKeys.roomOwner(roomId)),
+                node.getNodeId(), String.valueOf(leaseTtlMs));
+        return track(roomId, owner, startedAt);
+    }
+
+    /**
+     * 接管失联节点的归属：租约仍是 deadOwner（或已过期）时改为本节点，否则不动。
+     * 仅在确认 deadOwner 的指令通道无订阅者后调用；原持有者若其实还活着，下次续期即失去归属。
+     * @param roomId    房间ID
+     * @param deadOwner 确认失联的原持有者 nodeId
+     * @return 当前持有者 nodeId（等于本节点 nodeId 表示接管成功）
+     */
+    public String takeOver(String roomId, String deadOwner) {
+        long startedAt = System.currentTimeMillis();
+        String owner = ops.evalScript(TAKEOVER, List.of(RedisKeys.roomOwner(roomId)),
+                node.getNodeId(), deadOwner, String.valueOf(leaseTtlMs));
+        if (node.getNodeId().equals(owner)) {
+            log.warn("接管失联节点的房间归属: roomId={}, deadOwner={}", roomId, deadOwner);
+        }
+        return track(roomId, owner, startedAt);
+    }
+
+    /**
+     * 获取归属的便捷形式
+     * @return true 表示本节点持有
+     */
+    public boolean acquire(String roomId) {
+        return isLocal(roomId) || node.getNodeId().equals(tryAcquire(roomId));
+    }
+
+    /**
+     * 释放归属（比较后删除）；房间销毁/停机时调用，不触发 onLost
+     */
+    public void release(String roomId) {
+        if (owned.remove(roomId) == null) return;
+        ops.evalScript(RELEASE, List.of(RedisKeys.roomOwner(roomId)), node.getNodeId());
+    }
+
+    /** 本节点持有的房间数（监控用） */
+    public int ownedCount() {
+        return owned.size();
+    }
+
+    // ------------------------------------------------------------------
+
+    /**
+     * 按脚本返回的持有者更新本地视图并通知监听器
+     */
+    private String track(String roomId, String owner, long startedAt) {
+        if (node.getNodeId().equals(owner)) {
+            if (owned.put(roomId, startedAt + leaseTtlMs) == null) {
+                log.info("获得房间归属: roomId={}, nodeId={}", roomId, owner);
+                listeners.forEach(l -> safely(() -> l.onAcquired(roomId)));
+            }
+        } else if (owned.remove(roomId) != null) {
+            fireLost(roomId);
+        }
+        return owner;
+    }
+
+    private void renewAll() {
+        List<String> rooms = List.copyOf(owned.keySet());
+        for (int from = 0; from < rooms.size(); from += RENEW_BATCH) {
+            renewBatch(rooms.subList(from, Math.min(rooms.size(), from + RENEW_BATCH)));
+        }
+    }
+
+    /**
+     * 一批房间的续期脚本放进一个管道，一次往返；本地有效期按整批发起时刻计算
+     */
+    private void renewBatch(List<String> rooms) {
+        String ttl = String.valueOf(leaseTtlMs);
+        List<RedisOps.ScriptCall> calls = rooms.stream()
+                .map(roomId -> new RedisOps.ScriptCall(
+                        List.of(RedisKeys.roomOwner(roomId), RedisKeys.room(roomId)),
+                        List.of(node.getNodeId(), ttl)))
+                .toList();
+        long startedAt = System.currentTimeMillis();
+        List<Long> results;
+        try {
+            results = ops.evalScriptBatch(RENEW, calls);
+        } catch (Exception e) {
+            // Redis 暂不可达：保留本地视图，本地有效期到点后 isLocal 自然失效
+            log.warn("房间租约续期失败: rooms={}, err={}", rooms.size(), e.getMessage());
+            return;
+        }
+        for (int i = 0; i < rooms.size(); i++) {
+            String roomId = rooms.get(i);
+            Long r = results.get(i);
+            if (r != null && r == 1L) {
+                owned.replace(roomId, startedAt + leaseTtlMs);
+            } else if (owned.remove(roomId) != null && (r == null || r == 0L)) {
+                // r = -1：房间已不存在，租约已删除，无需通知
+                fireLost(roomId);
+            }
+        }
+    }
+
+    private void fireLost(String roomId) {
+        log.warn("失去房间归属: roomId={}, nodeId={}", roomId, node.getNodeId());
+        listeners.forEach(l -> safely(() -> l.onLost(roomId)));
+    }
+
+    private void safely(Runnable r) {
+        try {
+            r.run();
+        } catch (Exception e) {
+            log.error("房间归属回调异常", e);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.gamehub.gameservice.platform.ws;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 出站投递确认。
+ *
+ * 说明：
+ * - 需要确认送达的消息带 {@link #TICKET_HEADER}（SimpleBroker 投递时会把原消息头复制到出站消息上）；
+ * - 注册在 clientOutboundChannel 上：出站线程把消息交给会话之后回调 afterMessageHandled，按票据完成对应的 future；
+ * - 回调里只完成 future，后续动作（断开连接等）由调用方切到自己的线程执行，不占出站线程；
+ * - 会话不在本实例、未订阅目标队列等情况下永远不会确认，由调用方超时兜底（{@link #expire}）。
+ */
+@Component
+public class OutboundDeliveryTracker implements ExecutorChannelInterceptor {
+
+    /** 投递票据消息头 */
+    public static final String TICKET_HEADER = "wsDeliveryTicket";
+
+    /** 票据 -> 确认结果（true 已交给会话，false 发送异常或超时） */
+    private final ConcurrentMap<String, CompletableFuture<Boolean>> pending = new ConcurrentHashMap<>();
+
+    /**
+     * 新建票据
+     * @return 票据（放入消息头 {@link #TICKET_HEADER}）
+     */
+    public String newTicket() {
+        String ticket = UUID.randomUUID().toString();
+        pending.put(ticket, new CompletableFuture<>());
+        return ticket;
+    }
+
+    /**
+     * 票据对应的确认结果（票据已结束时返回已完成的 false）
+     */
+    public CompletableFuture<Boolean> confirmation(String ticket) {
+        CompletableFuture<Boolean> f = pending.get(ticket);
+        return f == null ? CompletableFuture.completedFuture(false) : f;
+    }
+
+    /**
+     * 超时：未确认的票据以 false 结束
+     * @return true 表示本次调用结束了该票据
+     */
+    public boolean expire(String ticket) {
+        CompletableFuture<Boolean> f = pending.remove(ticket);
+        return f != null && f.complete(false);
+    }
+
+    /** 未结束的票据数（监控用） */
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        Object ticket = message.getHeaders().get(TICKET_HEADER);
+        if (ticket == null) {
+            return;
+        }
+        CompletableFuture<Boolean> f = pending.remove(ticket.toString());
+        if (f != null) {
+            f.complete(ex == null);
+        }
+    }
+}
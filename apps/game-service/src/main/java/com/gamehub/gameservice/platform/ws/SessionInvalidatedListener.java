@@ -8,6 +8,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.util.CollectionUtils;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -15,6 +16,7 @@ import java.util.List;
  * 
  * 监听来自 Kafka 的会话失效事件（如用户登出、修改密码等），
  * 自动断开该用户在 game-service 中的所有 WebSocket 连接。
+ * 断开经 {@link WebSocketDisconnectHelper#kickAll} 异步执行（先通知、确认或超时后关闭），监听线程不等待。
  */
 @Slf4j
 @Component
@@ -37,7 +39,7 @@ public class SessionInvalidatedListener implements SessionEventListener {
      * 处理会话失效事件。
      * 
      * 当收到会话失效事件时（如用户登出），查询该用户在 game-service 中的所有 WebSocket 会话，
-     * 发送踢人通知并强制断开连接。
+     * 移除会话记录，并批量发送踢人通知、确认后断开连接。
      * 
      * 重要：支持基于 loginSessionId 的精确查询（如果事件包含 loginSessionId）。
      * 如果事件只有 userId，则基于 userId 查询（向后兼容）。
@@ -81,25 +83,20 @@ public class SessionInvalidatedListener implements SessionEventListener {
         // 生成踢人原因
         String reason = getKickReason(event);
         
-        // 对每个会话执行断连操作
+        // 先从会话注册表中移除（连接随后关闭，Redis 中的记录不必等连接真正断开）
+        List<WebSocketDisconnectHelper.Target> targets = new ArrayList<>(gameServiceSessions.size());
         for (WebSocketSessionInfo session : gameServiceSessions) {
             try {
-                // 1. 发送踢人通知
-                disconnectHelper.sendKickMessage(userId, session.getSessionId(), reason);
-                
-                // 2. 强制断开连接
-                disconnectHelper.forceDisconnect(session.getSessionId());
-                
-                // 3. 从会话注册表中移除（虽然连接已断开，但清理 Redis 中的记录）
                 sessionRegistry.unregisterWebSocketSession(session.getSessionId());
-                
-                log.debug("已断开用户 {} 的 WebSocket 连接: sessionId={}", userId, session.getSessionId());
             } catch (Exception e) {
-                log.error("断开用户 {} WebSocket 连接失败: sessionId={}", userId, session.getSessionId(), e);
+                log.error("移除用户 {} WebSocket 会话记录失败: sessionId={}", userId, session.getSessionId(), e);
             }
+            targets.add(new WebSocketDisconnectHelper.Target(userId, session.getSessionId()));
         }
 
-        log.info("用户 {} 的所有 WebSocket 连接已断开: 共 {} 个", userId, gameServiceSessions.size());
+        // 批量“通知后断开”：异步执行，不阻塞 Kafka 消费线程
+        disconnectHelper.kickAll(targets, reason)
+                .whenComplete((v, e) -> log.info("用户 {} 的所有 WebSocket 连接已断开: 共 {} 个", userId, targets.size()));
     }
 
     /**
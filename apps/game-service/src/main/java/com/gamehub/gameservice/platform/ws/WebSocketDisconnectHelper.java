@@ -1,23 +1,46 @@
 package com.gamehub.gameservice.platform.ws;
 
+import com.gamehub.session.SessionRegistry;
+import com.gamehub.session.model.WebSocketSessionInfo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.messaging.simp.stomp.StompCommand;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * WebSocket 断连工具类。
- * 
- * 提供统一的 WebSocket 断连方法，供多个组件复用：
+ *
+ * 提供统一的“先通知、再断开”流程，供多个组件复用：
  * - {@link WebSocketSessionManager}：单点登录时踢掉旧连接
- * - {@link SessionInvalidatedListener}：会话失效时断开连接
+ * - {@link SessionInvalidatedListener}：会话失效时断开连接（可批量）
+ * - 五子棋房主踢人：先推 KICKED 事件，再断开被踢玩家
+ *
+ * 流程（全程不阻塞调用线程、入站线程与出站线程）：
+ * 1. 通知（调用方附带的通知 + /queue/system.kick）按会话定向发送，每条带投递票据（{@link OutboundDeliveryTracker}）；
+ * 2. 出站线程把通知交给会话后确认票据；确认或 confirm-timeout-ms 超时（以先到者为准）后，
+ *    在本类的 ws-disconnect 线程上发送 STOMP DISCONNECT 关闭会话；
+ * 3. 返回的 future 在会话关闭后完成，调用方可在其上挂后续动作（在 ws-disconnect 线程上执行）。
  */
 @Slf4j
 @Component
@@ -26,46 +49,136 @@ public class WebSocketDisconnectHelper {
     /** 踢人消息的目标队列地址 */
     private static final String KICK_DESTINATION = "/queue/system.kick";
 
+    private static final String SERVICE_NAME = "game-service";
+
+    /** 断开前推送给会话的一条通知 */
+    public record Notice(String destination, Object payload) {}
+
+    /** 待断开的会话 */
+    public record Target(String userId, String sessionId) {}
+
     /** STOMP 消息模板，用于向客户端发送踢人通知 */
-    private final org.springframework.messaging.simp.SimpMessagingTemplate messagingTemplate;
+    private final SimpMessagingTemplate messagingTemplate;
 
     /** 客户端入站消息通道，用于强制断开连接 */
     private final MessageChannel clientInboundChannel;
 
+    /** 出站投递确认 */
+    private final OutboundDeliveryTracker deliveryTracker;
+
+    /** 会话注册表，用于按用户查询 WebSocket 会话 */
+    private final SessionRegistry sessionRegistry;
+
+    private final Counter confirmed;
+    private final Counter timedOut;
+
+    /** 通知确认的最长等待（毫秒），超时后照常断开 */
+    @Value("${ws.disconnect.confirm-timeout-ms:500}")
+    private long confirmTimeoutMs;
+
+    /** 超时与断开的执行线程 */
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "ws-disconnect");
+        t.setDaemon(true);
+        return t;
+    });
+
     public WebSocketDisconnectHelper(
-            org.springframework.messaging.simp.SimpMessagingTemplate messagingTemplate,
-            @Qualifier("clientInboundChannel") MessageChannel clientInboundChannel) {
+            SimpMessagingTemplate messagingTemplate,
+            @Qualifier("clientInboundChannel") MessageChannel clientInboundChannel,
+            OutboundDeliveryTracker deliveryTracker,
+            SessionRegistry sessionRegistry,
+            MeterRegistry meterRegistry) {
         this.messagingTemplate = messagingTemplate;
         this.clientInboundChannel = clientInboundChannel;
+        this.deliveryTracker = deliveryTracker;
+        this.sessionRegistry = sessionRegistry;
+        this.confirmed = Counter.builder("ws.disconnect.notices").tag("outcome", "confirmed")
+                .description("断开前通知的确认结果").register(meterRegistry);
+        this.timedOut = Counter.builder("ws.disconnect.notices").tag("outcome", "timeout")
+                .description("断开前通知的确认结果").register(meterRegistry);
+        Gauge.builder("ws.disconnect.pending", deliveryTracker, OutboundDeliveryTracker::pendingCount)
+                .description("等待确认的断开前通知数").register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
     }
 
     /**
-     * 向客户端发送踢人通知。
-     * 
+     * 通知并断开单个会话。
+     *
      * @param userId 用户 ID
      * @param sessionId 会话 ID
      * @param reason 踢人原因
+     * @param before 在踢人通知之前推送的通知（可为空）
+     * @return 会话关闭后完成
      */
-    public void sendKickMessage(String userId, String sessionId, String reason) {
-        try {
-            SimpMessageHeaderAccessor headerAccessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
-            headerAccessor.setSessionId(sessionId);
-            headerAccessor.setLeaveMutable(true);
-            
-            messagingTemplate.convertAndSendToUser(
-                    userId,
-                    KICK_DESTINATION,
-                    Map.of("type", "WS_KICK", "reason", reason),
-                    headerAccessor.getMessageHeaders()
-            );
-        } catch (Exception e) {
-            log.warn("发送踢人通知失败: userId={}, sessionId={}", userId, sessionId, e);
+    public CompletableFuture<Void> kick(String userId, String sessionId, String reason, List<Notice> before) {
+        List<CompletableFuture<Boolean>> acks = new ArrayList<>();
+        if (before != null) {
+            for (Notice n : before) {
+                acks.add(sendTracked(userId, sessionId, n.destination(), n.payload()));
+            }
+        }
+        acks.add(sendTracked(userId, sessionId, KICK_DESTINATION, Map.of("type", "WS_KICK", "reason", reason)));
+        CompletableFuture<Void> closed = new CompletableFuture<>();
+        CompletableFuture.allOf(acks.toArray(CompletableFuture[]::new)).whenComplete((v, e) -> {
+            try {
+                scheduler.execute(() -> {
+                    forceDisconnect(sessionId);
+                    closed.complete(null);
+                });
+            } catch (RejectedExecutionException ex) {
+                // 停机中：就地断开
+                forceDisconnect(sessionId);
+                closed.complete(null);
+            }
+        });
+        return closed;
+    }
+
+    /**
+     * 批量通知并断开（管理员批量下线、会话失效等）。
+     *
+     * @param targets 待断开的会话
+     * @param reason 踢人原因
+     * @return 全部会话关闭后完成
+     */
+    public CompletableFuture<Void> kickAll(Collection<Target> targets, String reason) {
+        List<CompletableFuture<Void>> all = new ArrayList<>(targets.size());
+        for (Target t : targets) {
+            all.add(kick(t.userId(), t.sessionId(), reason, List.of()));
         }
+        return CompletableFuture.allOf(all.toArray(CompletableFuture[]::new));
     }
 
     /**
-     * 强制断开 WebSocket 连接。
-     * 
+     * 通知并断开用户在 game-service 的全部会话。
+     *
+     * @param userId 用户 ID
+     * @param reason 踢人原因
+     * @param before 在踢人通知之前推送的通知（可为空）
+     * @return 全部会话关闭后完成；用户无会话时返回已完成的 future
+     */
+    public CompletableFuture<Void> kickUser(String userId, String reason, List<Notice> before) {
+        List<WebSocketSessionInfo> sessions = sessionRegistry.getWebSocketSessions(userId);
+        if (sessions == null || sessions.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<CompletableFuture<Void>> all = new ArrayList<>();
+        for (WebSocketSessionInfo s : sessions) {
+            if (SERVICE_NAME.equals(s.getService())) {
+                all.add(kick(userId, s.getSessionId(), reason, before));
+            }
+        }
+        return CompletableFuture.allOf(all.toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * 强制断开 WebSocket 连接（不发通知、不等待）。
+     *
      * @param sessionId 会话 ID
      */
     public void forceDisconnect(String sessionId) {
@@ -80,5 +193,33 @@ public class WebSocketDisconnectHelper {
             log.warn("强制断开连接失败: sessionId={}", sessionId, e);
         }
     }
-}
 
+    // ------------------------------------------------------------------
+
+    /**
+     * 向单个会话发送一条带投递票据的消息，返回确认结果（超时为 false）
+     */
+    private CompletableFuture<Boolean> sendTracked(String userId, String sessionId, String destination, Object payload) {
+        String ticket = deliveryTracker.newTicket();
+        CompletableFuture<Boolean> ack = deliveryTracker.confirmation(ticket);
+        try {
+            SimpMessageHeaderAccessor headerAccessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            headerAccessor.setSessionId(sessionId);
+            headerAccessor.setHeader(OutboundDeliveryTracker.TICKET_HEADER, ticket);
+            headerAccessor.setLeaveMutable(true);
+            messagingTemplate.convertAndSendToUser(userId, destination, payload, headerAccessor.getMessageHeaders());
+            scheduler.schedule(() -> {
+                if (deliveryTracker.expire(ticket)) {
+                    timedOut.increment();
+                    log.debug("断开前通知未确认，超时断开: userId={}, sessionId={}, destination={}",
+                            userId, sessionId, destination);
+                }
+            }, confirmTimeoutMs, TimeUnit.MILLISECONDS);
+            ack.thenAccept(ok -> { if (ok) confirmed.increment(); });
+        } catch (Exception e) {
+            log.warn("发送断开前通知失败: userId={}, sessionId={}, destination={}", userId, sessionId, destination, e);
+            deliveryTracker.expire(ticket);
+        }
+        return ack;
+    }
+}
@@ -1,16 +1,15 @@
 package com.gamehub.gameservice.platform.ws;
 
-import com.gamehub.gameservice.games.gomoku.domain.model.GomokuSnapshot;
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.gamehub.gameservice.games.gomoku.application.RoomBroadcaster;
 import com.gamehub.gameservice.games.gomoku.interfaces.ws.dto.GomokuMessages;
 import com.gamehub.session.SessionRegistry;
 import com.gamehub.session.model.WebSocketSessionInfo;
+import com.gamehub.gameservice.games.gomoku.domain.repository.RoomEventRepository;
 import com.gamehub.gameservice.games.gomoku.domain.repository.RoomRepository;
-import com.gamehub.gameservice.games.gomoku.infrastructure.redis.RedisKeys;
 import com.gamehub.gameservice.games.gomoku.service.GomokuService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.event.EventListener;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
@@ -21,7 +20,6 @@ import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 
 import java.security.Principal;
 import java.util.List;
-import java.util.Set;
 
 /**
  * 监听 STOMP 连接/断开事件，结合 session-common 实现 WS 单点登录与踢旧。
@@ -42,24 +40,24 @@ public class WebSocketSessionManager {
     /** 游戏服务，用于广播房间快照 */
     private final GomokuService gomokuService;
 
-    /** 消息模板，用于广播到房间 */
-    private final SimpMessagingTemplate messagingTemplate;
+    /** 房间广播，用于推送到房间 */
+    private final RoomBroadcaster broadcaster;
 
-    /** Redis模板，用于查询房间索引 */
-    private final RedisTemplate<String, Object> redisTemplate;
+    /** 房间事件序号：连接状态快照与其他广播共用同一序列 */
+    private final RoomEventRepository roomEvents;
 
     public WebSocketSessionManager(SessionRegistry sessionRegistry,
                                    WebSocketDisconnectHelper disconnectHelper,
                                    RoomRepository roomRepository,
                                    GomokuService gomokuService,
-                                   SimpMessagingTemplate messagingTemplate,
-                                   RedisTemplate<String, Object> redisTemplate) {
+                                   RoomBroadcaster broadcaster,
+                                   RoomEventRepository roomEvents) {
         this.sessionRegistry = sessionRegistry;
         this.disconnectHelper = disconnectHelper;
         this.roomRepository = roomRepository;
         this.gomokuService = gomokuService;
-        this.messagingTemplate = messagingTemplate;
-        this.redisTemplate = redisTemplate;
+        this.broadcaster = broadcaster;
+        this.roomEvents = roomEvents;
     }
 
     /**
@@ -108,10 +106,10 @@ public class WebSocketSessionManager {
         if (!CollectionUtils.isEmpty(sameService)) {
             log.info("用户 {} WebSocket(game-service) 单点，新连接 {} 踢掉旧连接 {} 个, loginSessionId={}",
                     userId, sessionId, sameService.size(), loginSessionId);
-            sameService.forEach(old -> {
-                disconnectHelper.sendKickMessage(userId, old.getSessionId(), "账号已在其他终端登录");
-                disconnectHelper.forceDisconnect(old.getSessionId());
-            });
+            // 异步：通知旧连接并在确认/超时后断开，不阻塞当前入站线程
+            disconnectHelper.kickAll(sameService.stream()
+                    .map(old -> new WebSocketDisconnectHelper.Target(userId, old.getSessionId()))
+                    .toList(), "账号已在其他终端登录");
         } else {
             log.info("用户 {} WebSocket(game-service) 连接 {} 注册完成，无旧连接, loginSessionId={}",
                     userId, sessionId, loginSessionId);
@@ -210,13 +208,14 @@ public class WebSocketSessionManager {
                 // 广播房间快照，让房间内其他在线玩家知道该玩家已断开
                 // 注意：此时 SessionRegistry 已清理，snapshot() 查询连接状态时会正确返回"离线"
                 try {
-                    GomokuSnapshot snap = gomokuService.snapshot(roomId);
+                    RawValue snap = new RawValue(gomokuService.snapshotJson(roomId));
                     GomokuMessages.BroadcastEvent evt =
                             new GomokuMessages.BroadcastEvent();
                     evt.setRoomId(roomId);
                     evt.setType("SNAPSHOT");
+                    evt.setSeq(roomEvents.nextSeq(roomId));
                     evt.setPayload(snap);
-                    messagingTemplate.convertAndSend("/topic/room." + roomId, evt);
+                    broadcaster.publish(roomId, evt);
                     log.debug("【WebSocket断开检测】已广播房间快照: roomId={}, userId={}", roomId, userId);
                 } catch (Exception e) {
                     log.warn("【WebSocket断开检测】广播房间快照失败: roomId={}, userId={}", roomId, userId, e);
@@ -227,41 +226,18 @@ public class WebSocketSessionManager {
 
     /**
      * 根据userId查询玩家所在房间
-     * 遍历房间索引，检查每个房间的SeatsBinding
+     * 读取座位反向索引（随座位绑定维护，一次 HGET），不再遍历房间索引
      */
     private String findRoomByUserId(String userId) {
         if (userId == null || userId.isBlank()) {
             return null;
         }
         try {
-            // 获取所有房间ID（从房间索引ZSET）
-            Set<Object> roomIds = redisTemplate.opsForZSet()
-                    .range(RedisKeys.roomIndexKey(), 0, -1);
-            
-            if (roomIds == null || roomIds.isEmpty()) {
-                return null;
-            }
-            
-            // 遍历房间，查找包含该userId的房间
-            for (Object roomIdObj : roomIds) {
-                String roomId = String.valueOf(roomIdObj);
-                try {
-                    var seatsOpt = roomRepository.getSeats(roomId);
-                    if (seatsOpt.isPresent()) {
-                        var seats = seatsOpt.get();
-                        if (userId.equals(seats.getSeatXSessionId()) || userId.equals(seats.getSeatOSessionId())) {
-                            return roomId;
-                        }
-                    }
-                } catch (Exception e) {
-                    // 忽略单个房间查询失败，继续查找
-                    log.debug("查询房间座位信息失败: roomId={}", roomId, e);
-                }
-            }
+            return roomRepository.findRoomOfUser(userId).orElse(null);
         } catch (Exception e) {
             log.warn("查询玩家所在房间失败: userId={}", userId, e);
+            return null;
         }
-        return null;
     }
 
 }
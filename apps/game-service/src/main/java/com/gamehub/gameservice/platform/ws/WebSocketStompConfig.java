@@ -1,5 +1,6 @@
 package com.gamehub.gameservice.platform.ws;
 
+import com.gamehub.gameservice.games.gomoku.interfaces.ws.codec.CompactEncodingInterceptor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
@@ -20,15 +21,24 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
  * 用途：
  *   - /app/... : 客户端发送（如 /app/gomoku.place）
  *   - /topic/... : 服务端广播（如 /topic/room.{roomId}）
+ *   - CONNECT 头 x-gomoku-codec=bin|b64：房间事件改用紧凑编码（默认 JSON）
+ *   - 多实例部署：开启 ws.relay.enabled 后由 libs/ws-relay 在 broker 通道上经 Redis 转发 /topic、/user 消息，
+ *     本类无需改动，SimpleBroker 仍只负责本实例的会话
  */
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketStompConfig implements WebSocketMessageBrokerConfigurer {
 
     private final WebSocketAuthChannelInterceptor authInterceptor;
+    private final CompactEncodingInterceptor codecInterceptor;
+    private final OutboundDeliveryTracker deliveryTracker;
 
-    public WebSocketStompConfig(WebSocketAuthChannelInterceptor authInterceptor) {
+    public WebSocketStompConfig(WebSocketAuthChannelInterceptor authInterceptor,
+                                CompactEncodingInterceptor codecInterceptor,
+                                OutboundDeliveryTracker deliveryTracker) {
         this.authInterceptor = authInterceptor;
+        this.codecInterceptor = codecInterceptor;
+        this.deliveryTracker = deliveryTracker;
     }
 
     /**
@@ -93,6 +103,16 @@ public class WebSocketStompConfig implements WebSocketMessageBrokerConfigurer {
      */
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
-        registration.interceptors(authInterceptor);
+        registration.interceptors(authInterceptor, codecInterceptor);
+    }
+
+    /**
+     * 为客户端出站通道添加拦截器。
+     * 用于按 CONNECT 时协商的编码（x-gomoku-codec）改写房间事件，
+     * 以及确认断开前通知已交给会话（见 WebSocketDisconnectHelper）。
+     */
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.interceptors(codecInterceptor, deliveryTracker);
     }
 }
@@ -0,0 +1,18 @@
+-- 房间归属租约：获取 / 续期 / 查询（EVALSHA）
+-- 无人持有则由调用方占有；调用方已持有则顺带续期；否则原样返回当前持有者。
+--
+-- KEYS[1] 租约键（gomoku:{roomId}:owner）
+-- ARGV[1] 调用方 nodeId
+-- ARGV[2] 租约时长（毫秒）
+--
+-- 返回：当前持有者 nodeId（获取成功时即 ARGV[1]）
+
+local cur = redis.call('GET', KEYS[1])
+if not cur then
+  redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2])
+  return ARGV[1]
+end
+if cur == ARGV[1] then
+  redis.call('PEXPIRE', KEYS[1], ARGV[2])
+end
+return cur
@@ -0,0 +1,11 @@
+-- 房间归属租约：释放（EVALSHA，比较后删除）
+--
+-- KEYS[1] 租约键（gomoku:{roomId}:owner）
+-- ARGV[1] 调用方 nodeId
+--
+-- 返回：1 已释放；0 不是持有者
+
+if redis.call('GET', KEYS[1]) == ARGV[1] then
+  return redis.call('DEL', KEYS[1])
+end
+return 0
@@ -0,0 +1,19 @@
+-- 房间归属租约：续期（EVALSHA）
+-- 只有仍是持有者才续期；房间 Hash 已不存在（销毁/过期）时顺带释放租约。
+--
+-- KEYS[1] 租约键（gomoku:{roomId}:owner）
+-- KEYS[2] 房间 Hash（gomoku:{roomId}:room），与租约同一 hash tag
+-- ARGV[1] 调用方 nodeId
+-- ARGV[2] 租约时长（毫秒）
+--
+-- 返回：1 续期成功；0 已被其他节点持有或已过期；-1 房间已不存在（租约已删除）
+
+if redis.call('GET', KEYS[1]) ~= ARGV[1] then
+  return 0
+end
+if redis.call('EXISTS', KEYS[2]) == 0 then
+  redis.call('DEL', KEYS[1])
+  return -1
+end
+redis.call('PEXPIRE', KEYS[1], ARGV[2])
+return 1
@@ -0,0 +1,20 @@
+-- 房间归属租约：接管（EVALSHA，比较后替换）
+-- 原持有者的指令通道已无订阅者（节点已宕机但租约未过期）时，由调用方直接接管；
+-- 期间租约已换人则不动，原样返回当前持有者。
+--
+-- KEYS[1] 租约键（gomoku:{roomId}:owner）
+-- ARGV[1] 调用方 nodeId
+-- ARGV[2] 确认失联的原持有者 nodeId
+-- ARGV[3] 租约时长（毫秒）
+--
+-- 返回：当前持有者 nodeId（接管成功时即 ARGV[1]）
+
+local cur = redis.call('GET', KEYS[1])
+if not cur or cur == ARGV[2] then
+  redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[3])
+  return ARGV[1]
+end
+if cur == ARGV[1] then
+  redis.call('PEXPIRE', KEYS[1], ARGV[3])
+end
+return cur
@@ -0,0 +1,17 @@
+-- 认领一批已到期的倒计时（EVALSHA），任意节点均可调用
+-- ZRANGEBYSCORE 取出截止时间不晚于 ARGV[1] 的成员，并在同一脚本内把它们移出到期窗口：
+-- 不直接删除，而是把 score 改为认领有效期 ARGV[3]——认领方在执行超时前宕机时，到期后可被其他节点重新认领；
+-- 超时处理完成时由 stop() 从索引中 ZREM。
+--
+-- KEYS[1] 活跃倒计时索引（countdown:index，member = 业务键，score = deadlineEpochMs）
+-- ARGV[1] 到期上限（毫秒，now - 宽限）
+-- ARGV[2] 本批最多认领数
+-- ARGV[3] 认领有效期（毫秒时间戳，now + claimTtl）
+--
+-- 返回：本次认领的成员列表（按截止时间升序）
+
+local due = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, tonumber(ARGV[2]))
+for _, member in ipairs(due) do
+  redis.call('ZADD', KEYS[1], 'XX', ARGV[3], member)
+end
+return due
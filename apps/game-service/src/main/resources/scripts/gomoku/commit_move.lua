@@ -0,0 +1,105 @@
+-- 五子棋单步落子原子提交（EVALSHA）
+-- 一次往返内完成：校验 phase / 盘ID / 终局 / 步数 / 轮到方 / 落点占用，
+-- 追加走子日志、自增 turnSeq、重写回合锚点与截止时间，按需重写压缩快照。
+--
+-- KEYS[1] 房间 Hash（字段 meta：RoomMeta JSON；字段 turn：TurnAnchor JSON）
+-- KEYS[2] 单盘压缩快照（GameStateRecord JSON）
+-- KEYS[3] 单盘走子日志（List："x,y,P"）
+-- 三个键共用 {roomId} hash tag，Redis Cluster 下位于同一 slot
+--
+-- ARGV[1] x            ARGV[2] y             ARGV[3] 棋色 X/O
+-- ARGV[4] 期望步数（落子前日志长度）
+-- ARGV[5] 下一回合截止时间（毫秒，终局为 0）
+-- ARGV[6] 下一回合执子方（X/O，终局为空串）
+-- ARGV[7] roomId       ARGV[8] gameId
+-- ARGV[9] TurnAnchor 类名（Jackson 类型信息）
+-- ARGV[10] 新快照 JSON（空串表示本步不重写快照）
+-- ARGV[11] 日志/快照 TTL（毫秒）
+--
+-- 返回：{"OK", step, turnSeq, side, deadline} 或 {"ERR", reason}
+
+local x = tonumber(ARGV[1])
+local y = tonumber(ARGV[2])
+local piece = ARGV[3]
+local expectedStep = tonumber(ARGV[4])
+local size = 15
+
+local metaRaw = redis.call('HGET', KEYS[1], 'meta')
+if not metaRaw then
+  return {'ERR', 'ROOM_NOT_FOUND'}
+end
+local meta = cjson.decode(metaRaw)
+if meta['phase'] ~= 'PLAYING' then
+  return {'ERR', 'NOT_PLAYING'}
+end
+if meta['gameId'] ~= ARGV[8] then
+  return {'ERR', 'STALE_GAME'}
+end
+
+local snapRaw = redis.call('GET', KEYS[2])
+if not snapRaw then
+  return {'ERR', 'GAME_NOT_FOUND'}
+end
+local snap = cjson.decode(snapRaw)
+if snap['over'] == true then
+  return {'ERR', 'GAME_OVER'}
+end
+
+local len = redis.call('LLEN', KEYS[3])
+if len ~= expectedStep then
+  return {'ERR', 'STALE_STEP'}
+end
+
+local expectedTurn = 'X'
+if len > 0 then
+  local last = redis.call('LINDEX', KEYS[3], -1)
+  if string.sub(last, -1) == 'X' then expectedTurn = 'O' end
+end
+if piece ~= expectedTurn then
+  return {'ERR', 'NOT_YOUR_TURN'}
+end
+
+if x == nil or y == nil or x < 0 or y < 0 or x >= size or y >= size then
+  return {'ERR', 'OUT_OF_BOARD'}
+end
+local board = snap['board']
+if type(board) == 'string' and string.len(board) == size * size then
+  local idx = x * size + y + 1
+  if string.sub(board, idx, idx) ~= '.' then
+    return {'ERR', 'OCCUPIED'}
+  end
+end
+local base = tonumber(snap['step']) or 0
+local prefix = x .. ',' .. y .. ','
+local tail = redis.call('LRANGE', KEYS[3], base, -1)
+for i = 1, #tail do
+  if string.sub(tail[i], 1, string.len(prefix)) == prefix then
+    return {'ERR', 'OCCUPIED'}
+  end
+end
+
+local ttl = tonumber(ARGV[11])
+redis.call('RPUSH', KEYS[3], prefix .. piece)
+redis.call('PEXPIRE', KEYS[3], ttl)
+if ARGV[10] ~= '' then
+  redis.call('SET', KEYS[2], ARGV[10], 'PX', ttl)
+end
+
+local turnSeq = 0
+local anchorRaw = redis.call('HGET', KEYS[1], 'turn')
+if anchorRaw then
+  local a = cjson.decode(anchorRaw)
+  turnSeq = tonumber(a['turnSeq']) or 0
+end
+turnSeq = turnSeq + 1
+
+local anchor = {}
+anchor['@class'] = ARGV[9]
+anchor['roomId'] = ARGV[7]
+anchor['gameId'] = ARGV[8]
+if ARGV[6] ~= '' then anchor['side'] = ARGV[6] end
+anchor['deadlineEpochMs'] = tonumber(ARGV[5])
+anchor['turnSeq'] = turnSeq
+redis.call('HSET', KEYS[1], 'turn', cjson.encode(anchor))
+
+return {'OK', tostring(len + 1), tostring(turnSeq), ARGV[6], ARGV[5]}
@@ -0,0 +1,20 @@
+-- 房间事件序号分配（EVALSHA），可选地把增量追加到有界日志
+--
+-- KEYS[1] 序号键（String，INCR）
+-- KEYS[2] 增量日志（ZSET，score = 序号，member = StateDelta JSON）
+-- 两个键共用 {roomId} hash tag，Redis Cluster 下位于同一 slot
+--
+-- ARGV[1] 增量 JSON（空串表示只分配序号，不记录）
+-- ARGV[2] 日志保留条数
+-- ARGV[3] TTL（毫秒）
+--
+-- 返回：新序号
+
+local seq = redis.call('INCR', KEYS[1])
+redis.call('PEXPIRE', KEYS[1], ARGV[3])
+if ARGV[1] ~= '' then
+  redis.call('ZADD', KEYS[2], seq, ARGV[1])
+  redis.call('ZREMRANGEBYRANK', KEYS[2], 0, -(tonumber(ARGV[2]) + 1))
+  redis.call('PEXPIRE', KEYS[2], ARGV[3])
+end
+return seq
@@ -0,0 +1,38 @@
+-- 维护大厅房间列表（EVALSHA）：摘要与可加入索引一起更新，读者不会看到“在索引里却没有摘要”的中间状态
+--
+-- KEYS[1]    房间摘要（HASH，field = roomId，value = RoomListEntry JSON）
+-- KEYS[2..n] 可加入索引（ZSET，score = createdAt）：全部 + 按规则；upsert 只传房间所属规则，remove 传全部规则
+--
+-- ARGV[1] 操作：upsert / remove
+-- ARGV[2] roomId
+-- ARGV[3] 摘要 JSON（upsert）
+-- ARGV[4] 是否可加入：1 / 0（upsert）
+-- ARGV[5] createdAt（upsert）
+-- ARGV[6] 仅在摘要不存在时写入：1 / 0（upsert，补建用，不覆盖房间指令已写入的摘要）
+--
+-- 返回：1 表示摘要或索引有变化，0 表示无变化
+
+local id = ARGV[2]
+
+if ARGV[1] == 'remove' then
+  local changed = redis.call('HDEL', KEYS[1], id)
+  for i = 2, #KEYS do
+    changed = changed + redis.call('ZREM', KEYS[i], id)
+  end
+  if changed > 0 then return 1 end
+  return 0
+end
+
+local prev = redis.call('HGET', KEYS[1], id)
+if prev and (ARGV[6] == '1' or prev == ARGV[3]) then
+  return 0
+end
+redis.call('HSET', KEYS[1], id, ARGV[3])
+for i = 2, #KEYS do
+  if ARGV[4] == '1' then
+    redis.call('ZADD', KEYS[i], ARGV[5], id)
+  else
+    redis.call('ZREM', KEYS[i], id)
+  end
+end
+return 1
@@ -0,0 +1,23 @@
+-- 登记观战者（EVALSHA），有人数上限；登记只在租约期内有效，订阅观战主题后由心跳续期
+--
+-- KEYS[1] 观战者（ZSET，member = userId，score = 登记过期时刻 epoch ms），与房间共用 {roomId} hash tag
+--
+-- ARGV[1] userId
+-- ARGV[2] 人数上限
+-- ARGV[3] 租约（毫秒）
+-- ARGV[4] 当前时间（epoch ms）
+--
+-- 返回：登记后的观战人数；已达上限返回 -1（已在观战的用户不受上限影响）
+
+local now = tonumber(ARGV[4])
+local lease = tonumber(ARGV[3])
+redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', now)
+if not redis.call('ZSCORE', KEYS[1], ARGV[1]) then
+  if redis.call('ZCARD', KEYS[1]) >= tonumber(ARGV[2]) then
+    return -1
+  end
+end
+redis.call('ZADD', KEYS[1], now + lease, ARGV[1])
+-- 所有成员的过期时刻都不晚于 now + lease，整个集合随最后一次登记/心跳过期
+redis.call('PEXPIRE', KEYS[1], lease)
+return redis.call('ZCARD', KEYS[1])
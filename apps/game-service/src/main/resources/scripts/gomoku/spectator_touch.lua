@@ -0,0 +1,21 @@
+-- 观战者心跳（EVALSHA）：为仍在观战的用户续租，并清理已过期的登记
+-- 只续已登记的成员（ZADD XX）：未经 spectate 登记、只订阅了观战主题的连接不会被计入，也绕不过人数上限
+--
+-- KEYS[1]    观战者（ZSET，member = userId，score = 登记过期时刻 epoch ms）
+--
+-- ARGV[1]    当前时间（epoch ms）
+-- ARGV[2]    租约（毫秒）
+-- ARGV[3..n] userId（本节点仍订阅观战主题的用户）
+--
+-- 返回：续租后的观战人数
+
+local now = tonumber(ARGV[1])
+local lease = tonumber(ARGV[2])
+redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', now)
+for i = 3, #ARGV do
+  redis.call('ZADD', KEYS[1], 'XX', now + lease, ARGV[i])
+end
+if redis.call('ZCARD', KEYS[1]) > 0 then
+  redis.call('PEXPIRE', KEYS[1], lease)
+end
+return redis.call('ZCARD', KEYS[1])
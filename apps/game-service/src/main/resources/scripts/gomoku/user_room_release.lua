@@ -0,0 +1,16 @@
+-- 释放座位反向索引（EVALSHA）：只删除仍指向该房间的条目，用户已换到其他房间的不动
+--
+-- KEYS[1]    用户所在房间（HASH，field = userId，value = roomId JSON）
+--
+-- ARGV[1]    roomId（与写入时相同的 JSON 编码）
+-- ARGV[2..n] userId
+--
+-- 返回：删除的条目数
+
+local n = 0
+for i = 2, #ARGV do
+  if redis.call('HGET', KEYS[1], ARGV[i]) == ARGV[1] then
+    n = n + redis.call('HDEL', KEYS[1], ARGV[i])
+  end
+end
+return n
@@ -0,0 +1,159 @@
+/**
+ * 房间事件紧凑编码解码器（与后端 GomokuCompactCodec 对应）
+ *
+ * 连接时在 CONNECT 头带 x-gomoku-codec=b64（SockJS 只能传文本）即可启用；
+ * 解码结果与 JSON 事件结构一致，可直接交给 handleGameEvent。
+ */
+
+const GOMOKU_SIDES = [null, 'X', 'O', 'DRAW'];
+const GOMOKU_CELLS = ['.', 'X', 'O', '.'];
+const gomokuUtf8 = new TextDecoder('utf-8');
+
+/**
+ * 解码 Base64 文本帧
+ * @param {string} text - 帧内容
+ * @param {string} roomId - 订阅的房间ID（编码中不含 roomId）
+ * @returns {Object} 事件对象
+ */
+function decodeGomokuB64(text, roomId) {
+    const raw = atob(text);
+    const bytes = new Uint8Array(raw.length);
+    for (let i = 0; i < raw.length; i++) {
+        bytes[i] = raw.charCodeAt(i);
+    }
+    return decodeGomokuBinary(bytes, roomId);
+}
+
+/**
+ * 解码二进制帧
+ * @param {Uint8Array} bytes - 帧内容
+ * @param {string} roomId - 订阅的房间ID
+ * @returns {Object} 事件对象
+ */
+function decodeGomokuBinary(bytes, roomId) {
+    const r = { b: bytes, i: 0 };
+    const version = bytes[r.i++];
+    if (version !== 1) {
+        throw new Error('不支持的编码版本: ' + version);
+    }
+    return readGomokuEvent(r, roomId);
+}
+
+function readGomokuEvent(r, roomId) {
+    const code = r.b[r.i++];
+    const seq = readGomokuVarint(r);
+    const evt = {
+        roomId: roomId,
+        gameId: readGomokuString(r),
+        seq: seq === 0 ? null : seq - 1
+    };
+    switch (code) {
+        case 1: { // DELTA
+            const p = { seq: evt.seq, gameId: evt.gameId };
+            p.step = readGomokuVarint(r);
+            p.x = readGomokuVarint(r);
+            p.y = readGomokuVarint(r);
+            p.side = GOMOKU_SIDES[r.b[r.i++]];
+            p.sideToMove = GOMOKU_SIDES[r.b[r.i++]];
+            p.deadlineEpochMs = readGomokuVarint(r);
+            p.over = r.b[r.i++] === 1;
+            p.winner = GOMOKU_SIDES[r.b[r.i++]];
+            evt.type = 'DELTA';
+            evt.payload = p;
+            break;
+        }
+        case 3: { // SNAPSHOT
+            const cells = readGomokuBoard(r);
+            const rest = readGomokuString(r);
+            const p = rest ? JSON.parse(rest) : {};
+            p.cells = cells;
+            evt.type = 'SNAPSHOT';
+            evt.payload = p;
+            break;
+        }
+        case 4: { // TICK
+            const left = readGomokuVarint(r);
+            const side = GOMOKU_SIDES[r.b[r.i++]];
+            evt.type = 'TICK';
+            evt.payload = { left: left, side: side, deadlineEpochMs: readGomokuVarint(r) };
+            break;
+        }
+        case 8: { // CLOCK
+            const side = GOMOKU_SIDES[r.b[r.i++]];
+            const deadlineEpochMs = readGomokuVarint(r);
+            const turnMs = readGomokuVarint(r);
+            evt.type = 'CLOCK';
+            evt.payload = { side: side, deadlineEpochMs: deadlineEpochMs, turnMs: turnMs, serverEpochMs: readGomokuVarint(r) };
+            break;
+        }
+        case 5: // TIMEOUT
+            evt.type = 'TIMEOUT';
+            evt.payload = { side: GOMOKU_SIDES[r.b[r.i++]] };
+            break;
+        case 6: // ERROR
+            evt.type = 'ERROR';
+            evt.payload = readGomokuString(r);
+            break;
+        case 7: { // BATCH
+            const n = readGomokuVarint(r);
+            const events = [];
+            for (let k = 0; k < n; k++) {
+                events.push(readGomokuEvent(r, roomId));
+            }
+            evt.type = 'BATCH';
+            evt.payload = events;
+            break;
+        }
+        default: { // 其他：type + JSON
+            evt.type = readGomokuString(r);
+            const json = readGomokuString(r);
+            evt.payload = json === null ? null : JSON.parse(json);
+        }
+    }
+    return evt;
+}
+
+/** 打包棋盘 → 字符串数组（与 JSON 中 char[][] 的形式一致） */
+function readGomokuBoard(r) {
+    const n = readGomokuVarint(r);
+    const rows = [];
+    let acc = 0;
+    let bits = 8;
+    for (let x = 0; x < n; x++) {
+        let row = '';
+        for (let y = 0; y < n; y++) {
+            if (bits === 8) {
+                acc = r.b[r.i++];
+                bits = 0;
+            }
+            row += GOMOKU_CELLS[(acc >> bits) & 3];
+            bits += 2;
+        }
+        rows.push(row);
+    }
+    return rows;
+}
+
+/** 无符号 LEB128（用乘法累加，超过 32 位的时间戳也不会溢出） */
+function readGomokuVarint(r) {
+    let result = 0;
+    let mul = 1;
+    while (true) {
+        const byte = r.b[r.i++];
+        result += (byte & 0x7f) * mul;
+        if ((byte & 0x80) === 0) {
+            return result;
+        }
+        mul *= 128;
+    }
+}
+
+function readGomokuString(r) {
+    const len = readGomokuVarint(r);
+    if (len === 0) {
+        return null;
+    }
+    const s = gomokuUtf8.decode(r.b.subarray(r.i, r.i + len - 1));
+    r.i += len - 1;
+    return s;
+}
@@ -9,6 +9,15 @@ let state = null;
 let countdownTimer = null;
 let currentCountdown = 0;
 let countdownDeadline = 0;
+// 服务端时钟偏移（serverNow = Date.now() + serverClockOffsetMs），由校时结果修正
+let serverClockOffsetMs = 0;
+// 目前采用的校时样本往返时延（越小越准），null 表示尚未校时
+let serverClockRttMs = null;
+// 房间事件序号：最后一个已应用的 seq（null 表示尚未建立基线）
+let lastEventSeq = null;
+// 已发出补齐请求、等待 /user/queue/gomoku.sync 回包
+let syncPending = false;
+let syncTimer = null;
 
 /**
  * 初始化游戏
@@ -21,6 +30,8 @@ function initGame(roomId) {
     }
     grid = makeEmpty(DEFAULT_N);
     state = null;
+    lastEventSeq = null;
+    syncPending = false;
     stopCountdown();
     renderBoard(grid, null);
 }
@@ -503,7 +514,40 @@ function onCellClick(e) {
 function handleGameEvent(evt) {
     if (!evt) return;
     
-    // 处理倒计时事件
+    // 事件序号：丢弃重复/过期事件；增量出现缺口时请求补齐（本条由补齐结果覆盖）
+    if (typeof evt.seq === 'number') {
+        if (lastEventSeq !== null && evt.seq <= lastEventSeq) {
+            return;
+        }
+        if (evt.type === 'DELTA' && lastEventSeq !== null && evt.seq !== lastEventSeq + 1) {
+            requestEventSync();
+            return;
+        }
+        lastEventSeq = evt.seq;
+    }
+    
+    // 处理落子增量
+    if (evt.type === 'DELTA') {
+        applyDelta(evt.payload);
+        return;
+    }
+    
+    // 计时状态变化：按绝对截止时间渲染（deadlineEpochMs 为 0 表示停止）
+    if (evt.type === 'CLOCK') {
+        const c = evt.payload || {};
+        if (serverClockRttMs === null && typeof c.serverEpochMs === 'number' && c.serverEpochMs > 0) {
+            // 尚未精确校时：用事件自带的服务端时间粗校
+            serverClockOffsetMs = c.serverEpochMs - Date.now();
+        }
+        if (typeof c.deadlineEpochMs === 'number' && c.deadlineEpochMs > 0) {
+            startCountdownFromDeadline(c.deadlineEpochMs);
+        } else {
+            stopCountdown();
+        }
+        return;
+    }
+    
+    // 处理倒计时事件（服务端开启 gomoku.turn.tick-enabled 时才有）
     if (evt.type === 'TICK') {
         if (evt.payload) {
             if (typeof evt.payload.deadlineEpochMs === 'number' && evt.payload.deadlineEpochMs > 0) {
@@ -595,6 +639,84 @@ function handleGameEvent(evt) {
     }
 }
 
+/**
+ * 在本地棋盘上应用一步增量（DELTA）
+ * @param {Object} d - 增量：x/y/side/sideToMove/deadlineEpochMs/over/winner
+ */
+function applyDelta(d) {
+    if (!d) return;
+    if (!grid) grid = makeEmpty(DEFAULT_N);
+    if (!state) state = {};
+    
+    if (grid[d.x] && typeof grid[d.x][d.y] !== 'undefined') {
+        grid[d.x][d.y] = d.side;
+    }
+    state.lastMove = { x: d.x, y: d.y };
+    state.current = d.sideToMove || state.current;
+    state.over = !!d.over;
+    state.winner = d.over && (d.winner === 'X' || d.winner === 'O') ? d.winner : null;
+    state.outcome = !d.over ? null : d.winner === 'X' ? 'X_WIN' : d.winner === 'O' ? 'O_WIN' : 'DRAW';
+    
+    // 纯前端实现：游戏结束时，检测五连并闪烁
+    let winPieces = null;
+    if (state.winner) {
+        winPieces = detectWinLines(grid, state.winner);
+    }
+    renderBoard(grid, state.lastMove, winPieces);
+    
+    // 增量不含系列比分（终局时服务端另发 SNAPSHOT）
+    updateGameInfo(state, null);
+    
+    if (state.over) {
+        stopCountdown();
+        if (window.gameCallbacks && window.gameCallbacks.onGameOver) {
+            window.gameCallbacks.onGameOver(state.winner);
+        }
+        if (state.winner && (!winPieces || winPieces.size < 5)) {
+            showVictoryModal(state.winner, null);
+        }
+    } else if (typeof d.deadlineEpochMs === 'number' && d.deadlineEpochMs > 0) {
+        startCountdownFromDeadline(d.deadlineEpochMs);
+    }
+}
+
+/**
+ * 发现序号缺口：请求服务端补齐 lastEventSeq 之后的事件（同一时刻只发一个请求）
+ */
+function requestEventSync() {
+    const roomId = typeof window !== 'undefined' ? window._currentRoomId : null;
+    if (syncPending || lastEventSeq === null || !roomId) return;
+    syncPending = true;
+    // 回包丢失时允许再次请求
+    syncTimer = setTimeout(() => { syncPending = false; }, 5000);
+    sendSync(roomId, lastEventSeq);
+}
+
+/**
+ * 处理补齐结果：增量按序应用；无法只靠增量补齐时用完整快照覆盖
+ * @param {Object} reply - { roomId, seq, deltas, full }
+ */
+function handleSyncReply(reply) {
+    syncPending = false;
+    if (syncTimer) {
+        clearTimeout(syncTimer);
+        syncTimer = null;
+    }
+    if (!reply) return;
+    if (Array.isArray(reply.deltas)) {
+        reply.deltas.forEach(d => {
+            if (lastEventSeq === null || d.seq > lastEventSeq) {
+                applyDelta(d);
+                lastEventSeq = d.seq;
+            }
+        });
+        return;
+    }
+    if (reply.full) {
+        renderFullSync(reply.full);
+    }
+}
+
 /**
  * 渲染完整同步数据
  * @param {Object} snap - 快照数据
@@ -602,6 +724,11 @@ function handleGameEvent(evt) {
 function renderFullSync(snap) {
     if (!snap || !snap.board) return;
     
+    // 完整同步（FullSync）携带事件序号基线
+    if (typeof snap.eventSeq === 'number') {
+        lastEventSeq = lastEventSeq === null ? snap.eventSeq : Math.max(lastEventSeq, snap.eventSeq);
+    }
+    
     // 先更新全局state，确保能正确检测游戏结束状态
     if (!state) state = {};
     
@@ -929,12 +1056,47 @@ function showVictoryModal(winner, snap) {
     }, 4000);
 }
 
+/**
+ * 服务端当前时间（本地时间 + 校时偏移）
+ */
+function serverNow() {
+    return Date.now() + serverClockOffsetMs;
+}
+
+/**
+ * 处理校时结果：保留往返时延最小的样本
+ * @param {Object} reply - { clientTime, serverTime }
+ */
+function handleTimeSync(reply) {
+    if (!reply || typeof reply.clientTime !== 'number' || typeof reply.serverTime !== 'number') return;
+    const now = Date.now();
+    const rtt = now - reply.clientTime;
+    if (rtt < 0 || (serverClockRttMs !== null && rtt >= serverClockRttMs)) return;
+    serverClockRttMs = rtt;
+    serverClockOffsetMs = reply.serverTime + rtt / 2 - now;
+    // 偏移变化后按新的偏移刷新显示
+    if (countdownDeadline > 0) {
+        updateCountdownFromDeadline();
+    }
+}
+
+/**
+ * 连接后校时：间隔发几次，取往返时延最小的一次
+ * @param {number} samples - 样本数
+ */
+function syncServerClock(samples = 3) {
+    serverClockRttMs = null;
+    for (let i = 0; i < samples; i++) {
+        setTimeout(() => sendTimeSync(), i * 500);
+    }
+}
+
 /**
  * 开始倒计时
  * @param {number} seconds - 剩余秒数
  */
 function startCountdown(seconds) {
-    const newDeadline = Date.now() + seconds * 1000;
+    const newDeadline = serverNow() + seconds * 1000;
     
     if (Math.abs(newDeadline - countdownDeadline) < 2000) {
         return;
@@ -976,7 +1138,7 @@ function startCountdownFromDeadline(deadlineEpochMs) {
     countdownDeadline = deadlineEpochMs;
     updateCountdownFromDeadline();
     
-    if (countdownDeadline > Date.now()) {
+    if (countdownDeadline > serverNow()) {
         countdownTimer = setInterval(() => {
             updateCountdownFromDeadline();
             if (currentCountdown <= 0) {
@@ -991,7 +1153,7 @@ function startCountdownFromDeadline(deadlineEpochMs) {
  * 更新倒计时显示
  */
 function updateCountdownFromDeadline() {
-    const now = Date.now();
+    const now = serverNow();
     const remainingMs = Math.max(0, countdownDeadline - now);
     const newCountdown = Math.ceil(remainingMs / 1000);
     
@@ -62,6 +62,10 @@ function connectWebSocket(token, callbacks = {}) {
     };
 
     const headers = token ? { Authorization: 'Bearer ' + token } : {};
+    // 房间事件紧凑编码（可选）：SockJS 只能传文本，使用 Base64 形式；默认 JSON
+    if (typeof decodeGomokuB64 === 'function' && localStorage.getItem('gomoku.ws.codec') === 'b64') {
+        headers['x-gomoku-codec'] = 'b64';
+    }
 
     // 设置连接超时（10秒）
     const connectTimeout = setTimeout(() => {
@@ -110,14 +114,38 @@ function subscribeRoom(roomId, onEvent) {
         return;
     }
 
-    const topic = `/topic/room.${roomId}`;
+    subscribeRoomTopic(`/topic/room.${roomId}`, roomId, onEvent);
+}
+
+/**
+ * 订阅观战主题（需先调用 POST /api/gomoku/rooms/{roomId}/spectate 登记观战）
+ * 观战流只有延迟后的 DELTA / SNAPSHOT，帧格式与房间主题一致
+ * @param {string} roomId - 房间ID
+ * @param {Function} onEvent - 事件处理函数
+ */
+function subscribeWatch(roomId, onEvent) {
+    if (!stomp || !stomp.connected) {
+        return;
+    }
+    subscribeRoomTopic(`/topic/room.${roomId}.watch`, roomId, onEvent);
+}
+
+function subscribeRoomTopic(topic, roomId, onEvent) {
     if (subscriptions.has(topic)) {
         subscriptions.get(topic).unsubscribe();
     }
 
     const sub = stomp.subscribe(topic, (frame) => {
         try {
-            const evt = JSON.parse(frame.body);
+            const contentType = (frame.headers && frame.headers['content-type']) || '';
+            const evt = contentType.indexOf('text/x-gomoku-b64') === 0
+                ? decodeGomokuB64(frame.body, roomId)
+                : JSON.parse(frame.body);
+            // BATCH：服务端把相邻事件合成一帧，按顺序逐个处理
+            if (evt && evt.type === 'BATCH' && Array.isArray(evt.payload)) {
+                evt.payload.forEach(e => onEvent(e));
+                return;
+            }
             onEvent(evt);
         } catch (e) {
             // 解析事件失败
@@ -181,6 +209,153 @@ function subscribeFullSync(onFullSync) {
     subscriptions.set(topic, sub);
 }
 
+/**
+ * 订阅事件补齐结果
+ * @param {Function} onSync - 补齐结果处理函数
+ */
+function subscribeSync(onSync) {
+    if (!stomp || !stomp.connected) {
+        return;
+    }
+
+    const topic = '/user/queue/gomoku.sync';
+    if (subscriptions.has(topic)) {
+        subscriptions.get(topic).unsubscribe();
+    }
+
+    const sub = stomp.subscribe(topic, (frame) => {
+        try {
+            onSync(JSON.parse(frame.body));
+        } catch (e) {
+            // 解析补齐结果失败
+        }
+    });
+
+    subscriptions.set(topic, sub);
+}
+
+/**
+ * 订阅指令失败通知（跨节点转发失败时点对点推送，结构同房间 ERROR 事件）
+ * @param {Function} onError - 错误事件处理函数（{ roomId, type: 'ERROR', payload }）
+ */
+function subscribeCommandErrors(onError) {
+    if (!stomp || !stomp.connected) {
+        return;
+    }
+
+    const topic = '/user/queue/gomoku.error';
+    if (subscriptions.has(topic)) {
+        subscriptions.get(topic).unsubscribe();
+    }
+
+    const sub = stomp.subscribe(topic, (frame) => {
+        try {
+            onError(JSON.parse(frame.body));
+        } catch (e) {
+            // 解析错误通知失败
+        }
+    });
+
+    subscriptions.set(topic, sub);
+}
+
+/**
+ * 订阅校时结果
+ * @param {Function} onTimeSync - 校时结果处理函数（{ clientTime, serverTime }）
+ */
+function subscribeTimeSync(onTimeSync) {
+    if (!stomp || !stomp.connected) {
+        return;
+    }
+
+    const topic = '/user/queue/gomoku.time';
+    if (subscriptions.has(topic)) {
+        subscriptions.get(topic).unsubscribe();
+    }
+
+    const sub = stomp.subscribe(topic, (frame) => {
+        try {
+            onTimeSync(JSON.parse(frame.body));
+        } catch (e) {
+            // 解析校时结果失败
+        }
+    });
+
+    subscriptions.set(topic, sub);
+}
+
+/**
+ * 发送校时请求（带上本地时间，服务端原样带回）
+ */
+function sendTimeSync() {
+    if (!stomp || !stomp.connected) {
+        return;
+    }
+
+    stomp.send('/app/gomoku.time', {}, JSON.stringify({ clientTime: Date.now() }));
+}
+
+/**
+ * 订阅大厅房间增量（节流合并后的 LobbyUpdate）
+ * @param {Function} onUpdate - 增量处理函数（{ events: [{ type, roomId, room, at }], at }）
+ */
+function subscribeLobby(onUpdate) {
+    if (!stomp || !stomp.connected) {
+        return;
+    }
+
+    const topic = '/topic/lobby';
+    if (subscriptions.has(topic)) {
+        subscriptions.get(topic).unsubscribe();
+    }
+
+    const sub = stomp.subscribe(topic, (frame) => {
+        try {
+            onUpdate(JSON.parse(frame.body));
+        } catch (e) {
+            // 解析大厅增量失败
+        }
+    });
+
+    subscriptions.set(topic, sub);
+}
+
+/**
+ * 订阅大厅首帧
+ * @param {Function} onSnapshot - 首帧处理函数（{ rooms, at }）
+ */
+function subscribeLobbySnapshot(onSnapshot) {
+    if (!stomp || !stomp.connected) {
+        return;
+    }
+
+    const topic = '/user/queue/gomoku.lobby';
+    if (subscriptions.has(topic)) {
+        subscriptions.get(topic).unsubscribe();
+    }
+
+    const sub = stomp.subscribe(topic, (frame) => {
+        try {
+            onSnapshot(JSON.parse(frame.body));
+        } catch (e) {
+            // 解析大厅首帧失败
+        }
+    });
+
+    subscriptions.set(topic, sub);
+}
+
+/**
+ * 请求大厅首帧（先订阅 /topic/lobby 与首帧队列再调用）
+ */
+function sendLobbySnapshot() {
+    if (!stomp || !stomp.connected) {
+        return;
+    }
+
+    stomp.send('/app/gomoku.lobby', {}, '{}');
+}
+
 /**
  * 发送恢复请求
  * @param {string} roomId - 房间ID
@@ -194,6 +369,19 @@ function sendResume(roomId, seatKey = null) {
     stomp.send('/app/gomoku.resume', {}, JSON.stringify({ roomId, seatKey }));
 }
 
+/**
+ * 发送补齐请求（广播事件序号出现缺口时）
+ * @param {string} roomId - 房间ID
+ * @param {number} sinceSeq - 已应用的最后一个事件序号
+ */
+function sendSync(roomId, sinceSeq) {
+    if (!stomp || !stomp.connected) {
+        return;
+    }
+
+    stomp.send('/app/gomoku.sync', {}, JSON.stringify({ roomId, sinceSeq }));
+}
+
 /**
  * 发送落子指令
  * @param {string} roomId - 房间ID
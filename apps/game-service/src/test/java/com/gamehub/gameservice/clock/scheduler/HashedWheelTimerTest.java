@@ -0,0 +1,177 @@
+package com.gamehub.gameservice.clock.scheduler;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * HashedWheelTimer 单元测试：到期触发、取消、多圈定时器、分批派发与异常隔离（真实 tick 线程，tick 取 10ms）。
+ */
+class HashedWheelTimerTest {
+
+    private static final long TICK_MS = 10;
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(2);
+    private HashedWheelTimer timer;
+
+    @AfterEach
+    void tearDown() {
+        if (timer != null) timer.stop();
+        pool.shutdownNow();
+    }
+
+    @Test
+    void firesOnceAfterDeadline() throws Exception {
+        timer = new HashedWheelTimer("test-wheel", TICK_MS, 64, pool, 16);
+        long deadline = System.currentTimeMillis() + 80;
+        List<Long> firedAt = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(1);
+
+        timer.newTimeout(() -> {
+            firedAt.add(System.currentTimeMillis());
+            latch.countDown();
+        }, deadline);
+        assertEquals(1, timer.pendingTimeouts());
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS), "定时器未触发");
+        Thread.sleep(5 * TICK_MS);
+        assertEquals(1, firedAt.size(), "定时器只应触发一次");
+        assertTrue(firedAt.get(0) >= deadline, "提前触发: " + (deadline - firedAt.get(0)) + "ms");
+        assertEquals(0, timer.pendingTimeouts());
+    }
+
+    @Test
+    void pastDeadlineFiresOnNextTick() throws Exception {
+        timer = new HashedWheelTimer("test-wheel", TICK_MS, 64, pool, 16);
+        CountDownLatch latch = new CountDownLatch(1);
+
+        timer.newTimeout(latch::countDown, System.currentTimeMillis() - 1_000);
+
+        assertTrue(latch.await(500, TimeUnit.MILLISECONDS), "已过期的定时器应在下一个 tick 触发");
+    }
+
+    @Test
+    void cancelledTimeoutNeverFires() throws Exception {
+        timer = new HashedWheelTimer("test-wheel", TICK_MS, 64, pool, 16);
+        AtomicInteger fired = new AtomicInteger();
+
+        HashedWheelTimer.Timeout t = timer.newTimeout(fired::incrementAndGet, System.currentTimeMillis() + 100);
+        assertTrue(t.cancel());
+        assertFalse(t.cancel(), "重复取消应无效果");
+        assertTrue(t.isCancelled());
+        assertEquals(0, timer.pendingTimeouts());
+
+        Thread.sleep(250);
+        assertEquals(0, fired.get());
+    }
+
+    @Test
+    void cancelAfterFireHasNoEffect() throws Exception {
+        timer = new HashedWheelTimer("test-wheel", TICK_MS, 64, pool, 16);
+        CountDownLatch latch = new CountDownLatch(1);
+
+        HashedWheelTimer.Timeout t = timer.newTimeout(latch::countDown, System.currentTimeMillis() + 20);
+
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        assertFalse(t.cancel());
+        assertFalse(t.isCancelled());
+        assertEquals(0, timer.pendingTimeouts());
+    }
+
+    @Test
+    void timeoutBeyondOneRoundWaitsForItsRound() throws Exception {
+        // 4 个槽 * 10ms = 一圈 40ms，150ms 后到期的定时器要转过 3 圈以上
+        timer = new HashedWheelTimer("test-wheel", TICK_MS, 4, pool, 16);
+        long deadline = System.currentTimeMillis() + 150;
+        List<Long> firedAt = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(1);
+
+        timer.newTimeout(() -> {
+            firedAt.add(System.currentTimeMillis());
+            latch.countDown();
+        }, deadline);
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS), "多圈定时器未触发");
+        assertTrue(firedAt.get(0) >= deadline, "多圈定时器提前触发: " + (deadline - firedAt.get(0)) + "ms");
+    }
+
+    @Test
+    void dueTimeoutsAreDispatchedInBatches() throws Exception {
+        AtomicInteger jobs = new AtomicInteger();
+        Executor counting = job -> {
+            jobs.incrementAndGet();
+            pool.execute(job);
+        };
+        timer = new HashedWheelTimer("test-wheel", TICK_MS, 64, counting, 3);
+        long deadline = System.currentTimeMillis() + 50;
+        CountDownLatch latch = new CountDownLatch(7);
+
+        for (int i = 0; i < 7; i++) {
+            timer.newTimeout(latch::countDown, deadline);
+        }
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS), "部分定时器未触发");
+        assertEquals(3, jobs.get(), "7 个同 tick 到期的定时器按每批 3 个应提交 3 个任务");
+    }
+
+    @Test
+    void failingTaskDoesNotAffectOthers() throws Exception {
+        timer = new HashedWheelTimer("test-wheel", TICK_MS, 64, pool, 16);
+        long deadline = System.currentTimeMillis() + 30;
+        CountDownLatch latch = new CountDownLatch(2);
+
+        timer.newTimeout(() -> { throw new IllegalStateException("boom"); }, deadline);
+        timer.newTimeout(latch::countDown, deadline);
+        timer.newTimeout(latch::countDown, deadline + 50);
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS), "任务异常后同批及后续定时器应照常触发");
+    }
+
+    @Test
+    void rejectedDispatchDoesNotStopTicking() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        Executor flaky = job -> {
+            if (attempts.incrementAndGet() == 1) throw new RejectedExecutionException("closed");
+            pool.execute(job);
+        };
+        timer = new HashedWheelTimer("test-wheel", TICK_MS, 64, flaky, 16);
+        long now = System.currentTimeMillis();
+        AtomicInteger dropped = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(1);
+
+        timer.newTimeout(dropped::incrementAndGet, now + 20);
+        timer.newTimeout(latch::countDown, now + 80);
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS), "被拒绝的批次之后 tick 线程应继续工作");
+        assertEquals(0, dropped.get());
+    }
+
+    @Test
+    void stoppedTimerRejectsNewTimeouts() {
+        timer = new HashedWheelTimer("test-wheel", TICK_MS, 64, pool, 16);
+        timer.stop();
+
+        assertThrows(IllegalStateException.class,
+                () -> timer.newTimeout(() -> {}, System.currentTimeMillis() + 10));
+    }
+
+    @Test
+    void rejectsNonPositiveTick() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new HashedWheelTimer("test-wheel", 0, 64, pool, 16));
+    }
+}
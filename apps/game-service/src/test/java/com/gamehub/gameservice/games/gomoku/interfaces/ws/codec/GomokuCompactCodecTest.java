@@ -0,0 +1,342 @@
+package com.gamehub.gameservice.games.gomoku.interfaces.ws.codec;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * GomokuCompactCodec 单元测试：按 static/js/codec.js 的读法解码，校验各事件类型的往返与位打包。
+ */
+class GomokuCompactCodecTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final GomokuCompactCodec codec = new GomokuCompactCodec(mapper);
+
+    @Test
+    void nonEventJsonIsNotEncoded() throws Exception {
+        assertNull(codec.encode(json("{\"roomId\":\"r1\"}")));
+        assertNull(codec.encode(json("[1,2,3]")));
+        assertNull(codec.encode(json("{\"type\":1}")));
+    }
+
+    @Test
+    void deltaRoundTrip() throws Exception {
+        byte[] bytes = codec.encode(json("""
+                {"roomId":"r1","gameId":"g-1","seq":41,"type":"DELTA",
+                 "payload":{"step":12,"x":7,"y":14,"side":"X","sideToMove":"O",
+                            "deadlineEpochMs":1760000000123,"over":true,"winner":"X"}}
+                """));
+
+        Reader r = new Reader(bytes);
+        assertEquals(GomokuCompactCodec.VERSION, r.u8());
+        assertEquals(GomokuCompactCodec.T_DELTA, r.u8());
+        assertEquals(42L, r.varint());
+        assertEquals("g-1", r.string());
+        assertEquals(12L, r.varint());
+        assertEquals(7L, r.varint());
+        assertEquals(14L, r.varint());
+        assertEquals(1, r.u8());
+        assertEquals(2, r.u8());
+        assertEquals(1760000000123L, r.varint());
+        assertEquals(1, r.u8());
+        assertEquals(1, r.u8());
+        assertTrue(r.done());
+    }
+
+    @Test
+    void missingSeqAndGameIdEncodeAsZero() throws Exception {
+        byte[] bytes = codec.encode(json("""
+                {"type":"TIMEOUT","payload":{"side":"O"}}
+                """));
+
+        assertArrayEquals(new byte[]{1, (byte) GomokuCompactCodec.T_TIMEOUT, 0, 0, 2}, bytes);
+    }
+
+    @Test
+    void seqZeroIsDistinctFromMissingSeq() throws Exception {
+        Reader r = new Reader(codec.encode(json("""
+                {"seq":0,"type":"TIMEOUT","payload":{"side":"DRAW"}}
+                """)));
+        r.u8();
+        r.u8();
+        assertEquals(1L, r.varint());
+        assertNull(r.string());
+        assertEquals(3, r.u8());
+    }
+
+    @Test
+    void varintBoundaries() throws Exception {
+        long[] values = {0L, 1L, 127L, 128L, 16383L, 16384L, 1L << 35, Long.MAX_VALUE};
+        int[] lengths = {1, 1, 1, 2, 2, 3, 6, 9};
+        for (int i = 0; i < values.length; i++) {
+            Reader r = new Reader(codec.encode(json(
+                    "{\"type\":\"TICK\",\"payload\":{\"left\":" + values[i] + ",\"side\":\"X\",\"deadlineEpochMs\":0}}")));
+            r.u8();
+            r.u8();
+            r.varint();
+            r.string();
+            int start = r.pos;
+            assertEquals(values[i], r.varint(), "value " + values[i]);
+            assertEquals(lengths[i], r.pos - start, "length of " + values[i]);
+            assertEquals(1, r.u8());
+            assertEquals(0L, r.varint());
+            assertTrue(r.done());
+        }
+    }
+
+    @Test
+    void negativeTickLeftIsClampedToZero() throws Exception {
+        Reader r = new Reader(codec.encode(json("""
+                {"type":"TICK","payload":{"left":-3,"side":"O","deadlineEpochMs":5}}
+                """)));
+        r.u8();
+        r.u8();
+        r.varint();
+        r.string();
+        assertEquals(0L, r.varint());
+        assertEquals(2, r.u8());
+        assertEquals(5L, r.varint());
+    }
+
+    @Test
+    void clockRoundTrip() throws Exception {
+        Reader r = new Reader(codec.encode(json("""
+                {"seq":3,"type":"CLOCK","payload":{"side":"X","deadlineEpochMs":1760000030000,
+                 "turnMs":30000,"serverEpochMs":1760000000000}}
+                """)));
+        assertEquals(1, r.u8());
+        assertEquals(GomokuCompactCodec.T_CLOCK, r.u8());
+        assertEquals(4L, r.varint());
+        assertNull(r.string());
+        assertEquals(1, r.u8());
+        assertEquals(1760000030000L, r.varint());
+        assertEquals(30000L, r.varint());
+        assertEquals(1760000000000L, r.varint());
+        assertTrue(r.done());
+    }
+
+    @Test
+    void errorKeepsUtf8Message() throws Exception {
+        Reader r = new Reader(codec.encode(json("""
+                {"type":"ERROR","gameId":"对局","payload":"不是你的回合"}
+                """)));
+        r.u8();
+        assertEquals(GomokuCompactCodec.T_ERROR, r.u8());
+        assertEquals(0L, r.varint());
+        assertEquals("对局", r.string());
+        assertEquals("不是你的回合", r.string());
+        assertTrue(r.done());
+    }
+
+    @Test
+    void snapshotPacksTwoBitsPerCellLowBitsFirst() throws Exception {
+        byte[] bytes = codec.encode(json("""
+                {"type":"SNAPSHOT","payload":{"cells":["XO.X","..O.","....","O..X"],"phase":"PLAYING"}}
+                """));
+
+        Reader r = new Reader(bytes);
+        r.u8();
+        assertEquals(GomokuCompactCodec.T_SNAPSHOT, r.u8());
+        r.varint();
+        r.string();
+        assertEquals(4L, r.varint());
+        // 行 0：X O . X -> 1 | 2<<2 | 0<<4 | 1<<6
+        assertEquals(0b01_00_10_01, r.u8());
+        // 行 1：. . O . -> 2<<4
+        assertEquals(0b00_10_00_00, r.u8());
+        assertEquals(0, r.u8());
+        // 行 3：O . . X -> 2 | 1<<6
+        assertEquals(0b01_00_00_10, r.u8());
+        JsonNode rest = mapper.readTree(r.string());
+        assertFalse(rest.has("cells"));
+        assertEquals("PLAYING", rest.path("phase").asText());
+        assertTrue(r.done());
+    }
+
+    @Test
+    void snapshotBoardRoundTripWithPartialLastByte() throws Exception {
+        int n = 15;
+        char[][] board = new char[n][n];
+        StringBuilder cells = new StringBuilder("[");
+        for (int x = 0; x < n; x++) {
+            StringBuilder row = new StringBuilder();
+            for (int y = 0; y < n; y++) {
+                int v = (x * 7 + y * 3) % 5;
+                board[x][y] = v == 1 ? 'X' : v == 2 ? 'O' : '.';
+                row.append(board[x][y]);
+            }
+            cells.append(x == 0 ? "" : ",").append('"').append(row).append('"');
+        }
+        cells.append(']');
+
+        Reader r = new Reader(codec.encode(json(
+                "{\"seq\":9,\"gameId\":\"g\",\"type\":\"SNAPSHOT\",\"payload\":{\"cells\":" + cells + ",\"step\":30}}")));
+        r.u8();
+        r.u8();
+        assertEquals(10L, r.varint());
+        assertEquals("g", r.string());
+        int start = r.pos;
+        char[][] decoded = r.board();
+        // 1 字节 boardSize + ceil(225 * 2 / 8) = 57 字节
+        assertEquals(1 + 57, r.pos - start);
+        for (int x = 0; x < n; x++) {
+            assertArrayEquals(board[x], decoded[x], "row " + x);
+        }
+        assertEquals(30, mapper.readTree(r.string()).path("step").asInt());
+        assertTrue(r.done());
+    }
+
+    @Test
+    void snapshotAcceptsNestedCharArrays() throws Exception {
+        Reader r = new Reader(codec.encode(json("""
+                {"type":"SNAPSHOT","payload":{"cells":[["X","."],["","O"]]}}
+                """)));
+        r.u8();
+        r.u8();
+        r.varint();
+        r.string();
+        char[][] decoded = r.board();
+        assertArrayEquals(new char[]{'X', '.'}, decoded[0]);
+        assertArrayEquals(new char[]{'.', 'O'}, decoded[1]);
+        assertEquals("{}", r.string());
+    }
+
+    @Test
+    void batchNestsEventsWithoutVersionByte() throws Exception {
+        Reader r = new Reader(codec.encode(json("""
+                {"type":"BATCH","payload":[
+                  {"seq":1,"type":"TIMEOUT","payload":{"side":"X"}},
+                  {"seq":2,"type":"ERROR","payload":"e"}
+                ]}
+                """)));
+        assertEquals(1, r.u8());
+        assertEquals(GomokuCompactCodec.T_BATCH, r.u8());
+        assertEquals(0L, r.varint());
+        assertNull(r.string());
+        assertEquals(2L, r.varint());
+
+        assertEquals(GomokuCompactCodec.T_TIMEOUT, r.u8());
+        assertEquals(2L, r.varint());
+        assertNull(r.string());
+        assertEquals(1, r.u8());
+
+        assertEquals(GomokuCompactCodec.T_ERROR, r.u8());
+        assertEquals(3L, r.varint());
+        assertNull(r.string());
+        assertEquals("e", r.string());
+        assertTrue(r.done());
+    }
+
+    @Test
+    void unknownTypesAndMalformedPayloadsFallBackToTypeAndJson() throws Exception {
+        Reader state = new Reader(codec.encode(json("""
+                {"seq":5,"type":"STATE","payload":{"phase":"WAITING","ready":[true,false]}}
+                """)));
+        state.u8();
+        assertEquals(GomokuCompactCodec.T_OTHER, state.u8());
+        assertEquals(6L, state.varint());
+        assertNull(state.string());
+        assertEquals("STATE", state.string());
+        assertEquals(mapper.readTree("{\"phase\":\"WAITING\",\"ready\":[true,false]}"), mapper.readTree(state.string()));
+        assertTrue(state.done());
+
+        Reader delta = new Reader(codec.encode(json("""
+                {"type":"DELTA","payload":"oops"}
+                """)));
+        delta.u8();
+        assertEquals(GomokuCompactCodec.T_OTHER, delta.u8());
+        delta.varint();
+        delta.string();
+        assertEquals("DELTA", delta.string());
+        assertEquals("\"oops\"", delta.string());
+
+        Reader noPayload = new Reader(codec.encode(json("""
+                {"type":"PING"}
+                """)));
+        noPayload.u8();
+        noPayload.u8();
+        noPayload.varint();
+        noPayload.string();
+        assertEquals("PING", noPayload.string());
+        assertNull(noPayload.string());
+        assertTrue(noPayload.done());
+    }
+
+    // ------------------------------------------------------------------
+
+    private static byte[] json(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** 与 codec.js 相同的读法 */
+    private static final class Reader {
+        private final byte[] b;
+        private int pos;
+
+        Reader(byte[] b) {
+            this.b = b;
+        }
+
+        int u8() {
+            return b[pos++] & 0xFF;
+        }
+
+        long varint() {
+            long result = 0;
+            int shift = 0;
+            while (true) {
+                int v = u8();
+                result |= (long) (v & 0x7F) << shift;
+                if ((v & 0x80) == 0) {
+                    return result;
+                }
+                shift += 7;
+            }
+        }
+
+        String string() {
+            long len = varint();
+            if (len == 0) {
+                return null;
+            }
+            String s = new String(b, pos, (int) len - 1, StandardCharsets.UTF_8);
+            pos += (int) len - 1;
+            return s;
+        }
+
+        char[][] board() {
+            int n = (int) varint();
+            char[] cells = {'.', 'X', 'O', '.'};
+            List<char[]> rows = new ArrayList<>();
+            int acc = 0;
+            int bits = 8;
+            for (int x = 0; x < n; x++) {
+                char[] row = new char[n];
+                for (int y = 0; y < n; y++) {
+                    if (bits == 8) {
+                        acc = u8();
+                        bits = 0;
+                    }
+                    row[y] = cells[(acc >> bits) & 3];
+                    bits += 2;
+                }
+                rows.add(row);
+            }
+            return rows.toArray(new char[0][]);
+        }
+
+        boolean done() {
+            return pos == b.length;
+        }
+    }
+}
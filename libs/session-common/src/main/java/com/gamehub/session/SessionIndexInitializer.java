@@ -0,0 +1,51 @@
+package com.gamehub.session;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 会话二级索引启动补齐。
+ *
+ * 说明：
+ * - 二级索引（session:login:users、session:ws:users、session:ws:loginSession:{id}）只随会话写入维护，
+ *   升级前已存在的会话不在索引中，后台在线列表、按登录会话踢下线都会漏掉它们；
+ * - 启动完成后抢重建锁，抢到的实例执行一次 {@link SessionRegistry#rebuildIndexes()}，其余实例跳过；
+ * - 在虚拟线程上执行，不阻塞启动；可通过 session.index.rebuild-on-startup=false 关闭。
+ */
+@Slf4j
+@Component
+public class SessionIndexInitializer {
+
+    private final SessionRegistry sessionRegistry;
+
+    /** 是否在启动时补齐索引 */
+    @Value("${session.index.rebuild-on-startup:true}")
+    private boolean enabled;
+
+    /** 重建锁有效期（秒），期间启动的其他实例不再重建 */
+    @Value("${session.index.rebuild-lock-seconds:600}")
+    private long lockSeconds;
+
+    public SessionIndexInitializer(SessionRegistry sessionRegistry) {
+        this.sessionRegistry = sessionRegistry;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if (!enabled) {
+            return;
+        }
+        Thread.ofVirtual().name("session-index-rebuild").start(() -> {
+            try {
+                sessionRegistry.rebuildIndexesOnce(Duration.ofSeconds(lockSeconds));
+            } catch (Exception e) {
+                log.warn("会话索引启动补齐失败: {}", e.getMessage(), e);
+            }
+        });
+    }
+}
@@ -8,11 +8,16 @@ import com.gamehub.session.model.UserSessionSnapshot;
 import com.gamehub.session.model.WebSocketSessionInfo;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
 
 import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -28,6 +33,13 @@ import java.util.stream.Collectors;
  * - session:login:token:{tokenId}   -> LoginSessionInfo JSON
  * - session:ws:user:{userId}        -> Set<sessionId>
  * - session:ws:session:{sessionId}  -> WebSocketSessionInfo JSON
+ *
+ * 二级索引（与主数据在同一 MULTI 中写入，查询不再依赖 KEYS）：
+ * - session:login:users                     -> Set<userId>（持有登录会话的用户）
+ * - session:ws:users                        -> Set<userId>（持有 WS 会话的用户）
+ * - session:ws:loginSession:{loginSessionId} -> Set<sessionId>（按登录会话反查 WS 会话）
+ * 索引中的陈旧成员在读取时惰性清理（{@link #getAllUsersWithSessions()} 会检查会话详情是否已过期）；
+ * 启动时经 {@link #rebuildIndexesOnce(Duration)} 补齐升级前已存在的会话，索引丢失时也可直接调用 {@link #rebuildIndexes()}（基于 SCAN）。
  */
 @Slf4j
 public class SessionRegistry {
@@ -42,6 +54,16 @@ public class SessionRegistry {
     private static final String WS_USER_KEY_PREFIX = "session:ws:user:";
     /** Redis Key 前缀：WebSocket 会话详情（按 sessionId 存储） */
     private static final String WS_SESSION_KEY_PREFIX = "session:ws:session:";
+    /** 索引：持有登录会话的用户集合 */
+    private static final String LOGIN_USERS_INDEX_KEY = "session:login:users";
+    /** 索引：持有 WebSocket 会话的用户集合 */
+    private static final String WS_USERS_INDEX_KEY = "session:ws:users";
+    /** 索引前缀：按 loginSessionId 归集的 WebSocket 会话集合 */
+    private static final String WS_BY_LOGIN_SESSION_PREFIX = "session:ws:loginSession:";
+    /** 索引重建锁（启动时补齐索引，多个实例只执行一次） */
+    private static final String INDEX_REBUILD_LOCK_KEY = "session:index:rebuild:lock";
+    /** SCAN 每批建议数量（仅用于索引重建） */
+    private static final int SCAN_BATCH = 500;
 
     /** 登录会话默认 TTL（12 小时） */
     private static final Duration DEFAULT_LOGIN_TTL = Duration.ofHours(12);
@@ -89,14 +111,19 @@ public class SessionRegistry {
         String sessionKey = LOGIN_SESSION_KEY_PREFIX + sessionInfo.getSessionId();
         String sessionJson = JSON.toJSONString(sessionInfo);
 
-        // 1. 按 sessionId 存储（向后兼容）
-        redis.opsForSet().add(userKey, sessionInfo.getSessionId());
-        redis.opsForValue().set(sessionKey, sessionJson, ttl);
-        
-        // 2. 如果提供了 loginSessionId，同时按 loginSessionId 存储（用于快速查询）
-        if (sessionInfo.getLoginSessionId() != null && !sessionInfo.getLoginSessionId().isBlank()) {
-            String loginSessionKey = LOGIN_SESSION_BY_LOGIN_SESSION_ID_PREFIX + sessionInfo.getLoginSessionId();
-            redis.opsForValue().set(loginSessionKey, sessionJson, ttl);
+        boolean hasLoginSessionId = sessionInfo.getLoginSessionId() != null && !sessionInfo.getLoginSessionId().isBlank();
+        inTransaction(ops -> {
+            // 1. 按 sessionId 存储（向后兼容）+ 用户索引
+            ops.opsForSet().add(userKey, sessionInfo.getSessionId());
+            ops.opsForValue().set(sessionKey, sessionJson, ttl);
+            ops.opsForSet().add(LOGIN_USERS_INDEX_KEY, sessionInfo.getUserId());
+            // 2. 如果提供了 loginSessionId，同时按 loginSessionId 存储（用于快速查询）
+            if (hasLoginSessionId) {
+                ops.opsForValue().set(LOGIN_SESSION_BY_LOGIN_SESSION_ID_PREFIX + sessionInfo.getLoginSessionId(), sessionJson, ttl);
+            }
+        });
+
+        if (hasLoginSessionId) {
             log.debug("注册登录会话: userId={}, sessionId={}, loginSessionId={}, status={}, ttl={}s", 
                     sessionInfo.getUserId(), sessionInfo.getSessionId(), sessionInfo.getLoginSessionId(), 
                     sessionInfo.getStatus(), ttl.getSeconds());
@@ -175,13 +202,14 @@ public class SessionRegistry {
         String sessionKey = LOGIN_SESSION_KEY_PREFIX + sessionInfo.getSessionId();
         String sessionJson = JSON.toJSONString(sessionInfo);
 
-        redis.opsForSet().add(userKey, sessionInfo.getSessionId());
-        redis.opsForValue().set(sessionKey, sessionJson, ttl);
-
-        if (sessionInfo.getLoginSessionId() != null && !sessionInfo.getLoginSessionId().isBlank()) {
-            String loginSessionKey = LOGIN_SESSION_BY_LOGIN_SESSION_ID_PREFIX + sessionInfo.getLoginSessionId();
-            redis.opsForValue().set(loginSessionKey, sessionJson, ttl);
-        }
+        inTransaction(ops -> {
+            ops.opsForSet().add(userKey, sessionInfo.getSessionId());
+            ops.opsForValue().set(sessionKey, sessionJson, ttl);
+            ops.opsForSet().add(LOGIN_USERS_INDEX_KEY, userId);
+            if (sessionInfo.getLoginSessionId() != null && !sessionInfo.getLoginSessionId().isBlank()) {
+                ops.opsForValue().set(LOGIN_SESSION_BY_LOGIN_SESSION_ID_PREFIX + sessionInfo.getLoginSessionId(), sessionJson, ttl);
+            }
+        });
 
         log.debug("刷新登录会话: userId={}, sessionId={}, loginSessionId={}, ttl={}s",
                 userId, sessionInfo.getSessionId(), sessionInfo.getLoginSessionId(), ttl.getSeconds());
@@ -206,6 +234,9 @@ public class SessionRegistry {
             }
         }
         redis.delete(LOGIN_SESSION_KEY_PREFIX + sessionId);
+        if (info != null) {
+            pruneUserIndex(LOGIN_USERS_INDEX_KEY, LOGIN_USER_KEY_PREFIX, info.getUserId());
+        }
         log.debug("注销登录会话: sessionId={}", sessionId);
     }
 
@@ -370,6 +401,7 @@ public class SessionRegistry {
             redis.opsForSet().remove(LOGIN_USER_KEY_PREFIX + userId, session.getSessionId());
             redis.delete(LOGIN_SESSION_KEY_PREFIX + session.getSessionId());
         }
+        pruneUserIndex(LOGIN_USERS_INDEX_KEY, LOGIN_USER_KEY_PREFIX, userId);
         return sessions;
     }
 
@@ -397,8 +429,19 @@ public class SessionRegistry {
         String userKey = WS_USER_KEY_PREFIX + sessionInfo.getUserId();
         String sessionKey = WS_SESSION_KEY_PREFIX + sessionInfo.getSessionId();
 
-        redis.opsForSet().add(userKey, sessionInfo.getSessionId());
-        redis.opsForValue().set(sessionKey, JSON.toJSONString(sessionInfo), ttl);
+        String sessionJson = JSON.toJSONString(sessionInfo);
+        String loginSessionId = sessionInfo.getLoginSessionId();
+
+        inTransaction(ops -> {
+            ops.opsForSet().add(userKey, sessionInfo.getSessionId());
+            ops.opsForValue().set(sessionKey, sessionJson, ttl);
+            ops.opsForSet().add(WS_USERS_INDEX_KEY, sessionInfo.getUserId());
+            if (loginSessionId != null && !loginSessionId.isBlank()) {
+                String lsKey = WS_BY_LOGIN_SESSION_PREFIX + loginSessionId;
+                ops.opsForSet().add(lsKey, sessionInfo.getSessionId());
+                ops.expire(lsKey, ttl);
+            }
+        });
         log.debug("注册 WS 会话: userId={}, sessionId={}, service={}, ttl={}s", sessionInfo.getUserId(), sessionInfo.getSessionId(), sessionInfo.getService(), ttl.getSeconds());
     }
 
@@ -426,8 +469,12 @@ public class SessionRegistry {
         WebSocketSessionInfo info = getWebSocketSession(sessionId);
         if (info != null) {
             redis.opsForSet().remove(WS_USER_KEY_PREFIX + info.getUserId(), sessionId);
+            removeFromLoginSessionIndex(info);
         }
         redis.delete(WS_SESSION_KEY_PREFIX + sessionId);
+        if (info != null) {
+            pruneUserIndex(WS_USERS_INDEX_KEY, WS_USER_KEY_PREFIX, info.getUserId());
+        }
         log.debug("注销 WS 会话: sessionId={}", sessionId);
     }
 
@@ -455,11 +502,29 @@ public class SessionRegistry {
         return result;
     }
 
+    /**
+     * 批量判断用户是否持有有效的 WebSocket 会话（快照等高频场景使用）。
+     * 最多两次管道往返：先批量 SMEMBERS，再批量检查会话详情是否存在；不做脏数据清理。
+     *
+     * @param userIds 用户 ID 集合（空白值会被忽略）
+     * @return userId -> 是否在线
+     */
+    public Map<String, Boolean> hasWebSocketSessions(Collection<String> userIds) {
+        if (userIds == null || userIds.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+        List<String> ids = userIds.stream()
+                .filter(id -> id != null && !id.isBlank())
+                .distinct()
+                .collect(Collectors.toList());
+        return probeSessions(ids, WS_USER_KEY_PREFIX, WS_SESSION_KEY_PREFIX).live();
+    }
+
     /**
      * 根据 loginSessionId 查询 WebSocket 会话列表。
      * 
-     * 注意：此方法需要遍历用户的所有 WebSocket 会话，性能取决于会话数量。
-     * 如果 loginSessionId 为空，返回空列表。
+     * 基于 session:ws:loginSession:{loginSessionId} 索引直接定位，不再遍历全部在线用户；
+     * 索引中已失效的 sessionId 顺带清理。如果 loginSessionId 为空，返回空列表。
      * 
      * @param loginSessionId 登录会话 ID（如 Keycloak 的 sid）
      * @return WebSocket 会话列表
@@ -469,22 +534,21 @@ public class SessionRegistry {
             return Collections.emptyList();
         }
         
-        // 由于 WebSocket 会话没有按 loginSessionId 建立索引，需要遍历所有用户
-        // 这里采用简化方案：遍历所有用户的 WebSocket 会话（性能取决于在线用户数）
-        // 未来如果性能成为瓶颈，可以考虑建立 loginSessionId 索引
-        
-        Set<String> userIds = getAllUsersWithSessions();
+        String lsKey = WS_BY_LOGIN_SESSION_PREFIX + loginSessionId;
+        Set<String> sessionIds = redis.opsForSet().members(lsKey);
+        if (sessionIds == null || sessionIds.isEmpty()) {
+            return Collections.emptyList();
+        }
         List<WebSocketSessionInfo> result = new ArrayList<>();
-        
-        for (String userId : userIds) {
-            List<WebSocketSessionInfo> sessions = getWebSocketSessions(userId);
-            for (WebSocketSessionInfo session : sessions) {
-                if (loginSessionId.equals(session.getLoginSessionId())) {
-                    result.add(session);
-                }
+        for (String sessionId : sessionIds) {
+            WebSocketSessionInfo session = getWebSocketSession(sessionId);
+            if (session != null && loginSessionId.equals(session.getLoginSessionId())) {
+                result.add(session);
+            } else {
+                // 清理脏数据
+                redis.opsForSet().remove(lsKey, sessionId);
             }
         }
-        
         return result;
     }
 
@@ -514,8 +578,10 @@ public class SessionRegistry {
         List<WebSocketSessionInfo> sessions = getWebSocketSessions(userId);
         for (WebSocketSessionInfo session : sessions) {
             redis.opsForSet().remove(WS_USER_KEY_PREFIX + userId, session.getSessionId());
+            removeFromLoginSessionIndex(session);
             redis.delete(WS_SESSION_KEY_PREFIX + session.getSessionId());
         }
+        pruneUserIndex(WS_USERS_INDEX_KEY, WS_USER_KEY_PREFIX, userId);
         return sessions;
     }
 
@@ -543,10 +609,7 @@ public class SessionRegistry {
 
     /** 获取所有拥有任意会话的用户快照列表。 */
     public List<UserSessionSnapshot> getAllUserSessions() {
-        Set<String> userIds = new HashSet<>();
-        userIds.addAll(getUserIds(LOGIN_USER_KEY_PREFIX));
-        userIds.addAll(getUserIds(WS_USER_KEY_PREFIX));
-        return userIds.stream()
+        return getAllUsersWithSessions().stream()
                 .map(this::getUserSessions)
                 .collect(Collectors.toList());
     }
@@ -556,14 +619,62 @@ public class SessionRegistry {
         return !getLoginSessions(userId).isEmpty() || !getWebSocketSessions(userId).isEmpty();
     }
 
-    /** 获取所有拥有会话的用户 ID 集合。 */
+    /**
+     * 获取所有拥有会话的用户 ID 集合。
+     * 读取用户索引后批量检查会话详情是否仍存在（管道，两次往返）：会话详情已过期的 ID 从用户会话集合中移除，
+     * 会话全部过期的用户从索引中移除，不会返回。
+     */
     public Set<String> getAllUsersWithSessions() {
         Set<String> userIds = new HashSet<>();
-        userIds.addAll(getUserIds(LOGIN_USER_KEY_PREFIX));
-        userIds.addAll(getUserIds(WS_USER_KEY_PREFIX));
+        userIds.addAll(liveIndexedUserIds(LOGIN_USERS_INDEX_KEY, LOGIN_USER_KEY_PREFIX, LOGIN_SESSION_KEY_PREFIX));
+        userIds.addAll(liveIndexedUserIds(WS_USERS_INDEX_KEY, WS_USER_KEY_PREFIX, WS_SESSION_KEY_PREFIX));
         return userIds;
     }
 
+    /**
+     * 基于 SCAN 重建二级索引（启动补齐与运维工具使用，不在请求链路中调用）。
+     * 适用于索引丢失或升级前已存在会话数据的场景；只做增量补齐，不删除已有索引成员。
+     *
+     * @return 本次补入索引的用户数（登录 + WS）
+     */
+    public int rebuildIndexes() {
+        int added = 0;
+        for (String userId : scanUserIds(LOGIN_USER_KEY_PREFIX)) {
+            Long n = redis.opsForSet().add(LOGIN_USERS_INDEX_KEY, userId);
+            if (n != null) added += n.intValue();
+        }
+        for (String userId : scanUserIds(WS_USER_KEY_PREFIX)) {
+            Long n = redis.opsForSet().add(WS_USERS_INDEX_KEY, userId);
+            if (n != null) added += n.intValue();
+            for (WebSocketSessionInfo ws : getWebSocketSessions(userId)) {
+                if (ws.getLoginSessionId() != null && !ws.getLoginSessionId().isBlank()) {
+                    redis.opsForSet().add(WS_BY_LOGIN_SESSION_PREFIX + ws.getLoginSessionId(), ws.getSessionId());
+                    redis.expire(WS_BY_LOGIN_SESSION_PREFIX + ws.getLoginSessionId(), DEFAULT_WS_TTL);
+                }
+            }
+        }
+        log.info("会话索引重建完成: added={}", added);
+        return added;
+    }
+
+    /**
+     * 启动时补齐二级索引：抢到重建锁才执行 {@link #rebuildIndexes()}。
+     * 锁不主动释放、到期自动失效，同一批启动的服务/实例只有一个执行重建。
+     *
+     * @param lockTtl 重建锁的有效期
+     * @return 本实例是否执行了重建
+     */
+    public boolean rebuildIndexesOnce(Duration lockTtl) {
+        String owner = UUID.randomUUID().toString();
+        Boolean acquired = redis.opsForValue().setIfAbsent(INDEX_REBUILD_LOCK_KEY, owner, lockTtl);
+        if (!Boolean.TRUE.equals(acquired)) {
+            log.debug("会话索引重建已由其他实例执行，跳过");
+            return false;
+        }
+        rebuildIndexes();
+        return true;
+    }
+
     /* ============================
      * 内部工具
      * ============================ */
@@ -583,17 +694,130 @@ public class SessionRegistry {
         return defaultTtl;
     }
 
+    /** 在同一 MULTI/EXEC 中执行一组写操作，保证主数据与索引同时生效。 */
+    @SuppressWarnings("unchecked")
+    private void inTransaction(Consumer<RedisOperations<String, String>> writes) {
+        redis.execute(new SessionCallback<Object>() {
+            @Override
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                operations.multi();
+                writes.accept((RedisOperations<String, String>) operations);
+                return operations.exec();
+            }
+        });
+    }
+
     /**
-     * 获取拥有该前缀 Key 的所有用户 ID。
-     * 说明：目前使用 KEYS，在线用户量较小时可接受；若未来在线人数增多，可替换为 SCAN。
+     * 读取索引中的用户 ID，并惰性清理：过期会话 ID 移出用户会话集合，无有效会话的用户移出索引。
      */
-    private Set<String> getUserIds(String prefix) {
-        Set<String> keys = redis.keys(prefix + "*");
-        if (keys == null || keys.isEmpty()) {
+    private Set<String> liveIndexedUserIds(String indexKey, String userKeyPrefix, String sessionKeyPrefix) {
+        Set<String> members = redis.opsForSet().members(indexKey);
+        if (members == null || members.isEmpty()) {
             return Collections.emptySet();
         }
-        return keys.stream()
-                .map(key -> key.substring(prefix.length()))
-                .collect(Collectors.toSet());
+        SessionProbe probe = probeSessions(new ArrayList<>(members), userKeyPrefix, sessionKeyPrefix);
+        probe.expired().forEach((userId, sessionIds) ->
+                redis.opsForSet().remove(userKeyPrefix + userId, sessionIds.toArray()));
+        Set<String> live = new HashSet<>();
+        probe.live().forEach((userId, alive) -> {
+            if (alive) {
+                live.add(userId);
+            } else {
+                pruneUserIndex(indexKey, userKeyPrefix, userId);
+            }
+        });
+        return live;
+    }
+
+    /**
+     * 批量检查用户的会话详情是否仍存在（最多两次管道往返：先批量 SMEMBERS，再批量 EXISTS）。
+     *
+     * @return live：userId -> 是否持有有效会话；expired：userId -> 详情已过期的 sessionId
+     */
+    @SuppressWarnings("unchecked")
+    private SessionProbe probeSessions(List<String> ids, String userKeyPrefix, String sessionKeyPrefix) {
+        Map<String, Boolean> live = new LinkedHashMap<>();
+        Map<String, List<String>> expired = new HashMap<>();
+        if (ids.isEmpty()) {
+            return new SessionProbe(live, expired);
+        }
+
+        List<Object> members = redis.executePipelined(new SessionCallback<Object>() {
+            @Override
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                for (String id : ids) {
+                    operations.opsForSet().members((K) (userKeyPrefix + id));
+                }
+                return null;
+            }
+        });
+
+        List<String> owners = new ArrayList<>();
+        List<String> sessionIds = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            live.put(ids.get(i), false);
+            Object raw = i < members.size() ? members.get(i) : null;
+            if (raw instanceof Set<?> set) {
+                for (Object sid : set) {
+                    owners.add(ids.get(i));
+                    sessionIds.add(String.valueOf(sid));
+                }
+            }
+        }
+        if (sessionIds.isEmpty()) {
+            return new SessionProbe(live, expired);
+        }
+
+        List<Object> exists = redis.executePipelined(new SessionCallback<Object>() {
+            @Override
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                for (String sid : sessionIds) {
+                    operations.hasKey((K) (sessionKeyPrefix + sid));
+                }
+                return null;
+            }
+        });
+        for (int i = 0; i < sessionIds.size() && i < exists.size(); i++) {
+            if (Boolean.TRUE.equals(exists.get(i))) {
+                live.put(owners.get(i), true);
+            } else {
+                expired.computeIfAbsent(owners.get(i), k -> new ArrayList<>()).add(sessionIds.get(i));
+            }
+        }
+        return new SessionProbe(live, expired);
+    }
+
+    /** 批量会话检查结果 */
+    private record SessionProbe(Map<String, Boolean> live, Map<String, List<String>> expired) {
+    }
+
+    /** 用户会话集合已空时，将其从用户索引中移除。 */
+    private void pruneUserIndex(String indexKey, String userKeyPrefix, String userId) {
+        if (userId == null || userId.isBlank()) {
+            return;
+        }
+        Long size = redis.opsForSet().size(userKeyPrefix + userId);
+        if (size == null || size == 0) {
+            redis.opsForSet().remove(indexKey, userId);
+        }
+    }
+
+    /** 将 WS 会话从 loginSessionId 索引中移除。 */
+    private void removeFromLoginSessionIndex(WebSocketSessionInfo info) {
+        if (info.getLoginSessionId() != null && !info.getLoginSessionId().isBlank()) {
+            redis.opsForSet().remove(WS_BY_LOGIN_SESSION_PREFIX + info.getLoginSessionId(), info.getSessionId());
+        }
+    }
+
+    /**
+     * 以 SCAN 游标遍历拥有该前缀 Key 的所有用户 ID（仅供 {@link #rebuildIndexes()} 使用）。
+     */
+    private Set<String> scanUserIds(String prefix) {
+        Set<String> userIds = new HashSet<>();
+        ScanOptions options = ScanOptions.scanOptions().match(prefix + "*").count(SCAN_BATCH).build();
+        try (Cursor<String> cursor = redis.scan(options)) {
+            cursor.forEachRemaining(key -> userIds.add(key.substring(prefix.length())));
+        }
+        return userIds;
     }
 }
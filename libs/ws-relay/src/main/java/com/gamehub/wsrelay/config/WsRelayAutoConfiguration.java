@@ -0,0 +1,24 @@
+package com.gamehub.wsrelay.config;
+
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.ComponentScan;
+
+/**
+ * WebSocket 跨实例中继自动配置入口类。
+ *
+ * 当配置 ws.relay.enabled=true 时启用（默认关闭，单实例部署无需中继）。
+ *
+ * 自动扫描并注册：
+ * - {@link WsRelayConfig}：中继用的 Redis 订阅容器、broker 通道拦截
+ * - {@link com.gamehub.wsrelay.relay.RelayPublisher}：本实例消息 → Redis
+ * - {@link com.gamehub.wsrelay.relay.RelayReceiver}：Redis → 本实例 SimpleBroker
+ * - {@link com.gamehub.wsrelay.relay.RelaySubscriptionTracker}：按本实例会话的订阅增减 Redis 频道
+ */
+@AutoConfiguration
+@ConditionalOnProperty(prefix = "ws.relay", name = "enabled", havingValue = "true")
+@ComponentScan(basePackages = "com.gamehub.wsrelay")
+public class WsRelayAutoConfiguration {
+    // 自动配置类，无需额外代码
+    // 通过 @ComponentScan 自动发现并注册相关组件
+}
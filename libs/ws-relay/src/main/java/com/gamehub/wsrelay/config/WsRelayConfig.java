@@ -0,0 +1,51 @@
+package com.gamehub.wsrelay.config;
+
+import com.gamehub.wsrelay.relay.RelayPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+
+/**
+ * 中继的 Spring 配置。
+ *
+ * 说明：
+ * - 本类本身也是一个 {@link WebSocketMessageBrokerConfigurer}：@EnableWebSocketMessageBroker 会收集所有 Configurer，
+ *   这里只给 broker 通道挂上 {@link RelayPublisher}，应用自己的 WebSocketStompConfig 不需要改动；
+ * - Redis 订阅容器使用应用已有的 RedisConnectionFactory（pub/sub 与库编号无关，频道名带应用命名空间隔离）。
+ *
+ * 注意：
+ * - 条件控制由 {@link WsRelayAutoConfiguration} 统一管理，此处不需要 @ConditionalOnProperty。
+ */
+@Configuration
+public class WsRelayConfig implements WebSocketMessageBrokerConfigurer {
+
+    /** 中继订阅容器的 Bean 名称（避免与应用自己的容器冲突） */
+    public static final String LISTENER_CONTAINER_BEAN = "wsRelayListenerContainer";
+
+    private final RelayPublisher publisher;
+
+    public WsRelayConfig(RelayPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    /**
+     * 中继专用的 Redis 订阅容器：频道随本实例会话的订阅动态增减。
+     */
+    @Bean(name = LISTENER_CONTAINER_BEAN)
+    public RedisMessageListenerContainer wsRelayListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
+
+    /**
+     * 在 broker 通道上挂中继发布拦截器：应用发往 /topic、/user 的消息在进入 SimpleBroker 的同时转发给其他实例。
+     */
+    @Override
+    public void configureMessageBroker(MessageBrokerRegistry registry) {
+        registry.configureBrokerChannel().interceptors(publisher);
+    }
+}
@@ -0,0 +1,74 @@
+package com.gamehub.wsrelay.relay;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * 中继频道命名与本实例标识。
+ *
+ * 频道：
+ * - {prefix}:{namespace}:t:{destination}：/topic 目的地（如 wsrelay:game-service:t:/topic/room.r1）；
+ * - {prefix}:{namespace}:u:{user}：/user 目的地按用户聚合（该用户的所有 /user/{user}/... 消息）。
+ *
+ * namespace 默认取应用名：Redis pub/sub 不区分库编号，不同服务共用同一个 Redis 时靠它隔离。
+ */
+@Component
+public class RelayChannels {
+
+    public static final String TOPIC_PREFIX = "/topic/";
+    public static final String USER_PREFIX = "/user/";
+
+    /** 本实例标识（每次启动重新生成，用于丢弃自己发出的消息与去重） */
+    private final String instanceId = UUID.randomUUID().toString().substring(0, 8);
+
+    private final String base;
+
+    public RelayChannels(@Value("${ws.relay.channel-prefix:wsrelay}") String prefix,
+                         @Value("${ws.relay.namespace:${spring.application.name:app}}") String namespace) {
+        this.base = prefix + ":" + namespace + ":";
+    }
+
+    public String instanceId() {
+        return instanceId;
+    }
+
+    /** /topic 目的地的频道 */
+    public String topic(String destination) {
+        return base + "t:" + destination;
+    }
+
+    /** 用户的频道 */
+    public String user(String user) {
+        return base + "u:" + user;
+    }
+
+    /**
+     * 消息目的地 → 中继频道
+     * @return 不需要中继的目的地（/app、/queue 等已解析的会话级目的地）返回 null
+     */
+    public String channelFor(String destination) {
+        if (destination == null) {
+            return null;
+        }
+        if (destination.startsWith(TOPIC_PREFIX)) {
+            return topic(destination);
+        }
+        if (destination.startsWith(USER_PREFIX)) {
+            String user = userOf(destination);
+            return user == null ? null : user(user);
+        }
+        return null;
+    }
+
+    /** /user/{user}/queue/xxx → user；格式不符返回 null */
+    static String userOf(String destination) {
+        int start = USER_PREFIX.length();
+        int end = destination.indexOf('/', start);
+        if (end <= start) {
+            return null;
+        }
+        return destination.substring(start, end);
+    }
+}
@@ -0,0 +1,77 @@
+package com.gamehub.wsrelay.relay;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 中继批次的二进制编码（一次 PUBLISH 一个批次）。
+ *
+ * 格式（v1）：
+ * - 版本号(u8) + 来源实例(UTF) + 消息数(int)；
+ * - 每条消息：序号(long) + 目的地(UTF) + content-type(UTF，空串表示无) + 载荷长度(int) + 载荷字节。
+ *
+ * 载荷是进入 broker 通道时已序列化好的 byte[]，原样转发，接收端不再做任何转换。
+ */
+final class RelayCodec {
+
+    static final int VERSION = 1;
+
+    /** 单条中继消息 */
+    record RelayMessage(long seq, String destination, String contentType, byte[] payload) {}
+
+    /** 一个批次：同一来源、同一频道、按发布顺序 */
+    record RelayBatch(String origin, List<RelayMessage> messages) {}
+
+    private RelayCodec() {
+    }
+
+    static byte[] encode(String origin, List<RelayMessage> messages) {
+        int size = 16;
+        for (RelayMessage m : messages) {
+            size += 32 + m.destination().length() + m.payload().length;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(size);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeUTF(origin);
+            out.writeInt(messages.size());
+            for (RelayMessage m : messages) {
+                out.writeLong(m.seq());
+                out.writeUTF(m.destination());
+                out.writeUTF(m.contentType() == null ? "" : m.contentType());
+                out.writeInt(m.payload().length);
+                out.write(m.payload());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static RelayBatch decode(byte[] body) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(body))) {
+            int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IOException("不支持的中继编码版本: " + version);
+            }
+            String origin = in.readUTF();
+            int n = in.readInt();
+            List<RelayMessage> messages = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                long seq = in.readLong();
+                String destination = in.readUTF();
+                String contentType = in.readUTF();
+                byte[] payload = new byte[in.readInt()];
+                in.readFully(payload);
+                messages.add(new RelayMessage(seq, destination, contentType.isEmpty() ? null : contentType, payload));
+            }
+            return new RelayBatch(origin, messages);
+        }
+    }
+}
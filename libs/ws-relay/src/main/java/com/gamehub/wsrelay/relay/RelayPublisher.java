@@ -0,0 +1,158 @@
+package com.gamehub.wsrelay.relay;
+
+import com.gamehub.wsrelay.relay.RelayCodec.RelayMessage;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 中继发布：broker 通道拦截器，把本实例发往 /topic、/user 的消息转发到 Redis。
+ *
+ * 说明：
+ * - 消息照常进入本实例 SimpleBroker（本地订阅者不受影响），同时入队等待中继；
+ * - 由其他实例中继进来的消息带 {@link #ORIGIN_HEADER}，不再转发（防止回环）；
+ * - 带会话 ID 的 /user 消息（@SendToUser 回复、按会话发送的踢线通知等）只发给本实例上的那个会话，不转发：
+ *   对端的用户目的地解析找不到该会话时会退化为投递给该用户的全部会话；
+ * - 批量：首条消息入队后等待 window-ms，期间所有消息按频道分组、每组编码为一个批次，
+ *   所有批次在一次管道往返中 PUBLISH；同一频道内顺序与发布顺序一致；
+ * - 每条消息带本实例内单调递增的序号，接收端据此去重（发布失败重试一次，重试可能造成重复）。
+ */
+@Slf4j
+@Component
+public class RelayPublisher implements ChannelInterceptor {
+
+    /** 中继进来的消息所带的来源实例头 */
+    public static final String ORIGIN_HEADER = "wsRelayOrigin";
+
+    private final RedisConnectionFactory connectionFactory;
+    private final RelayChannels channels;
+
+    /** 合批窗口（毫秒） */
+    @Value("${ws.relay.batch.window-ms:2}")
+    private long windowMs;
+
+    /** 单个批次最多消息数 */
+    @Value("${ws.relay.batch.max-messages:256}")
+    private int maxMessages;
+
+    private final AtomicLong seq = new AtomicLong();
+
+    private final Queue<Outgoing> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "ws-relay-publish");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public RelayPublisher(RedisConnectionFactory connectionFactory, RelayChannels channels) {
+        this.connectionFactory = connectionFactory;
+        this.channels = channels;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        flush();
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        var headers = message.getHeaders();
+        if (SimpMessageHeaderAccessor.getMessageType(headers) != SimpMessageType.MESSAGE
+                || headers.containsKey(ORIGIN_HEADER)
+                || !(message.getPayload() instanceof byte[] payload)) {
+            return message;
+        }
+        String destination = SimpMessageHeaderAccessor.getDestination(headers);
+        String relayChannel = channels.channelFor(destination);
+        if (relayChannel == null || isSessionTargeted(destination, headers)) {
+            return message;
+        }
+        MimeType contentType = headers.get(MessageHeaders.CONTENT_TYPE, MimeType.class);
+        pending.add(new Outgoing(relayChannel, new RelayMessage(seq.incrementAndGet(), destination,
+                contentType == null ? null : contentType.toString(), payload)));
+        if (scheduled.compareAndSet(false, true)) {
+            try {
+                flusher.schedule(this::flush, windowMs, TimeUnit.MILLISECONDS);
+            } catch (RuntimeException e) {
+                // 停机中：就地发送
+                flush();
+            }
+        }
+        return message;
+    }
+
+    // ------------------------------------------------------------------
+
+    /** 指定了会话的 /user 消息（@SendTo 到 /topic 的回复也带会话 ID，但那是广播，照常转发） */
+    private static boolean isSessionTargeted(String destination, MessageHeaders headers) {
+        return destination.startsWith(RelayChannels.USER_PREFIX)
+                && SimpMessageHeaderAccessor.getSessionId(headers) != null;
+    }
+
+    /** 取出全部待发消息，按频道分批，一次管道发出 */
+    private void flush() {
+        scheduled.set(false);
+        Map<String, List<RelayMessage>> byChannel = new LinkedHashMap<>();
+        Outgoing o;
+        while ((o = pending.poll()) != null) {
+            byChannel.computeIfAbsent(o.channel(), k -> new ArrayList<>()).add(o.message());
+        }
+        if (byChannel.isEmpty()) {
+            return;
+        }
+        List<byte[][]> batches = new ArrayList<>();
+        byChannel.forEach((ch, msgs) -> {
+            byte[] channel = ch.getBytes(StandardCharsets.UTF_8);
+            for (int i = 0; i < msgs.size(); i += maxMessages) {
+                List<RelayMessage> part = msgs.subList(i, Math.min(msgs.size(), i + maxMessages));
+                batches.add(new byte[][]{channel, RelayCodec.encode(channels.instanceId(), part)});
+            }
+        });
+        if (!publish(batches) && !publish(batches)) {
+            log.warn("WS 中继发布失败，丢弃 {} 个批次", batches.size());
+        }
+    }
+
+    private boolean publish(List<byte[][]> batches) {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.openPipeline();
+            for (byte[][] b : batches) {
+                connection.publish(b[0], b[1]);
+            }
+            connection.closePipeline();
+            return true;
+        } catch (Exception e) {
+            log.warn("WS 中继发布异常: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /** 待中继的消息 */
+    private record Outgoing(String channel, RelayMessage message) {}
+}
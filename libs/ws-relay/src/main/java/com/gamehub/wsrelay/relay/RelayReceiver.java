@@ -0,0 +1,104 @@
+package com.gamehub.wsrelay.relay;
+
+import com.gamehub.wsrelay.relay.RelayCodec.RelayBatch;
+import com.gamehub.wsrelay.relay.RelayCodec.RelayMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 中继接收：Redis 频道消息 → 本实例 broker 通道（再由 SimpleBroker / 用户目的地解析投递给本地会话）。
+ *
+ * 说明：
+ * - 丢弃本实例自己发出的批次（本地订阅者已由 SimpleBroker 直接投递）；
+ * - 去重：按（频道, 来源实例）记录已投递的最大序号，不大于它的消息丢弃（发布端重试造成的重复）；
+ *   同一频道内序号单调（发布端按频道分批、批次顺序发出），不同频道之间不保证，所以按频道分别记录；
+ * - 投递时带 {@link RelayPublisher#ORIGIN_HEADER}，发布拦截器据此不再转发。
+ */
+@Slf4j
+@Component
+public class RelayReceiver implements MessageListener {
+
+    private final RelayChannels channels;
+
+    /** broker 通道（延迟获取：broker 通道创建时要用到本库的拦截器，构造期注入会形成循环） */
+    private final ObjectProvider<MessageChannel> brokerChannel;
+
+    /** 频道 -> (来源实例 -> 已投递的最大序号) */
+    private final ConcurrentMap<String, ConcurrentMap<String, Long>> delivered = new ConcurrentHashMap<>();
+
+    public RelayReceiver(RelayChannels channels,
+                         @Qualifier("brokerChannel") ObjectProvider<MessageChannel> brokerChannel) {
+        this.channels = channels;
+        this.brokerChannel = brokerChannel;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        RelayBatch batch;
+        try {
+            batch = RelayCodec.decode(message.getBody());
+        } catch (Exception e) {
+            log.warn("WS 中继消息解码失败: {}", e.getMessage());
+            return;
+        }
+        if (channels.instanceId().equals(batch.origin())) {
+            return;
+        }
+        ConcurrentMap<String, Long> marks = delivered.computeIfAbsent(
+                new String(message.getChannel(), StandardCharsets.UTF_8), k -> new ConcurrentHashMap<>());
+        MessageChannel channel = brokerChannel.getObject();
+        for (RelayMessage m : batch.messages()) {
+            if (!markDelivered(marks, batch.origin(), m.seq())) {
+                continue;
+            }
+            try {
+                channel.send(toBrokerMessage(batch.origin(), m));
+            } catch (Exception e) {
+                log.warn("WS 中继投递失败: destination={}, err={}", m.destination(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 频道退订后丢弃其去重记录
+     */
+    public void forget(String channel) {
+        delivered.remove(channel);
+    }
+
+    /** 已投递过（序号不大于记录值）返回 false */
+    private static boolean markDelivered(ConcurrentMap<String, Long> marks, String origin, long seq) {
+        final boolean[] fresh = {false};
+        marks.compute(origin, (k, last) -> {
+            if (last != null && seq <= last) {
+                return last;
+            }
+            fresh[0] = true;
+            return seq;
+        });
+        return fresh[0];
+    }
+
+    private org.springframework.messaging.Message<byte[]> toBrokerMessage(String origin, RelayMessage m) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(m.destination());
+        if (m.contentType() != null) {
+            accessor.setContentType(MimeType.valueOf(m.contentType()));
+        }
+        accessor.setHeader(RelayPublisher.ORIGIN_HEADER, origin);
+        return MessageBuilder.createMessage(m.payload(), accessor.getMessageHeaders());
+    }
+}
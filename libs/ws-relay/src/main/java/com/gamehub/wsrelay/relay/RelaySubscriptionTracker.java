@@ -0,0 +1,146 @@
+package com.gamehub.wsrelay.relay;
+
+import com.gamehub.wsrelay.config.WsRelayConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.security.Principal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 按本实例会话的实际使用增减 Redis 频道订阅。
+ *
+ * 说明：
+ * - /topic 目的地：第一个本地订阅出现时订阅对应频道，最后一个取消订阅/断线时退订；
+ * - /user 目的地：按已认证用户计数，该用户在本实例有连接期间订阅其用户频道；
+ * - 其他实例发到本实例没有订阅者的频道时 Redis 不会投递，本实例不承担无关流量；
+ * - 通配订阅（如 /topic/room.*）按字面频道处理，不支持跨实例中继。
+ */
+@Slf4j
+@Component
+public class RelaySubscriptionTracker {
+
+    private final RelayChannels channels;
+    private final RelayReceiver receiver;
+    private final RedisMessageListenerContainer container;
+
+    /** 频道 -> 本地引用数（只在 refs.compute 内增减，并在其中完成订阅/退订） */
+    private final ConcurrentMap<String, Integer> refs = new ConcurrentHashMap<>();
+
+    /** sessionId -> 会话的中继引用（用户频道 + 各订阅的 topic 频道） */
+    private final ConcurrentMap<String, SessionRefs> sessions = new ConcurrentHashMap<>();
+
+    public RelaySubscriptionTracker(RelayChannels channels,
+                                    RelayReceiver receiver,
+                                    @Qualifier(WsRelayConfig.LISTENER_CONTAINER_BEAN) RedisMessageListenerContainer container) {
+        this.channels = channels;
+        this.receiver = receiver;
+        this.container = container;
+    }
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        String sessionId = StompHeaderAccessor.wrap(event.getMessage()).getSessionId();
+        Principal user = event.getUser();
+        if (sessionId == null || user == null) {
+            return;
+        }
+        String channel = channels.user(user.getName());
+        if (sessions.putIfAbsent(sessionId, new SessionRefs(channel)) == null) {
+            retain(channel);
+        }
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String destination = accessor.getDestination();
+        String sessionId = accessor.getSessionId();
+        String subId = accessor.getSubscriptionId();
+        if (destination == null || !destination.startsWith(RelayChannels.TOPIC_PREFIX)
+                || sessionId == null || subId == null) {
+            return;
+        }
+        String channel = channels.topic(destination);
+        SessionRefs s = sessions.computeIfAbsent(sessionId, k -> new SessionRefs(null));
+        if (s.topics.put(subId, channel) == null) {
+            retain(channel);
+        }
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        SessionRefs s = accessor.getSessionId() == null ? null : sessions.get(accessor.getSessionId());
+        String channel = (s == null || accessor.getSubscriptionId() == null)
+                ? null : s.topics.remove(accessor.getSubscriptionId());
+        if (channel != null) {
+            release(channel);
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        SessionRefs s = sessions.remove(event.getSessionId());
+        if (s == null) {
+            return;
+        }
+        s.topics.values().forEach(this::release);
+        if (s.userChannel != null) {
+            release(s.userChannel);
+        }
+    }
+
+    /** 本实例当前订阅的频道数（监控用） */
+    public int channelCount() {
+        return refs.size();
+    }
+
+    // ------------------------------------------------------------------
+
+    private void retain(String channel) {
+        refs.compute(channel, (k, n) -> {
+            if (n == null) {
+                container.addMessageListener(receiver, new ChannelTopic(channel));
+                log.debug("WS 中继订阅频道: {}", channel);
+                return 1;
+            }
+            return n + 1;
+        });
+    }
+
+    private void release(String channel) {
+        refs.computeIfPresent(channel, (k, n) -> {
+            if (n > 1) {
+                return n - 1;
+            }
+            container.removeMessageListener(receiver, new ChannelTopic(channel));
+            receiver.forget(channel);
+            log.debug("WS 中继退订频道: {}", channel);
+            return null;
+        });
+    }
+
+    /** 单个会话持有的频道引用 */
+    private static final class SessionRefs {
+        /** 用户频道（未认证会话为 null） */
+        final String userChannel;
+        /** subscriptionId -> topic 频道 */
+        final Map<String, String> topics = new ConcurrentHashMap<>();
+
+        SessionRefs(String userChannel) {
+            this.userChannel = userChannel;
+        }
+    }
+}